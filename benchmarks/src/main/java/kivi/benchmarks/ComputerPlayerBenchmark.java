@@ -0,0 +1,101 @@
+package kivi.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks choosing a computer move in mid-game positions
+ *
+ * The Hard player searches to a fixed depth without a time budget, so one
+ * operation is one complete decision. Its transposition table keeps its
+ * entries between calls, as it does between the turns of a game. Run with
+ * -prof gc to see the bytes allocated per decision: determineCell should
+ * allocate none once warmed up, determineMove only its int[] result.
+ *
+ * @author Group 4
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class ComputerPlayerBenchmark {
+    private static final int POSITIONS = 64; // Random positions cycled through (power of two)
+
+    @Param({"Easy", "Hard"})
+    public String difficulty; // Difficulty of the computer player
+
+    @Param({"3"})
+    public int depth; // Plies the Hard player searches
+
+    private Object computerPlayer; // Player under test (player 1 of 2)
+    private Object boardCombinations; // Combinations for each grid cell
+    private Object boardPoints; // Points for each grid cell
+    private Object[] boards; // Positions with 10 to 30 stones
+    private Object[] validations; // Dice rolled in each position
+    private int next; // Index of the next position
+
+    // Builds the computer player and the positions it moves in
+    @Setup
+    public void setUp() throws Throwable {
+        Random random = new Random(42);
+        String[][] combinations = new String[GameClasses.GRID_SIZE][GameClasses.GRID_SIZE];
+        int[][] points = new int[GameClasses.GRID_SIZE][GameClasses.GRID_SIZE];
+        GameClasses.INITIALIZE_BOARD.invokeExact((Object) combinations, (Object) points, (Object) random);
+        boardCombinations = combinations;
+        boardPoints = points;
+
+        boards = new Object[POSITIONS];
+        validations = new Object[POSITIONS];
+        for (int i = 0; i < POSITIONS; i++) {
+            int[][] placement = new int[GameClasses.GRID_SIZE][GameClasses.GRID_SIZE];
+            int[][] fourPlayers = ScoringBenchmark.randomPlacement(random, 10 + random.nextInt(21));
+            for (int row = 0; row < GameClasses.GRID_SIZE; row++) {
+                for (int col = 0; col < GameClasses.GRID_SIZE; col++) {
+                    placement[row][col] = fourPlayers[row][col] == 0 ? 0 : (fourPlayers[row][col] - 1) % 2 + 1; // Two players
+                }
+            }
+            boards[i] = (Object) GameClasses.BOARD_FROM_ARRAY.invokeExact((Object) placement);
+            int[] dice = new int[6];
+            for (int d = 0; d < 6; d++) {
+                dice[d] = random.nextInt(6) + 1;
+            }
+            validations[i] = (Object) GameClasses.NEW_VALIDATION.invokeExact((Object) dice);
+        }
+
+        computerPlayer = (Object) GameClasses.NEW_COMPUTER_PLAYER.invokeExact((Object) difficulty, 1, 2);
+        GameClasses.SET_TIME_BUDGET.invokeExact(computerPlayer, 0L);
+        GameClasses.SET_MAX_DEPTH.invokeExact(computerPlayer, depth);
+        GameClasses.SET_PARALLEL.invokeExact(computerPlayer, false);
+        GameClasses.SET_RANDOM.invokeExact(computerPlayer, (Object) new Random(7));
+    }
+
+    // Chooses the computer's move in the next position
+    @Benchmark
+    public int[] determineMove() throws Throwable {
+        int i = next++ & (POSITIONS - 1);
+        return (int[]) (Object) GameClasses.DETERMINE_MOVE.invokeExact(computerPlayer, boardCombinations,
+                boards[i], boardPoints, validations[i]);
+    }
+
+    // Chooses the cell of the computer's move in the next position, without allocating
+    @Benchmark
+    public int determineCell() throws Throwable {
+        int i = next++ & (POSITIONS - 1);
+        return (int) GameClasses.DETERMINE_CELL.invokeExact(computerPlayer, boardCombinations,
+                boards[i], boardPoints, validations[i], (Object) null);
+    }
+}
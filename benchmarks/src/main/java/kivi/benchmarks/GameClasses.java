@@ -0,0 +1,131 @@
+package kivi.benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Method handles to the game classes used by the benchmarks
+ *
+ * The game classes live in the default package, which a JMH benchmark
+ * (it must have a package) cannot import. The benchmarks call them through
+ * these static final handles instead; the JIT treats them as constants and
+ * inlines the calls. Every handle is erased to Object parameters, so call
+ * sites use invokeExact with Object arguments.
+ *
+ * @author Group 4
+ */
+final class GameClasses {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup(); // Public members only
+    private static final Class<?> BOARD = load("Board"); // Bitboard of the stones
+    private static final Class<?> VALIDATION = load("Validation"); // Dice checks
+    private static final Class<?> COMPUTER_PLAYER = load("ComputerPlayer"); // Computer player logic
+
+    static final int GRID_SIZE = 7; // Size of the game grid
+    static final int MAX_PLAYERS = 4; // Maximum number of players
+
+    // Validation(int[] diceRolls)
+    static final MethodHandle NEW_VALIDATION = constructor(VALIDATION, int[].class);
+    // boolean Validation.isValidPlacement(String combination, boolean isOccupied)
+    static final MethodHandle IS_VALID_PLACEMENT = virtual(VALIDATION, "isValidPlacement", boolean.class, String.class, boolean.class);
+    // String CellManager.getCombination(int index)
+    static final MethodHandle GET_COMBINATION = staticMethod("CellManager", "getCombination", String.class, int.class);
+    // int CellManager.getCombinationCount()
+    static final MethodHandle GET_COMBINATION_COUNT = staticMethod("CellManager", "getCombinationCount", int.class);
+    // void CellManager.initializeBoard(String[][] boardCombinations, int[][] boardPoints, Random random)
+    static final MethodHandle INITIALIZE_BOARD = staticMethod("CellManager", "initializeBoard", void.class,
+            String[][].class, int[][].class, Random.class);
+    // Board Board.fromArray(int[][] stonePlacement)
+    static final MethodHandle BOARD_FROM_ARRAY = staticMethod("Board", "fromArray", BOARD, int[][].class);
+    // Scoring(Board board, int[][] boardPoints, int playerCount)
+    static final MethodHandle NEW_SCORING = constructor(load("Scoring"), BOARD, int[][].class, int.class);
+    // int[] Scoring.calculateScores()
+    static final MethodHandle CALCULATE_SCORES = virtual(load("Scoring"), "calculateScores", int[].class);
+    // ComputerPlayer(String difficulty, int playerId, int playerCount)
+    static final MethodHandle NEW_COMPUTER_PLAYER = constructor(COMPUTER_PLAYER, String.class, int.class, int.class);
+    // void ComputerPlayer.setTimeBudgetMillis(long timeBudgetMillis)
+    static final MethodHandle SET_TIME_BUDGET = virtual(COMPUTER_PLAYER, "setTimeBudgetMillis", void.class, long.class);
+    // void ComputerPlayer.setMaxDepth(int maxDepth)
+    static final MethodHandle SET_MAX_DEPTH = virtual(COMPUTER_PLAYER, "setMaxDepth", void.class, int.class);
+    // void ComputerPlayer.setParallel(boolean parallel)
+    static final MethodHandle SET_PARALLEL = virtual(COMPUTER_PLAYER, "setParallel", void.class, boolean.class);
+    // void ComputerPlayer.setRandom(Random random)
+    static final MethodHandle SET_RANDOM = virtual(COMPUTER_PLAYER, "setRandom", void.class, Random.class);
+    // int[] ComputerPlayer.determineMove(String[][] boardCombinations, Board board, int[][] boardPoints, Validation validation)
+    static final MethodHandle DETERMINE_MOVE = virtual(COMPUTER_PLAYER, "determineMove", int[].class,
+            String[][].class, BOARD, int[][].class, VALIDATION);
+    // int ComputerPlayer.determineCell(String[][] boardCombinations, Board board, int[][] boardPoints, Validation validation,
+    //                                  int[] turnsRemaining)
+    static final MethodHandle DETERMINE_CELL = virtual(COMPUTER_PLAYER, "determineCell", int.class,
+            String[][].class, BOARD, int[][].class, VALIDATION, int[].class);
+    // GameState(playerCount, hasComputerPlayer, computerDifficulty, monochrome, protanopia, tritanopia, board,
+    //           turnsRemaining, currentPlayer, turnsLeft, diceRolls, hasRolled, displacedRow, displacedPlayer)
+    static final MethodHandle NEW_GAME_STATE = constructor(load("GameState"), int.class, boolean.class, String.class,
+            boolean.class, boolean.class, boolean.class, BOARD, int[].class, int.class, int.class, int[].class,
+            boolean.class, int.class, int.class);
+    // void GameStateCodec.encode(GameState state, ByteBuffer buffer)
+    static final MethodHandle ENCODE_GAME_STATE = staticMethod("GameStateCodec", "encode", void.class,
+            load("GameState"), ByteBuffer.class);
+    // GameState GameStateCodec.decode(ByteBuffer buffer)
+    static final MethodHandle DECODE_GAME_STATE = staticMethod("GameStateCodec", "decode", load("GameState"),
+            ByteBuffer.class);
+    // int GameStateCodec.SIZE, the bytes in a binary save
+    static final int GAME_STATE_SIZE = staticInt("GameStateCodec", "SIZE");
+
+    private GameClasses() {
+    }
+
+    // Loads a game class from the default package
+    private static Class<?> load(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Game class " + name + " is not on the class path", e);
+        }
+    }
+
+    // Finds a public constructor and erases its types to Object
+    private static MethodHandle constructor(Class<?> type, Class<?>... parameters) {
+        try {
+            return erase(LOOKUP.findConstructor(type, MethodType.methodType(void.class, parameters)));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Missing constructor of " + type.getName(), e);
+        }
+    }
+
+    // Finds a public instance method and erases its types to Object
+    private static MethodHandle virtual(Class<?> type, String name, Class<?> returnType, Class<?>... parameters) {
+        try {
+            return erase(LOOKUP.findVirtual(type, name, MethodType.methodType(returnType, parameters)));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Missing method " + type.getName() + "." + name, e);
+        }
+    }
+
+    // Finds a public static method of a game class and erases its types to Object
+    private static MethodHandle staticMethod(String className, String name, Class<?> returnType, Class<?>... parameters) {
+        try {
+            return erase(LOOKUP.findStatic(load(className), name, MethodType.methodType(returnType, parameters)));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Missing method " + className + "." + name, e);
+        }
+    }
+
+    // Reads a public static int constant of a game class through a getter handle
+    private static int staticInt(String className, String name) {
+        try {
+            return (int) LOOKUP.findStaticGetter(load(className), name, int.class).invokeExact();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Missing constant " + className + "." + name, e);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot read " + className + "." + name, e);
+        }
+    }
+
+    // Replaces every reference type of a handle with Object, keeping primitives
+    private static MethodHandle erase(MethodHandle handle) {
+        return handle.asType(handle.type().erase());
+    }
+}
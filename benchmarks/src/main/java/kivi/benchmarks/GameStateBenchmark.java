@@ -0,0 +1,92 @@
+package kivi.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks saving and loading a game with Java serialization and with the binary save format
+ *
+ * @author Group 4
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class GameStateBenchmark {
+    private Object gameState; // Mid-game state of a four player game
+    private byte[] serialized; // The state as written by Java serialization
+    private final ByteBuffer buffer = ByteBuffer.allocate(GameClasses.GAME_STATE_SIZE); // Binary save buffer
+
+    // Builds a mid-game state and its serialized form
+    @Setup
+    public void setUp() throws Throwable {
+        Random random = new Random(42);
+        Object board = (Object) GameClasses.BOARD_FROM_ARRAY.invokeExact((Object) ScoringBenchmark.randomPlacement(random, 20));
+        int[] turnsRemaining = {5, 5, 5, 5};
+        int[] diceRolls = {1, 2, 3, 4, 5, 6};
+        gameState = (Object) GameClasses.NEW_GAME_STATE.invokeExact(4, true, (Object) "Hard", false, false, false,
+                board, (Object) turnsRemaining, 1, 5, (Object) diceRolls, true, -1, -1);
+        serialized = write(gameState);
+    }
+
+    // Writes the state to bytes and reads it back
+    @Benchmark
+    public Object roundTrip() throws Exception {
+        return read(write(gameState));
+    }
+
+    // Writes the state to bytes, as saving a game does
+    @Benchmark
+    public byte[] save() throws Exception {
+        return write(gameState);
+    }
+
+    // Reads the state from bytes, as resuming a game does
+    @Benchmark
+    public Object load() throws Exception {
+        return read(serialized);
+    }
+
+    // Encodes the state in the binary save format and decodes it again
+    @Benchmark
+    public Object codecRoundTrip() throws Throwable {
+        buffer.clear();
+        GameClasses.ENCODE_GAME_STATE.invokeExact(gameState, (Object) buffer);
+        buffer.flip();
+        return (Object) GameClasses.DECODE_GAME_STATE.invokeExact((Object) buffer);
+    }
+
+    // Serializes an object
+    private static byte[] write(Object state) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(state);
+        }
+        return bytes.toByteArray();
+    }
+
+    // Deserializes an object
+    private static Object read(byte[] data) throws Exception {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            return in.readObject();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package kivi.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks scoring a whole board from scratch
+ *
+ * One Scoring is built per board in the setup, so an operation measures
+ * calculateScores, which rescores its board on every call, and not the
+ * construction of a Scoring and its RunScorer.
+ *
+ * @author Group 4
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class ScoringBenchmark {
+    private static final int BOARDS = 256; // Random boards cycled through (power of two)
+
+    @Param({"0", "10", "20", "30", "40"})
+    public int stones; // Stones on each board
+
+    private Object[] scorings; // Scoring of each random board with four players
+    private int next; // Index of the next board
+
+    // Builds random boards with the given number of stones and a Scoring for each
+    @Setup
+    public void setUp() throws Throwable {
+        Random random = new Random(42);
+        int[][] points = new int[GameClasses.GRID_SIZE][GameClasses.GRID_SIZE];
+        String[][] combinations = new String[GameClasses.GRID_SIZE][GameClasses.GRID_SIZE];
+        GameClasses.INITIALIZE_BOARD.invokeExact((Object) combinations, (Object) points, (Object) random);
+        scorings = new Object[BOARDS];
+        for (int i = 0; i < BOARDS; i++) {
+            Object board = (Object) GameClasses.BOARD_FROM_ARRAY.invokeExact((Object) randomPlacement(random, stones));
+            scorings[i] = (Object) GameClasses.NEW_SCORING.invokeExact(board, (Object) points, GameClasses.MAX_PLAYERS);
+        }
+    }
+
+    // Scores every player on a board
+    @Benchmark
+    public int[] calculateScores() throws Throwable {
+        return (int[]) (Object) GameClasses.CALCULATE_SCORES.invokeExact(scorings[next++ & (BOARDS - 1)]);
+    }
+
+    // Places stones of four players on distinct random cells
+    static int[][] randomPlacement(Random random, int stones) {
+        int[][] placement = new int[GameClasses.GRID_SIZE][GameClasses.GRID_SIZE];
+        int placed = 0;
+        while (placed < stones) {
+            int row = random.nextInt(GameClasses.GRID_SIZE);
+            int col = random.nextInt(GameClasses.GRID_SIZE);
+            if (placement[row][col] == 0) {
+                placement[row][col] = placed % GameClasses.MAX_PLAYERS + 1;
+                placed++;
+            }
+        }
+        return placement;
+    }
+}
@@ -0,0 +1,69 @@
+package kivi.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks checking dice rolls against the board combinations
+ *
+ * @author Group 4
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class ValidationBenchmark {
+    private static final int ROLLS = 1024; // Random rolls cycled through (power of two)
+
+    private int[][] rolls; // Dice of each roll
+    private Object[] validations; // Validation of each roll
+    private String[] combinations; // All 13 combination strings
+    private int next; // Index of the next roll
+
+    // Rolls the dice and builds a Validation for each roll
+    @Setup
+    public void setUp() throws Throwable {
+        Random random = new Random(42);
+        rolls = new int[ROLLS][6];
+        validations = new Object[ROLLS];
+        for (int i = 0; i < ROLLS; i++) {
+            for (int d = 0; d < 6; d++) {
+                rolls[i][d] = random.nextInt(6) + 1;
+            }
+            validations[i] = (Object) GameClasses.NEW_VALIDATION.invokeExact((Object) rolls[i]);
+        }
+        combinations = new String[(int) GameClasses.GET_COMBINATION_COUNT.invokeExact()];
+        for (int i = 0; i < combinations.length; i++) {
+            combinations[i] = (String) (Object) GameClasses.GET_COMBINATION.invokeExact(i);
+        }
+    }
+
+    // Checks one roll against all 13 combinations on a free cell
+    @Benchmark
+    public void isValidPlacement(Blackhole blackhole) throws Throwable {
+        Object validation = validations[next++ & (ROLLS - 1)];
+        for (String combination : combinations) {
+            blackhole.consume((boolean) GameClasses.IS_VALID_PLACEMENT.invokeExact(validation, (Object) combination, false));
+        }
+    }
+
+    // Builds the Validation for a new roll, as the game does after every roll
+    @Benchmark
+    public Object newValidation() throws Throwable {
+        return (Object) GameClasses.NEW_VALIDATION.invokeExact((Object) rolls[next++ & (ROLLS - 1)]);
+    }
+}
@@ -0,0 +1,264 @@
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * View of one finished game in the game archive
+ *
+ * Every game is a fixed-width record of SIZE bytes, big-endian:
+ *
+ *   0  finished at             8 bytes (epoch milliseconds)
+ *   8  player count            1 byte
+ *   9  turn count              1 byte
+ *  10  winners                 1 byte (bit p - 1 for player p)
+ *  11  flags                   1 byte (bit 0: the game follows from its seed)
+ *  12  scores                  4 x 2 bytes
+ *  20  occupied cells          7 bytes (one bit per cell)
+ *  27  stone owners            13 bytes (2 bits per cell: player - 1)
+ *  40  cell points             13 bytes (2 bits per cell: 1 to 3)
+ *  56  turns                   40 x 4 bytes
+ * 216  seed                    8 bytes
+ * 252  CRC-32 of bytes 0-251   4 bytes
+ *
+ * A turn packs its dice (base-6 roll key, 0xFFFF if not rolled), the cell
+ * the stone went on and the cell the displaced stone went back on (0x7F
+ * for none) and the player. One view is moved from record to record with
+ * wrap, so scanning the archive creates no objects per game: the view keeps
+ * its own CRC32, reset for each record, and a duplicate of the buffer that
+ * is made again only when the view moves to another buffer. A view is
+ * therefore used by one thread at a time, like the one of each scan thread.
+ *
+ * @author Group 4
+ */
+public class ArchivedGame {
+    public static final int SIZE = 256; // Bytes in a record
+    public static final int MAX_TURNS = Board.MAX_PLAYERS * KiviEngine.TURNS_PER_PLAYER; // Turns a record can hold
+
+    private static final int FINISHED_AT = 0; // Offsets of the fields in a record
+    private static final int PLAYER_COUNT = 8;
+    private static final int TURN_COUNT = 9;
+    private static final int WINNERS = 10;
+    private static final int SCORES = 12;
+    private static final int OCCUPIED = 20;
+    private static final int OWNERS = 27;
+    private static final int POINTS = 40;
+    private static final int FLAGS = 11;
+    private static final int TURNS = 56;
+    private static final int SEED = TURNS + 4 * MAX_TURNS;
+    private static final int CRC = SIZE - 4;
+    private static final int OCCUPIED_BYTES = (Board.CELL_COUNT + 7) / 8; // Bytes for 1 bit per cell
+    private static final int SEEDED_FLAG = 1; // Flag: the board points and dice follow from the seed
+
+    private static final int NO_ROLL = 0xFFFF; // Roll field of a turn that was not rolled
+    private static final int NO_CELL = 0x7F; // Cell field when no stone was placed
+    private static final int CELL_SHIFT = 16; // Turn layout: roll key | cell | displaced cell | player
+    private static final int DISPLACED_SHIFT = 23;
+    private static final int PLAYER_SHIFT = 30;
+    private static final int EMPTY_TURN = NO_ROLL | (NO_CELL << CELL_SHIFT) | (NO_CELL << DISPLACED_SHIFT);
+
+    private final CRC32 crc = new CRC32(); // Checksum of the record, reset by isValid
+    private ByteBuffer buffer; // Buffer holding the record
+    private ByteBuffer window; // Duplicate of the buffer whose position and limit are moved to the record for the checksum
+    private int offset; // Position of the record in the buffer
+
+    // Points the view at the record at an offset of a buffer
+    public ArchivedGame wrap(ByteBuffer buffer, int offset) {
+        if (buffer != this.buffer) {
+            this.buffer = buffer;
+            this.window = buffer.duplicate();
+        }
+        this.offset = offset;
+        return this;
+    }
+
+    // Returns when the game finished (epoch milliseconds)
+    public long getFinishedAt() {
+        return buffer.getLong(offset + FINISHED_AT);
+    }
+
+    // Returns the number of players
+    public int getPlayerCount() {
+        return buffer.get(offset + PLAYER_COUNT);
+    }
+
+    // Checks if the game's board points and dice follow from its seed
+    public boolean hasSeed() {
+        return (buffer.get(offset + FLAGS) & SEEDED_FLAG) != 0;
+    }
+
+    // Returns the seed of the game (only meaningful if hasSeed)
+    public long getSeed() {
+        return buffer.getLong(offset + SEED);
+    }
+
+    // Returns the number of turns in the move list
+    public int getTurnCount() {
+        return buffer.get(offset + TURN_COUNT);
+    }
+
+    // Checks if the move list holds every turn (it does not for a game resumed from a save)
+    public boolean isComplete() {
+        return getTurnCount() == getPlayerCount() * KiviEngine.TURNS_PER_PLAYER;
+    }
+
+    // Returns the final score of a player (1 to playerCount)
+    public int getScore(int player) {
+        return buffer.getShort(offset + SCORES + 2 * (player - 1));
+    }
+
+    // Checks if a player had the highest score (ties have several winners)
+    public boolean isWinner(int player) {
+        return (buffer.get(offset + WINNERS) & (1 << (player - 1))) != 0;
+    }
+
+    // Returns the player who owns the stone at a cell at the end of the game, or 0 if it is empty
+    public int getOwner(int cell) {
+        if ((buffer.get(offset + OCCUPIED + cell / 8) & (1 << (cell % 8))) == 0) return 0;
+        return getPacked(OWNERS, cell) + 1;
+    }
+
+    // Returns the points of a cell
+    public int getPoints(int cell) {
+        return getPacked(POINTS, cell);
+    }
+
+    // Returns the player of a turn
+    public int getTurnPlayer(int turn) {
+        return (getTurn(turn) >>> PLAYER_SHIFT) + 1;
+    }
+
+    // Returns the roll key of a turn's dice, or -1 if the turn was not rolled
+    public int getTurnRollKey(int turn) {
+        int key = getTurn(turn) & NO_ROLL;
+        return key == NO_ROLL ? -1 : key;
+    }
+
+    // Returns the cell a turn placed its stone on, or -1 if it was skipped
+    public int getTurnCell(int turn) {
+        int cell = (getTurn(turn) >>> CELL_SHIFT) & NO_CELL;
+        return cell == NO_CELL ? -1 : cell;
+    }
+
+    // Returns the cell the displaced stone of a turn went back on, or -1 if no stone was displaced
+    public int getTurnDisplacedCell(int turn) {
+        int cell = (getTurn(turn) >>> DISPLACED_SHIFT) & NO_CELL;
+        return cell == NO_CELL ? -1 : cell;
+    }
+
+    // Returns the final stone placement as a grid of player numbers (allocates)
+    public int[][] getStonePlacement() {
+        int[][] stonePlacement = new int[Board.GRID_SIZE][Board.GRID_SIZE];
+        for (int cell = 0; cell < Board.CELL_COUNT; cell++) {
+            stonePlacement[Board.rowOf(cell)][Board.colOf(cell)] = getOwner(cell);
+        }
+        return stonePlacement;
+    }
+
+    // Checks the record against its checksum
+    public boolean isValid() {
+        crc.reset();
+        return buffer.getInt(offset + CRC) == (int) checksum(crc, window, offset);
+    }
+
+    // Writes a finished game as a record at an offset of a buffer
+    public static void write(ByteBuffer buffer, int offset, KiviEngine engine, long finishedAt) {
+        int playerCount = engine.getPlayerCount();
+        int[][] boardPoints = engine.getBoardPoints();
+        Board board = engine.getBoard();
+        buffer.putLong(offset + FINISHED_AT, finishedAt);
+        buffer.put(offset + PLAYER_COUNT, (byte) playerCount);
+        buffer.put(offset + FLAGS, (byte) (engine.hasSeed() ? SEEDED_FLAG : 0));
+        int winners = 0;
+        for (int winner : engine.getWinners()) {
+            winners |= 1 << (winner - 1);
+        }
+        buffer.put(offset + WINNERS, (byte) winners);
+        for (int player = 1; player <= Board.MAX_PLAYERS; player++) {
+            buffer.putShort(offset + SCORES + 2 * (player - 1), (short) (player <= playerCount ? engine.getScore(player) : 0));
+        }
+
+        long occupied = board.getOccupied();
+        for (int i = 0; i < OCCUPIED_BYTES; i++) {
+            buffer.put(offset + OCCUPIED + i, (byte) (occupied >>> (8 * i)));
+        }
+        for (int i = OWNERS; i < TURNS; i++) {
+            buffer.put(offset + i, (byte) 0); // Clears the packed cells and the padding after them
+        }
+        for (int cell = 0; cell < Board.CELL_COUNT; cell++) {
+            putPacked(buffer, offset + OWNERS, cell, board.isOccupied(cell) ? board.getOwner(cell) - 1 : 0);
+            putPacked(buffer, offset + POINTS, cell, boardPoints[Board.rowOf(cell)][Board.colOf(cell)]);
+        }
+
+        int turnCount = writeTurns(buffer, offset, engine);
+        buffer.put(offset + TURN_COUNT, (byte) turnCount);
+        for (int turn = turnCount; turn < MAX_TURNS; turn++) {
+            buffer.putInt(offset + TURNS + 4 * turn, EMPTY_TURN);
+        }
+        buffer.putLong(offset + SEED, engine.hasSeed() ? engine.getSeed() : 0);
+        for (int i = SEED + 8; i < CRC; i++) {
+            buffer.put(offset + i, (byte) 0); // Padding
+        }
+        buffer.putInt(offset + CRC, (int) checksum(new CRC32(), buffer.duplicate(), offset));
+    }
+
+    // Rebuilds the turns from the engine's undo records and writes them; returns the number of turns
+    private static int writeTurns(ByteBuffer buffer, int offset, KiviEngine engine) {
+        int turnCount = 0;
+        int turn = 0; // Turn being built
+        boolean open = false; // Whether a turn is being built
+        for (int i = 0; i < engine.getHistorySize() && turnCount < MAX_TURNS; i++) {
+            long record = engine.getHistoryRecord(i);
+            int kind = KiviEngine.actionKind(record);
+            if (kind == KiviEngine.ROLL && open) { // A roll starts the next turn
+                buffer.putInt(offset + TURNS + 4 * turnCount++, turn);
+                open = false;
+                if (turnCount == MAX_TURNS) break;
+            }
+            if (!open) {
+                turn = EMPTY_TURN | ((KiviEngine.actionPlayer(record) - 1) << PLAYER_SHIFT);
+                open = true;
+            }
+            if (kind == KiviEngine.PLACE || kind == KiviEngine.SKIP) {
+                int key = KiviEngine.actionRollKey(record); // The dice this action was played with
+                if (key >= 0) {
+                    turn = (turn & ~NO_ROLL) | key;
+                }
+            }
+            if (kind == KiviEngine.PLACE) {
+                turn = (turn & ~(NO_CELL << CELL_SHIFT)) | (KiviEngine.actionCell(record) << CELL_SHIFT);
+            } else if (kind == KiviEngine.PLACE_DISPLACED) {
+                turn = (turn & ~(NO_CELL << DISPLACED_SHIFT)) | (KiviEngine.actionCell(record) << DISPLACED_SHIFT);
+            }
+            if (kind == KiviEngine.SKIP || kind == KiviEngine.PLACE_DISPLACED) { // These always end the turn
+                buffer.putInt(offset + TURNS + 4 * turnCount++, turn);
+                open = false;
+            }
+        }
+        if (open && turnCount < MAX_TURNS) {
+            buffer.putInt(offset + TURNS + 4 * turnCount++, turn);
+        }
+        return turnCount;
+    }
+
+    // Returns the packed field of a turn
+    private int getTurn(int turn) {
+        return buffer.getInt(offset + TURNS + 4 * turn);
+    }
+
+    // Reads the 2-bit value of a cell from a packed field
+    private int getPacked(int field, int cell) {
+        return (buffer.get(offset + field + cell / 4) >>> (2 * (cell % 4))) & 0x3;
+    }
+
+    // Writes the 2-bit value of a cell into a packed field
+    private static void putPacked(ByteBuffer buffer, int position, int cell, int value) {
+        int index = position + cell / 4;
+        buffer.put(index, (byte) (buffer.get(index) | ((value & 0x3) << (2 * (cell % 4)))));
+    }
+
+    // Computes the CRC-32 of a record up to its checksum, moving the position and limit of a duplicate of its buffer
+    private static long checksum(CRC32 crc, ByteBuffer window, int offset) {
+        window.limit(offset + CRC).position(offset);
+        crc.update(window);
+        return crc.getValue();
+    }
+}
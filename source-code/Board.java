@@ -0,0 +1,214 @@
+import java.io.Serializable;
+import java.util.Random;
+
+/**
+ * Bitboard representation of the stones on the game grid
+ *
+ * Each of the 49 cells is one bit (cell = row * 7 + col). The board keeps
+ * one occupancy mask plus one mask per player, so placing, removing and
+ * copying stones never allocates. A Zobrist key of the (cell, player)
+ * pairs is kept up to date on every change for hashing positions.
+ *
+ * @author Group 4
+ */
+public class Board implements Serializable {
+    private static final long serialVersionUID = 1L; // For serialization compatibility
+
+    public static final int GRID_SIZE = 7; // Size of the game grid
+    public static final int CELL_COUNT = GRID_SIZE * GRID_SIZE; // Number of cells on the grid
+    public static final int MAX_PLAYERS = 4; // Maximum number of players
+    public static final long ALL_CELLS = (1L << CELL_COUNT) - 1; // Mask with every cell set
+    private static final long FIRST_COLUMN = columnMask(0); // Cells in the leftmost column
+    private static final long LAST_COLUMN = columnMask(GRID_SIZE - 1); // Cells in the rightmost column
+    private static final long[][] ZOBRIST = zobristKeys(); // Random key per player and cell
+    public static final long SIDE_TO_MOVE_KEY = new Random(0x53494445L).nextLong(); // Mixed into a key for the second side to move
+
+    private long occupied; // Mask of occupied cells
+    private final long[] playerStones = new long[MAX_PLAYERS + 1]; // Mask of cells per player (index 1 to 4)
+    private long zobristKey; // XOR of the Zobrist keys of every stone
+
+    // Creates an empty board
+    public Board() {
+    }
+
+    // Creates a board from a grid of player numbers (0 for empty)
+    public static Board fromArray(int[][] stonePlacement) {
+        Board board = new Board();
+        for (int row = 0; row < GRID_SIZE; row++) {
+            for (int col = 0; col < GRID_SIZE; col++) {
+                if (stonePlacement[row][col] != 0) {
+                    board.place(cellIndex(row, col), stonePlacement[row][col]);
+                }
+            }
+        }
+        return board;
+    }
+
+    // Converts the board to a grid of player numbers (0 for empty)
+    public int[][] toArray() {
+        int[][] stonePlacement = new int[GRID_SIZE][GRID_SIZE];
+        for (int cell = 0; cell < CELL_COUNT; cell++) {
+            stonePlacement[cell / GRID_SIZE][cell % GRID_SIZE] = getOwner(cell);
+        }
+        return stonePlacement;
+    }
+
+    // Returns the cell index for a row and column
+    public static int cellIndex(int row, int col) {
+        return row * GRID_SIZE + col;
+    }
+
+    // Returns the row of a cell index
+    public static int rowOf(int cell) {
+        return cell / GRID_SIZE;
+    }
+
+    // Returns the column of a cell index
+    public static int colOf(int cell) {
+        return cell % GRID_SIZE;
+    }
+
+    // Returns the player who owns the stone at a cell, or 0 if it is empty
+    public int getOwner(int cell) {
+        long bit = 1L << cell;
+        if ((occupied & bit) == 0) return 0;
+        for (int player = 1; player <= MAX_PLAYERS; player++) {
+            if ((playerStones[player] & bit) != 0) return player;
+        }
+        return 0;
+    }
+
+    // Returns the player who owns the stone at a row and column, or 0 if it is empty
+    public int getStone(int row, int col) {
+        return getOwner(cellIndex(row, col));
+    }
+
+    // Checks if a cell holds a stone
+    public boolean isOccupied(int cell) {
+        return (occupied & (1L << cell)) != 0;
+    }
+
+    // Places a player's stone on a cell and returns the previous owner (make move)
+    public int place(int cell, int player) {
+        int previousOwner = getOwner(cell);
+        long bit = 1L << cell;
+        playerStones[previousOwner] &= ~bit;
+        playerStones[player] |= bit;
+        occupied |= bit;
+        zobristKey ^= ZOBRIST[previousOwner][cell] ^ ZOBRIST[player][cell];
+        return previousOwner;
+    }
+
+    // Restores a cell to its previous owner (unmake move)
+    public void unplace(int cell, int previousOwner) {
+        long bit = 1L << cell;
+        zobristKey ^= ZOBRIST[getOwner(cell)][cell] ^ ZOBRIST[previousOwner][cell];
+        for (int player = 1; player <= MAX_PLAYERS; player++) {
+            playerStones[player] &= ~bit;
+        }
+        if (previousOwner == 0) {
+            occupied &= ~bit;
+        } else {
+            playerStones[previousOwner] |= bit;
+            occupied |= bit;
+        }
+    }
+
+    // Removes the stone from a cell
+    public void remove(int cell) {
+        unplace(cell, 0);
+    }
+
+    // Removes every stone from the board
+    public void clear() {
+        occupied = 0;
+        zobristKey = 0;
+        for (int player = 0; player <= MAX_PLAYERS; player++) {
+            playerStones[player] = 0;
+        }
+    }
+
+    // Returns the Zobrist key of the stones on the board
+    public long getZobristKey() {
+        return zobristKey;
+    }
+
+    // Returns the mask of occupied cells
+    public long getOccupied() {
+        return occupied;
+    }
+
+    // Returns the mask of empty cells
+    public long getEmpty() {
+        return ~occupied & ALL_CELLS;
+    }
+
+    // Returns the mask of cells holding a player's stones
+    public long getStones(int player) {
+        return playerStones[player];
+    }
+
+    // Counts the stones of a player
+    public int countStones(int player) {
+        return Long.bitCount(playerStones[player]);
+    }
+
+    // Counts all stones on the board
+    public int countOccupied() {
+        return Long.bitCount(occupied);
+    }
+
+    // Returns an independent copy of the board
+    public Board copy() {
+        Board board = new Board();
+        board.copyFrom(this);
+        return board;
+    }
+
+    // Overwrites this board with the contents of another board
+    public void copyFrom(Board other) {
+        occupied = other.occupied;
+        zobristKey = other.zobristKey;
+        System.arraycopy(other.playerStones, 0, playerStones, 0, playerStones.length);
+    }
+
+    // Writes the index of each cell in the mask to the buffer in ascending order and returns how many there are
+    public static int cellsOf(long cells, int[] buffer) {
+        int count = 0;
+        while (cells != 0) {
+            buffer[count++] = Long.numberOfTrailingZeros(cells);
+            cells &= cells - 1;
+        }
+        return count;
+    }
+
+    // Returns the cells orthogonally adjacent to any cell in the mask
+    public static long neighbors(long mask) {
+        long up = mask >>> GRID_SIZE;
+        long down = mask << GRID_SIZE;
+        long left = (mask & ~FIRST_COLUMN) >>> 1;
+        long right = (mask & ~LAST_COLUMN) << 1;
+        return (up | down | left | right) & ALL_CELLS;
+    }
+
+    // Builds the Zobrist keys from a fixed seed so keys are the same in every run (empty cells stay 0)
+    private static long[][] zobristKeys() {
+        Random random = new Random(0x4B495649L);
+        long[][] keys = new long[MAX_PLAYERS + 1][CELL_COUNT];
+        for (int player = 1; player <= MAX_PLAYERS; player++) {
+            for (int cell = 0; cell < CELL_COUNT; cell++) {
+                keys[player][cell] = random.nextLong();
+            }
+        }
+        return keys;
+    }
+
+    // Builds the mask of cells in a column
+    private static long columnMask(int col) {
+        long mask = 0;
+        for (int row = 0; row < GRID_SIZE; row++) {
+            mask |= 1L << cellIndex(row, col);
+        }
+        return mask;
+    }
+}
@@ -0,0 +1,314 @@
+import javax.swing.JComponent;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Paints the game grid as a single component
+ *
+ * Replaces a grid of 49 buttons. The colors of each color-blind mode are
+ * looked up once into a Palette shared by every board, and each stone
+ * symbol is drawn once into a sprite that is then only copied. Changing a
+ * cell repaints that cell's rectangle and nothing else, and as the grid
+ * never changes size, no layout pass runs between moves. The dice of the
+ * turn are painted the same way by a DiceStrip.
+ *
+ * @author Group 4
+ */
+public final class BoardCanvas extends JComponent {
+    // Receives the clicks on the cells
+    public interface CellListener {
+        void cellClicked(int row, int col);
+    }
+
+    private static final int GRID_SIZE = Board.GRID_SIZE; // Size of the game grid
+    private static final int CELL_SIZE = 90; // Preferred width and height of a cell in pixels
+    private static final Font COMBINATION_FONT = new Font("Arial", Font.BOLD, 15); // Font of a free cell's combination
+    private static final Font ODDS_FONT = new Font("Arial", Font.PLAIN, 13); // Font of a free cell's odds
+    private static final Font STONE_FONT = new Font("Arial", Font.BOLD, 60); // Font of a stone
+    private static final Font DISPLACED_FONT = new Font("Arial", Font.BOLD, 20); // Font of a stone put back after six of a kind
+    private static final Color DISPLACED_COLOR = Color.YELLOW; // Background of a stone put back after six of a kind
+    private static final int EMPTY = 0; // Cell state: no stone
+    private static final int DISPLACED = 8; // Added to the player of a stone put back after six of a kind
+    private static final Palette[] PALETTES = new Palette[4]; // Palette of each color mode, built on first use
+    private static final long serialVersionUID = 1L; // For serialization compatibility
+
+    private final String[] combinations = new String[Board.CELL_COUNT]; // Combination of each cell
+    private final String[] odds = new String[Board.CELL_COUNT]; // Odds of rolling each cell's combination
+    private final int[] cells = new int[Board.CELL_COUNT]; // Player whose stone is on each cell (plus DISPLACED), or EMPTY
+    private final transient Palette palette; // Colors of the board's color mode
+    private final transient BufferedImage[] stoneSprites = new BufferedImage[Board.MAX_PLAYERS]; // Stone of each player
+    private final transient BufferedImage[] displacedSprites = new BufferedImage[Board.MAX_PLAYERS]; // Stone put back of each player
+    private boolean oddsShown; // Whether free cells show the odds of rolling them
+    private transient CellListener listener; // Told about clicks on the cells, or null
+
+    // Constructor sets up an empty board with the given combinations in a color mode
+    public BoardCanvas(String[][] boardCombinations, boolean monochrome, boolean protanopia, boolean tritanopia) {
+        this.palette = paletteFor(monochrome, protanopia, tritanopia);
+        for (int cell = 0; cell < Board.CELL_COUNT; cell++) {
+            combinations[cell] = boardCombinations[Board.rowOf(cell)][Board.colOf(cell)];
+            int combination = CellManager.getCombinationIndex(combinations[cell]);
+            odds[cell] = combination < 0 ? ""
+                    : Math.round(100 * CombinationOdds.getReachProbability(combination)) + "%";
+        }
+        setOpaque(true);
+        setPreferredSize(new Dimension(GRID_SIZE * CELL_SIZE, GRID_SIZE * CELL_SIZE));
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                int col = e.getX() * GRID_SIZE / Math.max(getWidth(), 1);
+                int row = e.getY() * GRID_SIZE / Math.max(getHeight(), 1);
+                if (listener != null && row >= 0 && row < GRID_SIZE && col >= 0 && col < GRID_SIZE) {
+                    listener.cellClicked(row, col);
+                }
+            }
+        });
+    }
+
+    // Sets the listener told about clicks on the cells
+    public void setCellListener(CellListener listener) {
+        this.listener = listener;
+    }
+
+    // Shows a player's stone on a cell
+    public void showStone(int row, int col, int player) {
+        setCell(Board.cellIndex(row, col), player);
+    }
+
+    // Shows a stone put back on a free cell after six of a kind displaced it
+    public void showDisplacedStone(int row, int col, int player) {
+        setCell(Board.cellIndex(row, col), player + DISPLACED);
+    }
+
+    // Shows a cell as free
+    public void clearCell(int row, int col) {
+        setCell(Board.cellIndex(row, col), EMPTY);
+    }
+
+    // Shows every cell as free
+    public void clearAll() {
+        Arrays.fill(cells, EMPTY);
+        repaint();
+    }
+
+    // Shows or hides the odds of rolling each free cell
+    public void setOddsShown(boolean oddsShown) {
+        if (this.oddsShown == oddsShown) return;
+        this.oddsShown = oddsShown;
+        repaint();
+    }
+
+    // Paints the cells inside the area being repainted
+    @Override
+    protected void paintComponent(Graphics g) {
+        Graphics2D g2 = (Graphics2D) g;
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        int firstRow = Math.max(0, rowAt(clip.y));
+        int lastRow = Math.min(GRID_SIZE - 1, rowAt(clip.y + clip.height - 1));
+        int firstCol = Math.max(0, colAt(clip.x));
+        int lastCol = Math.min(GRID_SIZE - 1, colAt(clip.x + clip.width - 1));
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int col = firstCol; col <= lastCol; col++) {
+                paintCell(g2, row, col);
+            }
+        }
+    }
+
+    // Paints one cell: its background, its border and its stone or combination
+    private void paintCell(Graphics2D g, int row, int col) {
+        int cell = Board.cellIndex(row, col);
+        int x = cellX(col);
+        int y = cellY(row);
+        int width = cellX(col + 1) - x;
+        int height = cellY(row + 1) - y;
+        int state = cells[cell];
+
+        if (state == EMPTY) {
+            g.setColor(palette.cellColors[cell]);
+        } else if (state > DISPLACED) {
+            g.setColor(DISPLACED_COLOR);
+        } else {
+            g.setColor(palette.stoneColors[state - 1]);
+        }
+        g.fillRect(x, y, width, height);
+        g.setColor(Color.BLACK);
+        g.drawRect(x, y, width - 1, height - 1);
+
+        if (state == EMPTY) {
+            g.setFont(COMBINATION_FONT);
+            FontMetrics metrics = g.getFontMetrics();
+            int textY = y + (height - metrics.getHeight()) / 2 + metrics.getAscent();
+            if (oddsShown) {
+                textY -= metrics.getHeight() / 2;
+            }
+            g.drawString(combinations[cell], x + (width - metrics.stringWidth(combinations[cell])) / 2, textY);
+            if (oddsShown) {
+                g.setFont(ODDS_FONT);
+                FontMetrics oddsMetrics = g.getFontMetrics();
+                g.drawString(odds[cell], x + (width - oddsMetrics.stringWidth(odds[cell])) / 2, textY + metrics.getHeight());
+            }
+        } else {
+            BufferedImage sprite = state > DISPLACED ? displacedSprite(state - DISPLACED) : stoneSprite(state);
+            g.drawImage(sprite, x + (width - sprite.getWidth()) / 2, y + (height - sprite.getHeight()) / 2, null);
+        }
+    }
+
+    // Records the state of a cell and repaints only that cell
+    private void setCell(int cell, int state) {
+        if (cells[cell] == state) return;
+        cells[cell] = state;
+        int row = Board.rowOf(cell);
+        int col = Board.colOf(cell);
+        int x = cellX(col);
+        int y = cellY(row);
+        repaint(x, y, cellX(col + 1) - x, cellY(row + 1) - y);
+    }
+
+    // Returns the sprite of a player's stone, drawing it on first use
+    private BufferedImage stoneSprite(int player) {
+        if (stoneSprites[player - 1] == null) {
+            stoneSprites[player - 1] = drawSprite(PlayerInfoPanel.playerStones[player - 1], STONE_FONT);
+        }
+        return stoneSprites[player - 1];
+    }
+
+    // Returns the sprite of a player's stone put back after six of a kind, drawing it on first use
+    private BufferedImage displacedSprite(int player) {
+        if (displacedSprites[player - 1] == null) {
+            displacedSprites[player - 1] = drawSprite(PlayerInfoPanel.playerStones[player - 1], DISPLACED_FONT);
+        }
+        return displacedSprites[player - 1];
+    }
+
+    // Draws a stone symbol once into a transparent image
+    private BufferedImage drawSprite(String symbol, Font font) {
+        FontMetrics metrics = getFontMetrics(font);
+        int width = Math.max(1, metrics.stringWidth(symbol));
+        int height = Math.max(1, metrics.getHeight());
+        GraphicsConfiguration configuration = getGraphicsConfiguration();
+        BufferedImage sprite = configuration != null
+                ? configuration.createCompatibleImage(width, height, Transparency.TRANSLUCENT)
+                : new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = sprite.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setFont(font);
+        g.setColor(Color.BLACK);
+        g.drawString(symbol, 0, metrics.getAscent());
+        g.dispose();
+        return sprite;
+    }
+
+    // Returns the left edge of a column
+    private int cellX(int col) {
+        return col * getWidth() / GRID_SIZE;
+    }
+
+    // Returns the top edge of a row
+    private int cellY(int row) {
+        return row * getHeight() / GRID_SIZE;
+    }
+
+    // Returns the row at a y coordinate
+    private int rowAt(int y) {
+        return y * GRID_SIZE / Math.max(getHeight(), 1);
+    }
+
+    // Returns the column at an x coordinate
+    private int colAt(int x) {
+        return x * GRID_SIZE / Math.max(getWidth(), 1);
+    }
+
+    // Returns the palette of a color mode, building it on first use
+    private static synchronized Palette paletteFor(boolean monochrome, boolean protanopia, boolean tritanopia) {
+        int mode = monochrome ? 1 : protanopia ? 2 : tritanopia ? 3 : 0;
+        if (PALETTES[mode] == null) {
+            PALETTES[mode] = new Palette(monochrome, protanopia, tritanopia);
+        }
+        return PALETTES[mode];
+    }
+
+    // Colors of the cells and stones in one color mode
+    private static class Palette {
+        private final Color[] cellColors = new Color[Board.CELL_COUNT]; // Background of each free cell
+        private final Color[] stoneColors = new Color[Board.MAX_PLAYERS]; // Background of each player's stones
+
+        // Constructor looks up every color of the mode once
+        Palette(boolean monochrome, boolean protanopia, boolean tritanopia) {
+            for (int cell = 0; cell < Board.CELL_COUNT; cell++) {
+                cellColors[cell] = CellManager.getCellColor(Board.rowOf(cell), Board.colOf(cell),
+                        monochrome, protanopia, tritanopia);
+            }
+            for (int player = 1; player <= Board.MAX_PLAYERS; player++) {
+                stoneColors[player - 1] = CellManager.getStoneColor(player, monochrome, protanopia, tritanopia);
+            }
+        }
+    }
+
+    // Paints the six dice of a turn as one component
+    public static final class DiceStrip extends JComponent {
+        private static final int DIE_SIZE = 40; // Width and height of a die in pixels
+        private static final int GAP = 5; // Space between two dice in pixels
+        private static final int PADDING = 10; // Space around the dice in pixels
+        private static final int DICE_COUNT = 6; // Number of dice
+        private static final Font DIE_FONT = new Font("Arial", Font.BOLD, 18); // Font of a die's value
+        private static final String[] FACES = {"", "1", "2", "3", "4", "5", "6"}; // Text of each die value
+        private static final long serialVersionUID = 1L; // For serialization compatibility
+
+        private final int[] dice = new int[DICE_COUNT]; // Value of each die, or 0 while no dice are shown
+
+        // Constructor sets up an empty strip
+        public DiceStrip() {
+            setPreferredSize(new Dimension(2 * PADDING + DICE_COUNT * DIE_SIZE + (DICE_COUNT - 1) * GAP,
+                    2 * PADDING + DIE_SIZE));
+        }
+
+        // Shows the dice of a turn
+        public void setDice(int[] rolls) {
+            System.arraycopy(rolls, 0, dice, 0, DICE_COUNT);
+            repaint();
+        }
+
+        // Hides the dice
+        public void clear() {
+            Arrays.fill(dice, 0);
+            repaint();
+        }
+
+        // Paints each die as a white block with a black border
+        @Override
+        protected void paintComponent(Graphics g) {
+            if (dice[0] == 0) return;
+            Graphics2D g2 = (Graphics2D) g;
+            g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g2.setFont(DIE_FONT);
+            FontMetrics metrics = g2.getFontMetrics();
+            int y = (getHeight() - DIE_SIZE) / 2;
+            for (int i = 0; i < DICE_COUNT; i++) {
+                int x = PADDING + i * (DIE_SIZE + GAP);
+                g2.setColor(Color.BLACK);
+                g2.fillRect(x, y, DIE_SIZE, DIE_SIZE);
+                g2.setColor(Color.WHITE);
+                g2.fillRect(x + 2, y + 2, DIE_SIZE - 4, DIE_SIZE - 4);
+                g2.setColor(Color.BLACK);
+                String face = FACES[dice[i]];
+                g2.drawString(face, x + (DIE_SIZE - metrics.stringWidth(face)) / 2,
+                        y + (DIE_SIZE - metrics.getHeight()) / 2 + metrics.getAscent());
+            }
+        }
+    }
+}
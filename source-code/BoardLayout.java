@@ -0,0 +1,193 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Board layout: the combination, color class and points of every cell
+ *
+ * A layout is read from a compact text format with one character per cell,
+ * so larger boards for events are data files instead of code:
+ *
+ *   size 7
+ *   combinations   (one row per line: the combination index in base 36)
+ *   colors         (one row per line: 0 white, 1 light, 2 dark)
+ *   points         (one row per line: 1 to 3, or ? to draw the points at random)
+ *
+ * Blank lines and lines starting with # are ignored. The layout is kept in
+ * flat arrays indexed by cell (row * size + col), so looking up a cell is an
+ * array access. Boards from 1x1 up to 15x15 are supported; the standard 7x7
+ * board is built in.
+ *
+ * @author Group 4
+ */
+public class BoardLayout {
+    public static final int MAX_SIZE = 15; // Largest supported board side
+    public static final int COLOR_CLASSES = 3; // Number of cell color classes
+    public static final char RANDOM_POINTS = '?'; // Points character for points drawn at random
+    private static final String STANDARD_LAYOUT = """
+            # Standard Kivi board
+            size 7
+            combinations
+            0581761
+            6c1a2b9
+            2495c73
+            836b805
+            15a7490
+            7b2c3a8
+            2940743
+            colors
+            0110110
+            1202021
+            0111210
+            1012101
+            0121110
+            1202021
+            0110110
+            points
+            ???????
+            ???????
+            ???????
+            ???????
+            ???????
+            ???????
+            ???????
+            """; // Layout of the standard 7x7 board
+
+    private final int size; // Number of rows and of columns
+    private final byte[] combinations; // Combination index of each cell
+    private final byte[] colorClasses; // Color class of each cell
+    private final byte[] points; // Points of each cell (0 when drawn at random)
+
+    // Constructor takes the flat per-cell arrays of a size x size board
+    private BoardLayout(int size, byte[] combinations, byte[] colorClasses, byte[] points) {
+        this.size = size;
+        this.combinations = combinations;
+        this.colorClasses = colorClasses;
+        this.points = points;
+    }
+
+    // Returns the standard 7x7 layout
+    public static BoardLayout standard() {
+        return Standard.LAYOUT;
+    }
+
+    // Reads a layout from a file
+    public static BoardLayout load(Path path) throws IOException {
+        return parse(Files.readAllLines(path, StandardCharsets.UTF_8));
+    }
+
+    // Parses a layout from the lines of the layout format
+    public static BoardLayout parse(List<String> lines) {
+        List<String> rows = new ArrayList<>();
+        for (String line : lines) {
+            String trimmed = line.strip();
+            if (!trimmed.isEmpty() && !trimmed.startsWith("#")) {
+                rows.add(trimmed);
+            }
+        }
+        if (rows.isEmpty() || !rows.get(0).startsWith("size ")) {
+            throw new IllegalArgumentException("A layout starts with its size");
+        }
+        int size;
+        try {
+            size = Integer.parseInt(rows.get(0).substring(5).strip());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid layout size: " + rows.get(0));
+        }
+        if (size < 1 || size > MAX_SIZE) {
+            throw new IllegalArgumentException("Layout size " + size + " is not between 1 and " + MAX_SIZE);
+        }
+        if (rows.size() != 4 + 3 * size) {
+            throw new IllegalArgumentException("A layout of size " + size + " needs " + size + " rows in each section");
+        }
+
+        byte[] combinations = new byte[size * size];
+        byte[] colorClasses = new byte[size * size];
+        byte[] points = new byte[size * size];
+        parseSection(rows, 1, "combinations", size, combinations, CellManager.getCombinationCount() - 1);
+        parseSection(rows, 2 + size, "colors", size, colorClasses, COLOR_CLASSES - 1);
+        parseSection(rows, 3 + 2 * size, "points", size, points, 3);
+        return new BoardLayout(size, combinations, colorClasses, points);
+    }
+
+    // Returns the number of rows and of columns
+    public int getSize() {
+        return size;
+    }
+
+    // Returns the number of cells
+    public int getCellCount() {
+        return size * size;
+    }
+
+    // Returns the number of 64-bit words in a mask of the board's cells
+    public int getWordCount() {
+        return CellBits.wordCount(size * size);
+    }
+
+    // Returns the combination index of a cell
+    public int getCombination(int cell) {
+        return combinations[cell];
+    }
+
+    // Returns the color class of a cell
+    public int getColorClass(int cell) {
+        return colorClasses[cell];
+    }
+
+    // Returns the points of a cell, or 0 if they are drawn at random
+    public int getPoints(int cell) {
+        return points[cell];
+    }
+
+    // Fills a size x size board with the layout's combinations and points, drawing random points in row order
+    public void fill(String[][] boardCombinations, int[][] boardPoints, Random random) {
+        for (int cell = 0; cell < combinations.length; cell++) {
+            int row = cell / size;
+            int col = cell % size;
+            boardCombinations[row][col] = CellManager.getCombination(combinations[cell]);
+            boardPoints[row][col] = points[cell] != 0 ? points[cell] : CellManager.drawPoints(random);
+        }
+    }
+
+    // Builds the mask of cells carrying each combination, as CellBits words
+    public long[][] combinationCells() {
+        long[][] cells = new long[CellManager.getCombinationCount()][getWordCount()];
+        for (int cell = 0; cell < combinations.length; cell++) {
+            CellBits.set(cells[combinations[cell]], cell);
+        }
+        return cells;
+    }
+
+    // Reads one section of per-cell characters into an array
+    private static void parseSection(List<String> rows, int start, String name, int size, byte[] values, int maxValue) {
+        if (!rows.get(start).equals(name)) {
+            throw new IllegalArgumentException("Expected the " + name + " section, got: " + rows.get(start));
+        }
+        for (int row = 0; row < size; row++) {
+            String line = rows.get(start + 1 + row);
+            if (line.length() != size) {
+                throw new IllegalArgumentException("Row " + (row + 1) + " of " + name + " has " + line.length()
+                        + " cells, expected " + size);
+            }
+            for (int col = 0; col < size; col++) {
+                char symbol = line.charAt(col);
+                int value = name.equals("points") && symbol == RANDOM_POINTS ? 0 : Character.digit(symbol, 36);
+                if (value < 0 || value > maxValue || (value == 0 && name.equals("points") && symbol != RANDOM_POINTS)) {
+                    throw new IllegalArgumentException("Invalid " + name + " value '" + symbol + "' at row "
+                            + (row + 1) + ", column " + (col + 1));
+                }
+                values[row * size + col] = (byte) value;
+            }
+        }
+    }
+
+    // Holds the standard layout, parsed on first use
+    private static class Standard {
+        static final BoardLayout LAYOUT = parse(STANDARD_LAYOUT.lines().toList());
+    }
+}
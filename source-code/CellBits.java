@@ -0,0 +1,125 @@
+/**
+ * Multi-word masks of cells for boards larger than 7x7
+ *
+ * The standard board fits one long per mask (see Board). A larger board
+ * keeps each mask in an array of 64-bit words, cell c being bit c % 64 of
+ * word c / 64, and these helpers work on such arrays in place so scanning
+ * or combining masks never allocates. Bits past the last cell stay 0.
+ *
+ * @author Group 4
+ */
+public class CellBits {
+    private static final int WORD_BITS = 64; // Cells per word
+
+    // Returns the number of words in a mask of the given number of cells
+    public static int wordCount(int cellCount) {
+        return (cellCount + WORD_BITS - 1) / WORD_BITS;
+    }
+
+    // Checks if a cell is in the mask
+    public static boolean contains(long[] words, int cell) {
+        return (words[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    // Adds a cell to the mask
+    public static void set(long[] words, int cell) {
+        words[cell >>> 6] |= 1L << cell;
+    }
+
+    // Removes a cell from the mask
+    public static void clear(long[] words, int cell) {
+        words[cell >>> 6] &= ~(1L << cell);
+    }
+
+    // Removes every cell from the mask
+    public static void clearAll(long[] words) {
+        for (int i = 0; i < words.length; i++) {
+            words[i] = 0;
+        }
+    }
+
+    // Sets the mask to the first cellCount cells
+    public static void fill(long[] words, int cellCount) {
+        for (int i = 0; i < words.length; i++) {
+            int cells = Math.min(WORD_BITS, cellCount - i * WORD_BITS);
+            words[i] = cells <= 0 ? 0 : cells == WORD_BITS ? -1L : (1L << cells) - 1;
+        }
+    }
+
+    // Copies a mask into another of the same length
+    public static void copy(long[] source, long[] target) {
+        System.arraycopy(source, 0, target, 0, target.length);
+    }
+
+    // Adds the cells of a mask to another
+    public static void or(long[] target, long[] cells) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] |= cells[i];
+        }
+    }
+
+    // Removes the cells of a mask from another
+    public static void andNot(long[] target, long[] cells) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] &= ~cells[i];
+        }
+    }
+
+    // Checks if the mask has no cells
+    public static boolean isEmpty(long[] words) {
+        for (long word : words) {
+            if (word != 0) return false;
+        }
+        return true;
+    }
+
+    // Counts the cells in the mask
+    public static int count(long[] words) {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    // Returns the first cell in the mask at or after a cell, or -1 if there is none
+    public static int next(long[] words, int from) {
+        int index = from >>> 6;
+        if (index >= words.length) return -1;
+        long word = words[index] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return index * WORD_BITS + Long.numberOfTrailingZeros(word);
+            }
+            if (++index == words.length) return -1;
+            word = words[index];
+        }
+    }
+
+    // Returns the cell with the given rank (0 for the first) in the mask, or -1 if the mask has fewer cells
+    public static int select(long[] words, int rank) {
+        for (int i = 0; i < words.length; i++) {
+            int count = Long.bitCount(words[i]);
+            if (rank < count) {
+                long word = words[i];
+                for (int skip = 0; skip < rank; skip++) {
+                    word &= word - 1;
+                }
+                return i * WORD_BITS + Long.numberOfTrailingZeros(word);
+            }
+            rank -= count;
+        }
+        return -1;
+    }
+
+    // Writes the index of each cell in the mask to the buffer in ascending order and returns how many there are
+    public static int cellsOf(long[] words, int[] buffer) {
+        int count = 0;
+        for (int i = 0; i < words.length; i++) {
+            for (long word = words[i]; word != 0; word &= word - 1) {
+                buffer[count++] = i * WORD_BITS + Long.numberOfTrailingZeros(word);
+            }
+        }
+        return count;
+    }
+}
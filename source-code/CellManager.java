@@ -1,3 +1,5 @@
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Random;
 import java.awt.Color;
 
@@ -13,80 +15,93 @@ public class CellManager {
         "AA BB", "AAA", "ABCD", "AAA BB", "AAAA", "ABCDE", "= 2,4,6", "= 1,3,5", "<= 12", ">= 30", "AA BB CC", "AAA BBB", "AAAA BB"
     }; // Possible combinations for the game
     private static final int[] combinationPoints = {1, 1, 1, 1, 2, 2, 2, 2, 2, 2, 3, 3, 3}; // Points for each combination
+    private static final Color[] DEFAULT_CELLS = {
+        Color.WHITE, new Color(255, 176, 203), new Color(213, 66, 115)
+    }; // Cell color of each color class: white, original pink and original red
+    private static final Color[] MONOCHROME_CELLS = {
+        Color.WHITE, new Color(200, 200, 200), new Color(120, 120, 120)
+    }; // Cell color of each color class in monochrome mode
+    private static final Color[] PROTANOPIA_CELLS = {
+        Color.WHITE, new Color(255, 215, 0), new Color(0, 0, 255)
+    }; // Cell color of each color class in protanopia mode: white, gold and blue
+    private static final Color[] TRITANOPIA_CELLS = {
+        Color.WHITE, new Color(255, 0, 0), new Color(0, 128, 128)
+    }; // Cell color of each color class in tritanopia mode: white, red and teal
+    private static final Color[] DEFAULT_STONES = {
+        new Color(217, 235, 250), new Color(128, 180, 210), new Color(3, 106, 140), new Color(0, 77, 172)
+    }; // Stone color of each player
+    private static final Color[] MONOCHROME_STONES = {
+        new Color(80, 80, 80), new Color(140, 140, 140), new Color(170, 170, 170), new Color(230, 230, 230)
+    }; // Stone color of each player in monochrome mode
+    private static final Color[] PROTANOPIA_STONES = {
+        new Color(229, 226, 237), new Color(93, 143, 255), new Color(130, 127, 128), new Color(255, 234, 135)
+    }; // Stone color of each player in protanopia mode
+    private static final Color[] TRITANOPIA_STONES = {
+        new Color(255, 182, 193), new Color(97, 210, 250), new Color(200, 200, 200), new Color(128, 128, 128)
+    }; // Stone color of each player in tritanopia mode
+    private static final Map<String, Integer> combinationIndex = new HashMap<>(); // Combination string to its index
 
-    // Method to get cell background color
-    public static Color getCellColor(int row, int col, boolean monochrome, boolean protanopia, boolean tritanopia) {
-        // Logic for color determination
-        if (row == 0 && col == 0 || row == 3 && col == 5 || row == 4 && col == 6 || row == 6 && col == 3 || row == 0 && col == 3 || 
-            row == 0 && col == 6 || row == 1 && col == 2 || row == 4 && col == 0 || row == 1 && col == 4 || row == 2 && col == 0 || 
-            row == 5 && col == 2 || row == 6 && col == 0) {
-            return Color.WHITE;
-        }
-        else if (row == 2 && col == 1 || row == 4 && col == 4 || row == 6 && col == 2 || row == 6 && col == 5 || row == 0 && col == 1 || 
-            row == 2 && col == 3 || row == 3 && col == 6 || row == 4 && col == 1 || row == 0 && col == 5 || row == 1 && col == 0 || 
-            row == 3 && col == 2 || row == 0 && col == 4 || row == 2 && col == 5 || row == 4 && col == 3 || row == 5 && col == 0 || 
-            row == 6 && col == 4 || row == 0 && col == 2 || row == 3 && col == 0 || row == 3 && col == 4 || row == 5 && col == 6 ||
-            row == 1 && col == 6 || row == 2 && col == 2 || row == 4 && col == 5 || row == 6 && col == 1) {
-            if (monochrome) {
-                return new Color(200, 200, 200);
-            } else if (protanopia) {
-                return new Color(255, 215, 0); // Gold for protanopia
-            } else if (tritanopia) {
-                return new Color(255, 0, 0); // Red for tritanopia
-            } else {
-                return new Color(255, 176, 203); // Original pink
-            }
+    static {
+        for (int i = 0; i < possibleCombinations.length; i++) {
+            combinationIndex.put(possibleCombinations[i], i);
         }
-        else if (row == 1 && col == 3 || row == 4 && col == 2 || row == 5 && col == 5 || row == 1 && col == 5 || row == 3 && col == 3 || 
-            row == 5 && col == 1 || row == 1 && col == 1 || row == 2 && col == 4 || row == 5 && col == 3) {
-            if (monochrome) {
-                return new Color(120, 120, 120);
-            } else if (protanopia) {
-                return new Color(0, 0, 255); // Blue for protanopia
-            } else if (tritanopia) {
-                return new Color(0, 128, 128); // Teal for tritanopia
-            } else {
-                return new Color(213, 66, 115); // Original red
-            }
+    }
+
+    // Returns the number of distinct combinations used on the board
+    public static int getCombinationCount() {
+        return possibleCombinations.length;
+    }
+
+    // Returns the combination string for the given index
+    public static String getCombination(int index) {
+        return possibleCombinations[index];
+    }
+
+    // Returns the index of a combination string, or -1 if it is unknown
+    public static int getCombinationIndex(String combination) {
+        Integer index = combinationIndex.get(combination);
+        return index == null ? -1 : index;
+    }
+
+    // Method to get cell background color on the standard board
+    public static Color getCellColor(int row, int col, boolean monochrome, boolean protanopia, boolean tritanopia) {
+        int colorClass = BoardLayout.standard().getColorClass(Board.cellIndex(row, col));
+        return getClassColor(colorClass, monochrome, protanopia, tritanopia);
+    }
+
+    // Returns the background color of a cell color class (see BoardLayout) in the given color mode
+    public static Color getClassColor(int colorClass, boolean monochrome, boolean protanopia, boolean tritanopia) {
+        if (monochrome) {
+            return MONOCHROME_CELLS[colorClass];
+        } else if (protanopia) {
+            return PROTANOPIA_CELLS[colorClass];
+        } else if (tritanopia) {
+            return TRITANOPIA_CELLS[colorClass];
+        } else {
+            return DEFAULT_CELLS[colorClass];
         }
-        else {
-            return Color.WHITE;
+    }
+
+    // Returns the background color of a player's stones in the given color mode
+    public static Color getStoneColor(int player, boolean monochrome, boolean protanopia, boolean tritanopia) {
+        if (monochrome) {
+            return MONOCHROME_STONES[player - 1];
+        } else if (protanopia) {
+            return PROTANOPIA_STONES[player - 1];
+        } else if (tritanopia) {
+            return TRITANOPIA_STONES[player - 1];
+        } else {
+            return DEFAULT_STONES[player - 1];
         }
     }
 
-    // Method to initialize the board with combinations and points
+    // Method to initialize the standard board with combinations and points
     public static void initializeBoard(String[][] boardCombinations, int[][] boardPoints, Random random) {
-        for (int row = 0; row < boardCombinations.length; row++) {
-            for (int col = 0; col < boardCombinations[row].length; col++) {
-                // Assign combinations based on cell position
-                if (row == 0 && col == 0 || row == 3 && col == 5 || row == 4 && col == 6 || row == 6 && col == 3)
-                    boardCombinations[row][col] = possibleCombinations[0]; // AA BB
-                else if (row == 0 && col == 3 || row == 0 && col == 6 || row == 1 && col == 2 || row == 4 && col == 0)
-                    boardCombinations[row][col] = possibleCombinations[1]; // AAA
-                else if (row == 1 && col == 4 || row == 2 && col == 0 || row == 5 && col == 2 || row == 6 && col == 0)
-                    boardCombinations[row][col] = possibleCombinations[2]; // ABCD
-                else if (row == 2 && col == 1 || row == 4 && col == 4 || row == 6 && col == 2 || row == 6 && col == 5)
-                    boardCombinations[row][col] = possibleCombinations[4]; // AAAA
-                else if (row == 0 && col == 1 || row == 2 && col == 3 || row == 3 && col == 6 || row == 4 && col == 1)
-                    boardCombinations[row][col] = possibleCombinations[5]; // ABCDE
-                else if (row == 0 && col == 5 || row == 1 && col == 0 || row == 3 && col == 2)
-                    boardCombinations[row][col] = possibleCombinations[6]; // = 2,4,6
-                else if (row == 0 && col == 4 || row == 2 && col == 5 || row == 4 && col == 3 || row == 5 && col == 0 || row == 6 && col == 4)
-                    boardCombinations[row][col] = possibleCombinations[7]; // = 1,3,5
-                else if (row == 0 && col == 2 || row == 3 && col == 0 || row == 3 && col == 4 || row == 5 && col == 6)
-                    boardCombinations[row][col] = possibleCombinations[8]; // <= 12
-                else if (row == 1 && col == 6 || row == 2 && col == 2 || row == 4 && col == 5 || row == 6 && col == 1)
-                    boardCombinations[row][col] = possibleCombinations[9]; // >= 30
-                else if (row == 1 && col == 3 || row == 4 && col == 2 || row == 5 && col == 5)
-                    boardCombinations[row][col] = possibleCombinations[10]; // AA BB CC
-                else if (row == 1 && col == 5 || row == 3 && col == 3 || row == 5 && col == 1)
-                    boardCombinations[row][col] = possibleCombinations[11]; // AAA BBB
-                else if (row == 1 && col == 1 || row == 2 && col == 4 || row == 5 && col == 3)
-                    boardCombinations[row][col] = possibleCombinations[12]; // AAAA BB
-                else
-                    boardCombinations[row][col] = possibleCombinations[3]; // AAA BB
-                boardPoints[row][col] = combinationPoints[random.nextInt(combinationPoints.length)]; // Assign points randomly
-            }
-        }
+        BoardLayout.standard().fill(boardCombinations, boardPoints, random);
+    }
+
+    // Draws the points of a cell whose layout leaves them to chance
+    public static int drawPoints(Random random) {
+        return combinationPoints[random.nextInt(combinationPoints.length)];
     }
-}
\ No newline at end of file
+}
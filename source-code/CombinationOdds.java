@@ -0,0 +1,103 @@
+/**
+ * Exact odds of each combination being rolled
+ *
+ * Every one of the 46,656 ordered rolls of six dice is counted once (through
+ * the roll classes of RollDistribution), giving for each combination the
+ * number of rolls that satisfy it and the number that let a stone onto a
+ * free cell carrying it (the combination itself, five of a kind, six of a
+ * kind or the straight), and the same for every pair of combinations at
+ * once. The counts are kept in static tables, so the odds of reaching a
+ * cell are a lookup, and the expected number of cells a roll opens on a
+ * board is a sum over the 13 combinations.
+ *
+ * @author Group 4
+ */
+public class CombinationOdds {
+    private static final int WILDCARDS = Validation.FIVE_OF_A_KIND | Validation.SIX_OF_A_KIND
+            | Validation.STRAIGHT_ONE_TO_SIX; // Rolls that open every free cell
+    public static final int PER_MILLE = 1000; // Scale of the reach odds returned by cellReach
+
+    // Returns the number of rolls that satisfy a combination
+    public static int getHitRolls(int combination) {
+        return Tables.HITS[combination];
+    }
+
+    // Returns the probability that a roll satisfies a combination
+    public static double getHitProbability(int combination) {
+        return (double) Tables.HITS[combination] / RollDistribution.ROLL_COUNT;
+    }
+
+    // Returns the number of rolls that allow a stone on a free cell of a combination
+    public static int getReachRolls(int combination) {
+        return Tables.REACH[combination][combination];
+    }
+
+    // Returns the probability that a roll allows a stone on a free cell of a combination
+    public static double getReachProbability(int combination) {
+        return (double) Tables.REACH[combination][combination] / RollDistribution.ROLL_COUNT;
+    }
+
+    // Returns the probability that one roll allows a stone on free cells of both combinations
+    public static double getJointReachProbability(int first, int second) {
+        return (double) Tables.REACH[first][second] / RollDistribution.ROLL_COUNT;
+    }
+
+    // Returns the probability that a roll is six of a kind, which also opens occupied cells
+    public static double getSixOfAKindProbability() {
+        return (double) Tables.SIX_OF_A_KIND / RollDistribution.ROLL_COUNT;
+    }
+
+    // Returns the expected number of cells the next roll allows a stone on
+    public static double expectedLegalCells(long[] combinationCells, long occupied) {
+        long free = ~occupied & Board.ALL_CELLS;
+        long reachable = 0; // Reachable cells summed over every roll
+        for (int combination = 0; combination < combinationCells.length; combination++) {
+            reachable += (long) Long.bitCount(combinationCells[combination] & free) * Tables.REACH[combination][combination];
+        }
+        reachable += (long) Long.bitCount(occupied) * Tables.SIX_OF_A_KIND; // Six of a kind may displace any stone
+        return (double) reachable / RollDistribution.ROLL_COUNT;
+    }
+
+    // Returns the odds (in PER_MILLE) of the next roll reaching each cell while it is free
+    public static int[] cellReach(long[] combinationCells) {
+        int[] reach = new int[Board.CELL_COUNT];
+        for (int combination = 0; combination < combinationCells.length; combination++) {
+            int odds = (int) Math.round((double) PER_MILLE * Tables.REACH[combination][combination]
+                    / RollDistribution.ROLL_COUNT);
+            for (long cells = combinationCells[combination]; cells != 0; cells &= cells - 1) {
+                reach[Long.numberOfTrailingZeros(cells)] = odds;
+            }
+        }
+        return reach;
+    }
+
+    // Holds the roll counts, built on first use
+    private static class Tables {
+        static final int[] HITS = new int[CellManager.getCombinationCount()]; // Rolls satisfying each combination
+        static final int[][] REACH = new int[HITS.length][HITS.length]; // Rolls reaching free cells of both combinations
+        static int SIX_OF_A_KIND; // Rolls of six of a kind
+
+        static {
+            for (int rollClass = 0; rollClass < RollDistribution.getClassCount(); rollClass++) {
+                int mask = RollDistribution.getClassMask(rollClass);
+                int weight = RollDistribution.getClassWeight(rollClass);
+                boolean wildcard = (mask & WILDCARDS) != 0;
+                if ((mask & Validation.SIX_OF_A_KIND) != 0) {
+                    SIX_OF_A_KIND += weight;
+                }
+                for (int first = 0; first < HITS.length; first++) {
+                    boolean hitsFirst = (mask & (1 << first)) != 0;
+                    if (hitsFirst) {
+                        HITS[first] += weight;
+                    }
+                    if (!hitsFirst && !wildcard) continue;
+                    for (int second = 0; second < HITS.length; second++) {
+                        if (wildcard || (mask & (1 << second)) != 0) {
+                            REACH[first][second] += weight;
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -1,6 +1,10 @@
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Computer player logic for the Kivi game
@@ -8,303 +12,684 @@ import java.util.Random;
  * @author Group 4
  */
 public class ComputerPlayer {
-    private static final int GRID_SIZE = 7; // Size of the game grid
+    private static final int GRID_SIZE = Board.GRID_SIZE; // Size of the game grid
     private Random random = new Random(); // Random number generator
-    private String difficulty; // "Easy" or "Hard"
-    private static final int MAX_DEPTH = 2; // Depth for minimax algorithm
+    private String difficulty; // "Easy", "Hard", "Expert" or "Master"
+    private static final long HARD_TIME_BUDGET = 300; // Hard search time per move in milliseconds
+    private static final long EXPERT_TIME_BUDGET = 500; // Expert search time per move in milliseconds
+    private static final long MASTER_TIME_BUDGET = 500; // Master search time per move in milliseconds
+    private static final int MASTER_PLAYOUTS = 20000; // Master playouts per move, shared by the threads
+    private static final int TABLE_BUCKETS = 1 << 16; // Buckets in the Hard transposition table
+    private static final int ENDGAME_TURNS = 2; // Turns left per player at which the endgame is solved exactly
+    private static final long ENDGAME_TIME_CAP = 200; // Longest the endgame solver may spend on a move in milliseconds (within the move's budget)
+    private static final int ENDGAME_TABLE_SIZE = 1 << 18; // Positions in the endgame solver's table
+    private static final ForkJoinPool SEARCH_POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors()); // Shared by all computer players
+    private static final ThreadLocal<SearchTables> THREAD_TABLES = ThreadLocal.withInitial(SearchTables::new); // Tables of each searching thread
+    private boolean parallel = true; // Whether root moves are searched across the pool
+    private boolean sharedTables; // Whether the Hard and endgame tables belong to the searching thread instead of this player
+    private int playerId; // Stone number of the computer player
+    private int opponentId; // Stone number of the player who moves next
+    private int playerCount; // Number of players in the game
+    private long timeBudgetMillis; // Search time per move in milliseconds (0 for no limit)
+    private int maxDepth = Board.CELL_COUNT; // Deepest search iteration
+    private int endgameTurns = ENDGAME_TURNS; // Turns left per player at which the endgame solver takes over (0 for never)
+    private long endgameTimeCap = ENDGAME_TIME_CAP; // Time the endgame solver may spend on a move in milliseconds
+    private EndgameSolver endgameSolver; // Hard and Expert endgame solver, built for the current board layout
+    private final ThreadLocal<MinimaxSearch> minimaxWorkers = new ThreadLocal<>(); // Hard search state per thread
+    private final List<MinimaxSearch> allWorkers = new ArrayList<>(); // Every Hard worker, for resetting between moves
+    private TranspositionTable transpositionTable; // Hard search results shared by the workers
+    private int[][] tablePoints; // Board points the transposition table entries were searched with
+    private ExpectimaxSearch expectimaxSearch; // Expert search, built for the current board layout
+    private final List<MonteCarloSearch> monteCarloTrees = new ArrayList<>(); // Master search trees, one per thread
+    private int playoutBudget = MASTER_PLAYOUTS; // Master playouts per move
+    private String[][] cachedCombinations; // Board combinations the cell masks were built for
+    private long[] combinationCells; // Mask of cells for each combination
+    private final int[] candidates = new int[Board.CELL_COUNT]; // Candidate cells of the current move
+    private final RootSearch[] rootSearches = new RootSearch[Board.CELL_COUNT]; // Hard root search of each cell, reused between moves
+    private final List<RootSearch> searches = new ArrayList<>(); // Hard root searches of the current move
+    private final AtomicInteger sharedBest = new AtomicInteger(); // Best root score found by any Hard worker
+    private final RecursiveAction rootBatch = new RecursiveAction() { // Runs the Hard root searches across the pool
+        @Override
+        protected void compute() {
+            invokeAll(searches);
+        }
+    };
+    private RunScorer rootScorer; // Run-length scores of the position the Hard player moves in
+    private RunScorer moveScorer; // Run-length scores after one root move
+    private BoardLayout cachedLayout; // Larger layout the wide cell masks were built for
+    private long[][] layoutCells; // Mask of cells for each combination on the larger layout
+    private long[] wideCells; // Candidate cells of the current move on a larger layout
+    private RunScorer wideScorer; // Run-length scores of the larger board the computer moves on
+    private final Metrics.Distribution moveTime; // Time each decision took
+    private final Metrics.Distribution moveNodes; // Nodes (or playouts) each decision searched
+    private final Metrics.Distribution moveBranching; // Valid cells each decision chose from
+    private long lastNodes; // Nodes (or playouts) the last decision searched
+    private int lastBranching; // Valid cells the last decision chose from
+    private int lastDepth; // Plies the last decision searched to (0 for Easy and Master)
+    private long lastPruned; // Alpha-beta cutoffs of the last decision
     
-    // Constructor initializes the computer player with a difficulty level
+    // Constructor initializes the computer player with a difficulty level for a two player game
     public ComputerPlayer(String difficulty) {
+        this(difficulty, 1, 2);
+    }
+    
+    // Constructor initializes the computer player with a difficulty level and its seat in the game
+    public ComputerPlayer(String difficulty, int playerId, int playerCount) {
         this.difficulty = difficulty;
+        this.playerId = playerId;
+        this.playerCount = playerCount;
+        this.opponentId = (playerId % playerCount) + 1;
+        String labels = Metrics.label("difficulty", difficulty);
+        this.moveTime = Metrics.latency("kivi_computer_move_seconds", labels, "Time a computer decision took");
+        this.moveNodes = Metrics.distribution("kivi_computer_move_nodes", labels,
+                "Nodes (playouts for Master) a computer decision searched");
+        this.moveBranching = Metrics.distribution("kivi_computer_move_branching", labels,
+                "Valid cells a computer decision chose from");
+        if (difficulty.equals("Master")) {
+            this.timeBudgetMillis = MASTER_TIME_BUDGET;
+        } else {
+            this.timeBudgetMillis = difficulty.equals("Expert") ? EXPERT_TIME_BUDGET : HARD_TIME_BUDGET;
+        }
+    }
+    
+    // Sets the time the Hard, Expert and Master searches may spend on each move (0 for no limit)
+    public void setTimeBudgetMillis(long timeBudgetMillis) {
+        this.timeBudgetMillis = timeBudgetMillis;
+    }
+    
+    // Sets the deepest search iteration, which bounds the search when there is no time limit
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+    
+    // Sets when the Hard and Expert players solve the endgame exactly (turns left per player, 0 for never) and its time cap (0 for none)
+    public void setEndgame(int endgameTurns, long endgameTimeCap) {
+        this.endgameTurns = endgameTurns;
+        this.endgameTimeCap = endgameTimeCap;
+    }
+    
+    // Sets the playouts of the Master search per move, which trade strength for time
+    public void setPlayoutBudget(int playoutBudget) {
+        this.playoutBudget = playoutBudget;
+    }
+    
+    // Sets whether the Hard and Master searches spread across the shared pool
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+    
+    // Sets whether the Hard transposition table, minimax worker and endgame table are borrowed from the thread running
+    // each search instead of kept by this player. A host with thousands of games searching on a fixed pool then keeps
+    // one set of tables per pool thread; the Hard search runs on the calling thread alone.
+    public void setSharedTables(boolean sharedTables) {
+        this.sharedTables = sharedTables;
+    }
+    
+    // Drops the search state of this player once its game is over
+    public void release() {
+        transpositionTable = null;
+        tablePoints = null;
+        endgameSolver = null;
+        expectimaxSearch = null;
+        monteCarloTrees.clear();
+        synchronized (allWorkers) {
+            allWorkers.clear();
+        }
+        minimaxWorkers.remove(); // Other threads' workers go with this player once it is unreachable
+        rootScorer = null;
+        moveScorer = null;
+    }
+    
+    // Sets the random number generator used by the Easy moves (for repeatable games)
+    public void setRandom(Random random) {
+        this.random = random;
+    }
+    
+    // Returns the transposition table of the Hard search, or null before the first Hard move
+    public TranspositionTable getTranspositionTable() {
+        return transpositionTable;
+    }
+    
+    // Returns the endgame solver, or null before the first endgame move
+    public EndgameSolver getEndgameSolver() {
+        return endgameSolver;
     }
     
     // Determines the best move for the computer player
-    public int[] determineMove(String[][] boardCombinations, int[][] stonePlacement, 
+    public int[] determineMove(String[][] boardCombinations, Board board, 
                               int[][] boardPoints, Validation validation) {
-        List<int[]> validMoves = new ArrayList<>(); // List to store valid moves [row, col, points]
-        
+        return determineMove(boardCombinations, board, boardPoints, validation, null);
+    }
+    
+    // Determines the best move for the computer player, given the turns each player has left
+    public int[] determineMove(String[][] boardCombinations, Board board, 
+                              int[][] boardPoints, Validation validation, int[] turnsRemaining) {
+        int cell = determineCell(boardCombinations, board, boardPoints, validation, turnsRemaining);
+        return cell < 0 ? null : new int[] {Board.rowOf(cell), Board.colOf(cell)}; // Null if no valid moves
+    }
+    
+    // Determines the cell of the best move for the computer player, or -1 if there is no valid move
+    public int determineCell(String[][] boardCombinations, Board board, 
+                             int[][] boardPoints, Validation validation, int[] turnsRemaining) {
+        GameEvents.Search event = new GameEvents.Search();
+        event.begin();
+        long start = System.nanoTime();
+        long deadline = deadlineAfter(start, timeBudgetMillis); // One budget for the whole decision
+        lastNodes = 0;
+        lastDepth = 0;
+        lastPruned = 0;
+        int cell = chooseCell(boardCombinations, board, boardPoints, validation, turnsRemaining, deadline);
+        moveTime.recordSince(start);
+        moveNodes.record(lastNodes);
+        moveBranching.record(lastBranching);
+        event.end();
+        if (event.shouldCommit()) { // False unless a flight recording enabled the event
+            event.difficulty = difficulty;
+            event.depth = lastDepth;
+            event.nodes = lastNodes;
+            event.pruned = lastPruned;
+            event.branching = lastBranching;
+            event.cell = cell;
+            event.commit();
+        }
+        return cell;
+    }
+    
+    // Returns the nodes (playouts for Master) the last decision searched
+    public long getLastNodes() {
+        return lastNodes;
+    }
+    
+    // Returns the number of valid cells the last decision chose from
+    public int getLastBranching() {
+        return lastBranching;
+    }
+    
+    // Returns the plies the last decision searched to
+    public int getLastDepth() {
+        return lastDepth;
+    }
+    
+    // Returns the alpha-beta cutoffs of the last decision
+    public long getLastPruned() {
+        return lastPruned;
+    }
+    
+    // Chooses the cell of the best move by difficulty before the decision's deadline, or returns -1 if there is no valid move
+    private int chooseCell(String[][] boardCombinations, Board board, 
+                           int[][] boardPoints, Validation validation, int[] turnsRemaining, long deadline) {
         // Special case: check for six of a kind first (can place anywhere)
         if (validation.isSixOfAKind()) {
-            return handleSixOfAKindMove(stonePlacement, boardPoints);
+            lastBranching = Board.CELL_COUNT;
+            return handleSixOfAKindMove(board, boardPoints);
         }
         
         // Find all valid moves based on current dice roll
-        for (int row = 0; row < GRID_SIZE; row++) {
-            for (int col = 0; col < GRID_SIZE; col++) {
-                boolean isOccupied = stonePlacement[row][col] != 0; // Check if the cell is occupied
-                String combination = boardCombinations[row][col]; // Get the combination for the cell
-                
-                // Check if placement is valid
-                if (validation.isValidPlacement(combination, isOccupied)) {
-                    int points = boardPoints[row][col]; // Get the points for the cell
-                    int[] move = {row, col, points}; // Create a move array [row, col, points]
-                    validMoves.add(move); // Add the move to the list of valid moves
-                }
-            }
+        long legalCells = getLegalCells(boardCombinations, board, validation);
+        lastBranching = Long.bitCount(legalCells);
+        if (legalCells == 0) {
+            return -1;
         }
         
-        // If no valid moves found
-        if (validMoves.isEmpty()) {
-            return null; // Return null if no valid moves
+        // In the last turns the Hard and Expert players solve the rest of the game, if it can be done in time;
+        // the solver gets the smaller of its cap and the budget, and a search after it only the time left
+        if ((difficulty.equals("Hard") || difficulty.equals("Expert"))
+                && EndgameSolver.isEndgame(turnsRemaining, endgameTurns)) {
+            long solverDeadline = Math.min(deadline, deadlineAfter(System.nanoTime(), endgameTimeCap));
+            int cell = solveEndgame(boardCombinations, board, boardPoints, legalCells, turnsRemaining, solverDeadline);
+            if (cell >= 0) {
+                return cell;
+            }
         }
         
         // Choose move based on difficulty
-        if (difficulty.equals("Hard")) {
-            return chooseHardMove(validMoves, stonePlacement, boardPoints);
+        if (difficulty.equals("Master")) {
+            return chooseMasterMove(boardCombinations, board, boardPoints, validation, turnsRemaining, deadline);
+        } else if (difficulty.equals("Expert")) {
+            return chooseExpertMove(boardCombinations, board, boardPoints, validation, turnsRemaining, deadline);
+        } else if (difficulty.equals("Hard")) {
+            return chooseHardMove(legalCells, board, boardPoints, deadline);
         } else {
-            return chooseEasyMove(validMoves);
+            return chooseEasyMove(legalCells, boardPoints);
+        }
+    }
+    
+    // Determines the cell of the best move on a larger layout, or -1 if there is no valid move
+    public int determineCell(BoardLayout layout, WideBoard board, int[][] boardPoints, Validation validation) {
+        useLayout(layout);
+        validation.getLegalCells(layoutCells, board, wideCells);
+        int count = CellBits.count(wideCells);
+        if (count == 0) {
+            return -1;
+        }
+        if (!isStrategic()) {
+            return CellBits.select(wideCells, random.nextInt(count)); // Easy: any valid cell
+        }
+        return chooseGreedyMove(board, boardPoints);
+    }
+    
+    // Returns the cell for a displaced stone on a larger layout, or -1 if the board is full
+    public int placeDisplacedCell(BoardLayout layout, WideBoard board) {
+        useLayout(layout);
+        board.getEmpty(wideCells);
+        int count = CellBits.count(wideCells);
+        if (count == 0) {
+            return -1;
+        }
+        if (!isStrategic()) {
+            return CellBits.select(wideCells, random.nextInt(count)); // Easy: any empty cell
+        }
+        int size = board.getSize();
+        int bestCell = -1;
+        int bestScore = Integer.MIN_VALUE;
+        for (int cell = CellBits.next(wideCells, 0); cell >= 0; cell = CellBits.next(wideCells, cell + 1)) {
+            int score = size - Math.abs(cell / size - size / 2) - Math.abs(cell % size - size / 2); // Prefer the center
+            if (score > bestScore) {
+                bestScore = score;
+                bestCell = cell;
+            }
+        }
+        return bestCell;
+    }
+    
+    // Builds the cell masks of a larger layout, unless they were built for it already
+    private void useLayout(BoardLayout layout) {
+        if (layout != cachedLayout) {
+            layoutCells = layout.combinationCells();
+            wideCells = new long[layout.getWordCount()];
+            cachedLayout = layout;
+        }
+    }
+    
+    // Larger layouts: the valid cell that most improves the computer's lead in run scores, ties going to the higher points
+    private int chooseGreedyMove(WideBoard board, int[][] boardPoints) {
+        if (wideScorer == null || wideScorer.getBoardPoints() != boardPoints) {
+            wideScorer = new RunScorer(boardPoints, playerCount);
+        }
+        wideScorer.reset(board);
+        int size = board.getSize();
+        int bestCell = -1;
+        int bestMargin = Integer.MIN_VALUE;
+        int bestPoints = 0;
+        for (int cell = CellBits.next(wideCells, 0); cell >= 0; cell = CellBits.next(wideCells, cell + 1)) {
+            int row = cell / size;
+            int col = cell % size;
+            int previousOwner = wideScorer.setStone(row, col, playerId);
+            int bestOpponent = 0;
+            for (int player = 1; player <= playerCount; player++) {
+                if (player != playerId) {
+                    bestOpponent = Math.max(bestOpponent, wideScorer.getScore(player));
+                }
+            }
+            int margin = wideScorer.getScore(playerId) - bestOpponent;
+            wideScorer.setStone(row, col, previousOwner);
+            if (margin > bestMargin || (margin == bestMargin && boardPoints[row][col] > bestPoints)) {
+                bestMargin = margin;
+                bestPoints = boardPoints[row][col];
+                bestCell = cell;
+            }
         }
+        return bestCell;
+    }
+    
+    // Returns the mask of cells the current roll allows a stone on
+    public long getLegalCells(String[][] boardCombinations, Board board, Validation validation) {
+        return validation.getLegalCells(getCombinationCells(boardCombinations), board);
+    }
+    
+    // Returns the per-combination cell masks, rebuilding them if the board layout changed
+    private long[] getCombinationCells(String[][] boardCombinations) {
+        if (boardCombinations != cachedCombinations) {
+            combinationCells = Validation.combinationCells(boardCombinations);
+            cachedCombinations = boardCombinations;
+        }
+        return combinationCells;
+    }
+    
+    // Checks if the difficulty plays strategically rather than randomly
+    private boolean isStrategic() {
+        return difficulty.equals("Hard") || difficulty.equals("Expert") || difficulty.equals("Master");
+    }
+    
+    // Returns the System.nanoTime() a time limit in milliseconds ends at, or Long.MAX_VALUE for no limit (0)
+    private static long deadlineAfter(long start, long millis) {
+        return millis > 0 ? start + millis * 1_000_000L : Long.MAX_VALUE;
+    }
+    
+    // Endgame: solves the rest of the game exactly, or returns -1 if the deadline passed first
+    private int solveEndgame(String[][] boardCombinations, Board board, int[][] boardPoints, long legalCells,
+                             int[] turnsRemaining, long deadline) {
+        long[] cells = getCombinationCells(boardCombinations);
+        EndgameSolver solver = sharedTables ? THREAD_TABLES.get().endgameSolver : endgameSolver;
+        if (solver == null) {
+            solver = new EndgameSolver(cells, boardPoints, playerCount, playerId, ENDGAME_TABLE_SIZE);
+        } else if (solver.getBoardPoints() != boardPoints || solver.getCombinationCells() != cells
+                || solver.getPlayerId() != playerId) {
+            solver = new EndgameSolver(cells, boardPoints, playerCount, playerId, solver); // Reuses the old solver's table
+        }
+        if (sharedTables) {
+            THREAD_TABLES.get().endgameSolver = solver;
+        } else {
+            endgameSolver = solver;
+        }
+        int cell = solver.solve(board, turnsRemaining, legalCells, deadline);
+        lastNodes += solver.getNodes();
+        if (cell >= 0) {
+            for (int turns : turnsRemaining) {
+                lastDepth += turns; // Solved to the end of the game
+            }
+        }
+        return cell;
+    }
+    
+    // Expert mode: Uses expectimax over the dice to select the best move
+    private int chooseExpertMove(String[][] boardCombinations, Board board, int[][] boardPoints,
+                                   Validation validation, int[] turnsRemaining, long deadline) {
+        long[] cells = getCombinationCells(boardCombinations);
+        if (expectimaxSearch == null || expectimaxSearch.getBoardPoints() != boardPoints
+                || expectimaxSearch.getCombinationCells() != cells) {
+            expectimaxSearch = new ExpectimaxSearch(cells, boardPoints, playerCount, playerId);
+        }
+        long legalCells = validation.getLegalCells(cells, board);
+        int cell = expectimaxSearch.findBestMove(board, turnsRemaining, legalCells, deadline, maxDepth);
+        lastNodes += expectimaxSearch.getNodes();
+        lastDepth = expectimaxSearch.getCompletedDepth();
+        return cell;
+    }
+    
+    // Master mode: Monte Carlo tree search, one tree per thread, choosing the move with the most playouts
+    private int chooseMasterMove(String[][] boardCombinations, Board board, int[][] boardPoints,
+                                   Validation validation, int[] turnsRemaining, long deadline) {
+        long[] cells = getCombinationCells(boardCombinations);
+        int threads = parallel ? SEARCH_POOL.getParallelism() : 1;
+        if (monteCarloTrees.size() != threads || monteCarloTrees.get(0).getBoardPoints() != boardPoints
+                || monteCarloTrees.get(0).getCombinationCells() != cells) {
+            monteCarloTrees.clear(); // New layout: the old trees are of no use
+            for (int i = 0; i < threads; i++) {
+                monteCarloTrees.add(new MonteCarloSearch(cells, boardPoints, playerCount, playerId, random.nextLong()));
+            }
+        }
+        long legalCells = validation.getLegalCells(cells, board);
+        int mask = validation.getCombinationMask();
+        int share = (playoutBudget + threads - 1) / threads;
+        if (threads > 1) {
+            List<ForkJoinTask<?>> searches = new ArrayList<>();
+            for (MonteCarloSearch tree : monteCarloTrees) {
+                searches.add(ForkJoinTask.adapt(() -> tree.search(board, turnsRemaining, mask, legalCells, share, deadline)));
+            }
+            SEARCH_POOL.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(searches);
+                }
+            });
+        } else {
+            monteCarloTrees.get(0).search(board, turnsRemaining, mask, legalCells, share, deadline);
+        }
+        
+        // Add up the playouts of every tree and play the most visited move
+        int bestCell = Long.numberOfTrailingZeros(legalCells);
+        long bestVisits = -1;
+        for (long moves = legalCells; moves != 0; moves &= moves - 1) {
+            int cell = Long.numberOfTrailingZeros(moves);
+            long visits = 0;
+            for (MonteCarloSearch tree : monteCarloTrees) {
+                visits += tree.getRootVisits(cell);
+            }
+            if (visits > bestVisits) {
+                bestVisits = visits;
+                bestCell = cell;
+            }
+        }
+        for (MonteCarloSearch tree : monteCarloTrees) {
+            lastNodes += tree.getPlayouts();
+            tree.setPlayedMove(bestCell);
+        }
+        return bestCell;
     }
     
     // Easy mode: Simply selects random valid moves
-    private int[] chooseEasyMove(List<int[]> validMoves) {
+    private int chooseEasyMove(long legalCells, int[][] boardPoints) {
         // Easy mode just randomly selects from valid moves with minimal strategy
+        int count = Board.cellsOf(legalCells, candidates);
         
-        if (validMoves.size() == 1) {
+        if (count == 1) {
             // If only one valid move, return it
-            int[] selectedMove = validMoves.get(0);
-            return new int[] {selectedMove[0], selectedMove[1]};
+            return candidates[0];
         }
         
         // Very simple strategy: 15% chance to choose the highest point move
         if (random.nextInt(100) < 15) {
             // Find the move with the highest points
-            int[] bestMove = validMoves.get(0);
-            for (int[] move : validMoves) {
-                if (move[2] > bestMove[2]) {
-                    bestMove = move;
+            int bestCell = candidates[0];
+            for (int i = 1; i < count; i++) {
+                if (pointsOf(boardPoints, candidates[i]) > pointsOf(boardPoints, bestCell)) {
+                    bestCell = candidates[i];
                 }
             }
-            return new int[] {bestMove[0], bestMove[1]};
+            return bestCell;
         }
         
         // Otherwise, randomly select a move
-        int[] selectedMove = validMoves.get(random.nextInt(validMoves.size()));
-        return new int[] {selectedMove[0], selectedMove[1]};
+        return candidates[random.nextInt(count)];
     }
     
-    // Hard mode: Uses minimax strategy to select the best move
-    private int[] chooseHardMove(List<int[]> validMoves, int[][] stonePlacement, int[][] boardPoints) {
-        int[] bestMove = null;
-        int bestScore = Integer.MIN_VALUE;
-        
-        // Create a copy of the stone placement to simulate moves
-        int[][] tempStonePlacement = new int[GRID_SIZE][GRID_SIZE];
-        for (int i = 0; i < GRID_SIZE; i++) {
-            for (int j = 0; j < GRID_SIZE; j++) {
-                tempStonePlacement[i][j] = stonePlacement[i][j];
-            }
-        }
-        
-        // Evaluate each valid move using minimax
-        for (int[] move : validMoves) {
-            int row = move[0];
-            int col = move[1];
-            int points = move[2];
-            
-            // Make the move
-            tempStonePlacement[row][col] = 1; // 1 represents computer's stone
-            
-            // Calculate score using minimax
-            int score = minimax(tempStonePlacement, boardPoints, 0, false, Integer.MIN_VALUE, Integer.MAX_VALUE);
-            
-            // Add immediate points to the score
-            score += points;
-            
-            // Undo the move
-            tempStonePlacement[row][col] = stonePlacement[row][col];
-            
-            // Update best move if this move has a higher score
-            if (score > bestScore) {
-                bestScore = score;
-                bestMove = move;
-            }
-        }
-        
-        // If we found a best move, return it
-        if (bestMove != null) {
-            return new int[] {bestMove[0], bestMove[1]};
-        }
-        
-        // Fallback: return the first valid move
-        int[] selectedMove = validMoves.get(0);
-        return new int[] {selectedMove[0], selectedMove[1]};
+    // Returns the points of a cell
+    private static int pointsOf(int[][] boardPoints, int cell) {
+        return boardPoints[Board.rowOf(cell)][Board.colOf(cell)];
     }
     
-    // Minimax algorithm with alpha-beta pruning
-    private int minimax(int[][] stonePlacement, int[][] boardPoints, int depth, boolean isMaximizing, int alpha, int beta) {
-        // Terminal condition: reached maximum depth
-        if (depth >= MAX_DEPTH) {
-            return evaluateBoard(stonePlacement, boardPoints);
+    // Hard mode: Uses iterative deepening minimax to select the best move before the deadline
+    private int chooseHardMove(long legalCells, Board board, int[][] boardPoints, long deadline) {
+        if (rootScorer == null || rootScorer.getBoardPoints() != boardPoints) {
+            rootScorer = new RunScorer(boardPoints, Board.MAX_PLAYERS);
+            moveScorer = new RunScorer(boardPoints, Board.MAX_PLAYERS);
         }
+        rootScorer.reset(board); // Running run-length scores
         
-        // Find all available spaces
-        List<int[]> availableMoves = getAvailableMoves(stonePlacement, boardPoints);
-        
-        // Terminal condition: no more available moves
-        if (availableMoves.isEmpty()) {
-            return evaluateBoard(stonePlacement, boardPoints);
+        // One root search per valid move, tried in order of cell points first
+        searches.clear();
+        int count = Board.cellsOf(legalCells, candidates);
+        for (int i = 0; i < count; i++) {
+            int cell = candidates[i];
+            if (rootSearches[cell] == null) {
+                rootSearches[cell] = new RootSearch(cell);
+            }
+            rootSearches[cell].start(board, boardPoints);
+            searches.add(rootSearches[cell]);
         }
+        searches.sort((a, b) -> Integer.compare(b.points, a.points));
         
-        if (isMaximizing) {
-            // Computer's turn (maximizing)
-            int maxScore = Integer.MIN_VALUE;
-            for (int[] move : availableMoves) {
-                int row = move[0];
-                int col = move[1];
-                
-                // Make the move
-                stonePlacement[row][col] = 1; // 1 for computer
-                
-                // Recursively find the best score
-                int score = minimax(stonePlacement, boardPoints, depth + 1, false, alpha, beta);
-                
-                // Undo the move
-                stonePlacement[row][col] = 0;
-                
-                maxScore = Math.max(maxScore, score);
-                alpha = Math.max(alpha, score);
-                
-                // Alpha-beta pruning
-                if (beta <= alpha) {
-                    break;
+        // Deepen one ply at a time until the budget runs out or the board is full
+        int bestCell = searches.get(0).cell;
+        int emptyAfterMove = Long.bitCount(board.getEmpty()) - 1;
+        int depthLimit = Math.min(maxDepth, Math.max(emptyAfterMove, 1));
+        prepareTranspositionTable(boardPoints);
+        if (sharedTables) {
+            workerFor(boardPoints).newDecision();
+        } else {
+            synchronized (allWorkers) {
+                allWorkers.removeIf(worker -> worker.getBoardPoints() != boardPoints);
+                for (MinimaxSearch worker : allWorkers) {
+                    worker.newDecision();
                 }
             }
-            return maxScore;
+        }
+        for (int depth = 1; depth <= depthLimit; depth++) {
+            sharedBest.set(Integer.MIN_VALUE); // No root score found yet at this depth
+            for (RootSearch search : searches) {
+                search.prepare(depth, deadline);
+            }
+            
+            // Evaluate the root moves across the pool, or one after another
+            if (parallel && !sharedTables && searches.size() > 1) {
+                rootBatch.reinitialize();
+                SEARCH_POOL.invoke(rootBatch);
+            } else {
+                for (RootSearch search : searches) {
+                    search.invoke();
+                }
+            }
+            
+            boolean timedOut = false;
+            for (RootSearch search : searches) {
+                timedOut |= search.timedOut;
+            }
+            if (timedOut) {
+                break; // Keep the best move of the last finished iteration
+            }
+            
+            // Pick the highest score, preferring the earlier move on ties, and search it first next time
+            searches.sort((a, b) -> Integer.compare(b.score, a.score));
+            bestCell = searches.get(0).cell;
+            searches.get(0).bestLine = true;
+            lastDepth = depth;
+        }
+        if (sharedTables) {
+            MinimaxSearch worker = workerFor(boardPoints);
+            lastNodes += worker.getNodes();
+            lastPruned += worker.getCutoffs();
         } else {
-            // Opponent's turn (minimizing)
-            int minScore = Integer.MAX_VALUE;
-            for (int[] move : availableMoves) {
-                int row = move[0];
-                int col = move[1];
-                
-                // Make the move
-                stonePlacement[row][col] = 2; // 2 for opponent
-                
-                // Recursively find the best score
-                int score = minimax(stonePlacement, boardPoints, depth + 1, true, alpha, beta);
-                
-                // Undo the move
-                stonePlacement[row][col] = 0;
-                
-                minScore = Math.min(minScore, score);
-                beta = Math.min(beta, score);
-                
-                // Alpha-beta pruning
-                if (beta <= alpha) {
-                    break;
+            synchronized (allWorkers) {
+                for (MinimaxSearch worker : allWorkers) {
+                    lastNodes += worker.getNodes();
+                    lastPruned += worker.getCutoffs();
                 }
             }
-            return minScore;
         }
+        return bestCell;
     }
     
-    // Get all available moves for minimax
-    private List<int[]> getAvailableMoves(int[][] stonePlacement, int[][] boardPoints) {
-        List<int[]> availableMoves = new ArrayList<>();
-        for (int row = 0; row < GRID_SIZE; row++) {
-            for (int col = 0; col < GRID_SIZE; col++) {
-                if (stonePlacement[row][col] == 0) { // Empty space
-                    availableMoves.add(new int[] {row, col, boardPoints[row][col]});
-                }
+    // Creates the transposition table on first use and clears it when the board points change
+    private void prepareTranspositionTable(int[][] boardPoints) {
+        if (sharedTables) {
+            SearchTables tables = THREAD_TABLES.get();
+            if (tables.transpositionTable == null) {
+                tables.transpositionTable = new TranspositionTable(TABLE_BUCKETS);
+            } else if (tables.tablePoints != boardPoints || tables.tablePlayer != playerId) {
+                tables.transpositionTable.clear(); // Another game or seat searched on this thread last
             }
+            tables.tablePoints = boardPoints;
+            tables.tablePlayer = playerId;
+            transpositionTable = tables.transpositionTable;
+            transpositionTable.newSearch();
+            return;
         }
-        return availableMoves;
+        if (transpositionTable == null) {
+            transpositionTable = new TranspositionTable(TABLE_BUCKETS);
+        } else if (tablePoints != boardPoints) {
+            transpositionTable.clear();
+        }
+        tablePoints = boardPoints;
+        transpositionTable.newSearch();
     }
     
-    // Evaluate the board state for minimax
-    private int evaluateBoard(int[][] stonePlacement, int[][] boardPoints) {
-        int score = 0;
-        
-        // Count points for computer (1) and opponent (2)
-        int computerPoints = 0;
-        int opponentPoints = 0;
-        
-        for (int row = 0; row < GRID_SIZE; row++) {
-            for (int col = 0; col < GRID_SIZE; col++) {
-                if (stonePlacement[row][col] == 1) { // Computer's stone
-                    computerPoints += boardPoints[row][col];
-                    
-                    // Add bonus for strategic positions
-                    score += calculatePositionalValue(row, col);
-                } else if (stonePlacement[row][col] == 2) { // Opponent's stone
-                    opponentPoints += boardPoints[row][col];
-                }
+    // Returns a minimax worker for the calling thread, built for the given board points
+    private MinimaxSearch workerFor(int[][] boardPoints) {
+        if (sharedTables) {
+            SearchTables tables = THREAD_TABLES.get();
+            if (tables.worker == null || tables.worker.getBoardPoints() != boardPoints
+                    || tables.worker.getPlayerId() != playerId) {
+                tables.worker = new MinimaxSearch(boardPoints, CombinationOdds.cellReach(combinationCells), playerId,
+                        opponentId, tables.transpositionTable);
             }
+            return tables.worker;
         }
-        
-        // Consider the point difference as the main score
-        score += (computerPoints - opponentPoints);
-        
-        // Consider potential future moves
-        score += evaluatePotentialMoves(stonePlacement, boardPoints);
-        
-        return score;
+        MinimaxSearch worker = minimaxWorkers.get();
+        if (worker == null || worker.getBoardPoints() != boardPoints) {
+            worker = new MinimaxSearch(boardPoints, CombinationOdds.cellReach(combinationCells), playerId, opponentId,
+                    transpositionTable);
+            minimaxWorkers.set(worker);
+            synchronized (allWorkers) {
+                allWorkers.add(worker);
+            }
+        }
+        return worker;
     }
     
-    // Calculate positional value based on position on the board
-    private int calculatePositionalValue(int row, int col) {
-        // Prefer central positions over edge positions
-        int distanceFromCenter = Math.abs(row - GRID_SIZE/2) + Math.abs(col - GRID_SIZE/2);
-        return (GRID_SIZE - distanceFromCenter);
+    // Search tables kept by a thread for the computer players that borrow them (see setSharedTables)
+    private static class SearchTables {
+        TranspositionTable transpositionTable; // Hard transposition table
+        int[][] tablePoints; // Board points of the game the table was last used for
+        int tablePlayer; // Seat the table was last used for
+        MinimaxSearch worker; // Hard minimax worker
+        EndgameSolver endgameSolver; // Endgame solver, rebuilt on its table for each game and seat
     }
     
-    // Evaluate potential future moves
-    private int evaluatePotentialMoves(int[][] stonePlacement, int[][] boardPoints) {
-        int score = 0;
+    // Searches one root move of the Hard player with the calling thread's worker (kept per cell and reused)
+    private class RootSearch extends RecursiveAction {
+        private static final long serialVersionUID = 1L; // For serialization compatibility
+        private final int cell; // Cell of the root move
+        private final int[] principalVariation = new int[MinimaxSearch.MAX_PLY]; // Best line below the move from the last iteration
+        private Board board; // Board before the move
+        private int[][] boardPoints; // Points for each grid cell
+        private int points; // Points of the cell
+        private int gain; // Run-length points the move scores immediately
+        private int depth; // Plies to search below the move
+        private long deadline; // System.nanoTime() at which the search stops
+        private int variationLength; // Moves in the principal variation
+        private boolean bestLine; // Whether the move led the last iteration
+        private int score; // Score of the move in the last iteration
+        private boolean timedOut; // Whether the last iteration ran past the deadline
         
-        // Check for high-value empty cells that are adjacent to occupied cells
-        int[][] directions = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}}; // Up, down, left, right
+        RootSearch(int cell) {
+            this.cell = cell;
+        }
         
-        for (int row = 0; row < GRID_SIZE; row++) {
-            for (int col = 0; col < GRID_SIZE; col++) {
-                if (stonePlacement[row][col] == 0) { // Empty cell
-                    int cellValue = boardPoints[row][col];
-                    
-                    // Check if this empty cell is adjacent to an occupied cell
-                    boolean isAdjacent = false;
-                    for (int[] dir : directions) {
-                        int newRow = row + dir[0];
-                        int newCol = col + dir[1];
-                        
-                        if (newRow >= 0 && newRow < GRID_SIZE && newCol >= 0 && newCol < GRID_SIZE) {
-                            if (stonePlacement[newRow][newCol] != 0) {
-                                isAdjacent = true;
-                                break;
-                            }
-                        }
-                    }
-                    
-                    // High-value empty cells that are adjacent to occupied cells are valuable
-                    if (isAdjacent && cellValue >= 3) {
-                        score += cellValue;
-                    }
-                }
-            }
+        // Sets up the search of the move in a new position (rootScorer holds its scores)
+        void start(Board board, int[][] boardPoints) {
+            this.board = board;
+            this.boardPoints = boardPoints;
+            this.points = pointsOf(boardPoints, cell);
+            this.variationLength = 0;
+            this.bestLine = false;
+            
+            // The run-length points the move scores immediately
+            moveScorer.copyFrom(rootScorer);
+            moveScorer.place(Board.rowOf(cell), Board.colOf(cell), playerId);
+            this.gain = moveScorer.getScore(playerId) - rootScorer.getScore(playerId);
+        }
+        
+        // Sets up the next iteration of the search
+        void prepare(int depth, long deadline) {
+            this.depth = depth;
+            this.deadline = deadline;
+            reinitialize();
         }
         
-        return score;
+        @Override
+        protected void compute() {
+            MinimaxSearch worker = workerFor(boardPoints);
+            int[] pv = bestLine ? principalVariation : null; // Only the leading move continues its variation
+            score = worker.searchRootMove(board, cell, gain, depth, pv, variationLength, sharedBest, deadline);
+            timedOut = worker.isTimedOut();
+            if (!timedOut) {
+                variationLength = worker.getPrincipalVariation(principalVariation);
+                sharedBest.accumulateAndGet(score, Math::max);
+            }
+            bestLine = false;
+        }
     }
     
     // Handles special case moves like six-of-a-kind
-    private int[] handleSixOfAKindMove(int[][] stonePlacement, int[][] boardPoints) {
-        if (difficulty.equals("Hard")) {
-            return handleHardSixOfAKind(stonePlacement, boardPoints);
+    private int handleSixOfAKindMove(Board board, int[][] boardPoints) {
+        if (isStrategic()) {
+            return handleHardSixOfAKind(board, boardPoints);
         } else {
-            return handleEasySixOfAKind(stonePlacement, boardPoints);
+            return handleEasySixOfAKind(board, boardPoints);
         }
     }
     
     // Easy strategy for six-of-a-kind: completely random
-    private int[] handleEasySixOfAKind(int[][] stonePlacement, int[][] boardPoints) {
+    private int handleEasySixOfAKind(Board board, int[][] boardPoints) {
         // Just pick a random cell on the board
         int row = random.nextInt(GRID_SIZE);
         int col = random.nextInt(GRID_SIZE);
-        return new int[] {row, col};
+        return Board.cellIndex(row, col);
     }
     
     // Hard strategy for six-of-a-kind: strategic choice
-    private int[] handleHardSixOfAKind(int[][] stonePlacement, int[][] boardPoints) {
+    private int handleHardSixOfAKind(Board board, int[][] boardPoints) {
         // For six-of-a-kind, the hard player should prioritize:
         // 1. Highest point cells
         // 2. Already occupied high-value cells (to block opponent)
@@ -319,12 +704,12 @@ public class ComputerPlayer {
                 int score = boardPoints[row][col] * 3; // Points are most important
                 
                 // Add bonus for already occupied cells (strategic to block opponent)
-                if (stonePlacement[row][col] != 0) {
+                if (board.getStone(row, col) != 0) {
                     score += boardPoints[row][col] * 2;
                 }
                 
                 // Add bonus for positional value
-                score += calculatePositionalValue(row, col);
+                score += MinimaxSearch.positionalValue(row, col);
                 
                 if (score > bestScore) {
                     bestScore = score;
@@ -334,50 +719,35 @@ public class ComputerPlayer {
             }
         }
         
-        return new int[] {bestRow, bestCol};
+        return Board.cellIndex(bestRow, bestCol);
     }
     
     // Handles the case of displaced stone placement
-    public int[] placeDisplacedStone(int[][] stonePlacement) {
-        List<int[]> emptySpaces = new ArrayList<>(); // List to store empty spaces
-        
-        // Find all empty spaces
-        for (int row = 0; row < GRID_SIZE; row++) {
-            for (int col = 0; col < GRID_SIZE; col++) {
-                if (stonePlacement[row][col] == 0) {
-                    emptySpaces.add(new int[] {row, col});
-                }
-            }
-        }
+    public int[] placeDisplacedStone(Board board) {
+        int cell = placeDisplacedCell(board);
+        return cell < 0 ? null : new int[] {Board.rowOf(cell), Board.colOf(cell)};
+    }
+    
+    // Returns the cell for a displaced stone, or -1 if the board is full
+    public int placeDisplacedCell(Board board) {
+        long emptyCells = board.getEmpty(); // Mask of empty spaces
         
-        if (!emptySpaces.isEmpty()) {
-            if (difficulty.equals("Hard")) {
-                // For hard mode, use minimax to find the best placement
+        if (emptyCells != 0) {
+            if (isStrategic()) {
+                // For hard mode, pick the empty space with the best positional value
                 int bestRow = 0;
                 int bestCol = 0;
                 int bestScore = Integer.MIN_VALUE;
                 
-                // Create a copy of the stone placement to simulate moves
-                int[][] tempStonePlacement = new int[GRID_SIZE][GRID_SIZE];
-                for (int i = 0; i < GRID_SIZE; i++) {
-                    for (int j = 0; j < GRID_SIZE; j++) {
-                        tempStonePlacement[i][j] = stonePlacement[i][j];
-                    }
-                }
-                
                 // Evaluate each empty space
-                for (int[] space : emptySpaces) {
-                    int row = space[0];
-                    int col = space[1];
-                    
-                    // Make the move
-                    tempStonePlacement[row][col] = 1; // 1 represents computer's stone
+                while (emptyCells != 0) {
+                    int cell = Long.numberOfTrailingZeros(emptyCells);
+                    emptyCells &= emptyCells - 1;
+                    int row = Board.rowOf(cell);
+                    int col = Board.colOf(cell);
                     
                     // Calculate score using positional value (simplified for displaced stones)
-                    int score = calculatePositionalValue(row, col);
-                    
-                    // Undo the move
-                    tempStonePlacement[row][col] = 0;
+                    int score = MinimaxSearch.positionalValue(row, col);
                     
                     // Update best move if this move has a higher score
                     if (score > bestScore) {
@@ -387,15 +757,18 @@ public class ComputerPlayer {
                     }
                 }
                 
-                return new int[] {bestRow, bestCol};
+                return Board.cellIndex(bestRow, bestCol);
             } else {
                 // For easy mode, just select a random empty space
-                int[] selectedSpace = emptySpaces.get(random.nextInt(emptySpaces.size()));
-                return new int[] {selectedSpace[0], selectedSpace[1]};
+                int skip = random.nextInt(Long.bitCount(emptyCells));
+                for (int i = 0; i < skip; i++) {
+                    emptyCells &= emptyCells - 1;
+                }
+                return Long.numberOfTrailingZeros(emptyCells);
             }
         }
         
         // Should never get here if game is working correctly
-        return null;
+        return -1;
     }
 }
\ No newline at end of file
@@ -0,0 +1,82 @@
+import javax.swing.SwingUtilities;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * Background thread that writes the game's files in order
+ *
+ * The journal, its autosave snapshots, manual saves and the game archive
+ * are all forced to disk, and a force can take tens of milliseconds on a
+ * slow disk. The board hands that work to this one thread, so the event
+ * dispatch thread never waits for the disk and the files are still
+ * written in the order the game made its changes. Reading the save files
+ * first waits for the writes queued before it, and a shutdown hook lets
+ * queued writes finish when the game exits.
+ *
+ * @author Group 4
+ */
+public class DiskWriter {
+    // Work for the writer, which may fail with an IOException
+    public interface Task {
+        void run() throws IOException;
+    }
+
+    private static final long SHUTDOWN_WAIT_SECONDS = 10; // Longest an exiting game waits for queued writes
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "kivi-disk-writer");
+        thread.setDaemon(true);
+        return thread;
+    }); // Runs the writes one at a time, in the order they were queued
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(DiskWriter::finish, "kivi-disk-writer-shutdown"));
+    }
+
+    private DiskWriter() {
+    }
+
+    // Queues a write; a failure is printed
+    public static void submit(Task task) {
+        submit(task, null);
+    }
+
+    // Queues a write; a failure is printed and handed to onFailure on the event dispatch thread (if it is not null)
+    public static void submit(Task task, Consumer<Exception> onFailure) {
+        WRITER.execute(() -> {
+            try {
+                task.run();
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+                if (onFailure != null) {
+                    SwingUtilities.invokeLater(() -> onFailure.accept(e));
+                }
+            }
+        });
+    }
+
+    // Waits until the writes queued so far are on disk, so the files can be read
+    public static void awaitQueued() {
+        try {
+            WRITER.submit(() -> { }).get(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Lets the queued writes finish when the game exits
+    private static void finish() {
+        WRITER.shutdown();
+        try {
+            WRITER.awaitTermination(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,264 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Exact expectimax solver for the last turns of a game
+ *
+ * Once every player has only a turn or two left, the rest of the game,
+ * dice included, is small enough to search to the end. Positions are
+ * valued by the final run-length scores (the Scoring arithmetic, kept
+ * incrementally by a RunScorer) as the computer's score minus the best
+ * opponent score, which the computer maximizes and the opponents minimize.
+ *
+ * Two observations keep the tree small. The value of placing a stone on a
+ * cell does not depend on the roll that allowed it, so each chance node
+ * values every cell any roll allows once and then takes the best of each
+ * roll's cells; and the 54 roll classes collapse to the few distinct sets
+ * of legal cells they give. Chance nodes are memoized in a hash table keyed
+ * by the board's Zobrist key and the turns left, which persists between
+ * moves of the same game. Six of a kind is solved like five of a kind, as
+ * in the other searches: the chance to displace a stone is left out.
+ *
+ * The solver stops at a hard deadline; a move it could not solve in time
+ * is reported as -1 so the caller can fall back to its usual search for
+ * whatever is left of the move's time budget.
+ *
+ * @author Group 4
+ */
+public class EndgameSolver {
+    private static final int CHECK_INTERVAL = 1023; // Nodes between deadline checks (power of two minus one)
+    private static final int MAX_TURNS = Board.CELL_COUNT; // Most turns a player can have left
+    private static final int EMPTY = -1; // Table slot holding no position
+
+    private final long[] combinationCells; // Mask of cells for each combination
+    private final int[][] boardPoints; // Points for each grid cell
+    private final int playerCount; // Number of players
+    private final int playerId; // Stone number of the computer player
+    private final Board board = new Board(); // Board the solver makes and unmakes moves on
+    private final RunScorer scorer; // Run-length scores of the searched board
+    private final int[] turnsRemaining; // Turns left for each player in the searched position
+    private final long[][] turnKeys; // Zobrist key of each player's turns left [player - 1][turns]
+    private final long[] tableKeys; // Position key of each table slot (EMPTY if unused)
+    private final double[] tableValues; // Exact value of each stored position
+    private final int tableMask; // Number of table slots minus one
+    private final long[][] legalSets = new long[MAX_TURNS * Board.MAX_PLAYERS + 1][]; // Distinct legal cells per ply
+    private final int[][] legalWeights = new int[legalSets.length][]; // Rolls giving each set of legal cells per ply
+    private final double[][] cellValues = new double[legalSets.length][Board.CELL_COUNT]; // Value of each move per ply
+    private long deadline; // System.nanoTime() at which the solver gives up
+    private boolean timedOut; // Whether the current solve ran past the deadline
+    private long nodes; // Chance nodes visited by the last solve
+    private double value; // Expected value of the last solved move
+
+    // Constructor sets up a solver for one computer player with a table of the given size (a power of two)
+    public EndgameSolver(long[] combinationCells, int[][] boardPoints, int playerCount, int playerId, int tableSize) {
+        this(combinationCells, boardPoints, playerCount, playerId, new long[tableSize], new double[tableSize]);
+    }
+
+    // Constructor for a solver that takes over the table of a solver no longer in use, so a thread solving for one
+    // game after another keeps a single table
+    public EndgameSolver(long[] combinationCells, int[][] boardPoints, int playerCount, int playerId, EndgameSolver previous) {
+        this(combinationCells, boardPoints, playerCount, playerId, previous.tableKeys, previous.tableValues);
+    }
+
+    // Constructor sets up a solver on the given table arrays, which it clears
+    private EndgameSolver(long[] combinationCells, int[][] boardPoints, int playerCount, int playerId,
+                          long[] tableKeys, double[] tableValues) {
+        this.combinationCells = combinationCells;
+        this.boardPoints = boardPoints;
+        this.playerCount = playerCount;
+        this.playerId = playerId;
+        this.scorer = new RunScorer(boardPoints, playerCount);
+        this.turnsRemaining = new int[playerCount];
+        this.turnKeys = new long[playerCount][MAX_TURNS + 1];
+        SplittableRandom random = new SplittableRandom(0x454E4447L); // "ENDG": the same keys in every run
+        for (long[] keys : turnKeys) {
+            for (int turns = 0; turns < keys.length; turns++) {
+                keys[turns] = random.nextLong();
+            }
+        }
+        this.tableKeys = tableKeys;
+        this.tableValues = tableValues;
+        this.tableMask = tableKeys.length - 1;
+        Arrays.fill(tableKeys, EMPTY);
+        for (int ply = 0; ply < legalSets.length; ply++) {
+            legalSets[ply] = new long[RollDistribution.getClassCount()];
+            legalWeights[ply] = new int[RollDistribution.getClassCount()];
+        }
+    }
+
+    // Solves the computer's move among the legal cells, or returns -1 if the deadline (System.nanoTime(), Long.MAX_VALUE for none) passed first
+    public int solve(Board position, int[] turns, long legalCells, long deadline) {
+        board.copyFrom(position);
+        scorer.reset(board);
+        System.arraycopy(turns, 0, turnsRemaining, 0, playerCount);
+        this.deadline = deadline;
+        timedOut = false;
+        nodes = 0;
+
+        int bestCell = -1;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (long cells = legalCells; cells != 0 && !timedOut; cells &= cells - 1) {
+            int cell = Long.numberOfTrailingZeros(cells);
+            double cellValue = searchMove(playerId, cell, 0);
+            if (cellValue > bestValue) {
+                bestValue = cellValue;
+                bestCell = cell;
+            }
+        }
+        if (timedOut) return -1;
+        value = bestValue;
+        return bestCell;
+    }
+
+    // Checks if the game is close enough to its end for the solver: no player has more than the given turns left
+    public static boolean isEndgame(int[] turns, int turnThreshold) {
+        if (turns == null) return false; // Unknown turns: the end cannot be seen
+        for (int left : turns) {
+            if (left > turnThreshold) return false;
+        }
+        return true;
+    }
+
+    // Returns the combination cell masks the solver was built for
+    public long[] getCombinationCells() {
+        return combinationCells;
+    }
+
+    // Returns the board points the solver was built for
+    public int[][] getBoardPoints() {
+        return boardPoints;
+    }
+
+    // Returns the stone number of the player the solver plays for
+    public int getPlayerId() {
+        return playerId;
+    }
+
+    // Returns the expected final score margin of the last solved move
+    public double getValue() {
+        return value;
+    }
+
+    // Returns the number of chance nodes visited by the last solve
+    public long getNodes() {
+        return nodes;
+    }
+
+    // Plays a move for a player and values the position that follows
+    private double searchMove(int player, int cell, int ply) {
+        int row = Board.rowOf(cell);
+        int col = Board.colOf(cell);
+        int previousOwner = board.place(cell, player);
+        scorer.place(row, col, player);
+        turnsRemaining[player - 1]--;
+
+        double result = chanceNode(nextPlayer(player), ply + 1);
+
+        turnsRemaining[player - 1]++;
+        scorer.setStone(row, col, previousOwner);
+        board.unplace(cell, previousOwner);
+        return result;
+    }
+
+    // Values a player's turn exactly: the best move for each roll, weighted by the roll's probability
+    private double chanceNode(int player, int ply) {
+        if ((++nodes & CHECK_INTERVAL) == 0 && System.nanoTime() > deadline) {
+            timedOut = true;
+        }
+        if (timedOut) return 0;
+        if (isGameOver()) return evaluate();
+        while (turnsRemaining[player - 1] == 0) {
+            player = nextPlayer(player); // A player with no turns left is passed over
+        }
+
+        long key = positionKey(player);
+        int slot = (int) (key ^ (key >>> 32)) & tableMask;
+        if (tableKeys[slot] == key) {
+            return tableValues[slot];
+        }
+
+        // Collapse the roll classes into their distinct sets of legal cells
+        long[] sets = legalSets[ply];
+        int[] weights = legalWeights[ply];
+        int distinct = 0;
+        long anyLegal = 0;
+        long occupied = board.getOccupied();
+        for (int rollClass = 0; rollClass < RollDistribution.getClassCount(); rollClass++) {
+            int mask = RollDistribution.getClassMask(rollClass) & ~Validation.SIX_OF_A_KIND;
+            long legal = Validation.legalCells(mask, combinationCells, occupied);
+            int index = 0;
+            while (index < distinct && sets[index] != legal) index++;
+            if (index == distinct) {
+                sets[distinct] = legal;
+                weights[distinct++] = 0;
+            }
+            weights[index] += RollDistribution.getClassWeight(rollClass);
+            anyLegal |= legal;
+        }
+
+        // Value each cell some roll allows once, whatever the roll
+        double[] values = cellValues[ply];
+        for (long cells = anyLegal; cells != 0 && !timedOut; cells &= cells - 1) {
+            int cell = Long.numberOfTrailingZeros(cells);
+            values[cell] = searchMove(player, cell, ply);
+        }
+
+        boolean maximizing = player == playerId;
+        double expected = 0;
+        for (int i = 0; i < distinct && !timedOut; i++) {
+            double best;
+            if (sets[i] == 0) { // No legal cell: the turn is skipped
+                turnsRemaining[player - 1]--;
+                best = chanceNode(nextPlayer(player), ply + 1);
+                turnsRemaining[player - 1]++;
+            } else {
+                best = maximizing ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+                for (long cells = sets[i]; cells != 0; cells &= cells - 1) {
+                    double cellValue = values[Long.numberOfTrailingZeros(cells)];
+                    best = maximizing ? Math.max(best, cellValue) : Math.min(best, cellValue);
+                }
+            }
+            expected += weights[i] * best;
+        }
+        expected /= RollDistribution.ROLL_COUNT;
+
+        if (!timedOut) { // A value cut short by the deadline is not exact
+            tableKeys[slot] = key;
+            tableValues[slot] = expected;
+        }
+        return expected;
+    }
+
+    // Values a finished game as the computer's score minus the best opponent score
+    private double evaluate() {
+        int bestOpponent = 0;
+        for (int player = 1; player <= playerCount; player++) {
+            if (player != playerId) {
+                bestOpponent = Math.max(bestOpponent, scorer.getScore(player));
+            }
+        }
+        return scorer.getScore(playerId) - bestOpponent;
+    }
+
+    // Returns the table key of the position with the given player to move
+    private long positionKey(int player) {
+        long key = board.getZobristKey() ^ player;
+        for (int i = 0; i < playerCount; i++) {
+            key ^= turnKeys[i][turnsRemaining[i]];
+        }
+        return key == EMPTY ? 0 : key;
+    }
+
+    // Checks if every player has used all of their turns
+    private boolean isGameOver() {
+        for (int turns : turnsRemaining) {
+            if (turns > 0) return false;
+        }
+        return true;
+    }
+
+    // Returns the player who moves after the given player
+    private int nextPlayer(int player) {
+        return (player % playerCount) + 1;
+    }
+}
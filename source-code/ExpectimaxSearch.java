@@ -0,0 +1,222 @@
+/**
+ * Expectimax search over dice outcomes for the Expert computer player
+ *
+ * Player nodes only consider the cells their roll allows, and chance nodes
+ * average over the roll classes of RollDistribution weighted by probability.
+ * The search is paranoid: every opponent is assumed to play against the
+ * computer, and a position is worth the computer's run-length score minus
+ * the best opponent score. Depth is deepened one ply at a time until the
+ * time budget runs out.
+ *
+ * @author Group 4
+ */
+public class ExpectimaxSearch {
+    private static final int CHECK_INTERVAL = 1023; // Nodes between deadline checks (power of two minus one)
+
+    private final long[] combinationCells; // Mask of cells for each combination
+    private final int[][] boardPoints; // Points for each grid cell
+    private final int playerCount; // Number of players
+    private final int playerId; // Stone number of the computer player
+    private final Board board = new Board(); // Board the search makes and unmakes moves on
+    private final RunScorer scorer; // Run-length scores of the searched board
+    private final int[] turnsRemaining; // Turns left for each player in the searched position
+    private long deadline; // System.nanoTime() at which the search stops
+    private boolean timedOut; // Whether the current iteration ran past the deadline
+    private long nodes; // Nodes visited by the last search
+    private int completedDepth; // Deepest iteration finished by the last search
+
+    // Constructor sets up a search for one computer player
+    public ExpectimaxSearch(long[] combinationCells, int[][] boardPoints, int playerCount, int playerId) {
+        this.combinationCells = combinationCells;
+        this.boardPoints = boardPoints;
+        this.playerCount = playerCount;
+        this.playerId = playerId;
+        this.scorer = new RunScorer(boardPoints, playerCount);
+        this.turnsRemaining = new int[playerCount];
+    }
+
+    // Finds the best of the legal cells for the computer, searching until the deadline (System.nanoTime(), Long.MAX_VALUE for none)
+    public int findBestMove(Board position, int[] turns, long legalCells, long deadline, int depthLimit) {
+        board.copyFrom(position);
+        scorer.reset(board);
+        setTurns(turns);
+        this.deadline = deadline;
+        nodes = 0;
+        completedDepth = 0;
+
+        int[] moves = new int[Long.bitCount(legalCells)];
+        double[] values = new double[moves.length];
+        int count = 0;
+        for (long cells = legalCells; cells != 0; cells &= cells - 1) {
+            moves[count++] = Long.numberOfTrailingZeros(cells);
+        }
+        if (count == 0) return -1;
+        sortByPoints(moves, count);
+        int bestMove = moves[0];
+
+        int maxDepth = 0;
+        for (int left : turnsRemaining) maxDepth += Math.max(left, 0);
+        maxDepth = Math.min(maxDepth, depthLimit);
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            timedOut = false;
+            int iterationBest = -1;
+            double iterationValue = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < count && !timedOut; i++) {
+                double value = searchMove(playerId, moves[i], depth);
+                values[i] = value;
+                if (!timedOut && value > iterationValue) {
+                    iterationValue = value;
+                    iterationBest = moves[i];
+                }
+            }
+            if (timedOut) break; // Keep the result of the last finished iteration
+            bestMove = iterationBest;
+            completedDepth = depth;
+            sortByValue(moves, values, count); // Search the strongest moves first next iteration
+        }
+        return bestMove;
+    }
+
+    // Returns the combination cell masks the search was built for
+    public long[] getCombinationCells() {
+        return combinationCells;
+    }
+
+    // Returns the board points the search was built for
+    public int[][] getBoardPoints() {
+        return boardPoints;
+    }
+
+    // Returns the number of nodes visited by the last search
+    public long getNodes() {
+        return nodes;
+    }
+
+    // Returns the deepest iteration finished by the last search
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    // Copies the turns left for each player, estimating them when unknown
+    private void setTurns(int[] turns) {
+        int estimate = (Long.bitCount(board.getEmpty()) + playerCount - 1) / playerCount;
+        for (int i = 0; i < playerCount; i++) {
+            turnsRemaining[i] = turns != null ? turns[i] : estimate;
+        }
+    }
+
+    // Plays a move for a player and values the position that follows
+    private double searchMove(int player, int cell, int depth) {
+        int row = Board.rowOf(cell);
+        int col = Board.colOf(cell);
+        int previousOwner = board.place(cell, player);
+        scorer.place(row, col, player);
+        turnsRemaining[player - 1]--;
+
+        double value = chanceNode(nextPlayer(player), depth - 1);
+
+        turnsRemaining[player - 1]++;
+        scorer.setStone(row, col, previousOwner);
+        board.unplace(cell, previousOwner);
+        return value;
+    }
+
+    // Averages the value of a player's turn over every roll class
+    private double chanceNode(int player, int depth) {
+        if (depth == 0 || isGameOver()) {
+            return evaluate();
+        }
+        double expected = 0;
+        long occupied = board.getOccupied();
+        for (int rollClass = 0; rollClass < RollDistribution.getClassCount() && !timedOut; rollClass++) {
+            // Six of a kind is searched like five of a kind: the displaced stone is left out
+            int mask = RollDistribution.getClassMask(rollClass) & ~Validation.SIX_OF_A_KIND;
+            long legalCells = Validation.legalCells(mask, combinationCells, occupied);
+            expected += RollDistribution.getClassProbability(rollClass) * playerNode(player, legalCells, depth);
+        }
+        return expected;
+    }
+
+    // Picks the best cell for the player to move (max for the computer, min for opponents)
+    private double playerNode(int player, long legalCells, int depth) {
+        if ((++nodes & CHECK_INTERVAL) == 0 && System.nanoTime() > deadline) {
+            timedOut = true;
+        }
+        if (timedOut) return 0;
+
+        if (legalCells == 0) {
+            // No legal cell: the turn is skipped
+            turnsRemaining[player - 1]--;
+            double value = chanceNode(nextPlayer(player), depth - 1);
+            turnsRemaining[player - 1]++;
+            return value;
+        }
+
+        boolean maximizing = player == playerId;
+        double best = maximizing ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        for (long cells = legalCells; cells != 0 && !timedOut; cells &= cells - 1) {
+            double value = searchMove(player, Long.numberOfTrailingZeros(cells), depth);
+            best = maximizing ? Math.max(best, value) : Math.min(best, value);
+        }
+        return best;
+    }
+
+    // Values a position as the computer's score minus the best opponent score
+    private double evaluate() {
+        int bestOpponent = 0;
+        for (int player = 1; player <= playerCount; player++) {
+            if (player != playerId) {
+                bestOpponent = Math.max(bestOpponent, scorer.getScore(player));
+            }
+        }
+        return scorer.getScore(playerId) - bestOpponent;
+    }
+
+    // Checks if every player has used all of their turns
+    private boolean isGameOver() {
+        for (int turns : turnsRemaining) {
+            if (turns > 0) return false;
+        }
+        return true;
+    }
+
+    // Returns the player who moves after the given player
+    private int nextPlayer(int player) {
+        return (player % playerCount) + 1;
+    }
+
+    // Orders moves by cell points, highest first
+    private void sortByPoints(int[] moves, int count) {
+        for (int i = 1; i < count; i++) {
+            int move = moves[i];
+            int points = pointsOf(move);
+            int j = i - 1;
+            while (j >= 0 && pointsOf(moves[j]) < points) {
+                moves[j + 1] = moves[j];
+                j--;
+            }
+            moves[j + 1] = move;
+        }
+    }
+
+    // Orders moves by their last searched value, highest first
+    private void sortByValue(int[] moves, double[] values, int count) {
+        for (int i = 1; i < count; i++) {
+            int move = moves[i];
+            double value = values[i];
+            int j = i - 1;
+            while (j >= 0 && values[j] < value) {
+                moves[j + 1] = moves[j];
+                values[j + 1] = values[j];
+                j--;
+            }
+            moves[j + 1] = move;
+            values[j + 1] = value;
+        }
+    }
+
+    // Returns the points of a cell
+    private int pointsOf(int cell) {
+        return boardPoints[Board.rowOf(cell)][Board.colOf(cell)];
+    }
+}
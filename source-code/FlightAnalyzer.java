@@ -0,0 +1,324 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Offline summary of a flight recording of the game
+ *
+ * Reads a recording made with the jfr/kivi.jfc settings and prints the
+ * computer searches by difficulty, the turns by player and the saves and
+ * loads, then lines the searches up against the collector pauses and the
+ * stalls of the event dispatch thread (the Swing thread, "AWT-EventQueue").
+ * A stall is either a stretch of execution samples on that thread with no
+ * gap longer than MAX_SAMPLE_GAP, so the thread was busy, or a blocking
+ * event on it (monitor, sleep, file or socket); only stalls at least as long
+ * as the stall threshold are kept. Each stall is listed with the search and
+ * the pause time it overlapped, so a frozen board can be traced to the
+ * computer thinking, to the collector or to neither.
+ *
+ * Usage: java FlightAnalyzer recording.jfr [--stall=MILLIS] [--top=N]
+ *
+ * @author Group 4
+ */
+public class FlightAnalyzer {
+    private static final long DEFAULT_STALL_MILLIS = 50; // Shortest stall reported when none is given
+    private static final int DEFAULT_TOP = 10; // Longest stalls listed when no count is given
+    private static final long MAX_SAMPLE_GAP = 50_000_000L; // Longest gap between samples of one busy stretch, in nanoseconds
+    private static final String EDT_PREFIX = "AWT-EventQueue"; // Name prefix of the event dispatch thread
+    private static final String EXECUTION_SAMPLE = "jdk.ExecutionSample"; // Event of a sampled running thread
+    private static final String GC_PAUSE = "jdk.GCPhasePause"; // Event of one stop-the-world collector pause
+    private static final Set<String> BLOCKING_EVENTS = Set.of("jdk.JavaMonitorEnter", "jdk.ThreadSleep",
+            "jdk.FileRead", "jdk.FileWrite", "jdk.FileForce", "jdk.SocketRead", "jdk.SocketWrite"); // Events of a blocked thread
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss.SSS")
+            .withZone(ZoneOffset.UTC); // Format of the start of a stall
+
+    private final long stallNanos; // Shortest stall kept, in nanoseconds
+    private final Map<String, SearchSummary> searches = new TreeMap<>(); // Searches by difficulty
+    private final Map<Integer, LatencyHistogram> turns = new TreeMap<>(); // Turn times by player
+    private final Map<String, PersistenceSummary> persistence = new TreeMap<>(); // Saves and loads by operation
+    private final List<Interval> searchIntervals = new ArrayList<>(); // Every search
+    private final List<Interval> gcPauses = new ArrayList<>(); // Every collector pause
+    private final List<Interval> stalls = new ArrayList<>(); // Every event dispatch thread stall
+    private final List<Instant> edtSamples = new ArrayList<>(); // Times the event dispatch thread was sampled running
+
+    // Constructor sets up an empty summary keeping stalls of at least stallMillis
+    public FlightAnalyzer(long stallMillis) {
+        this.stallNanos = stallMillis * 1_000_000L;
+    }
+
+    // Entry point: java FlightAnalyzer recording.jfr [--stall=MILLIS] [--top=N]
+    public static void main(String[] args) throws IOException {
+        Path recording = null;
+        long stallMillis = DEFAULT_STALL_MILLIS;
+        int top = DEFAULT_TOP;
+        try {
+            for (String arg : args) {
+                if (arg.startsWith("--stall=")) {
+                    stallMillis = Long.parseLong(arg.substring(8));
+                } else if (arg.startsWith("--top=")) {
+                    top = Integer.parseInt(arg.substring(6));
+                } else {
+                    recording = Paths.get(arg);
+                }
+            }
+        } catch (NumberFormatException e) {
+            printUsage("Not a number: " + e.getMessage());
+            return;
+        }
+        if (recording == null || stallMillis < 0 || top < 0) {
+            printUsage("Give the recording to summarize.");
+            return;
+        }
+
+        FlightAnalyzer analyzer = new FlightAnalyzer(stallMillis);
+        try (RecordingFile file = new RecordingFile(recording)) {
+            while (file.hasMoreEvents()) {
+                analyzer.accept(file.readEvent());
+            }
+        }
+        analyzer.finish();
+        analyzer.print(top);
+    }
+
+    // Adds one event of the recording to the summary
+    public void accept(RecordedEvent event) {
+        String type = event.getEventType().getName();
+        switch (type) {
+            case GameEvents.SEARCH -> {
+                String difficulty = event.getString("difficulty");
+                searches.computeIfAbsent(difficulty, _ -> new SearchSummary()).add(event);
+                searchIntervals.add(new Interval(event, difficulty));
+            }
+            case GameEvents.TURN -> turns.computeIfAbsent(event.getInt("player"), _ -> new LatencyHistogram())
+                    .record(event.getLong("elapsed"));
+            case GameEvents.PERSISTENCE -> persistence.computeIfAbsent(event.getString("operation"),
+                    _ -> new PersistenceSummary()).add(event);
+            case GC_PAUSE -> gcPauses.add(new Interval(event, event.getString("name")));
+            case EXECUTION_SAMPLE -> {
+                if (isEventDispatchThread(event.getThread("sampledThread"))) {
+                    edtSamples.add(event.getStartTime());
+                }
+            }
+            default -> {
+                if (BLOCKING_EVENTS.contains(type) && isEventDispatchThread(event.getThread())
+                        && event.getDuration().toNanos() >= stallNanos) {
+                    stalls.add(new Interval(event, type));
+                }
+            }
+        }
+    }
+
+    // Turns the event dispatch thread samples into busy stalls and sorts the intervals, once every event is added
+    public void finish() {
+        edtSamples.sort(null);
+        int first = 0;
+        for (int i = 1; i <= edtSamples.size(); i++) {
+            if (i == edtSamples.size() || nanosBetween(edtSamples.get(i - 1), edtSamples.get(i)) > MAX_SAMPLE_GAP) {
+                if (i > first && nanosBetween(edtSamples.get(first), edtSamples.get(i - 1)) >= stallNanos) {
+                    stalls.add(new Interval(edtSamples.get(first), edtSamples.get(i - 1), "busy"));
+                }
+                first = i;
+            }
+        }
+        Comparator<Interval> byStart = Comparator.comparing(interval -> interval.start);
+        searchIntervals.sort(byStart);
+        gcPauses.sort(byStart);
+        stalls.sort(Comparator.comparingLong(Interval::length).reversed());
+    }
+
+    // Prints the summary with the top longest stalls
+    public void print(int top) {
+        System.out.println("Computer searches");
+        System.out.printf("%-8s %7s %9s %9s %9s %12s %10s %6s %11s%n",
+                "Level", "Count", "p50 ms", "p99 ms", "Max ms", "Mean nodes", "Mean cuts", "Depth", "GC pause ms");
+        for (Map.Entry<String, SearchSummary> entry : searches.entrySet()) {
+            SearchSummary summary = entry.getValue();
+            LatencyHistogram time = summary.time;
+            long pause = 0;
+            for (Interval search : searchIntervals) {
+                if (search.label.equals(entry.getKey())) {
+                    pause += overlap(search, gcPauses);
+                }
+            }
+            System.out.printf("%-8s %7d %9.2f %9.2f %9.2f %12.0f %10.0f %6.1f %11.2f%n", entry.getKey(), time.getCount(),
+                    millis(time.getValueAtPercentile(50)), millis(time.getValueAtPercentile(99)), millis(time.getMax()),
+                    summary.nodes.getMean(), summary.pruned.getMean(), summary.depth.getMean(), millis(pause));
+        }
+
+        System.out.println();
+        System.out.println("Turns");
+        System.out.printf("%-8s %7s %9s %9s %9s%n", "Player", "Count", "p50 ms", "p99 ms", "Max ms");
+        for (Map.Entry<Integer, LatencyHistogram> entry : turns.entrySet()) {
+            LatencyHistogram time = entry.getValue();
+            System.out.printf("%-8d %7d %9.2f %9.2f %9.2f%n", entry.getKey(), time.getCount(),
+                    millis(time.getValueAtPercentile(50)), millis(time.getValueAtPercentile(99)), millis(time.getMax()));
+        }
+
+        System.out.println();
+        System.out.println("Saves and loads");
+        System.out.printf("%-8s %7s %11s %9s %9s %9s%n", "Kind", "Count", "Bytes", "p50 ms", "p99 ms", "Max ms");
+        for (Map.Entry<String, PersistenceSummary> entry : persistence.entrySet()) {
+            LatencyHistogram time = entry.getValue().time;
+            System.out.printf("%-8s %7d %11d %9.2f %9.2f %9.2f%n", entry.getKey(), time.getCount(), entry.getValue().bytes,
+                    millis(time.getValueAtPercentile(50)), millis(time.getValueAtPercentile(99)), millis(time.getMax()));
+        }
+
+        long pauseTotal = 0;
+        long pauseLongest = 0;
+        for (Interval pause : gcPauses) {
+            pauseTotal += pause.length();
+            pauseLongest = Math.max(pauseLongest, pause.length());
+        }
+        long pauseInSearches = 0;
+        for (Interval search : searchIntervals) {
+            pauseInSearches += overlap(search, gcPauses);
+        }
+        System.out.println();
+        System.out.printf("GC pauses: %d, %.2f ms in all, longest %.2f ms, %.2f ms during computer searches%n",
+                gcPauses.size(), millis(pauseTotal), millis(pauseLongest), millis(pauseInSearches));
+
+        int duringSearch = 0;
+        int withPause = 0;
+        for (Interval stall : stalls) {
+            if (overlap(stall, searchIntervals) > 0) duringSearch++;
+            if (overlap(stall, gcPauses) > 0) withPause++;
+        }
+        System.out.println();
+        System.out.printf("Event dispatch thread stalls of %d ms or more: %d, %d during a computer search, %d with a GC pause%n",
+                stallNanos / 1_000_000L, stalls.size(), duringSearch, withPause);
+        if (stalls.isEmpty() || top == 0) return;
+        System.out.printf("%-14s %-20s %9s %-8s %11s%n", "Start (UTC)", "Kind", "ms", "Search", "GC pause ms");
+        for (Interval stall : stalls.subList(0, Math.min(top, stalls.size()))) {
+            Interval search = firstOverlapping(stall, searchIntervals);
+            System.out.printf("%-14s %-20s %9.2f %-8s %11.2f%n", TIME.format(stall.start), stall.label, millis(stall.length()),
+                    search == null ? "-" : search.label, millis(overlap(stall, gcPauses)));
+        }
+    }
+
+    // Checks if a thread is the event dispatch thread
+    private static boolean isEventDispatchThread(RecordedThread thread) {
+        return thread != null && thread.getJavaName() != null && thread.getJavaName().startsWith(EDT_PREFIX);
+    }
+
+    // Returns the nanoseconds in an interval that fall in any of the intervals sorted by start
+    private static long overlap(Interval interval, List<Interval> sorted) {
+        long total = 0;
+        for (int i = firstEndingAfter(sorted, interval.start); i < sorted.size(); i++) {
+            Interval other = sorted.get(i);
+            if (!other.start.isBefore(interval.end)) break;
+            Instant start = other.start.isAfter(interval.start) ? other.start : interval.start;
+            Instant end = other.end.isBefore(interval.end) ? other.end : interval.end;
+            total += Math.max(0, nanosBetween(start, end));
+        }
+        return total;
+    }
+
+    // Returns the first of the intervals sorted by start that overlaps an interval, or null if none does
+    private static Interval firstOverlapping(Interval interval, List<Interval> sorted) {
+        for (int i = firstEndingAfter(sorted, interval.start); i < sorted.size(); i++) {
+            Interval other = sorted.get(i);
+            if (!other.start.isBefore(interval.end)) break;
+            if (other.end.isAfter(interval.start)) return other;
+        }
+        return null;
+    }
+
+    // Returns the index of the first interval sorted by start that could end after a time
+    private static int firstEndingAfter(List<Interval> sorted, Instant time) {
+        int low = 0;
+        int high = sorted.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted.get(middle).start.isBefore(time)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        int index = low;
+        while (index > 0 && sorted.get(index - 1).end.isAfter(time)) {
+            index--;
+        }
+        return index;
+    }
+
+    // Returns the nanoseconds from one time to another
+    private static long nanosBetween(Instant from, Instant to) {
+        return (to.getEpochSecond() - from.getEpochSecond()) * 1_000_000_000L + to.getNano() - from.getNano();
+    }
+
+    // Converts nanoseconds to milliseconds
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    // Prints a problem with the arguments and the usage
+    private static void printUsage(String problem) {
+        System.err.println(problem);
+        System.err.println("Usage: java FlightAnalyzer recording.jfr [--stall=MILLIS] [--top=N]");
+    }
+
+    // A stretch of time with a label
+    private static class Interval {
+        final Instant start; // Start of the stretch
+        final Instant end; // End of the stretch
+        final String label; // What the stretch was
+
+        // Constructor takes the time span of an event
+        Interval(RecordedEvent event, String label) {
+            this(event.getStartTime(), event.getEndTime(), label);
+        }
+
+        // Constructor takes a start and an end
+        Interval(Instant start, Instant end, String label) {
+            this.start = start;
+            this.end = end;
+            this.label = label;
+        }
+
+        // Returns the length of the stretch in nanoseconds
+        long length() {
+            return nanosBetween(start, end);
+        }
+    }
+
+    // Durations, nodes, cutoffs and depths of the searches of one difficulty
+    private static class SearchSummary {
+        final LatencyHistogram time = new LatencyHistogram(); // Search durations
+        final LatencyHistogram nodes = new LatencyHistogram(); // Nodes or playouts per search
+        final LatencyHistogram pruned = new LatencyHistogram(); // Cutoffs per search
+        final LatencyHistogram depth = new LatencyHistogram(); // Depth per search
+
+        // Adds one search event
+        void add(RecordedEvent event) {
+            time.record(event.getDuration().toNanos());
+            nodes.record(event.getLong("nodes"));
+            pruned.record(event.getLong("pruned"));
+            depth.record(event.getInt("depth"));
+        }
+    }
+
+    // Durations and bytes of the saves or loads of one kind
+    private static class PersistenceSummary {
+        final LatencyHistogram time = new LatencyHistogram(); // Save or load durations
+        long bytes; // Bytes written or read
+
+        // Adds one save or load event
+        void add(RecordedEvent event) {
+            time.record(event.getDuration().toNanos());
+            bytes += event.getLong("bytes");
+        }
+    }
+}
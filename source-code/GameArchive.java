@@ -0,0 +1,298 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Archive of finished games in memory-mapped segment files
+ *
+ * Games are stored as fixed-width ArchivedGame records in segment files of
+ * RECORDS_PER_SEGMENT records each. Because every record has the same
+ * width, game n is always at offset (n % RECORDS_PER_SEGMENT) * SIZE of
+ * segment n / RECORDS_PER_SEGMENT, so the index file only has to hold the
+ * number of committed records. The count is raised after a record is
+ * written, so a scan never sees half a game. A record can also be made
+ * first with ArchivedGame.write and appended later as bytes, which lets
+ * the board leave the mapping and forcing to the DiskWriter.
+ *
+ * Scans map whole segments read-only and hand each record to a visitor
+ * through one reusable view, without deserializing anything. A parallel
+ * scan gives every thread its own visitor and lets the threads take
+ * segments in turn, each read from start to end.
+ *
+ * Usage: java GameArchive [directory] [--threads=N]
+ *
+ * @author Group 4
+ */
+public class GameArchive implements Closeable {
+    // Receives the games of a scan, one at a time
+    public interface Visitor {
+        void visit(ArchivedGame game);
+    }
+
+    public static final String DEFAULT_DIRECTORY = "KiviArchive"; // Directory the game archives to
+    public static final int RECORDS_PER_SEGMENT = 1 << 16; // Games in a segment file (16 MiB)
+    private static final long SEGMENT_SIZE = (long) RECORDS_PER_SEGMENT * ArchivedGame.SIZE; // Bytes in a segment file
+    private static final String INDEX_FILE = "games.idx"; // File holding the record count
+    private static final int INDEX_SIZE = 16; // Index layout: magic | version | record size | count
+    private static final int COUNT_OFFSET = 8; // Position of the record count in the index
+    private static final int MAGIC = 0x4B415243; // "KARC"
+    private static final short VERSION = 1; // Format version written by this archive
+
+    private final Path directory; // Directory holding the index and the segments
+    private final FileChannel indexChannel; // Open index file
+    private final MappedByteBuffer index; // Mapped index file
+    private long count; // Records committed to the archive
+    private int segmentNumber = -1; // Segment mapped for appending, or -1
+    private MappedByteBuffer segment; // Mapped segment for appending
+
+    // Constructor opens the index of an archive, creating it if the directory has none
+    private GameArchive(Path directory) throws IOException {
+        this.directory = directory;
+        this.indexChannel = FileChannel.open(directory.resolve(INDEX_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_SIZE);
+        if (index.getInt(0) == 0) { // New archive
+            index.putInt(0, MAGIC);
+            index.putShort(4, VERSION);
+            index.putShort(6, (short) ArchivedGame.SIZE);
+            index.putLong(COUNT_OFFSET, 0);
+        } else if (index.getInt(0) != MAGIC || index.getShort(4) != VERSION || index.getShort(6) != ArchivedGame.SIZE) {
+            indexChannel.close();
+            throw new IOException("Not a Kivi game archive: " + directory);
+        }
+        this.count = index.getLong(COUNT_OFFSET);
+    }
+
+    // Opens the archive in a directory, creating both if needed
+    public static GameArchive open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        return new GameArchive(directory);
+    }
+
+    // Appends a finished game and returns its record number
+    public synchronized long append(KiviEngine engine, long finishedAt) throws IOException {
+        if (!engine.isGameOver()) {
+            throw new IllegalArgumentException("Only finished games are archived");
+        }
+        mapNextSegment();
+        ArchivedGame.write(segment, (int) (count % RECORDS_PER_SEGMENT) * ArchivedGame.SIZE, engine, finishedAt);
+        return publish();
+    }
+
+    // Appends a record made by ArchivedGame.write (SIZE bytes from the buffer's position) and returns its record number
+    public synchronized long append(ByteBuffer record) throws IOException {
+        if (!new ArchivedGame().wrap(record, record.position()).isValid()) {
+            throw new IllegalArgumentException("Not a complete archived game record");
+        }
+        mapNextSegment();
+        segment.put((int) (count % RECORDS_PER_SEGMENT) * ArchivedGame.SIZE, record, record.position(), ArchivedGame.SIZE);
+        return publish();
+    }
+
+    // Maps the segment the next record goes in, if it is not mapped already
+    private void mapNextSegment() throws IOException {
+        int number = (int) (count / RECORDS_PER_SEGMENT);
+        if (number != segmentNumber) {
+            segment = mapSegment(number, FileChannel.MapMode.READ_WRITE);
+            segmentNumber = number;
+        }
+    }
+
+    // Counts the record just written and returns its number
+    private long publish() {
+        count++;
+        index.putLong(COUNT_OFFSET, count); // Publishes the record to scans
+        return count - 1;
+    }
+
+    // Returns the number of games in the archive
+    public synchronized long getCount() {
+        return count;
+    }
+
+    // Reads one game into a view (random access by record number)
+    public ArchivedGame read(long number, ArchivedGame game) throws IOException {
+        if (number < 0 || number >= getCount()) {
+            throw new IndexOutOfBoundsException("No game " + number + " in an archive of " + getCount());
+        }
+        MappedByteBuffer buffer = mapSegment((int) (number / RECORDS_PER_SEGMENT), FileChannel.MapMode.READ_ONLY);
+        return game.wrap(buffer, (int) (number % RECORDS_PER_SEGMENT) * ArchivedGame.SIZE);
+    }
+
+    // Visits every game in order on the calling thread
+    public void scan(Visitor visitor) throws IOException, InterruptedException {
+        scan(1, () -> visitor);
+    }
+
+    // Visits every game on several threads, each with its own visitor; returns the visitors to merge
+    public <T extends Visitor> List<T> scan(int threads, Supplier<T> visitors) throws IOException, InterruptedException {
+        long total = getCount();
+        int segments = (int) ((total + RECORDS_PER_SEGMENT - 1) / RECORDS_PER_SEGMENT);
+        AtomicInteger nextSegment = new AtomicInteger();
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        List<T> results = new ArrayList<>();
+        Thread[] workers = new Thread[Math.max(1, Math.min(threads, segments))];
+        for (int t = 0; t < workers.length; t++) {
+            T visitor = visitors.get();
+            results.add(visitor);
+            workers[t] = new Thread(() -> {
+                ArchivedGame game = new ArchivedGame();
+                try {
+                    for (int s = nextSegment.getAndIncrement(); s < segments; s = nextSegment.getAndIncrement()) {
+                        MappedByteBuffer buffer = mapSegment(s, FileChannel.MapMode.READ_ONLY);
+                        int records = (int) Math.min(RECORDS_PER_SEGMENT, total - (long) s * RECORDS_PER_SEGMENT);
+                        for (int r = 0; r < records; r++) {
+                            visitor.visit(game.wrap(buffer, r * ArchivedGame.SIZE));
+                        }
+                    }
+                } catch (IOException e) {
+                    failure.compareAndSet(null, e);
+                }
+            }, "archive-scan-" + t);
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return results;
+    }
+
+    // Forces the appended games and the count to disk
+    public synchronized void flush() {
+        if (segment != null) {
+            segment.force();
+        }
+        index.force();
+    }
+
+    // Flushes and closes the archive
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        indexChannel.close();
+        segment = null;
+        segmentNumber = -1;
+    }
+
+    // Maps a whole segment file (a new segment is created at full size, sparse on most file systems)
+    private MappedByteBuffer mapSegment(int number, FileChannel.MapMode mode) throws IOException {
+        Path path = directory.resolve(String.format("games-%06d.seg", number));
+        if (mode == FileChannel.MapMode.READ_ONLY) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                return channel.map(mode, 0, Math.min(channel.size(), SEGMENT_SIZE));
+            }
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return channel.map(mode, 0, SEGMENT_SIZE); // The mapping stays valid after the channel is closed
+        }
+    }
+
+    // Entry point: prints a summary of an archive, scanned on every core
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path directory = Paths.get(DEFAULT_DIRECTORY);
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (String arg : args) {
+            if (arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(arg.substring(10));
+            } else {
+                directory = Paths.get(arg);
+            }
+        }
+        if (!Files.exists(directory.resolve(INDEX_FILE))) {
+            System.err.println("No game archive in " + directory);
+            System.err.println("Usage: java GameArchive [directory] [--threads=N]");
+            return;
+        }
+
+        try (GameArchive archive = open(directory)) {
+            long start = System.nanoTime();
+            Summary total = new Summary();
+            for (Summary summary : archive.scan(threads, Summary::new)) {
+                total.add(summary);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d games scanned in %.3f s (%.0f games/s, %.1f MB/s)%n", total.games, seconds,
+                    total.games / Math.max(seconds, 1e-9), total.games * (double) ArchivedGame.SIZE / 1e6 / Math.max(seconds, 1e-9));
+            total.print();
+        }
+    }
+
+    // Totals of a scan, per number of players
+    private static class Summary implements Visitor {
+        private long games; // Games visited
+        private long invalid; // Games failing their checksum
+        private final long[] gamesByPlayers = new long[Board.MAX_PLAYERS + 1]; // Games per player count
+        private final long[][] winsBySeat = new long[Board.MAX_PLAYERS + 1][Board.MAX_PLAYERS]; // Wins per player count and seat
+        private final long[] winningScore = new long[Board.MAX_PLAYERS + 1]; // Sum of the winning scores per player count
+        private final long[] stones = new long[Board.MAX_PLAYERS + 1]; // Stones left on the board per player count
+
+        // Adds one game to the totals
+        @Override
+        public void visit(ArchivedGame game) {
+            games++;
+            if (!game.isValid()) {
+                invalid++;
+                return;
+            }
+            int players = game.getPlayerCount();
+            gamesByPlayers[players]++;
+            int best = 0;
+            for (int player = 1; player <= players; player++) {
+                if (game.isWinner(player)) {
+                    winsBySeat[players][player - 1]++;
+                    best = game.getScore(player);
+                }
+            }
+            winningScore[players] += best;
+            for (int cell = 0; cell < Board.CELL_COUNT; cell++) {
+                if (game.getOwner(cell) != 0) stones[players]++;
+            }
+        }
+
+        // Adds the totals of another thread
+        void add(Summary other) {
+            games += other.games;
+            invalid += other.invalid;
+            for (int players = 0; players <= Board.MAX_PLAYERS; players++) {
+                gamesByPlayers[players] += other.gamesByPlayers[players];
+                winningScore[players] += other.winningScore[players];
+                stones[players] += other.stones[players];
+                for (int seat = 0; seat < Board.MAX_PLAYERS; seat++) {
+                    winsBySeat[players][seat] += other.winsBySeat[players][seat];
+                }
+            }
+        }
+
+        // Prints the totals
+        void print() {
+            if (invalid > 0) {
+                System.out.println(invalid + " games failed their checksum");
+            }
+            for (int players = 2; players <= Board.MAX_PLAYERS; players++) {
+                long count = gamesByPlayers[players];
+                if (count == 0) continue;
+                StringBuilder seats = new StringBuilder();
+                for (int seat = 0; seat < players; seat++) {
+                    seats.append(String.format(" P%d %.1f%%", seat + 1, 100.0 * winsBySeat[players][seat] / count));
+                }
+                System.out.printf("%d players: %d games, mean winning score %.2f, mean stones %.1f, wins by seat:%s%n",
+                        players, count, (double) winningScore[players] / count, (double) stones[players] / count, seats);
+            }
+        }
+    }
+}
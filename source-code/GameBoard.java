@@ -3,8 +3,11 @@ import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.util.Random;
-import java.io.FileOutputStream;
-import java.io.ObjectOutputStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
 
 
 
@@ -16,33 +19,30 @@ import java.io.ObjectOutputStream;
  */
 public class GameBoard {
     private ComputerPlayer computerPlayer; // Handles computer player logic
-    private static final int GRID_SIZE = 7; // Size of the game grid
-    private JButton[][] gridButtons; // Buttons representing the grid cells
-    private String[][] boardCombinations; // Combinations for each grid cell
-    private int[][] boardPoints; // Points for each grid cell
-    private int[][] stonePlacement; // Placement of stones on the grid
-    private Random random = new Random(); // Random number generator
-    private int[] diceRolls = new int[6]; // Array to store dice rolls
+    private static final int GRID_SIZE = Board.GRID_SIZE; // Size of the game grid
+    private static final int COMPUTER_MOVE_DELAY = 1500; // Milliseconds between the computer's roll and its move
+    private KiviEngine engine; // Game rules and state shown by this board
+    private GameJournal journal; // Journal of the actions since the last snapshot, written by the DiskWriter (null after a write error)
+    private boolean journalStopped; // Set by the DiskWriter thread after a journal write failed, so later writes are dropped
+    private GameClient client; // Connection to the game server of an online game (null for a local game)
 
     private JFrame frame; // Main frame of the game
-    private JPanel boardPanel; // Panel for the game board
-    private JPanel bottomPanel; // Panel for bottom controls
+    private BoardCanvas boardCanvas; // Painted game grid
+    private BoardCanvas.DiceStrip diceStrip; // Dice of the turn
+    private JButton skipButton; // Ends the turn without placing a stone, once the dice are rolled
     private int playerCount; // Number of players
     private boolean hasComputerPlayer; // Whether there is a computer player
     private String computerDifficulty; // Difficulty level of the computer player
     private boolean monochrome; // Whether the game is in monochrome mode
     private boolean protanopia; // Whether the game is in protanopia mode
     private boolean tritanopia; // Whether the game is in tritanopia mode
-    private boolean hasRolled; // Whether the dice have been rolled
-    private Validation validation; // Instance of Validation for dice checks
-    private int currentPlayer = 1; // Track current player (1 to playerCount)
-    private int displacedRow = -1; // Track displaced stone position
     private JLabel turnInfoLabel; // Label to display current player and turns left
+    private JCheckBox oddsCheckBox; // Shows the odds of the next roll reaching each free cell
+    private JLabel oddsLabel; // Expected number of cells the next roll opens, while the odds are shown
     private int totalTurns = 10; // Example: total turns per game, adjust as needed
     private int turnsLeft = totalTurns; // Tracks remaining turns
-    private int displacedPlayer = -1; // Tracks the player whose stone was displaced
-    private int[] turnsRemaining; // Array to track stones remaining for each player
     private PlayerInfoPanel playerInfoPanel; // Panel to display player information
+    private long turnStartNanos; // System.nanoTime() at the start of the current turn
     
      
     
@@ -66,32 +66,41 @@ public class GameBoard {
         this.protanopia = protanopia;
         this.tritanopia = tritanopia;
 
-        this.turnsRemaining = new int[playerCount];
-        this.gridButtons = new JButton[GRID_SIZE][GRID_SIZE];
-        this.boardCombinations = new String[GRID_SIZE][GRID_SIZE];
-        this.boardPoints = new int[GRID_SIZE][GRID_SIZE];
-        this.stonePlacement = new int[GRID_SIZE][GRID_SIZE];
-
     
         if (hasComputerPlayer) {
-            computerPlayer = new ComputerPlayer(computerDifficulty);
+            computerPlayer = new ComputerPlayer(computerDifficulty, playerCount, playerCount); // Computer is the last player
         }
         
         if (savedState != null) {
             loadGameState(savedState);
         } else {
-            // Initialize new game
-            for (int i = 0; i < playerCount; i++) {
-                turnsRemaining[i] = 10;
-            }
-            CellManager.initializeBoard(boardCombinations, boardPoints, random);
-            validation = new Validation(diceRolls);
+            engine = new KiviEngine(playerCount, ThreadLocalRandom.current().nextLong()); // New game from a seed, so it can be replayed
         }
 
         setupGameBoard();
         if (savedState != null) {
             updateUIFromState(); // Update UI only if loading
         }
+
+        // Every game is journaled from a fresh snapshot, so it can be resumed after a crash
+        journal = new GameJournal(Paths.get(GameJournal.AUTOSAVE_FILE), Paths.get(GameJournal.JOURNAL_FILE),
+                GameJournal.SyncPolicy.GROUP);
+        compactJournal();
+    }
+
+    // Constructor for an online game the server has started; every move goes through the server
+    public GameBoard(JFrame frame, GameClient client, boolean monochrome, boolean protanopia, boolean tritanopia) {
+        this.frame = frame;
+        this.client = client;
+        this.playerCount = client.getPlayerCount();
+        this.monochrome = monochrome;
+        this.protanopia = protanopia;
+        this.tritanopia = tritanopia;
+        this.engine = new KiviEngine(playerCount, client.getSeed()); // Same seed as the server, so the same board and dice
+
+        setupGameBoard();
+        updateTurnInfoLabel();
+        client.startListening(new ServerListener());
     }
 
     // Default constructor (for new game)
@@ -120,39 +129,27 @@ public class GameBoard {
                 saveGame(); // Call the save method
             }
         });
-        turnInfoLabel = new JLabel("Player " + currentPlayer + "'s Turn (" + PlayerInfoPanel.playerStones[currentPlayer - 1] + ") - Turns Left: " + turnsLeft); // Current Player's Info
+        turnInfoLabel = new JLabel("Player " + engine.getCurrentPlayer() + "'s Turn (" + PlayerInfoPanel.playerStones[engine.getCurrentPlayer() - 1] + ") - Turns Left: " + turnsLeft); // Current Player's Info
+        resetButton.setEnabled(client == null); // An online game is owned by the server
+        saveButton.setEnabled(client == null);
         topPanel.add(resetButton); // Add reset button to top panel
         topPanel.add(saveButton); // Add save button to top panel
         topPanel.add(turnInfoLabel); // Add turn info label to top panel
+        oddsCheckBox = new JCheckBox("Show Odds"); // Odds overlay on the free cells
+        oddsCheckBox.addActionListener(_ -> showOdds());
+        oddsLabel = new JLabel();
+        topPanel.add(oddsCheckBox);
+        topPanel.add(oddsLabel);
         frame.add(topPanel, BorderLayout.NORTH); // Add top panel to frame
 
 
 
-        boardPanel = new JPanel(new GridLayout(GRID_SIZE, GRID_SIZE)); // Panel for the game board
-        for (int row = 0; row < GRID_SIZE; row++) {
-            for (int col = 0; col < GRID_SIZE; col++) {
-                gridButtons[row][col] = new JButton(); // Create button for each cell
-                gridButtons[row][col].setText(boardCombinations[row][col]); // Set text to combination
-                gridButtons[row][col].setFont(new Font("Arial", Font.BOLD, 15));
-                Color cellColor = CellManager.getCellColor(row, col, monochrome, protanopia, tritanopia);
-                gridButtons[row][col].setBackground(cellColor); // Set initial background colors    
-                gridButtons[row][col].setBorder(BorderFactory.createLineBorder(Color.BLACK)); // Set border for each button
-                final int finalRow = row; // Final row for lambda expression
-                final int finalCol = col; // Final column for lambda expression
-                gridButtons[row][col].addActionListener(new ActionListener() { // Add action listener to each button
-                    @Override
-                    public void actionPerformed(ActionEvent e) {
-                        handleCellClick(finalRow, finalCol); // Handle cell click
-                    }
-                });
-                boardPanel.add(gridButtons[row][col]); // Add button to board panel
-            }
-        }
-        boardPanel.setBackground(Color.WHITE); // Set background color of board panel
-        frame.add(boardPanel, BorderLayout.CENTER); // Add board panel to frame
+        boardCanvas = new BoardCanvas(engine.getBoardCombinations(), monochrome, protanopia, tritanopia); // Painted game board
+        boardCanvas.setCellListener(this::handleCellClick); // Handle cell click
+        frame.add(boardCanvas, BorderLayout.CENTER); // Add board to frame
 
-        // Bottom panel with Dice Roll button
-        bottomPanel = new JPanel();
+        // Bottom panel with Dice Roll button, the dice and the Skip Turn button, built once for the whole game
+        JPanel bottomPanel = new JPanel();
         JButton rollButton = new JButton("Roll Dice"); // Roll dice button
         rollButton.setFont(new Font("Arial", Font.BOLD, 20)); // Increase font size
         rollButton.setPreferredSize(new Dimension(150, 50)); // Set a larger preferred size
@@ -163,11 +160,12 @@ public class GameBoard {
             }
         });
         bottomPanel.add(rollButton); // Add roll button to bottom panel
-
-        // Panel to show dice rolls and instructions
-        JPanel rollResultPanel = new JPanel();
-        rollResultPanel.setLayout(new BoxLayout(rollResultPanel, BoxLayout.Y_AXIS)); // Set layout to BoxLayout
-        bottomPanel.add(rollResultPanel); // Add roll result panel to bottom panel
+        diceStrip = new BoardCanvas.DiceStrip(); // Dice of the turn, empty until the first roll
+        bottomPanel.add(diceStrip);
+        skipButton = new JButton("Skip Turn");
+        skipButton.addActionListener(_ -> skipTurn());
+        skipButton.setEnabled(false); // Only once the dice are rolled
+        bottomPanel.add(skipButton);
         frame.add(bottomPanel, BorderLayout.SOUTH); // Add bottom panel to frame
 
         // Setup player information panel
@@ -177,73 +175,35 @@ public class GameBoard {
         frame.add(new JPanel(), BorderLayout.EAST); // Add empty panel to east
         frame.revalidate(); // Re validate the frame
         frame.repaint(); // Repaint the frame
+        turnStartNanos = System.nanoTime(); // The first turn starts once the board is shown
     }
 
 
     // Method to update UI after loading a saved state
 
     private void updateUIFromState() {
-        // Update grid buttons to reflect stonePlacement
+        // Show the stones on the board
         for (int row = 0; row < GRID_SIZE; row++) {
             for (int col = 0; col < GRID_SIZE; col++) {
-                int player = stonePlacement[row][col];
+                int player = engine.getBoard().getStone(row, col);
                 if (player != 0) {
-
-                    int tempPlayer = currentPlayer;
-                    currentPlayer = player; // Temporarily set to the player who owns the stone
-                    placeStone(row, col);   // Call placeStone to update button
-                    currentPlayer = tempPlayer; // Restore current player
+                    boardCanvas.showStone(row, col, player); // Show the stone of the player who owns it
                 } else {
-                    gridButtons[row][col].setText(boardCombinations[row][col]); 
-                    gridButtons[row][col].setBackground(CellManager.getCellColor(row, col, monochrome, protanopia, tritanopia));
-                    gridButtons[row][col].setFont(new Font("Arial", Font.BOLD, 15));
+                    boardCanvas.clearCell(row, col);
                 }
             }
         }
 
         // Update player info
-        for (int i = 0; i < playerCount; i++) {
-            playerInfoPanel.updateTurnsRemaining(i, turnsRemaining[i]);
-        }
+        updatePlayerInfo();
 
         // Update turn info
         updateTurnInfoLabel();
 
         // Reflect dice rolls if rolled
-        if (hasRolled) {
-            bottomPanel.removeAll();
-            JButton rollButton = new JButton("Roll Dice");
-            rollButton.setFont(new Font("Arial", Font.BOLD, 20));
-            rollButton.setPreferredSize(new Dimension(150, 50));
-            rollButton.addActionListener(new ActionListener() { // Add action listener to roll button
-                @Override
-                public void actionPerformed(ActionEvent e) {
-                    rollDice(); // Roll dice
-                }
-            });
-            bottomPanel.add(rollButton);
-
-            JPanel dicePanel = new JPanel(new GridLayout(1, 6, 5, 0));
-            dicePanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
-            for (int roll : diceRolls) {
-                JLabel diceLabel = new JLabel(String.valueOf(roll), SwingConstants.CENTER);
-                diceLabel.setFont(new Font("Arial", Font.BOLD, 18));
-                diceLabel.setPreferredSize(new Dimension(40, 40));
-                diceLabel.setOpaque(true);
-                diceLabel.setBackground(Color.WHITE);
-                diceLabel.setBorder(BorderFactory.createLineBorder(Color.BLACK, 2));
-                dicePanel.add(diceLabel);
-            }
-            bottomPanel.add(dicePanel);
-
-            JButton skipButton = new JButton("Skip Turn");
-            skipButton.addActionListener(_ -> nextTurn());
-            bottomPanel.add(skipButton);
+        if (engine.hasRolled()) {
+            showDice();
         }
-
-        frame.revalidate();
-        frame.repaint();
-
     }
 
     private void loadGameState(GameState state) {
@@ -253,279 +213,220 @@ public class GameBoard {
         this.monochrome = state.isMonochrome();
         this.protanopia = state.isProtanopia();
         this.tritanopia = state.isTritanopia();
-        this.stonePlacement = state.getStonePlacement();
-        this.turnsRemaining = state.getTurnsRemaining();
-        this.currentPlayer = state.getCurrentPlayer();
         this.turnsLeft = state.getTurnsLeft();
-        this.diceRolls = state.getDiceRolls();
-        this.hasRolled = state.hasRolled();
-        this.displacedRow = state.getDisplacedRow();
-        this.displacedPlayer = state.getDisplacedPlayer();
-        this.validation = new Validation(diceRolls);
-        CellManager.initializeBoard(boardCombinations, boardPoints, random);
+        this.engine = new KiviEngine(state, new Random());
     }
 
+    // Saves the game to the manual save file on the DiskWriter and reports the outcome (the journal keeps its own autosave)
     private void saveGame() {
-       
-        GameState state = new GameState(playerCount, hasComputerPlayer, computerDifficulty, monochrome, protanopia,
-                tritanopia, stonePlacement, turnsRemaining, currentPlayer, turnsLeft, diceRolls, hasRolled,
-                displacedRow, displacedPlayer);
-        try (FileOutputStream fileOut = new FileOutputStream("SavedKiviGame.ser");
-             ObjectOutputStream out = new ObjectOutputStream(fileOut)) {
-            out.writeObject(state);
-            JOptionPane.showMessageDialog(frame, "Game saved successfully!", "Save Game", JOptionPane.INFORMATION_MESSAGE);
-        } catch (Exception e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(frame, "Error saving game!", "Save Game", JOptionPane.ERROR_MESSAGE);
-        }
+        GameState state = currentState();
+        DiskWriter.submit(() -> {
+            long start = System.nanoTime();
+            GameStateCodec.write(state, Paths.get(GameStateCodec.SAVE_FILE));
+            Metrics.SAVE_TIME.recordSince(start);
+            SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(frame, "Game saved successfully!", "Save Game",
+                    JOptionPane.INFORMATION_MESSAGE));
+        }, e -> JOptionPane.showMessageDialog(frame, "Error saving game!", "Save Game", JOptionPane.ERROR_MESSAGE));
+    }
+
+    // Captures the game being played for a snapshot
+    private GameState currentState() {
+        return engine.toGameState(hasComputerPlayer, computerDifficulty, monochrome, protanopia, tritanopia, turnsLeft);
+    }
+
+    // Appends an action the engine accepted to the journal
+    private void journalAction(int kind, int cell) {
+        int[] dice = engine.getDiceRolls().clone(); // The engine's dice change with the next roll
+        writeJournal(target -> target.append(kind, cell, dice));
+    }
+
+    // Forces the turn's actions to disk and writes a new snapshot once the journal has grown
+    private void commitJournal() {
+        GameState state = currentState(); // Taken now, written only if the journal needs a new snapshot
+        writeJournal(target -> {
+            target.commit();
+            if (target.needsCompaction()) {
+                target.compact(state);
+            }
+        });
+    }
+
+    // Writes a snapshot of the game and starts an empty journal after it
+    private void compactJournal() {
+        GameState state = currentState();
+        writeJournal(target -> target.compact(state));
+    }
+
+    // Work on the journal, run by the DiskWriter
+    private interface JournalTask {
+        void run(GameJournal journal) throws IOException;
+    }
+
+    // Queues work on the journal for the DiskWriter; after a failure the journal is closed and later work is dropped
+    private void writeJournal(JournalTask task) {
+        GameJournal target = journal;
+        if (target == null) return;
+        DiskWriter.submit(() -> {
+            if (journalStopped) return;
+            try {
+                task.run(target);
+            } catch (IOException | RuntimeException e) {
+                journalStopped = true;
+                try {
+                    target.close();
+                } catch (IOException closeError) {
+                    closeError.printStackTrace();
+                }
+                throw e;
+            }
+        }, this::journalFailed);
+    }
+
+    // Stops journaling after a write error so the game can go on without it
+    private void journalFailed(Exception e) {
+        if (journal == null) return; // The game has ended
+        journal = null;
+        JOptionPane.showMessageDialog(frame, "Error writing the game journal! Use Save Game to keep your progress.",
+                "Save Game", JOptionPane.ERROR_MESSAGE);
     }
    
 
     // New method to reset the game
     private void resetGame() {
         // Reset game state
-        for (int row = 0; row < GRID_SIZE; row++) {
-            for (int col = 0; col < GRID_SIZE; col++) {
-                stonePlacement[row][col] = 0; // Clear all stones
-                gridButtons[row][col].setText(boardCombinations[row][col]); // Reset text to initial combination
-                gridButtons[row][col].setFont(new Font("Arial", Font.BOLD, 15)); // Reset font size to default 
-                Color cellColor = CellManager.getCellColor(row, col, monochrome, protanopia, tritanopia);
-                gridButtons[row][col].setBackground(cellColor); // Reset background colors
-            }
-        }
+        engine.reset(); // Clear all stones, turns and dice
+        boardCanvas.clearAll(); // Show every cell free again
         
         // Reset stones for each player
-        for (int i = 0; i < playerCount; i++) {
-            turnsRemaining[i] = 10;
-            playerInfoPanel.updateTurnsRemaining(i, 10);
-        }
+        updatePlayerInfo();
         
         turnsLeft = totalTurns; // Reset turns
-        currentPlayer = 1; // Reset to first player
-        hasRolled = false; // Reset roll state
-        displacedRow = -1; // Clear displaced stone
-        displacedPlayer = -1;
-        diceRolls = new int[6]; // Reset dice rolls
-        validation = new Validation(diceRolls); // Reinitialize validation
+        compactJournal(); // The restarted game replaces the journaled one
     
         // Reset bottom panel
-        bottomPanel.removeAll();
-        JButton rollButton = new JButton("Roll Dice");
-        rollButton.setFont(new Font("Arial", Font.BOLD, 20)); // Increase font size
-        rollButton.setPreferredSize(new Dimension(150, 50)); // Set a larger preferred size
-        rollButton.addActionListener(new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                rollDice();
-            }
-        });
-        bottomPanel.add(rollButton);
+        clearDice();
+        turnStartNanos = System.nanoTime();
     
         // Update turn info label
         updateTurnInfoLabel();
-        
-        // Refresh UI
-        frame.revalidate();
-        frame.repaint();
     }
     
     // Method to roll the dice
     private void rollDice() {
-        if (!hasRolled) {
-            hasRolled = true; // Set hasRolled to true
-            for (int i = 0; i < 6; i++) {
-                diceRolls[i] = random.nextInt(6) + 1; // Generate random dice rolls
-            }
-
-            validation = new Validation(diceRolls);
-            
-            bottomPanel.removeAll();
-
-            // Add the Roll Dice button back
-            JButton rollButton = new JButton("Roll Dice");
-            rollButton.setFont(new Font("Arial", Font.BOLD, 20)); // Keep the larger font
-            rollButton.setPreferredSize(new Dimension(150, 50)); // Keep the larger size
-            rollButton.addActionListener(new ActionListener() {
-                @Override
-                public void actionPerformed(ActionEvent e) {
-                    rollDice();
-                }
-            });
-            bottomPanel.add(rollButton);
-
-            // Create a panel for dice rolls in a single row
-            JPanel dicePanel = new JPanel(new GridLayout(1, 6, 5, 0)); // 1 row, 6 columns, 5px horizontal gap
-            dicePanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10)); // Add padding
-            for (int roll : diceRolls) {
-                JLabel diceLabel = new JLabel(String.valueOf(roll), SwingConstants.CENTER);
-                diceLabel.setFont(new Font("Arial", Font.BOLD, 18)); // Larger font for dice
-                diceLabel.setPreferredSize(new Dimension(40, 40)); // Square size for each die
-                diceLabel.setOpaque(true); // Make it opaque to show background
-                diceLabel.setBackground(Color.WHITE); // White background for blocks
-                diceLabel.setBorder(BorderFactory.createLineBorder(Color.BLACK, 2)); // Black border for block effect
-                dicePanel.add(diceLabel);
-            }
-
-            // Add components to bottom panel
-            bottomPanel.add(dicePanel);
-
-
-            // new code end
-            
-            JButton skipButton = new JButton("Skip Turn");
-            skipButton.addActionListener(_ -> {
-                nextTurn();
-            });
-            bottomPanel.add(skipButton);
-            
-            frame.revalidate(); // Re validate the frame
-            frame.repaint(); // Repaint the frame
-
-        } else {
+        if (client != null) {
+            sendToServer(GameProtocol.ROLL, 0); // The server rolls and tells every player
+            return;
+        }
+        KiviEngine.Result result = engine.roll(); // Generate random dice rolls
+        if (result == KiviEngine.Result.ROLLED) {
+            journalAction(KiviEngine.ROLL, 0);
+            showDice();
+        } else if (result == KiviEngine.Result.ALREADY_ROLLED) {
             JOptionPane.showMessageDialog(frame, "You have rolled your dice—now place your stone accordingly!", // Warning message if dice already rolled
                     "Place a Stone", JOptionPane.WARNING_MESSAGE);
         }
     }
 
+    // Shows the dice of the turn and lets the player skip it
+    private void showDice() {
+        diceStrip.setDice(engine.getDiceRolls());
+        skipButton.setEnabled(true);
+    }
+
+    // Hides the dice once the turn is over
+    private void clearDice() {
+        diceStrip.clear();
+        skipButton.setEnabled(false);
+    }
+
     // Method to handle cell click
     private void handleCellClick(int row, int col) {
-        if (displacedRow != -1) {
-            handleDisplacedStonePlacement(row, col); // Handle displaced stone placement
-        } else {
-            handleRegularClick(row, col); // Handle regular stone placement
+        if (client != null) {
+            sendToServer(GameProtocol.PLACE, Board.cellIndex(row, col)); // Placed once the server accepts it
+            return;
         }
+        showPlacementResult(placeStone(row, col)); // Place the stone, or the displaced stone if one is waiting
     }
 
-    // Method to handle regular cell click
-    private void handleRegularClick(int row, int col) {
-        if (!hasRolled) {
+    // Tells the player what became of a placement and passes the turn on once it is complete
+    private void showPlacementResult(KiviEngine.Result result) {
+        if (result == KiviEngine.Result.NOT_ROLLED) {
             JOptionPane.showMessageDialog(frame, "Roll the dice first!"); // Prompt to roll dice
-            return;
+        } else if (result == KiviEngine.Result.FREE_CELL_ONLY) {
+            JOptionPane.showMessageDialog(frame, "This square is occupied! With five-of-a-kind or straight 1-6, you can only place on a free square.");
+        } else if (result == KiviEngine.Result.INVALID) {
+            JOptionPane.showMessageDialog(frame, "Your dice do not satisfy the combination or the place is already occupied.");
+        } else if (result == KiviEngine.Result.OCCUPIED) {
+            JOptionPane.showMessageDialog(frame, "This square is already occupied!");
+        } else if (result == KiviEngine.Result.DISPLACED) {
+            JOptionPane.showMessageDialog(frame, "Stone replaced! Now place the displaced stone.");
+        } else if (result == KiviEngine.Result.PLACED) {
+            nextTurn();
         }
+    }
 
-        String combination = boardCombinations[row][col]; // Get combination for the cell
-        boolean isOccupied = stonePlacement[row][col] != 0; // Check if the cell is occupied
-
-        if (!validation.isValidPlacement(combination, isOccupied)) { // Validate placement
-            if ((validation.isFiveOfAKind() || validation.isStraightOneToSix()) && isOccupied) {
-                JOptionPane.showMessageDialog(frame, "This square is occupied! With five-of-a-kind or straight 1-6, you can only place on a free square.");
+    // Plays a stone through the engine and shows it on the board
+    private KiviEngine.Result placeStone(int row, int col) {
+        boolean displaced = engine.hasDisplacedStone(); // Whether this places the displaced stone
+        int player = displaced ? engine.getDisplacedPlayer() : engine.getCurrentPlayer();
+        KiviEngine.Result result = engine.place(row, col);
+        if (result == KiviEngine.Result.PLACED || result == KiviEngine.Result.DISPLACED) {
+            journalAction(displaced ? KiviEngine.PLACE_DISPLACED : KiviEngine.PLACE, Board.cellIndex(row, col));
+            if (displaced) {
+                boardCanvas.showDisplacedStone(row, col, player);
             } else {
-                JOptionPane.showMessageDialog(frame, "Your dice do not satisfy the combination or the place is already occupied.");
+                boardCanvas.showStone(row, col, player);
             }
-            return;
+            updateScores();
         }
+        return result;
+    }
 
-        if (validation.isSixOfAKind() && isOccupied) { // Handle six of a kind
-            displacedRow = row;
-            displacedPlayer = stonePlacement[row][col];
-            placeStone(row, col); // Replace the current stone
-            JOptionPane.showMessageDialog(frame, "Stone replaced! Now place the displaced stone.");
-            return;
+    // Shows the running score of every player
+    private void updateScores() {
+        for (int i = 0; i < playerCount; i++) {
+            playerInfoPanel.updateScore(i, engine.getScore(i + 1));
         }
+    }
 
-        if (displacedRow != -1) { // Handle displaced stone placement
-            if (stonePlacement[row][col] == 0) { // Ensure it's an empty cell
-                stonePlacement[row][col] = displacedPlayer; // Place displaced stone
-                gridButtons[row][col].setBackground(Color.YELLOW);
-                gridButtons[row][col].setText(PlayerInfoPanel.playerStones[displacedPlayer - 1]);
-                gridButtons[row][col].setFont(new Font("Arial", Font.BOLD, 15));
-                displacedRow = -1;
-                displacedPlayer = -1;
-                nextTurn();
-            } else {
-                JOptionPane.showMessageDialog(frame, "This square is already occupied!");
-            }
-            return;
+    // Shows the turns left and the score of every player
+    private void updatePlayerInfo() {
+        for (int i = 0; i < playerCount; i++) {
+            playerInfoPanel.updateTurnsRemaining(i, engine.getTurnsRemaining()[i]);
         }
-
-        placeStone(row, col); // Place the stone normally
-        nextTurn();
+        updateScores();
     }
 
-    // Places a stone on the board at the specified cell
-    private void placeStone(int row, int col) {
-        stonePlacement[row][col] = currentPlayer; // Update stone placement
-        if (monochrome == true) {
-            if (currentPlayer - 1 == 0) {
-                gridButtons[row][col].setBackground(new Color(80, 80, 80));
-            } else if (currentPlayer - 1 == 1) {
-                gridButtons[row][col].setBackground(new Color(140, 140, 140));
-            } else if (currentPlayer - 1 == 2) {
-                gridButtons[row][col].setBackground(new Color(170, 170, 170));
-            } else {
-                gridButtons[row][col].setBackground(new Color(230, 230, 230));
-            }
-        } else if (protanopia == true) {
-               if (currentPlayer - 1 == 0) {
-                   gridButtons[row][col].setBackground(new Color(229, 226, 237));
-               } else if (currentPlayer - 1 == 1) {
-               gridButtons[row][col].setBackground(new Color(93, 143, 255));
-               } else if (currentPlayer - 1 == 2) {
-                gridButtons[row][col].setBackground(new Color(130, 127, 128));
-            } else {
-                gridButtons[row][col].setBackground(new Color(255, 234, 135));
-            }
-        } else if (tritanopia == true) {
-            if (currentPlayer - 1 == 0) {
-                gridButtons[row][col].setBackground(new Color(255, 182, 193));
-            } else if (currentPlayer - 1 == 1) {
-                gridButtons[row][col].setBackground(new Color(97, 210, 250));
-            } else if (currentPlayer - 1 == 2) {
-                gridButtons[row][col].setBackground(new Color(200, 200, 200));
-            } else {
-                gridButtons[row][col].setBackground(new Color(128, 128, 128));
-            }
-        } else {
-            if (currentPlayer - 1 == 0) {
-                gridButtons[row][col].setBackground(new Color(217, 235, 250));
-            } else if (currentPlayer - 1 == 1) {
-                gridButtons[row][col].setBackground(new Color(128, 180, 210));
-            } else if (currentPlayer - 1 == 2) {
-                gridButtons[row][col].setBackground(new Color(3, 106, 140));
-            } else {
-                gridButtons[row][col].setBackground(new Color(0, 77, 172));
-            }
+    // Ends the current player's turn without placing a stone
+    private void skipTurn() {
+        if (client != null) {
+            sendToServer(GameProtocol.SKIP, 0);
+            return;
+        }
+        if (engine.skip() == KiviEngine.Result.SKIPPED) {
+            journalAction(KiviEngine.SKIP, 0);
+            nextTurn();
         }
-        gridButtons[row][col].setText(PlayerInfoPanel.playerStones[currentPlayer - 1]); // Set stone symbol
-        gridButtons[row][col].setFont(new Font("Arial", Font.BOLD, 60)); // Set font size for visibility
     }
 
-    // Prepares the game for the next player's turn
+    // Shows the board for the next player's turn once the engine has passed the turn on
     private void nextTurn() {
-        hasRolled = false; // Reset roll status
-        bottomPanel.removeAll(); // Clear bottom panel
-        JButton rollButton = new JButton("Roll Dice"); // Create roll button
-        rollButton.setFont(new Font("Arial", Font.BOLD, 20)); // Keep the larger font
-        rollButton.setPreferredSize(new Dimension(150, 50)); // Keep the larger size
-        rollButton.addActionListener(new ActionListener() {
-            public void actionPerformed(ActionEvent e) {
-                rollDice(); // Roll dice action
-            }
-        });
-        bottomPanel.add(rollButton); // Add roll button to panel
+        Metrics.TURN_TIME.recordSince(turnStartNanos); // Time the turn took
+        recordTurnEvent();
+        turnStartNanos = System.nanoTime();
+        clearDice(); // The next player rolls afresh
 
-        if (displacedRow == -1) { // If no stone was displaced
-            turnsRemaining[currentPlayer - 1]--; // Decrement stones remaining for current player
-            playerInfoPanel.updateTurnsRemaining(currentPlayer - 1, turnsRemaining[currentPlayer - 1]); // Update UI
-        }
-
-        boolean gameOver = true; // Assume game is over
-        for (int stones : turnsRemaining) { // Check if any player still has stones
-            if (stones > 0) {
-                gameOver = false; // Game continues
-                break;
-            }
-        }
+        updatePlayerInfo(); // Show the turn the player used
+        commitJournal(); // One fsync for the whole turn, on the DiskWriter
 
-        if (gameOver) { // If game is over
+        if (engine.isGameOver()) { // If game is over
             endGame(); // End the game
             return;
         }
 
-        currentPlayer = (currentPlayer % playerCount) + 1; // Switch to next player
         updateTurnInfoLabel(); // Update turn info label
 
-        if (hasComputerPlayer && currentPlayer == playerCount) { // If it's computer's turn
+        if (hasComputerPlayer && engine.getCurrentPlayer() == playerCount) { // If it's computer's turn
             // Create a timer that delays the computer's turn by 0.1 second for better UX
             Timer timer = new Timer(100, new ActionListener() {
                 @Override
@@ -536,34 +437,66 @@ public class GameBoard {
             timer.setRepeats(false); // Ensures the timer only fires once
             timer.start(); // Starts the timer
         }
+    }
 
-        frame.revalidate(); // Re validate frame
-        frame.repaint(); // Repaint frame
+    // Emits the flight recorder event of the turn that just ended, if a recording enabled it
+    private void recordTurnEvent() {
+        GameEvents.Turn event = new GameEvents.Turn();
+        if (!event.shouldCommit() || engine.getHistorySize() == 0) return;
+        long lastAction = engine.getHistoryRecord(engine.getHistorySize() - 1); // The placement or skip ending the turn
+        event.player = KiviEngine.actionPlayer(lastAction);
+        event.roll = GameEvents.rollText(KiviEngine.actionRollKey(lastAction));
+        event.elapsed = System.nanoTime() - turnStartNanos;
+        event.commit();
     }
 
     // Updates the turn information label
     private void updateTurnInfoLabel() {
-        turnInfoLabel.setText("Player " + currentPlayer + "'s Turn (" + PlayerInfoPanel.playerStones[currentPlayer - 1] + ") - Turns Left: " + turnsRemaining[currentPlayer - 1]);
+        int currentPlayer = engine.getCurrentPlayer();
+        turnInfoLabel.setText("Player " + currentPlayer + "'s Turn (" + PlayerInfoPanel.playerStones[currentPlayer - 1] + ") - Turns Left: " + engine.getTurnsRemaining()[currentPlayer - 1]);
+        if (client != null) {
+            turnInfoLabel.setText(turnInfoLabel.getText() + " - You are Player " + client.getSeat());
+        }
+        updateOddsLabel();
     }
 
-    // Ends the game and displays the results
-    private void endGame() {
-        Scoring scoring = new Scoring(stonePlacement, boardPoints, playerCount); // Calculate scores
-        int[] scores = scoring.calculateScores();
+    // Shows or hides the odds of the next roll reaching each free cell
+    private void showOdds() {
+        boardCanvas.setOddsShown(oddsCheckBox.isSelected());
+        updateOddsLabel();
+    }
 
-        int maxScore = 0; // Find the highest score
-        for (int score : scores) {
-            maxScore = Math.max(maxScore, score);
+    // Shows the number of cells the next roll is expected to open, while the odds are shown
+    private void updateOddsLabel() {
+        if (oddsCheckBox == null || !oddsCheckBox.isSelected()) {
+            oddsLabel.setText("");
+            return;
         }
+        double expected = CombinationOdds.expectedLegalCells(Validation.combinationCells(engine.getBoardCombinations()),
+                engine.getBoard().getOccupied());
+        oddsLabel.setText(String.format("- Next roll opens %.1f cells on average", expected));
+    }
+
+    // Ends the game and displays the results
+    private void endGame() {
+        int[] scores = engine.getScores(); // Final scores from the running totals
+        ByteBuffer record = ByteBuffer.allocate(ArchivedGame.SIZE); // Made here, mapped and forced by the DiskWriter
+        ArchivedGame.write(record, 0, engine, System.currentTimeMillis());
+        DiskWriter.submit(() -> { // Keep the finished game for analysis
+            try (GameArchive archive = GameArchive.open(Paths.get(GameArchive.DEFAULT_DIRECTORY))) {
+                archive.append(record);
+            }
+        });
+        writeJournal(GameJournal::delete); // A finished game cannot be resumed; a manual save is kept
+        journal = null;
+        closeClient(); // The server ends the session with the game
 
         StringBuilder winners = new StringBuilder(); // Build winners string
-        for (int i = 0; i < scores.length; i++) {
-            if (scores[i] == maxScore) {
-                if (winners.length() > 0) {
-                    winners.append(" and ");
-                }
-                winners.append("Player ").append(i + 1);
+        for (int winner : engine.getWinners()) {
+            if (winners.length() > 0) {
+                winners.append(" and ");
             }
+            winners.append("Player ").append(winner);
         }
 
         StringBuilder resultMessage = new StringBuilder("Game Over!\n\nFinal Scores:\n"); // Build result message
@@ -571,6 +504,9 @@ public class GameBoard {
             resultMessage.append("Player ").append(i + 1).append(": ").append(scores[i]).append(" points\n");
         }
         resultMessage.append("\nWinner(s): ").append(winners);
+        if (engine.hasSeed()) {
+            resultMessage.append("\n\nGame seed: ").append(engine.getSeed()); // Lets the game be replayed
+        }
         
         // Use JOptionPane with custom options
         Object[] options = {"Exit", "New Game"};
@@ -594,6 +530,7 @@ public class GameBoard {
     }
 
     private void startNewGame() {
+        closeClient();
         // Clear the current frame content
         frame.getContentPane().removeAll();
         // Show the MainMenu in the existing frame
@@ -603,78 +540,191 @@ public class GameBoard {
         frame.repaint();
     }
         
-    // Handles displaced stone placement
-    private void handleDisplacedStonePlacement(int row, int col) {
-        if (displacedRow == -1) return; // If no stone was displaced, do nothing
+ // Handles the computer's turn
+    private void handleComputerTurn() {
+        rollDice(); // Roll dice for computer
+        long rollTime = System.currentTimeMillis();
+
+        // Search on a background thread with its own copy of the position, so the board stays responsive
+        Board searchBoard = engine.getBoard().copy();
+        Validation searchValidation = new Validation(engine.getDiceRolls().clone());
+        int[] searchTurns = engine.getTurnsRemaining().clone();
+        String[][] boardCombinations = engine.getBoardCombinations();
+        int[][] boardPoints = engine.getBoardPoints();
+        SwingWorker<int[], Void> search = new SwingWorker<int[], Void>() {
+            @Override
+            protected int[] doInBackground() {
+                return computerPlayer.determineMove(boardCombinations, searchBoard, boardPoints, searchValidation, searchTurns);
+            }
 
-        if (stonePlacement[row][col] != 0) { // If cell is occupied
-            JOptionPane.showMessageDialog(frame, "This square is already occupied!");
+            @Override
+            protected void done() {
+                int[] move = null;
+                try {
+                    move = get();
+                } catch (InterruptedException | ExecutionException e) {
+                    e.printStackTrace();
+                }
+
+                // Keep the delay that lets the user see the dice roll before the computer moves
+                int remaining = (int) Math.max(0, COMPUTER_MOVE_DELAY - (System.currentTimeMillis() - rollTime));
+                int[] chosenMove = move;
+                Timer delayTimer = new Timer(remaining, new ActionListener() {
+                    @Override
+                    public void actionPerformed(ActionEvent e) {
+                        applyComputerMove(chosenMove);
+                    }
+                });
+                delayTimer.setRepeats(false);
+                delayTimer.start();
+            }
+        };
+        search.execute();
+    }
+
+    // Plays the move chosen by the computer player
+    private void applyComputerMove(int[] move) {
+        if (engine.hasDisplacedStone()) { // If there's a displaced stone
+            placeComputerDisplacedStone();
+            return;
+        }
+
+        if (move != null) {
+            if (placeStone(move[0], move[1]) == KiviEngine.Result.DISPLACED) { 
+                // Delay displaced stone placement
+                Timer displacedTimer = new Timer(1500, new ActionListener() {
+                    @Override
+                    public void actionPerformed(ActionEvent e) {
+                        placeComputerDisplacedStone();
+                    }
+                });
+                displacedTimer.setRepeats(false);
+                displacedTimer.start();
+            } else {
+                // Delay next turn to show the stone placement
+                Timer nextTurnTimer = new Timer(1000, _ -> nextTurn());
+                nextTurnTimer.setRepeats(false);
+                nextTurnTimer.start();
+            }
+        } else {
+            // Delay next turn to show message
+            Timer messageTimer = new Timer(500, _ -> {
+                JOptionPane.showMessageDialog(frame, "Computer cannot make a valid move with current dice roll.", "Computer's Turn", JOptionPane.INFORMATION_MESSAGE); 
+                skipTurn(); 
+            });
+            messageTimer.setRepeats(false);
+            messageTimer.start();
+        }
+    }
+
+    // Sends the local player's roll, placement or skip to the server if it is their turn
+    private void sendToServer(byte type, int cell) {
+        if (engine.getCurrentPlayer() != client.getSeat()) {
+            JOptionPane.showMessageDialog(frame, "Wait for your turn! You are Player " + client.getSeat() + ".");
             return;
         }
+        try {
+            if (type == GameProtocol.ROLL) {
+                client.sendRoll();
+            } else if (type == GameProtocol.PLACE) {
+                client.sendPlace(cell);
+            } else {
+                client.sendSkip();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            leaveOnlineGame("Lost the connection to the game server.");
+        }
+    }
 
-        stonePlacement[row][col] = displacedPlayer; // Place displaced stone
-        gridButtons[row][col].setBackground(Color.YELLOW);
-        gridButtons[row][col].setText(PlayerInfoPanel.playerStones[displacedPlayer - 1]);
-        gridButtons[row][col].setFont(new Font("Arial", Font.BOLD, 20));
-        displacedRow = -1; // Reset displaced stone info
-        displacedPlayer = -1;
-        nextTurn(); // Proceed to next turn
+    // Tells the player why the server refused their request
+    private void showRejection(int code) {
+        if (code == KiviEngine.Result.ALREADY_ROLLED.ordinal()) {
+            JOptionPane.showMessageDialog(frame, "You have rolled your dice—now place your stone accordingly!",
+                    "Place a Stone", JOptionPane.WARNING_MESSAGE);
+        } else if (code < KiviEngine.Result.values().length) {
+            showPlacementResult(KiviEngine.Result.values()[code]); // Same messages as a local game
+        } else {
+            JOptionPane.showMessageDialog(frame, GameProtocol.describeRejection(code));
+        }
     }
 
- // Handles the computer's turn
-    private void handleComputerTurn() {
-        rollDice(); // Roll dice for computer
+    // Ends an online game that cannot go on and returns to the main menu
+    private void leaveOnlineGame(String message) {
+        if (client == null) return; // Already left
+        closeClient();
+        JOptionPane.showMessageDialog(frame, message, "Online Game", JOptionPane.WARNING_MESSAGE);
+        startNewGame();
+    }
 
-        // Add a delay to allow the user to see the dice roll before the computer makes a move
-        Timer delayTimer = new Timer(1500, new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                if (displacedRow != -1) { // If there's a displaced stone
-                    int[] move = computerPlayer.placeDisplacedStone(stonePlacement); 
-                    if (move != null) {
-                        handleDisplacedStonePlacement(move[0], move[1]); 
-                    }
-                    return;
+    // Closes the connection of an online game
+    private void closeClient() {
+        if (client == null) return;
+        try {
+            client.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        client = null;
+    }
+
+    // Plays the moves the server announces on this board (they arrive on the client's reader thread)
+    private class ServerListener implements GameClient.Listener {
+        @Override
+        public void rolled(int player, int[] dice) {
+            int[] rolled = dice.clone(); // The client reuses its array for the next roll
+            SwingUtilities.invokeLater(() -> {
+                if (engine.roll(rolled) == KiviEngine.Result.ROLLED) {
+                    showDice();
                 }
+            });
+        }
 
-                int[] move = computerPlayer.determineMove(boardCombinations, stonePlacement, boardPoints, validation); 
-                if (move != null) {
-                    if (validation.isSixOfAKind() && stonePlacement[move[0]][move[1]] != 0) { 
-                        displacedRow = move[0];
-                        displacedPlayer = stonePlacement[move[0]][move[1]];
-                        placeStone(move[0], move[1]); 
-
-                        // Delay displaced stone placement
-                        Timer displacedTimer = new Timer(1500, new ActionListener() {
-                            @Override
-                            public void actionPerformed(ActionEvent e) {
-                                int[] displacedMove = computerPlayer.placeDisplacedStone(stonePlacement);
-                                if (displacedMove != null) {
-                                    handleDisplacedStonePlacement(displacedMove[0], displacedMove[1]);
-                                }
-                            }
-                        });
-                        displacedTimer.setRepeats(false);
-                        displacedTimer.start();
-                    } else {
-                        placeStone(move[0], move[1]); 
-                        // Delay next turn to show the stone placement
-                        Timer nextTurnTimer = new Timer(1000, _ -> nextTurn());
-                        nextTurnTimer.setRepeats(false);
-                        nextTurnTimer.start();
-                    }
-                } else {
-                    // Delay next turn to show message
-                    Timer messageTimer = new Timer(500, _ -> {
-                        JOptionPane.showMessageDialog(frame, "Computer cannot make a valid move with current dice roll.", "Computer's Turn", JOptionPane.INFORMATION_MESSAGE); 
-                        nextTurn(); 
-                    });
-                    messageTimer.setRepeats(false);
-                    messageTimer.start();
+        @Override
+        public void placed(int player, int cell) {
+            SwingUtilities.invokeLater(() -> {
+                KiviEngine.Result result = placeStone(Board.rowOf(cell), Board.colOf(cell));
+                if (client != null && player == client.getSeat()) {
+                    showPlacementResult(result); // Also asks for the displaced stone
+                } else if (result == KiviEngine.Result.PLACED) {
+                    nextTurn();
                 }
-            }
-        });
-        delayTimer.setRepeats(false);
-        delayTimer.start();
+            });
+        }
+
+        @Override
+        public void skipped(int player) {
+            SwingUtilities.invokeLater(() -> {
+                if (engine.skip() == KiviEngine.Result.SKIPPED) {
+                    nextTurn();
+                }
+            });
+        }
+
+        @Override
+        public void rejected(int code) {
+            SwingUtilities.invokeLater(() -> showRejection(code));
+        }
+
+        @Override
+        public void playerLeft(int player) {
+            String message = player == 0 ? "The server stopped the game." : "Player " + player + " left the game.";
+            SwingUtilities.invokeLater(() -> leaveOnlineGame(message));
+        }
+
+        @Override
+        public void disconnected(IOException error) {
+            if (error == null) return; // Closed by this board
+            error.printStackTrace();
+            SwingUtilities.invokeLater(() -> leaveOnlineGame("Lost the connection to the game server."));
+        }
+    }
+
+    // Puts back the stone the computer displaced with six of a kind
+    private void placeComputerDisplacedStone() {
+        int[] displacedMove = computerPlayer.placeDisplacedStone(engine.getBoard());
+        if (displacedMove != null && placeStone(displacedMove[0], displacedMove[1]) == KiviEngine.Result.PLACED) {
+            nextTurn();
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,204 @@
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Connection from a player to a game server
+ *
+ * The client joins a game, waits for it to start and then sends the
+ * player's rolls, placements and skips. Everything the server announces
+ * (including the player's own accepted moves) is handed to a Listener,
+ * either on the caller's thread with dispatch or on a reader thread
+ * started by startListening.
+ *
+ * @author Group 4
+ */
+public class GameClient implements Closeable {
+    // Receives the messages of the server
+    public interface Listener {
+        void rolled(int player, int[] dice); // A player rolled these dice
+        void placed(int player, int cell); // A player placed a stone (or the displaced stone) on a cell
+        void skipped(int player); // A player ended the turn without a stone
+        void rejected(int code); // The server refused this player's last request
+        void playerLeft(int player); // A player disconnected and the game is over
+        void disconnected(IOException error); // The connection was lost (null if it was closed on purpose)
+    }
+
+    private final SocketChannel channel; // Socket to the server
+    private final ByteBuffer in = ByteBuffer.allocate(256); // Bytes received but not yet handled
+    private final ByteBuffer out = ByteBuffer.allocate(GameProtocol.MAX_FRAME); // Request being sent
+    private final int[] dice = new int[KiviEngine.DICE_COUNT]; // Dice of the last ROLLED message
+    private int gameId; // Id of the game, once started
+    private long seed; // Seed of the game, once started
+    private int playerCount; // Number of players, once started
+    private int seat; // This player's number, once started
+    private volatile boolean closed; // Whether close was called
+
+    // Constructor wraps a connected socket
+    private GameClient(SocketChannel channel) {
+        this.channel = channel;
+        in.flip(); // Nothing received yet
+    }
+
+    // Connects to a game server
+    public static GameClient connect(String host, int port) throws IOException {
+        SocketChannel channel = SocketChannel.open(new InetSocketAddress(host, port));
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        return new GameClient(channel);
+    }
+
+    // Asks to play in a game of the given size
+    public void join(int playerCount) throws IOException {
+        synchronized (out) {
+            out.clear();
+            GameProtocol.putJoin(out, playerCount);
+            write();
+        }
+    }
+
+    // Asks for a game of the given size against computer players of a difficulty (an index of GameProtocol.DIFFICULTIES)
+    public void joinComputerGame(int playerCount, int difficulty) throws IOException {
+        synchronized (out) {
+            out.clear();
+            GameProtocol.putPlayComputer(out, playerCount, difficulty);
+            write();
+        }
+    }
+
+    // Waits until the server seats this player in a game
+    public void awaitStart() throws IOException {
+        int type = readFrame();
+        if (type == GameProtocol.REJECTED) {
+            throw new IOException(GameProtocol.describeRejection(in.get() & 0xFF));
+        }
+        if (type != GameProtocol.START) {
+            throw new IOException("Expected the start of a game, got message " + type);
+        }
+        gameId = in.getInt();
+        seed = in.getLong();
+        playerCount = in.get();
+        seat = in.get();
+    }
+
+    // Asks to roll the dice
+    public void sendRoll() throws IOException {
+        sendType(GameProtocol.ROLL);
+    }
+
+    // Asks to place a stone (or the displaced stone) on a cell
+    public void sendPlace(int cell) throws IOException {
+        synchronized (out) {
+            out.clear();
+            GameProtocol.putPlace(out, cell);
+            write();
+        }
+    }
+
+    // Asks to end the turn without a stone
+    public void sendSkip() throws IOException {
+        sendType(GameProtocol.SKIP);
+    }
+
+    // Reads one message from the server and hands it to the listener
+    public void dispatch(Listener listener) throws IOException {
+        int type = readFrame();
+        switch (type) {
+            case GameProtocol.ROLLED:
+                int player = in.get();
+                GameProtocol.unpackDice(in.getShort() & 0xFFFF, dice);
+                listener.rolled(player, dice);
+                break;
+            case GameProtocol.PLACED:
+                int placer = in.get();
+                listener.placed(placer, in.get());
+                break;
+            case GameProtocol.SKIPPED:
+                listener.skipped(in.get());
+                break;
+            case GameProtocol.REJECTED:
+                listener.rejected(in.get() & 0xFF);
+                break;
+            case GameProtocol.LEFT:
+                listener.playerLeft(in.get());
+                break;
+            default:
+                throw new IOException("Unexpected message " + type);
+        }
+    }
+
+    // Hands every message to the listener on a reader thread until the connection ends
+    public Thread startListening(Listener listener) {
+        Thread reader = new Thread(() -> {
+            try {
+                while (true) {
+                    dispatch(listener);
+                }
+            } catch (IOException e) {
+                listener.disconnected(closed ? null : e);
+            }
+        }, "kivi-client-" + seat);
+        reader.setDaemon(true);
+        reader.start();
+        return reader;
+    }
+
+    // Closes the connection
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        channel.close();
+    }
+
+    // Getters to access the game this client plays in
+    public int getGameId() { return gameId; }
+    public long getSeed() { return seed; }
+    public int getPlayerCount() { return playerCount; }
+    public int getSeat() { return seat; }
+
+    // Sends a message without a payload
+    private void sendType(byte type) throws IOException {
+        synchronized (out) {
+            out.clear();
+            out.put(type);
+            write();
+        }
+    }
+
+    // Writes the request in the output buffer
+    private void write() throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+    }
+
+    // Blocks until a whole frame has arrived; returns its type with the buffer at the payload
+    private int readFrame() throws IOException {
+        fill(1);
+        int type = in.get(in.position());
+        int size = GameProtocol.payloadSize(type);
+        if (size < 0) {
+            throw new IOException("Unknown message " + type);
+        }
+        fill(1 + size);
+        in.get();
+        return type;
+    }
+
+    // Reads from the socket until the buffer holds at least the given number of bytes
+    private void fill(int bytes) throws IOException {
+        if (in.remaining() >= bytes) return;
+        in.compact();
+        while (in.position() < bytes) {
+            if (channel.read(in) < 0) {
+                in.flip();
+                throw new EOFException("The server closed the connection");
+            }
+        }
+        in.flip();
+    }
+}
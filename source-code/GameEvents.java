@@ -0,0 +1,115 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Java Flight Recorder events of the game
+ *
+ * Each event is disabled unless a recording turns it on, for example with
+ * -XX:StartFlightRecording:settings=default,settings=jfr/kivi.jfc. While it
+ * is off, shouldCommit() is false and the event is never filled in, so the
+ * instrumented code pays for one check; the event object does not escape
+ * and is not allocated once the JIT has compiled the caller.
+ *
+ * FlightAnalyzer summarizes a recording of these events next to the garbage
+ * collections and event dispatch thread stalls recorded with them.
+ *
+ * @author Group 4
+ */
+public class GameEvents {
+    public static final String SEARCH = "kivi.Search"; // Event name of a computer decision
+    public static final String TURN = "kivi.Turn"; // Event name of a turn transition
+    public static final String PERSISTENCE = "kivi.Persistence"; // Event name of a save or load
+
+    // Returns the dice of a packed roll key as text, or "" if the dice were not rolled
+    public static String rollText(int key) {
+        if (key < 0) return "";
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 6; i++) {
+            if (i > 0) text.append(' ');
+            text.append(key % 6 + 1);
+            key /= 6;
+        }
+        return text.toString();
+    }
+
+    // One decision of a computer player, lasting as long as the search
+    @Name(SEARCH)
+    @Label("Computer Search")
+    @Category("Kivi")
+    @Description("A computer player choosing its move")
+    @Enabled(false)
+    @StackTrace(false)
+    public static class Search extends Event {
+        @Label("Difficulty")
+        public String difficulty; // Easy, Hard, Expert or Master
+
+        @Label("Depth")
+        @Description("Plies searched to: the last finished iteration, or the turns left for an endgame solve")
+        public int depth;
+
+        @Label("Nodes")
+        @Description("Positions searched, or playouts for Master")
+        public long nodes;
+
+        @Label("Pruned")
+        @Description("Alpha-beta cutoffs")
+        public long pruned;
+
+        @Label("Branching")
+        @Description("Valid cells the move was chosen from")
+        public int branching;
+
+        @Label("Cell")
+        @Description("Cell chosen (row * 7 + column), or -1 if there was no valid move")
+        public int cell;
+    }
+
+    // The end of a turn, with the time the turn took
+    @Name(TURN)
+    @Label("Turn")
+    @Category("Kivi")
+    @Description("A turn passing to the next player on a game board")
+    @Enabled(false)
+    @StackTrace(false)
+    public static class Turn extends Event {
+        @Label("Player")
+        @Description("Player whose turn ended")
+        public int player;
+
+        @Label("Roll")
+        @Description("Dice of the turn, or empty if the player did not roll")
+        public String roll;
+
+        @Label("Elapsed")
+        @Description("Time from the start of the turn to the start of the next")
+        @Timespan(Timespan.NANOSECONDS)
+        public long elapsed;
+    }
+
+    // One save or load of a game state, lasting as long as the file access
+    @Name(PERSISTENCE)
+    @Label("Game State Persistence")
+    @Category("Kivi")
+    @Description("A game state written to or read from a save file")
+    @Enabled(false)
+    @StackTrace(false)
+    public static class Persistence extends Event {
+        @Label("Operation")
+        @Description("save or load")
+        public String operation;
+
+        @Label("Bytes")
+        @DataAmount
+        public long bytes;
+
+        @Label("File")
+        public String file;
+    }
+}
@@ -0,0 +1,298 @@
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs the games of a server, each on its own virtual thread
+ *
+ * The server's I/O thread only moves bytes: it posts each player's request
+ * to the mailbox of their session, and the session's virtual thread checks
+ * it on the game's KiviEngine and hands the answers back through the
+ * players' deliver method. A session also plays its computer seats, with
+ * the Hard, Expert and Master searches run on a SearchPool. Waiting for a
+ * search only parks that session's virtual thread, so a burst of computer
+ * moves in some games never holds up the human turns of the others. The
+ * computer players borrow their search tables from the pool thread running
+ * each search, so memory grows with the pool rather than with the games.
+ *
+ * @author Group 4
+ */
+public class GameHost implements Closeable {
+    // A human player as the host sees them
+    public interface Player {
+        void deliver(byte[] message); // Sends a message to the player (called on the session's thread)
+        void ended(); // The player's game is over; called before its last message is delivered
+    }
+
+    private static final int LEFT_REQUEST = -1; // Mailbox entry for a player who disconnected
+
+    private final SearchPool searchPool; // Runs the Hard, Expert and Master searches of every session
+    private final Map<Integer, Session> sessions = new ConcurrentHashMap<>(); // Games being played by id
+    private final AtomicInteger nextGameId = new AtomicInteger(1); // Id of the next game
+    private final LongAdder processingNanos = new LongAdder(); // Time sessions spent on the players' requests
+    private final LongAdder computerTurns = new LongAdder(); // Turns played by computer seats
+
+    // Constructor sets up a host whose computer players search on the given pool
+    public GameHost(SearchPool searchPool) {
+        this.searchPool = searchPool;
+    }
+
+    // Starts a game; seats holds the human player of each seat, or null where a computer of the given difficulty plays
+    public Session start(Player[] seats, String computerDifficulty, long seed) {
+        Session session = new Session(nextGameId.getAndIncrement(), seats, computerDifficulty, seed);
+        sessions.put(session.id, session);
+        session.thread = Thread.ofVirtual().name("kivi-game-" + session.id).start(session);
+        return session;
+    }
+
+    // Getters to access the statistics of the host
+    public int getActiveGames() { return sessions.size(); }
+    public long getProcessingNanos() { return processingNanos.sum(); }
+    public long getComputerTurns() { return computerTurns.sum(); }
+
+    // Stops every game
+    @Override
+    public void close() {
+        for (Session session : sessions.values()) {
+            session.thread.interrupt();
+        }
+    }
+
+    // One game, played on its own virtual thread
+    public class Session implements Runnable {
+        private final int id; // Game id sent to the players
+        private final KiviEngine engine; // Rules and state of the game
+        private final Player[] seats; // Human player of each seat (null for a computer or a player who left)
+        private final ComputerPlayer[] computers; // Computer player of each seat (null for a human)
+        private final String computerDifficulty; // Difficulty of the computer seats
+        private final long seed; // Seed of the game
+        private final BlockingQueue<Request> mailbox = new LinkedBlockingQueue<>(); // Requests not yet handled
+        private final ByteBuffer message = ByteBuffer.allocate(GameProtocol.MAX_FRAME); // Message being built
+        private Thread thread; // Thread playing the game
+        private boolean over; // Whether the game has ended
+        private volatile boolean leaving; // Whether a player disconnected (the game ends once the session sees it)
+
+        // Constructor sets up a game and its computer players
+        Session(int id, Player[] seats, String computerDifficulty, long seed) {
+            this.id = id;
+            this.engine = new KiviEngine(seats.length, seed);
+            this.seats = seats;
+            this.computers = new ComputerPlayer[seats.length];
+            this.computerDifficulty = computerDifficulty;
+            this.seed = seed;
+            for (int seat = 1; seat <= seats.length; seat++) {
+                if (seats[seat - 1] == null) {
+                    ComputerPlayer computer = new ComputerPlayer(computerDifficulty, seat, seats.length);
+                    computer.setParallel(false); // The pool already runs many searches at once
+                    computer.setSharedTables(true); // One set of tables per pool thread, not per game
+                    computer.setRandom(new Random(seed + seat));
+                    computers[seat - 1] = computer;
+                }
+            }
+        }
+
+        // Hands a player's request to the game (called on the server's I/O thread)
+        public void post(int seat, int type, int cell) {
+            mailbox.add(new Request(seat, type, cell));
+        }
+
+        // Tells the game that a player disconnected (called on the server's I/O thread)
+        public void leave(int seat) {
+            leaving = true; // Stops the computer players at once
+            mailbox.add(new Request(seat, LEFT_REQUEST, -1));
+        }
+
+        // Returns the game id
+        public int getId() {
+            return id;
+        }
+
+        // Plays the game until it ends or the host closes
+        @Override
+        public void run() {
+            try {
+                for (int seat = 1; seat <= seats.length; seat++) {
+                    if (seats[seat - 1] != null) {
+                        message.clear();
+                        GameProtocol.putStart(message, id, seed, seats.length, seat);
+                        seats[seat - 1].deliver(Arrays.copyOf(message.array(), message.position()));
+                    }
+                }
+                playComputerTurns();
+                while (!over) {
+                    Request request = mailbox.take();
+                    long start = System.nanoTime();
+                    if (request.type == LEFT_REQUEST) {
+                        playerLeft(request.seat);
+                    } else {
+                        handle(request.seat, request.type, request.cell);
+                    }
+                    processingNanos.add(System.nanoTime() - start);
+                    playComputerTurns();
+                }
+            } catch (InterruptedException e) {
+                // The host is closing
+            } catch (RuntimeException e) { // One broken game must not stop the others
+                e.printStackTrace();
+                message.clear();
+                GameProtocol.putByte(message, GameProtocol.LEFT, 0); // The game was stopped
+                end();
+                announce();
+            } finally {
+                sessions.remove(id);
+                for (ComputerPlayer computer : computers) {
+                    if (computer != null) {
+                        computer.release();
+                    }
+                }
+            }
+        }
+
+        // Checks a human player's request on the engine and announces it, or rejects it
+        private void handle(int seat, int type, int cell) {
+            if (seats[seat - 1] == null) return; // The player has left
+            if (engine.getCurrentPlayer() != seat) {
+                reject(seat, GameProtocol.NOT_YOUR_TURN);
+                return;
+            }
+
+            KiviEngine.Result result;
+            if (type == GameProtocol.ROLL) {
+                result = engine.roll();
+                if (result == KiviEngine.Result.ROLLED) {
+                    announceRoll(seat);
+                    return;
+                }
+            } else if (type == GameProtocol.PLACE) {
+                if (cell < 0 || cell >= Board.CELL_COUNT) {
+                    reject(seat, GameProtocol.BAD_REQUEST);
+                    return;
+                }
+                result = engine.place(Board.rowOf(cell), Board.colOf(cell));
+                if (result == KiviEngine.Result.PLACED || result == KiviEngine.Result.DISPLACED) {
+                    announcePlace(seat, cell);
+                    return;
+                }
+            } else {
+                if (!engine.hasRolled() || engine.hasDisplacedStone()) { // The Skip button only appears after a roll
+                    result = engine.hasDisplacedStone() ? KiviEngine.Result.OCCUPIED : KiviEngine.Result.NOT_ROLLED;
+                } else {
+                    engine.skip();
+                    announceSkip(seat);
+                    return;
+                }
+            }
+            reject(seat, result.ordinal());
+        }
+
+        // Plays the turns of the computer seats until a human player is to move
+        private void playComputerTurns() throws InterruptedException {
+            while (!over && !leaving && computers[engine.getCurrentPlayer() - 1] != null) {
+                int seat = engine.getCurrentPlayer();
+                ComputerPlayer computer = computers[seat - 1];
+                engine.roll();
+                announceRoll(seat);
+
+                // The engine is left alone while the search runs, so the search may read it
+                int cell = searchPool.search(computerDifficulty, () -> leaving ? -1 : computer.determineCell(
+                        engine.getBoardCombinations(), engine.getBoard(), engine.getBoardPoints(), engine.getValidation(),
+                        engine.getTurnsRemaining()));
+                if (leaving) return; // Nobody is waiting for the move any more
+                KiviEngine.Result result = cell < 0 ? KiviEngine.Result.INVALID : engine.place(Board.rowOf(cell), Board.colOf(cell));
+                if (result == KiviEngine.Result.PLACED || result == KiviEngine.Result.DISPLACED) {
+                    announcePlace(seat, cell);
+                    if (result == KiviEngine.Result.DISPLACED) {
+                        int displacedCell = computer.placeDisplacedCell(engine.getBoard());
+                        engine.place(Board.rowOf(displacedCell), Board.colOf(displacedCell));
+                        announcePlace(seat, displacedCell);
+                    }
+                } else {
+                    engine.skip(); // No valid move: the turn is skipped
+                    announceSkip(seat);
+                }
+                computerTurns.increment();
+            }
+        }
+
+        // Ends the game after a player disconnected and tells the others
+        private void playerLeft(int seat) {
+            seats[seat - 1] = null;
+            message.clear();
+            GameProtocol.putByte(message, GameProtocol.LEFT, seat);
+            end();
+            announce();
+        }
+
+        // Announces a roll of the current player
+        private void announceRoll(int seat) {
+            message.clear();
+            GameProtocol.putRolled(message, seat, Validation.packRollKey(engine.getDiceRolls()));
+            announce();
+        }
+
+        // Announces a stone the engine accepted
+        private void announcePlace(int seat, int cell) {
+            message.clear();
+            GameProtocol.putPlaced(message, seat, cell);
+            announce();
+        }
+
+        // Announces a skipped turn
+        private void announceSkip(int seat) {
+            message.clear();
+            GameProtocol.putByte(message, GameProtocol.SKIPPED, seat);
+            announce();
+        }
+
+        // Sends the message to every human player, ending the game first if it is over
+        private void announce() {
+            if (engine.isGameOver() && !over) {
+                end(); // Before the last message, so the players may join another game as soon as they see it
+            }
+            byte[] bytes = Arrays.copyOf(message.array(), message.position());
+            for (Player player : seats) {
+                if (player != null) {
+                    player.deliver(bytes);
+                }
+            }
+        }
+
+        // Sends a rejection to one player
+        private void reject(int seat, int code) {
+            message.clear();
+            GameProtocol.putByte(message, GameProtocol.REJECTED, code);
+            seats[seat - 1].deliver(Arrays.copyOf(message.array(), message.position()));
+        }
+
+        // Ends the game; its players may join another
+        private void end() {
+            over = true;
+            for (Player player : seats) {
+                if (player != null) {
+                    player.ended();
+                }
+            }
+        }
+    }
+
+    // A player's request waiting in a session's mailbox
+    private static class Request {
+        private final int seat; // Player who sent it
+        private final int type; // Message type, or LEFT_REQUEST
+        private final int cell; // Cell of a PLACE, otherwise -1
+
+        // Constructor records a request
+        Request(int seat, int type, int cell) {
+            this.seat = seat;
+            this.type = type;
+            this.cell = cell;
+        }
+    }
+}
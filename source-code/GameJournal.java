@@ -0,0 +1,238 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * Append-only journal of the actions played since the last saved snapshot
+ *
+ * The journal file starts with an 8-byte header (magic and the CRC-32 of
+ * the snapshot it continues), followed by one 8-byte record per roll,
+ * placement or skip:
+ *
+ *   bits  0-1   action kind (KiviEngine.ROLL, PLACE, PLACE_DISPLACED or SKIP)
+ *   bits  2-8   cell of a placement
+ *   bits  9-24  dice of a roll (base-6 roll key)
+ *   bits 32-47  record number since the snapshot
+ *   bits 48-63  check of the bits below, salted with the snapshot CRC
+ *
+ * A record is written to the file as soon as it is appended, so a crash of
+ * the game loses nothing. When it is forced to disk follows the sync
+ * policy; GROUP forces once per commit, so the records of a turn share one
+ * fsync. Every COMPACT_EVERY records the game is written to a new snapshot
+ * and the journal starts again. Recovery replays the records on top of the
+ * snapshot and stops at the first torn record.
+ *
+ * The game journals to its own autosave snapshot, never to the file the
+ * Save button writes, so a manual save survives new and finished games.
+ * Resuming takes whichever of the two was written last.
+ *
+ * A journal is not thread-safe. GameBoard only uses it on the DiskWriter
+ * thread, so neither the fsync of a turn nor a compaction holds up the
+ * board.
+ *
+ * @author Group 4
+ */
+public class GameJournal {
+    // When appended records are forced to disk
+    public enum SyncPolicy {
+        EVERY_RECORD, // Force after every record
+        GROUP, // Force on commit, or once GROUP_SIZE records are waiting
+        NONE // Leave it to the operating system
+    }
+
+    public static final String AUTOSAVE_FILE = "SavedKiviGame.autosave"; // Snapshot the game journals from
+    public static final String JOURNAL_FILE = "SavedKiviGame.journal"; // File the game journals to
+    public static final int HEADER_SIZE = 8; // Bytes before the first record
+    public static final int RECORD_SIZE = 8; // Bytes in a record
+    public static final int GROUP_SIZE = 16; // Records waiting before a grouped force
+    public static final int COMPACT_EVERY = 32; // Records between snapshots
+    private static final int MAGIC = 0x4B4A4C31; // "KJL1"
+    private static final int CELL_SHIFT = 2; // Record layout: kind | cell | dice | number | check
+    private static final int DICE_SHIFT = 9;
+    private static final int NUMBER_SHIFT = 32;
+    private static final int CHECK_SHIFT = 48;
+    private static final long BODY_MASK = (1L << CHECK_SHIFT) - 1; // Bits covered by the check
+    private static final long CHECK_MIX = 0x9E3779B97F4A7C15L; // Multiplier spreading a record over its check
+
+    private final Path snapshotFile; // Snapshot the journal continues
+    private final Path journalFile; // File the records are appended to
+    private final SyncPolicy policy; // When records are forced to disk
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE); // Reused for every append
+    private FileChannel channel; // Open journal file, or null before the first snapshot
+    private int snapshotChecksum; // CRC-32 of the current snapshot
+    private int recordCount; // Records since the snapshot
+    private int unsynced; // Records written but not yet forced
+
+    // Constructor sets up a journal; nothing is written until the first snapshot
+    public GameJournal(Path snapshotFile, Path journalFile, SyncPolicy policy) {
+        this.snapshotFile = snapshotFile;
+        this.journalFile = journalFile;
+        this.policy = policy;
+    }
+
+    // Writes the game to a new snapshot and starts an empty journal after it
+    public void compact(GameState state) throws IOException {
+        ByteBuffer snapshot = ByteBuffer.allocate(GameStateCodec.SIZE);
+        GameStateCodec.encode(state, snapshot);
+        snapshot.flip();
+        int checksum = snapshot.getInt(GameStateCodec.CRC_OFFSET);
+        GameStateCodec.write(snapshot, snapshotFile); // A crash from here on leaves a journal of an older snapshot, which is ignored
+
+        if (channel == null) {
+            channel = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        }
+        channel.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(checksum).flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        channel.force(false);
+        snapshotChecksum = checksum;
+        recordCount = 0;
+        unsynced = 0;
+    }
+
+    // Appends an action: a roll with its dice, a placement on a cell, or a skip
+    public void append(int kind, int cell, int[] dice) throws IOException {
+        if (channel == null) {
+            throw new IllegalStateException("The journal has no snapshot yet");
+        }
+        long body = kind
+                | ((long) cell << CELL_SHIFT)
+                | ((long) (kind == KiviEngine.ROLL ? Validation.packRollKey(dice) : 0) << DICE_SHIFT)
+                | ((long) (recordCount & 0xFFFF) << NUMBER_SHIFT);
+        record.clear();
+        record.putLong(body | (check(body, snapshotChecksum) << CHECK_SHIFT)).flip();
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+        recordCount++;
+        unsynced++;
+        if (policy == SyncPolicy.EVERY_RECORD || (policy == SyncPolicy.GROUP && unsynced >= GROUP_SIZE)) {
+            sync();
+        }
+    }
+
+    // Forces the records written since the last commit to disk (one fsync for the group)
+    public void commit() throws IOException {
+        if (channel != null && unsynced > 0 && policy != SyncPolicy.NONE) {
+            sync();
+        }
+    }
+
+    // Checks if enough records have built up to write a new snapshot
+    public boolean needsCompaction() {
+        return recordCount >= COMPACT_EVERY;
+    }
+
+    // Returns the number of records since the last snapshot
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    // Commits the remaining records and closes the journal file
+    public void close() throws IOException {
+        if (channel != null) {
+            commit();
+            channel.close();
+            channel = null;
+        }
+    }
+
+    // Closes the journal and removes it with its autosave snapshot (the game has ended)
+    public void delete() throws IOException {
+        close();
+        Files.deleteIfExists(journalFile);
+        Files.deleteIfExists(snapshotFile);
+    }
+
+    // Checks if there is a manual save or an autosave to resume
+    public static boolean canResume(Path saveFile, Path snapshotFile) {
+        return Files.exists(saveFile) || Files.exists(snapshotFile);
+    }
+
+    // Rebuilds the game written last: the manual save, or the autosave snapshot with its journal if they are newer
+    public static GameState recoverNewest(Path saveFile, Path snapshotFile, Path journalFile) throws IOException {
+        if (!Files.exists(snapshotFile)) {
+            return GameStateCodec.read(saveFile);
+        }
+        if (Files.exists(saveFile)) {
+            long autosaved = Files.getLastModifiedTime(snapshotFile).toMillis();
+            if (Files.exists(journalFile)) {
+                autosaved = Math.max(autosaved, Files.getLastModifiedTime(journalFile).toMillis());
+            }
+            if (Files.getLastModifiedTime(saveFile).toMillis() >= autosaved) {
+                return GameStateCodec.read(saveFile); // Saved by hand after the last journaled action
+            }
+        }
+        return recover(snapshotFile, journalFile);
+    }
+
+    // Rebuilds a game from its snapshot and the records journaled after it
+    public static GameState recover(Path snapshotFile, Path journalFile) throws IOException {
+        ByteBuffer snapshot = ByteBuffer.wrap(Files.readAllBytes(snapshotFile));
+        GameState state = GameStateCodec.decode(snapshot);
+        int checksum = snapshot.getInt(GameStateCodec.CRC_OFFSET);
+        if (!Files.exists(journalFile)) {
+            return state;
+        }
+
+        ByteBuffer journal = ByteBuffer.wrap(Files.readAllBytes(journalFile));
+        if (journal.remaining() < HEADER_SIZE || journal.getInt() != MAGIC || journal.getInt() != checksum) {
+            return state; // No header yet, or the journal of an older snapshot
+        }
+        KiviEngine engine = new KiviEngine(state, new Random());
+        int[] dice = new int[KiviEngine.DICE_COUNT];
+        for (int number = 0; journal.remaining() >= RECORD_SIZE; number++) {
+            long entry = journal.getLong();
+            long body = entry & BODY_MASK;
+            if ((entry >>> CHECK_SHIFT) != check(body, checksum) || (body >>> NUMBER_SHIFT) != (number & 0xFFFF)) {
+                break; // Torn write at the end of the journal
+            }
+            KiviEngine.Result result = replay(engine, body, dice);
+            if (result != KiviEngine.Result.ROLLED && result != KiviEngine.Result.PLACED
+                    && result != KiviEngine.Result.DISPLACED && result != KiviEngine.Result.SKIPPED) {
+                throw new IOException("Journal record " + number + " was rejected: " + result);
+            }
+        }
+        return engine.toGameState(state.hasComputerPlayer(), state.getComputerDifficulty(), state.isMonochrome(),
+                state.isProtanopia(), state.isTritanopia(), state.getTurnsLeft());
+    }
+
+    // Plays one journaled action on the engine
+    private static KiviEngine.Result replay(KiviEngine engine, long body, int[] dice) {
+        int kind = (int) body & 0x3;
+        if (kind == KiviEngine.ROLL) {
+            int key = (int) (body >>> DICE_SHIFT) & 0xFFFF;
+            for (int i = 0; i < dice.length; i++) {
+                dice[i] = key % 6 + 1;
+                key /= 6;
+            }
+            return engine.roll(dice);
+        }
+        if (kind == KiviEngine.SKIP) {
+            return engine.skip();
+        }
+        int cell = (int) (body >>> CELL_SHIFT) & 0x7F;
+        if (cell >= Board.CELL_COUNT) {
+            return KiviEngine.Result.INVALID;
+        }
+        return engine.place(Board.rowOf(cell), Board.colOf(cell));
+    }
+
+    // Forces the written records to disk
+    private void sync() throws IOException {
+        channel.force(false);
+        unsynced = 0;
+    }
+
+    // Computes the 16-bit check of a record body
+    private static long check(long body, int checksum) {
+        return ((body ^ (checksum & 0xFFFFFFFFL)) * CHECK_MIX) >>> CHECK_SHIFT;
+    }
+}
@@ -0,0 +1,124 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Binary protocol between the game server and its clients
+ *
+ * Every message is one type byte followed by a payload whose size is fixed
+ * by the type, so a frame never needs a length prefix:
+ *
+ *   Client to server
+ *   JOIN      version, player count        wait for a game of that size
+ *   PLAY_COMPUTER version, player count, difficulty
+ *                                          start a game at once, the other seats played by the server
+ *   ROLL      -                            roll the dice
+ *   PLACE     cell                         place a stone (or the displaced stone)
+ *   SKIP      -                            end the turn without a stone
+ *
+ *   Server to client
+ *   START     game id (4), seed (8), player count, seat
+ *   ROLLED    player, roll key (2)         dice as a base-6 roll key
+ *   PLACED    player, cell
+ *   SKIPPED   player
+ *   REJECTED  code                         a KiviEngine.Result ordinal or one of the codes below
+ *   LEFT      player                       a player disconnected (0 if the server stopped the
+ *                                          game); the game is over
+ *
+ * A client starts its own KiviEngine from the seed of START and plays the
+ * server's messages on it, so both always agree on the board.
+ *
+ * @author Group 4
+ */
+public class GameProtocol {
+    public static final int VERSION = 1; // Protocol version sent with JOIN
+    public static final int DEFAULT_PORT = 7415; // Port the server listens on by default
+
+    public static final byte JOIN = 1; // Message types sent by clients
+    public static final byte ROLL = 2;
+    public static final byte PLACE = 3;
+    public static final byte SKIP = 4;
+    public static final byte PLAY_COMPUTER = 5;
+    public static final byte START = 16; // Message types sent by the server
+    public static final byte ROLLED = 17;
+    public static final byte PLACED = 18;
+    public static final byte SKIPPED = 19;
+    public static final byte REJECTED = 20;
+    public static final byte LEFT = 21;
+
+    public static final int NOT_YOUR_TURN = 0xF0; // Rejection codes besides the engine results
+    public static final int NOT_IN_GAME = 0xF1;
+    public static final int BAD_REQUEST = 0xF2;
+
+    public static final int MAX_FRAME = 15; // Size of the largest frame (START)
+
+    public static final String[] DIFFICULTIES = {"Easy", "Hard", "Expert", "Master"}; // Computer difficulties by their code in PLAY_COMPUTER
+
+    // Returns the payload size of a message type, or -1 if the type is unknown
+    public static int payloadSize(int type) {
+        switch (type) {
+            case JOIN: return 2;
+            case ROLL: return 0;
+            case PLACE: return 1;
+            case SKIP: return 0;
+            case PLAY_COMPUTER: return 3;
+            case START: return 14;
+            case ROLLED: return 3;
+            case PLACED: return 2;
+            case SKIPPED: return 1;
+            case REJECTED: return 1;
+            case LEFT: return 1;
+            default: return -1;
+        }
+    }
+
+    // Writes a JOIN message
+    public static void putJoin(ByteBuffer buffer, int playerCount) {
+        buffer.put(JOIN).put((byte) VERSION).put((byte) playerCount);
+    }
+
+    // Writes a PLAY_COMPUTER message
+    public static void putPlayComputer(ByteBuffer buffer, int playerCount, int difficulty) {
+        buffer.put(PLAY_COMPUTER).put((byte) VERSION).put((byte) playerCount).put((byte) difficulty);
+    }
+
+    // Writes a PLACE message
+    public static void putPlace(ByteBuffer buffer, int cell) {
+        buffer.put(PLACE).put((byte) cell);
+    }
+
+    // Writes a START message
+    public static void putStart(ByteBuffer buffer, int gameId, long seed, int playerCount, int seat) {
+        buffer.put(START).putInt(gameId).putLong(seed).put((byte) playerCount).put((byte) seat);
+    }
+
+    // Writes a ROLLED message
+    public static void putRolled(ByteBuffer buffer, int player, int rollKey) {
+        buffer.put(ROLLED).put((byte) player).putShort((short) rollKey);
+    }
+
+    // Writes a message with a one-byte payload (SKIPPED, REJECTED or LEFT)
+    public static void putByte(ByteBuffer buffer, byte type, int value) {
+        buffer.put(type).put((byte) value);
+    }
+
+    // Writes a PLACED message
+    public static void putPlaced(ByteBuffer buffer, int player, int cell) {
+        buffer.put(PLACED).put((byte) player).put((byte) cell);
+    }
+
+    // Unpacks a roll key into six dice
+    public static void unpackDice(int rollKey, int[] dice) {
+        for (int i = 0; i < dice.length; i++) {
+            dice[i] = rollKey % 6 + 1;
+            rollKey /= 6;
+        }
+    }
+
+    // Describes a rejection code for the player
+    public static String describeRejection(int code) {
+        if (code == NOT_YOUR_TURN) return "It is not your turn.";
+        if (code == NOT_IN_GAME) return "You are not in a game.";
+        if (code == BAD_REQUEST) return "The server did not understand the request.";
+        KiviEngine.Result[] results = KiviEngine.Result.values();
+        return code < results.length ? "The move was refused: " + results[code] : "Unknown rejection " + code;
+    }
+}
@@ -0,0 +1,291 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Replays a recorded game headlessly and seeks to any turn
+ *
+ * A replay is built from the board points and the move list of a game
+ * (normally an archived game). The whole game is played once on a
+ * KiviEngine, keeping a checkpoint every CHECKPOINT_INTERVAL turns, so
+ * seeking to a turn restores the nearest checkpoint and replays at most
+ * CHECKPOINT_INTERVAL - 1 turns. The recorded dice are used, so a replay
+ * also works for games that do not follow from a seed; for those that
+ * do, verifySeed checks that the seed still deals the same layout and
+ * dice.
+ *
+ * Run on its own it re-scores an archive with the current rules:
+ *
+ * Usage: java GameReplay [directory] [--threads=N]
+ *
+ * @author Group 4
+ */
+public class GameReplay {
+    public static final int CHECKPOINT_INTERVAL = 4; // Turns between checkpoints
+
+    private final int playerCount; // Number of players
+    private final int[][] boardPoints; // Points for each grid cell
+    private final long seed; // Seed of the game
+    private final boolean seeded; // Whether the game follows from the seed
+    private final int[] rollKeys; // Dice of each turn (base-6 roll key, -1 if not rolled)
+    private final int[] cells; // Cell each turn placed on (-1 if skipped)
+    private final int[] displacedCells; // Cell each turn's displaced stone went back on (-1 if none)
+    private final KiviEngine engine; // Engine positioned at the current turn
+    private final GameState[] checkpoints; // Position before every CHECKPOINT_INTERVAL-th turn
+    private final int[] dice = new int[KiviEngine.DICE_COUNT]; // Dice being replayed
+    private int turn; // Turns played on the engine
+
+    // Constructor checks a move list by playing it once, keeping the checkpoints
+    public GameReplay(int playerCount, int[][] boardPoints, long seed, boolean seeded, int[] rollKeys,
+                      int[] cells, int[] displacedCells) {
+        if (rollKeys.length != cells.length || cells.length != displacedCells.length) {
+            throw new IllegalArgumentException("Every turn needs its dice, its cell and its displaced cell");
+        }
+        this.playerCount = playerCount;
+        this.boardPoints = boardPoints;
+        this.seed = seed;
+        this.seeded = seeded;
+        this.rollKeys = rollKeys;
+        this.cells = cells;
+        this.displacedCells = displacedCells;
+        this.engine = newEngine();
+        this.checkpoints = new GameState[cells.length / CHECKPOINT_INTERVAL + 1];
+        for (int t = 0; t < cells.length; t++) {
+            if (t % CHECKPOINT_INTERVAL == 0) {
+                checkpoints[t / CHECKPOINT_INTERVAL] = checkpoint();
+            }
+            playTurn(t);
+        }
+        if (cells.length % CHECKPOINT_INTERVAL == 0) {
+            checkpoints[cells.length / CHECKPOINT_INTERVAL] = checkpoint();
+        }
+        this.turn = cells.length;
+    }
+
+    // Creates the replay of an archived game
+    public static GameReplay of(ArchivedGame game) {
+        requireComplete(game);
+        int turns = game.getTurnCount();
+        int[] rollKeys = new int[turns];
+        int[] cells = new int[turns];
+        int[] displacedCells = new int[turns];
+        for (int t = 0; t < turns; t++) {
+            rollKeys[t] = game.getTurnRollKey(t);
+            cells[t] = game.getTurnCell(t);
+            displacedCells[t] = game.getTurnDisplacedCell(t);
+        }
+        return new GameReplay(game.getPlayerCount(), pointsOf(game), game.getSeed(), game.hasSeed(),
+                rollKeys, cells, displacedCells);
+    }
+
+    // Plays an archived game from start to end without checkpoints (for batch re-scoring) and returns the engine
+    public static KiviEngine simulate(ArchivedGame game) {
+        requireComplete(game);
+        KiviEngine engine = new KiviEngine(startOf(game.getPlayerCount(), pointsOf(game)), new Random(0));
+        int[] dice = new int[KiviEngine.DICE_COUNT];
+        for (int t = 0; t < game.getTurnCount(); t++) {
+            playTurn(engine, t, game.getTurnRollKey(t), game.getTurnCell(t), game.getTurnDisplacedCell(t), dice);
+        }
+        return engine;
+    }
+
+    // Moves the replay to just before a turn (0 to getTurnCount()) and returns the engine at that position
+    public KiviEngine seek(int target) {
+        if (target < 0 || target > cells.length) {
+            throw new IndexOutOfBoundsException("No turn " + target + " in a game of " + cells.length + " turns");
+        }
+        if (target < turn || target - turn >= CHECKPOINT_INTERVAL) { // Jump to the nearest checkpoint
+            int checkpoint = target / CHECKPOINT_INTERVAL;
+            engine.restore(checkpoints[checkpoint]);
+            turn = checkpoint * CHECKPOINT_INTERVAL;
+        }
+        while (turn < target) {
+            playTurn(turn++);
+        }
+        return engine;
+    }
+
+    // Plays the next turn and returns the engine after it, or null at the end of the game
+    public KiviEngine step() {
+        return turn < cells.length ? seek(turn + 1) : null;
+    }
+
+    // Checks that the seed still deals the recorded board points and dice (false if the game has no seed)
+    public boolean verifySeed() {
+        if (!seeded) return false;
+        KiviEngine dealt = new KiviEngine(playerCount, seed);
+        if (!Arrays.deepEquals(dealt.getBoardPoints(), boardPoints)) return false;
+        for (int t = 0; t < cells.length; t++) {
+            if (rollKeys[t] >= 0) {
+                dealt.roll();
+                if (Validation.packRollKey(dealt.getDiceRolls()) != rollKeys[t]) return false;
+            }
+            playTurn(dealt, t, -1, cells[t], displacedCells[t], dice);
+        }
+        return true;
+    }
+
+    // Getters to access the replay
+    public int getTurnCount() { return cells.length; }
+    public int getTurn() { return turn; }
+    public KiviEngine getEngine() { return engine; }
+    public int getPlayerCount() { return playerCount; }
+    public long getSeed() { return seed; }
+    public boolean hasSeed() { return seeded; }
+
+    // Creates an engine at the start of the game
+    private KiviEngine newEngine() {
+        if (seeded) {
+            KiviEngine dealt = new KiviEngine(playerCount, seed);
+            if (Arrays.deepEquals(dealt.getBoardPoints(), boardPoints)) return dealt;
+        }
+        return new KiviEngine(startOf(playerCount, boardPoints), new Random(seed));
+    }
+
+    // Captures the engine's position for a checkpoint
+    private GameState checkpoint() {
+        return engine.toGameState(false, null, false, false, false, KiviEngine.TURNS_PER_PLAYER);
+    }
+
+    // Plays one turn of the move list on the replay's engine
+    private void playTurn(int t) {
+        playTurn(engine, t, rollKeys[t], cells[t], displacedCells[t], dice);
+    }
+
+    // Plays one turn on an engine: the roll (unless rollKey is -1), the stone or a skip, and the displaced stone
+    private static void playTurn(KiviEngine engine, int t, int rollKey, int cell, int displacedCell, int[] dice) {
+        if (rollKey >= 0) {
+            for (int i = 0; i < dice.length; i++) {
+                dice[i] = rollKey % 6 + 1;
+                rollKey /= 6;
+            }
+            check(t, engine.roll(dice), KiviEngine.Result.ROLLED);
+        }
+        if (cell < 0) {
+            check(t, engine.skip(), KiviEngine.Result.SKIPPED);
+            return;
+        }
+        KiviEngine.Result result = engine.place(Board.rowOf(cell), Board.colOf(cell));
+        if (displacedCell < 0) {
+            check(t, result, KiviEngine.Result.PLACED);
+        } else {
+            check(t, result, KiviEngine.Result.DISPLACED);
+            check(t, engine.place(Board.rowOf(displacedCell), Board.colOf(displacedCell)), KiviEngine.Result.PLACED);
+        }
+    }
+
+    // Rejects a move list the engine does not accept
+    private static void check(int t, KiviEngine.Result result, KiviEngine.Result expected) {
+        if (result != expected) {
+            throw new IllegalStateException("Turn " + t + " cannot be replayed: " + result + " instead of " + expected);
+        }
+    }
+
+    // Rejects a game whose move list does not start at the beginning (it was resumed from a save)
+    private static void requireComplete(ArchivedGame game) {
+        if (!game.isComplete()) {
+            throw new IllegalArgumentException("Only " + game.getTurnCount() + " turns of the game were recorded");
+        }
+    }
+
+    // Builds the position at the start of a game
+    private static GameState startOf(int playerCount, int[][] boardPoints) {
+        int[] turnsRemaining = new int[playerCount];
+        Arrays.fill(turnsRemaining, KiviEngine.TURNS_PER_PLAYER);
+        return new GameState(playerCount, false, null, false, false, false, new Board(), turnsRemaining, 1,
+                KiviEngine.TURNS_PER_PLAYER, new int[KiviEngine.DICE_COUNT], false, -1, -1, boardPoints);
+    }
+
+    // Reads the board points of an archived game
+    private static int[][] pointsOf(ArchivedGame game) {
+        int[][] boardPoints = new int[Board.GRID_SIZE][Board.GRID_SIZE];
+        for (int cell = 0; cell < Board.CELL_COUNT; cell++) {
+            boardPoints[Board.rowOf(cell)][Board.colOf(cell)] = game.getPoints(cell);
+        }
+        return boardPoints;
+    }
+
+    // Entry point: re-simulates every complete game of an archive and reports the ones whose result changed
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path directory = Paths.get(GameArchive.DEFAULT_DIRECTORY);
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (String arg : args) {
+            if (arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(arg.substring(10));
+            } else {
+                directory = Paths.get(arg);
+            }
+        }
+        if (!Files.isDirectory(directory)) {
+            System.err.println("No game archive in " + directory);
+            System.err.println("Usage: java GameReplay [directory] [--threads=N]");
+            return;
+        }
+
+        try (GameArchive archive = GameArchive.open(directory)) {
+            long start = System.nanoTime();
+            Rescore total = new Rescore();
+            for (Rescore rescore : archive.scan(threads, Rescore::new)) {
+                total.add(rescore);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d games re-simulated in %.3f s (%.0f games/s)%n", total.replayed, seconds,
+                    total.replayed / Math.max(seconds, 1e-9));
+            System.out.println(total.skipped + " games skipped (incomplete move list or bad checksum)");
+            System.out.println(total.failed + " games could not be replayed");
+            System.out.println(total.scoreChanged + " games with a different score, "
+                    + total.winnerChanged + " with a different winner");
+        }
+    }
+
+    // Re-simulates archived games and counts the ones whose result changed
+    private static class Rescore implements GameArchive.Visitor {
+        private long replayed; // Games re-simulated
+        private long skipped; // Games that cannot be re-simulated
+        private long failed; // Games whose move list the rules reject
+        private long scoreChanged; // Games where some score changed
+        private long winnerChanged; // Games where the winners changed
+
+        // Re-simulates one game
+        @Override
+        public void visit(ArchivedGame game) {
+            if (!game.isValid() || !game.isComplete()) {
+                skipped++;
+                return;
+            }
+            KiviEngine engine;
+            try {
+                engine = simulate(game);
+            } catch (IllegalStateException e) {
+                failed++;
+                return;
+            }
+            replayed++;
+            boolean scores = false;
+            boolean winners = false;
+            int[] newWinners = engine.getWinners();
+            for (int player = 1; player <= game.getPlayerCount(); player++) {
+                scores |= engine.getScore(player) != game.getScore(player);
+                boolean isWinner = false;
+                for (int winner : newWinners) {
+                    isWinner |= winner == player;
+                }
+                winners |= isWinner != game.isWinner(player);
+            }
+            if (scores) scoreChanged++;
+            if (winners) winnerChanged++;
+        }
+
+        // Adds the counts of another thread
+        void add(Rescore other) {
+            replayed += other.replayed;
+            skipped += other.skipped;
+            failed += other.failed;
+            scoreChanged += other.scoreChanged;
+            winnerChanged += other.winnerChanged;
+        }
+    }
+}
@@ -0,0 +1,391 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Non-blocking server hosting many games between networked players
+ *
+ * One thread runs a selector over every connection and does nothing but
+ * I/O. Players send JOIN with the game size they want and are seated as
+ * soon as enough players wait, or PLAY_COMPUTER to start at once against
+ * computer players. The games themselves are played by a GameHost, each on
+ * its own virtual thread with its own seeded KiviEngine, which checks every
+ * roll, placement and skip exactly as GameBoard does for local players.
+ * Accepted actions are sent to every player of the game, rejected ones
+ * only to the sender. The sessions queue their messages for the selector
+ * thread, which writes them once per selector pass, and a connection that
+ * stops reading is dropped once its backlog passes MAX_BACKLOG.
+ *
+ * Usage: java GameServer [port] [--host=ADDRESS]
+ *
+ * @author Group 4
+ */
+public class GameServer implements Runnable, Closeable {
+    private static final int MAX_BACKLOG = 64 * 1024; // Bytes waiting for a slow client before it is dropped
+
+    private final Selector selector; // Selector over the listening socket and every connection
+    private final ServerSocketChannel serverChannel; // Listening socket
+    private final SplittableRandom random; // Source of the game seeds
+    private final SearchPool searchPool; // Runs the computer players' searches
+    private final GameHost host; // Plays the games on virtual threads
+    private final List<ArrayDeque<Connection>> lobby = new ArrayList<>(); // Players waiting, per game size
+    private final List<Connection> pending = new ArrayList<>(); // Connections with replies to write
+    private final Queue<Reply> replies = new ConcurrentLinkedQueue<>(); // Messages of the sessions for the selector thread
+    private final AtomicBoolean wakeupPending = new AtomicBoolean(); // Whether the selector was woken for replies
+    private final ByteBuffer scratch = ByteBuffer.allocate(GameProtocol.MAX_FRAME); // Reply being built
+    private long connectionCount; // Connections accepted
+    private long messageCount; // Messages read
+    private long processingNanos; // Time the selector thread spent on messages
+    private volatile boolean running = true; // Cleared to stop the server
+    private volatile boolean looping; // Whether the selector loop is running
+
+    // Constructor opens the listening socket (port 0 picks a free port)
+    public GameServer(InetSocketAddress address, long seed) throws IOException {
+        this(address, seed, new SearchPool());
+    }
+
+    // Constructor with the pool the computer players search on (closed with the server)
+    public GameServer(InetSocketAddress address, long seed, SearchPool searchPool) throws IOException {
+        this.searchPool = searchPool;
+        this.host = new GameHost(searchPool);
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address, 1024);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        this.random = new SplittableRandom(seed);
+        for (int players = 0; players <= Board.MAX_PLAYERS; players++) {
+            lobby.add(new ArrayDeque<>());
+        }
+    }
+
+    // Entry point: java GameServer [port] [--host=ADDRESS]
+    public static void main(String[] args) throws IOException {
+        Metrics.export(); // JMX and, if asked for, the Prometheus file or port
+        int port = GameProtocol.DEFAULT_PORT;
+        String host = "0.0.0.0";
+        for (String arg : args) {
+            if (arg.startsWith("--host=")) {
+                host = arg.substring(7);
+            } else {
+                port = Integer.parseInt(arg);
+            }
+        }
+        try (GameServer server = new GameServer(new InetSocketAddress(host, port), System.nanoTime())) {
+            System.out.println("Kivi server listening on " + host + ":" + server.getPort());
+            server.run();
+        }
+    }
+
+    // Runs the selector loop until the server is closed
+    @Override
+    public void run() {
+        looping = true;
+        try {
+            while (running) {
+                selector.select();
+                wakeupPending.set(false);
+                for (Reply reply = replies.poll(); reply != null; reply = replies.poll()) {
+                    send(reply.connection, reply.message, reply.message.length);
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Connection connection = (Connection) key.attachment();
+                        if (key.isWritable()) {
+                            flush(connection);
+                        }
+                        if (key.isValid() && key.isReadable()) {
+                            read(connection);
+                        }
+                    }
+                }
+                for (Connection connection : pending) {
+                    flush(connection);
+                }
+                pending.clear();
+            }
+        } catch (IOException e) {
+            if (running) e.printStackTrace();
+        } finally {
+            looping = false;
+            closeChannels();
+            host.close();
+            searchPool.close();
+        }
+    }
+
+    // Stops the server; the selector loop closes every connection on its way out
+    @Override
+    public void close() {
+        running = false;
+        if (looping) {
+            selector.wakeup();
+        } else {
+            closeChannels();
+            host.close();
+            searchPool.close();
+        }
+    }
+
+    // Returns the port the server listens on
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    // Statistics of the server (read from other threads for monitoring, so only approximate)
+    public int getActiveGames() { return host.getActiveGames(); }
+    public long getConnectionCount() { return connectionCount; }
+    public long getMessageCount() { return messageCount; }
+    public long getProcessingNanos() { return processingNanos + host.getProcessingNanos(); }
+    public long getComputerTurns() { return host.getComputerTurns(); }
+    public SearchPool getSearchPool() { return searchPool; }
+
+    // Closes the listening socket, every connection and the selector
+    private synchronized void closeChannels() {
+        if (!selector.isOpen()) return;
+        for (SelectionKey key : selector.keys()) {
+            try {
+                key.channel().close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Accepts a new connection
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) return;
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        Connection connection = new Connection(channel);
+        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+        connectionCount++;
+    }
+
+    // Reads what a connection has sent and handles every complete message
+    private void read(Connection connection) {
+        int count;
+        try {
+            count = connection.channel.read(connection.in);
+        } catch (IOException e) {
+            count = -1;
+        }
+        if (count < 0) {
+            disconnect(connection);
+            return;
+        }
+        ByteBuffer in = connection.in;
+        in.flip();
+        while (in.hasRemaining() && connection.key.isValid()) {
+            int type = in.get(in.position());
+            int size = GameProtocol.payloadSize(type);
+            if (size < 0 || type >= GameProtocol.START) { // Not a client message
+                reject(connection, GameProtocol.BAD_REQUEST);
+                disconnect(connection);
+                return;
+            }
+            if (in.remaining() < 1 + size) break; // Rest of the frame has not arrived yet
+            in.get();
+            long start = System.nanoTime();
+            try {
+                handle(connection, type, in);
+            } catch (RuntimeException e) { // One broken game must not stop the server
+                e.printStackTrace();
+                disconnect(connection);
+                return;
+            }
+            processingNanos += System.nanoTime() - start;
+            messageCount++;
+        }
+        in.compact();
+    }
+
+    // Handles one message from a player: joins are handled here, game requests go to the player's session
+    private void handle(Connection connection, int type, ByteBuffer in) {
+        if (type == GameProtocol.JOIN || type == GameProtocol.PLAY_COMPUTER) {
+            int version = in.get();
+            int players = in.get();
+            int difficulty = type == GameProtocol.PLAY_COMPUTER ? in.get() : 0;
+            if (version != GameProtocol.VERSION || players < 2 || players > Board.MAX_PLAYERS
+                    || difficulty < 0 || difficulty >= GameProtocol.DIFFICULTIES.length
+                    || connection.session != null || connection.waitingFor != 0) {
+                reject(connection, GameProtocol.BAD_REQUEST);
+            } else if (type == GameProtocol.JOIN) {
+                join(connection, players);
+            } else {
+                Connection[] seats = new Connection[players]; // Seat 1 is the player, the others are computers
+                seats[0] = connection;
+                startGame(seats, GameProtocol.DIFFICULTIES[difficulty]);
+            }
+            return;
+        }
+        int cell = type == GameProtocol.PLACE ? in.get() : -1;
+        GameHost.Session session = connection.session;
+        if (session == null) {
+            reject(connection, GameProtocol.NOT_IN_GAME);
+            return;
+        }
+        session.post(connection.seat, type, cell);
+    }
+
+    // Seats a player in the lobby and starts a game once enough players wait
+    private void join(Connection connection, int players) {
+        ArrayDeque<Connection> waiting = lobby.get(players);
+        connection.waitingFor = players;
+        waiting.add(connection);
+        if (waiting.size() < players) return;
+
+        Connection[] seats = new Connection[players];
+        for (int seat = 0; seat < players; seat++) {
+            seats[seat] = waiting.poll();
+            seats[seat].waitingFor = 0;
+        }
+        startGame(seats, null);
+    }
+
+    // Hands a new game to the host; the players are seated before their START can reach them
+    private void startGame(Connection[] seats, String computerDifficulty) {
+        GameHost.Session session = host.start(seats, computerDifficulty, random.nextLong());
+        for (int seat = 1; seat <= seats.length; seat++) {
+            if (seats[seat - 1] != null) {
+                seats[seat - 1].seat = seat;
+                seats[seat - 1].session = session;
+            }
+        }
+    }
+
+    // Closes a connection, telling the other players of its game that it left
+    private void disconnect(Connection connection) {
+        connection.key.cancel();
+        try {
+            connection.channel.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+        if (connection.waitingFor != 0) {
+            lobby.get(connection.waitingFor).remove(connection);
+        }
+        GameHost.Session session = connection.session;
+        if (session != null) {
+            session.leave(connection.seat);
+        }
+    }
+
+    // Sends a rejection to one player
+    private void reject(Connection connection, int code) {
+        scratch.clear();
+        GameProtocol.putByte(scratch, GameProtocol.REJECTED, code);
+        send(connection, scratch.array(), scratch.position());
+    }
+
+    // Queues a message for a player, to be written after this selector pass
+    private void send(Connection connection, byte[] message, int length) {
+        if (!connection.key.isValid()) return;
+        ByteBuffer out = connection.out;
+        if (out.remaining() < length) {
+            if (out.capacity() >= MAX_BACKLOG) { // The client is not reading
+                disconnect(connection);
+                return;
+            }
+            ByteBuffer larger = ByteBuffer.allocate(out.capacity() * 2);
+            out.flip();
+            larger.put(out);
+            connection.out = out = larger;
+        }
+        out.put(message, 0, length);
+        if (!connection.queued) {
+            connection.queued = true;
+            pending.add(connection);
+        }
+    }
+
+    // Writes as much of a connection's replies as the socket takes, waiting for OP_WRITE for the rest
+    private void flush(Connection connection) {
+        connection.queued = false;
+        if (!connection.key.isValid()) return;
+        ByteBuffer out = connection.out;
+        out.flip();
+        try {
+            connection.channel.write(out);
+        } catch (IOException e) {
+            out.compact();
+            disconnect(connection);
+            return;
+        }
+        out.compact();
+        int ops = out.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ;
+        if (connection.key.interestOps() != ops) {
+            connection.key.interestOps(ops);
+        }
+    }
+
+    // State of one player's connection
+    private class Connection implements GameHost.Player {
+        private final SocketChannel channel; // Socket to the player
+        private SelectionKey key; // Registration with the selector
+        private final ByteBuffer in = ByteBuffer.allocate(256); // Bytes received but not yet handled
+        private ByteBuffer out = ByteBuffer.allocate(256); // Replies not yet written
+        private boolean queued; // Whether the connection is in the pending list
+        private int waitingFor; // Game size the player waits for in the lobby, or 0
+        private volatile GameHost.Session session; // Game the player is in, or null (cleared by the session)
+        private int seat; // Player number in the game (1 to playerCount)
+
+        // Constructor wraps an accepted socket
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        // Queues a message of the player's session for the selector thread
+        @Override
+        public void deliver(byte[] message) {
+            replies.add(new Reply(this, message));
+            if (wakeupPending.compareAndSet(false, true)) {
+                selector.wakeup();
+            }
+        }
+
+        // Lets the player join another game
+        @Override
+        public void ended() {
+            session = null;
+        }
+    }
+
+    // A message of a session waiting for the selector thread
+    private static class Reply {
+        private final Connection connection; // Player to send it to
+        private final byte[] message; // Whole frame
+
+        // Constructor records a message
+        Reply(Connection connection, byte[] message) {
+            this.connection = connection;
+            this.message = message;
+        }
+    }
+}
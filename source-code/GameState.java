@@ -6,7 +6,7 @@ import java.io.Serializable;
  * @author Group 4
  */
 public class GameState implements Serializable {
-    private static final long serialVersionUID = 1L; // For serialization compatibility
+    private static final long serialVersionUID = 2L; // For serialization compatibility
 
     private int playerCount; // Number of players in the game
     private boolean hasComputerPlayer; // Whether there is a computer player
@@ -14,7 +14,7 @@ public class GameState implements Serializable {
     private boolean monochrome; // Whether the game is in monochrome mode
     private boolean protanopia; // Whether the game is in protanopia mode
     private boolean tritanopia; // Whether the game is in tritanopia mode
-    private int[][] stonePlacement; // Grid storing stone placements
+    private Board board; // Stones placed on the grid
     private int[] turnsRemaining; // Array storing remaining turns for each player
     private int currentPlayer; // Current player's turn
     private int turnsLeft; // Total remaining turns in the game
@@ -22,19 +22,29 @@ public class GameState implements Serializable {
     private boolean hasRolled; // Whether the dice have been rolled
     private int displacedRow; // Row of the displaced stone
     private int displacedPlayer; // Player whose stone was displaced
+    private int[][] boardPoints; // Points for each grid cell (null if not saved)
 
-    // Constructor initializes the game state
+    // Constructor initializes the game state without the board points
     public GameState(int playerCount, boolean hasComputerPlayer, String computerDifficulty, boolean monochrome,
-                     boolean protanopia, boolean tritanopia, int[][] stonePlacement, int[] turnsRemaining,
+                     boolean protanopia, boolean tritanopia, Board board, int[] turnsRemaining,
                      int currentPlayer, int turnsLeft, int[] diceRolls, boolean hasRolled, int displacedRow,
                      int displacedPlayer) {
+        this(playerCount, hasComputerPlayer, computerDifficulty, monochrome, protanopia, tritanopia, board,
+                turnsRemaining, currentPlayer, turnsLeft, diceRolls, hasRolled, displacedRow, displacedPlayer, null);
+    }
+
+    // Constructor initializes the game state
+    public GameState(int playerCount, boolean hasComputerPlayer, String computerDifficulty, boolean monochrome,
+                     boolean protanopia, boolean tritanopia, Board board, int[] turnsRemaining,
+                     int currentPlayer, int turnsLeft, int[] diceRolls, boolean hasRolled, int displacedRow,
+                     int displacedPlayer, int[][] boardPoints) {
         this.playerCount = playerCount;
         this.hasComputerPlayer = hasComputerPlayer;
         this.computerDifficulty = computerDifficulty;
         this.monochrome = monochrome;
         this.protanopia = protanopia;
         this.tritanopia = tritanopia;
-        this.stonePlacement = deepCopy(stonePlacement); // Deep copy to avoid reference issues
+        this.board = board.copy(); // Copy to avoid reference issues
         this.turnsRemaining = turnsRemaining.clone();
         this.currentPlayer = currentPlayer;
         this.turnsLeft = turnsLeft;
@@ -42,16 +52,12 @@ public class GameState implements Serializable {
         this.hasRolled = hasRolled;
         this.displacedRow = displacedRow;
         this.displacedPlayer = displacedPlayer;
-    }
-
-    // Deep copy method for 2D array to avoid reference issues
-    private int[][] deepCopy(int[][] original) {
-        if (original == null) return null;
-        int[][] result = new int[original.length][];
-        for (int i = 0; i < original.length; i++) {
-            result[i] = original[i].clone();
+        if (boardPoints != null) {
+            this.boardPoints = new int[boardPoints.length][];
+            for (int row = 0; row < boardPoints.length; row++) {
+                this.boardPoints[row] = boardPoints[row].clone();
+            }
         }
-        return result;
     }
 
     // Getters to access the game state variables
@@ -61,7 +67,7 @@ public class GameState implements Serializable {
     public boolean isMonochrome() { return monochrome; }
     public boolean isProtanopia() { return protanopia; }
     public boolean isTritanopia() { return tritanopia; }
-    public int[][] getStonePlacement() { return stonePlacement; }
+    public Board getBoard() { return board; }
     public int[] getTurnsRemaining() { return turnsRemaining; }
     public int getCurrentPlayer() { return currentPlayer; }
     public int getTurnsLeft() { return turnsLeft; }
@@ -69,4 +75,5 @@ public class GameState implements Serializable {
     public boolean hasRolled() { return hasRolled; }
     public int getDisplacedRow() { return displacedRow; }
     public int getDisplacedPlayer() { return displacedPlayer; }
+    public int[][] getBoardPoints() { return boardPoints; }
 }
\ No newline at end of file
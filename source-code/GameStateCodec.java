@@ -0,0 +1,302 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Fixed-layout binary save format for GameState
+ *
+ * A save is always SIZE bytes, big-endian:
+ *
+ *   0  magic "KIVI"            4 bytes
+ *   4  format version          1 byte
+ *   5  flags                   1 byte (computer, monochrome, protanopia, tritanopia, rolled, points)
+ *   6  player count            1 byte
+ *   7  computer difficulty     1 byte (0 none, 1 Easy, 2 Hard, 3 Expert, 4 Master)
+ *   8  current player          1 byte
+ *   9  turns left              1 byte
+ *  10  displaced row           1 byte (signed, -1 for none)
+ *  11  displaced player        1 byte (signed, -1 for none)
+ *  12  turns remaining         4 bytes (one per player)
+ *  16  dice                    3 bytes (one nibble per die)
+ *  19  occupied cells          7 bytes (one bit per cell)
+ *  26  stone owners            13 bytes (2 bits per cell: player - 1)
+ *  39  cell points             13 bytes (2 bits per cell: 1 to 3)
+ *  52  CRC-32 of bytes 0-51    4 bytes
+ *
+ * Two bits per cell cannot tell four players from an empty cell, so the
+ * owners are paired with an occupancy mask. Reading never uses
+ * reflection, and every field is range checked before a GameState is
+ * built from it: a computer player needs a difficulty, the dice are 1 to
+ * 6 once rolled and all 0 before, and the displaced row and player are
+ * both -1 or both set. Writing a difficulty that has
+ * no code throws instead of saving a game that could not be resumed.
+ *
+ * @author Group 4
+ */
+public class GameStateCodec {
+    public static final int SIZE = 56; // Bytes in a save
+    public static final int VERSION = 1; // Format version written by this codec
+    public static final String SAVE_FILE = "SavedKiviGame.kivi"; // File the game saves to and resumes from
+    private static final int MAGIC = 0x4B495649; // "KIVI"
+    public static final int CRC_OFFSET = SIZE - 4; // Position of the checksum
+    private static final int CELLS = Board.CELL_COUNT; // Cells on the grid
+    private static final int PACKED_CELLS = (CELLS * 2 + 7) / 8; // Bytes for 2 bits per cell
+    private static final int OCCUPIED_BYTES = (CELLS + 7) / 8; // Bytes for 1 bit per cell
+    private static final String[] DIFFICULTIES = {null, "Easy", "Hard", "Expert", "Master"}; // Difficulty codes
+
+    private static final int COMPUTER_FLAG = 1; // Flag: there is a computer player
+    private static final int MONOCHROME_FLAG = 1 << 1; // Flag: monochrome mode
+    private static final int PROTANOPIA_FLAG = 1 << 2; // Flag: protanopia mode
+    private static final int TRITANOPIA_FLAG = 1 << 3; // Flag: tritanopia mode
+    private static final int ROLLED_FLAG = 1 << 4; // Flag: the dice have been rolled
+    private static final int POINTS_FLAG = 1 << 5; // Flag: the cell points are stored
+
+    // Writes a game state to a file, replacing it
+    public static void write(GameState state, Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SIZE);
+        encode(state, buffer);
+        buffer.flip();
+        write(buffer, path);
+    }
+
+    // Writes an encoded save to a file through a synced temporary file, so a crash leaves the old or the new save
+    public static void write(ByteBuffer buffer, Path path) throws IOException {
+        GameEvents.Persistence event = new GameEvents.Persistence();
+        event.begin();
+        long bytes = buffer.remaining();
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        commitEvent(event, "save", bytes, path);
+    }
+
+    // Reads a game state from a file
+    public static GameState read(Path path) throws IOException {
+        GameEvents.Persistence event = new GameEvents.Persistence();
+        event.begin();
+        ByteBuffer buffer = ByteBuffer.allocate(SIZE);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() != SIZE) {
+                throw new IOException("Save file has " + channel.size() + " bytes, expected " + SIZE);
+            }
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) break;
+            }
+        }
+        buffer.flip();
+        GameState state = decode(buffer);
+        commitEvent(event, "load", SIZE, path);
+        return state;
+    }
+
+    // Ends a flight recorder event of a save or load and commits it, if a recording enabled it
+    private static void commitEvent(GameEvents.Persistence event, String operation, long bytes, Path path) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.bytes = bytes;
+            event.file = path.toString();
+            event.commit();
+        }
+    }
+
+    // Writes a game state at the buffer's position and advances it by SIZE bytes
+    public static void encode(GameState state, ByteBuffer buffer) {
+        int start = buffer.position();
+        int[] turnsRemaining = state.getTurnsRemaining();
+        int[][] boardPoints = state.getBoardPoints();
+        int flags = (state.hasComputerPlayer() ? COMPUTER_FLAG : 0)
+                | (state.isMonochrome() ? MONOCHROME_FLAG : 0)
+                | (state.isProtanopia() ? PROTANOPIA_FLAG : 0)
+                | (state.isTritanopia() ? TRITANOPIA_FLAG : 0)
+                | (state.hasRolled() ? ROLLED_FLAG : 0)
+                | (boardPoints != null ? POINTS_FLAG : 0);
+
+        buffer.putInt(MAGIC);
+        buffer.put((byte) VERSION);
+        buffer.put((byte) flags);
+        buffer.put((byte) state.getPlayerCount());
+        buffer.put((byte) difficultyCode(state.hasComputerPlayer(), state.getComputerDifficulty()));
+        buffer.put((byte) state.getCurrentPlayer());
+        buffer.put((byte) state.getTurnsLeft());
+        buffer.put((byte) state.getDisplacedRow());
+        buffer.put((byte) state.getDisplacedPlayer());
+        for (int i = 0; i < Board.MAX_PLAYERS; i++) {
+            buffer.put((byte) (i < turnsRemaining.length ? turnsRemaining[i] : 0));
+        }
+
+        int[] dice = state.getDiceRolls();
+        for (int i = 0; i < dice.length; i += 2) {
+            // Two dice per byte; the dice of a turn that has not rolled yet are left over from the last one and saved as 0
+            buffer.put((byte) (state.hasRolled() ? (dice[i] << 4) | dice[i + 1] : 0));
+        }
+
+        Board board = state.getBoard();
+        long occupied = board.getOccupied();
+        for (int i = 0; i < OCCUPIED_BYTES; i++) {
+            buffer.put((byte) (occupied >>> (8 * i)));
+        }
+        putPacked(buffer, cell -> board.isOccupied(cell) ? board.getOwner(cell) - 1 : 0);
+        putPacked(buffer, cell -> boardPoints != null ? boardPoints[Board.rowOf(cell)][Board.colOf(cell)] : 0);
+
+        buffer.putInt((int) checksum(buffer, start));
+    }
+
+    // Reads a game state from the buffer's position, checking every field
+    public static GameState decode(ByteBuffer buffer) throws IOException {
+        int start = buffer.position();
+        if (buffer.remaining() < SIZE) {
+            throw new IOException("Save is " + buffer.remaining() + " bytes, expected " + SIZE);
+        }
+        if (buffer.getInt(start) != MAGIC) {
+            throw new IOException("Not a Kivi save");
+        }
+        int version = buffer.get(start + 4) & 0xFF;
+        if (version != VERSION) {
+            throw new IOException("Unsupported save version " + version);
+        }
+        long expected = buffer.getInt(start + CRC_OFFSET) & 0xFFFFFFFFL;
+        ByteBuffer header = buffer.duplicate();
+        header.position(start + CRC_OFFSET);
+        if (checksum(header, start) != expected) {
+            throw new IOException("Save is corrupt (checksum mismatch)");
+        }
+
+        buffer.position(start + 5);
+        int flags = buffer.get() & 0xFF;
+        int playerCount = buffer.get() & 0xFF;
+        int difficulty = buffer.get() & 0xFF;
+        int currentPlayer = buffer.get() & 0xFF;
+        int turnsLeft = buffer.get() & 0xFF;
+        int displacedRow = buffer.get();
+        int displacedPlayer = buffer.get();
+        check(playerCount >= 2 && playerCount <= Board.MAX_PLAYERS, "player count", playerCount);
+        check(difficulty < DIFFICULTIES.length, "difficulty", difficulty);
+        check(currentPlayer >= 1 && currentPlayer <= playerCount, "current player", currentPlayer);
+        check(displacedRow >= -1 && displacedRow < Board.GRID_SIZE, "displaced row", displacedRow);
+        check(displacedPlayer == -1 || (displacedPlayer >= 1 && displacedPlayer <= playerCount), "displaced player", displacedPlayer);
+        check((flags & COMPUTER_FLAG) == 0 || difficulty != 0, "difficulty for the computer player", difficulty);
+        check((displacedRow == -1) == (displacedPlayer == -1), "displaced player for displaced row " + displacedRow,
+                displacedPlayer);
+
+        int[] turnsRemaining = new int[playerCount];
+        for (int i = 0; i < Board.MAX_PLAYERS; i++) {
+            int turns = buffer.get() & 0xFF;
+            if (i < playerCount) {
+                check(turns <= KiviEngine.TURNS_PER_PLAYER, "turns remaining", turns);
+                turnsRemaining[i] = turns;
+            }
+        }
+
+        int[] dice = new int[KiviEngine.DICE_COUNT];
+        for (int i = 0; i < dice.length; i += 2) {
+            int pair = buffer.get() & 0xFF;
+            dice[i] = pair >>> 4;
+            dice[i + 1] = pair & 0xF;
+        }
+        boolean rolled = (flags & ROLLED_FLAG) != 0;
+        for (int die : dice) {
+            check(rolled ? die >= 1 && die <= 6 : die == 0, rolled ? "die" : "die before the roll", die);
+        }
+
+        long occupied = 0;
+        for (int i = 0; i < OCCUPIED_BYTES; i++) {
+            occupied |= (buffer.get() & 0xFFL) << (8 * i);
+        }
+        check((occupied & ~Board.ALL_CELLS) == 0, "occupied mask", occupied);
+        Board board = new Board();
+        int[] owners = getPacked(buffer);
+        for (long cells = occupied; cells != 0; cells &= cells - 1) {
+            int cell = Long.numberOfTrailingZeros(cells);
+            int player = owners[cell] + 1;
+            check(player <= playerCount, "stone owner", player);
+            board.place(cell, player);
+        }
+
+        int[] points = getPacked(buffer);
+        int[][] boardPoints = null;
+        if ((flags & POINTS_FLAG) != 0) {
+            boardPoints = new int[Board.GRID_SIZE][Board.GRID_SIZE];
+            for (int cell = 0; cell < CELLS; cell++) {
+                check(points[cell] >= 1, "cell points", points[cell]);
+                boardPoints[Board.rowOf(cell)][Board.colOf(cell)] = points[cell];
+            }
+        }
+        buffer.position(start + SIZE);
+
+        return new GameState(playerCount, (flags & COMPUTER_FLAG) != 0, DIFFICULTIES[difficulty],
+                (flags & MONOCHROME_FLAG) != 0, (flags & PROTANOPIA_FLAG) != 0, (flags & TRITANOPIA_FLAG) != 0,
+                board, turnsRemaining, currentPlayer, turnsLeft, dice, rolled,
+                displacedRow, displacedPlayer, boardPoints);
+    }
+
+    // Supplies the 2-bit value stored for a cell
+    private interface CellValue {
+        int of(int cell);
+    }
+
+    // Writes one 2-bit value per cell, four cells per byte
+    private static void putPacked(ByteBuffer buffer, CellValue value) {
+        for (int i = 0; i < PACKED_CELLS; i++) {
+            int packed = 0;
+            for (int j = 0; j < 4; j++) {
+                int cell = i * 4 + j;
+                if (cell < CELLS) {
+                    packed |= (value.of(cell) & 0x3) << (2 * j);
+                }
+            }
+            buffer.put((byte) packed);
+        }
+    }
+
+    // Reads one 2-bit value per cell, four cells per byte
+    private static int[] getPacked(ByteBuffer buffer) {
+        int[] values = new int[CELLS];
+        for (int i = 0; i < PACKED_CELLS; i++) {
+            int packed = buffer.get() & 0xFF;
+            for (int j = 0; j < 4 && i * 4 + j < CELLS; j++) {
+                values[i * 4 + j] = (packed >>> (2 * j)) & 0x3;
+            }
+        }
+        return values;
+    }
+
+    // Computes the CRC-32 of the bytes from start up to the buffer's position
+    private static long checksum(ByteBuffer buffer, int start) {
+        CRC32 crc = new CRC32();
+        ByteBuffer bytes = buffer.duplicate();
+        bytes.limit(buffer.position());
+        bytes.position(start);
+        crc.update(bytes);
+        return crc.getValue();
+    }
+
+    // Returns the code of a computer difficulty (0 when there is none), rejecting one the format cannot store
+    private static int difficultyCode(boolean hasComputerPlayer, String difficulty) {
+        for (int code = 1; code < DIFFICULTIES.length; code++) {
+            if (DIFFICULTIES[code].equals(difficulty)) return code;
+        }
+        if (difficulty != null || hasComputerPlayer) {
+            throw new IllegalArgumentException("Cannot save computer difficulty " + difficulty);
+        }
+        return 0;
+    }
+
+    // Rejects a field that is out of range
+    private static void check(boolean valid, String field, long value) throws IOException {
+        if (!valid) {
+            throw new IOException("Save has an invalid " + field + ": " + value);
+        }
+    }
+}
@@ -19,6 +19,7 @@ public class Kivi {
            e.printStackTrace();
 
         }
+        Metrics.export(); // JMX and, if asked for, the Prometheus file or port
         new KiviGame(); // Start the game by creating a new instance of KiviGame.
     }
 }
\ No newline at end of file
@@ -0,0 +1,372 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Rules of the Kivi game without any user interface
+ *
+ * The engine owns the board, the dice, the turn order and the running
+ * scores. Every roll, placement and skip is pushed onto an undo stack as a
+ * single long, so a game can be stepped forwards and backwards without
+ * allocating. Dice come from the engine's own Random, which makes a game
+ * repeatable from its seed.
+ *
+ * @author Group 4
+ */
+public final class KiviEngine {
+    public static final int TURNS_PER_PLAYER = 10; // Stones each player places in a game
+    public static final int DICE_COUNT = 6; // Number of dice in a roll
+
+    public static final int ROLL = 0; // Action kind: dice were rolled
+    public static final int PLACE = 1; // Action kind: the current player placed a stone
+    public static final int PLACE_DISPLACED = 2; // Action kind: a displaced stone was put back on the board
+    public static final int SKIP = 3; // Action kind: the current player skipped the turn
+
+    // Outcome of an attempted action
+    public enum Result {
+        ROLLED, // The dice were rolled
+        PLACED, // The stone was placed and the turn passed on
+        SKIPPED, // The turn passed on without a stone
+        DISPLACED, // Six of a kind replaced a stone that must now be placed again
+        NOT_ROLLED, // The dice have not been rolled yet
+        ALREADY_ROLLED, // The dice were already rolled this turn
+        FREE_CELL_ONLY, // Five of a kind or a straight only allows a free cell
+        INVALID, // The dice do not satisfy the cell's combination or the cell is occupied
+        OCCUPIED, // A displaced stone can only go on a free cell
+        GAME_OVER // Every player has used all of their turns
+    }
+
+    // Layout of an undo record: kind | cell | previous owner | player | rolled | displaced row | displaced player | turn used | dice
+    private static final int CELL_SHIFT = 2;
+    private static final int OWNER_SHIFT = 9;
+    private static final int PLAYER_SHIFT = 12;
+    private static final int ROLLED_SHIFT = 15;
+    private static final int DISPLACED_ROW_SHIFT = 16;
+    private static final int DISPLACED_PLAYER_SHIFT = 20;
+    private static final int TURN_USED_SHIFT = 23;
+    private static final int DICE_SHIFT = 24;
+    private static final int NO_CELL = 0x7F; // Cell field of an action that changed no cell
+    private static final int NO_DICE = 0xFFFF; // Dice field when the dice were not rolled
+
+    private final int playerCount; // Number of players
+    private final Random random; // Source of the dice and the board points
+    private final String[][] boardCombinations = new String[Board.GRID_SIZE][Board.GRID_SIZE]; // Combinations for each grid cell
+    private final int[][] boardPoints = new int[Board.GRID_SIZE][Board.GRID_SIZE]; // Points for each grid cell
+    private final long[] combinationCells; // Mask of cells for each combination
+    private final Board board = new Board(); // Placement of stones on the grid
+    private final RunScorer runScorer; // Running scores, updated as stones are placed
+    private final int[] turnsRemaining; // Turns left for each player
+    private final int[] diceRolls = new int[DICE_COUNT]; // Current dice
+    private Validation validation; // Checks placements against the current dice
+    private int currentPlayer = 1; // Player whose turn it is (1 to playerCount)
+    private boolean hasRolled; // Whether the current player has rolled
+    private int displacedRow = -1; // Row of the stone replaced by six of a kind, or -1
+    private int displacedPlayer = -1; // Owner of the replaced stone, or -1
+    private long[] history = new long[4 * TURNS_PER_PLAYER * Board.MAX_PLAYERS]; // Undo records, oldest first
+    private int historySize; // Number of undo records
+    private long seed; // Seed the board points and dice follow from
+    private boolean seeded; // Whether the game follows from the seed
+
+    // Constructor starts a game whose board points and dice follow from a seed
+    public KiviEngine(int playerCount, long seed) {
+        this(playerCount, new Random(seed));
+        this.seed = seed;
+        this.seeded = true;
+    }
+
+    // Constructor starts a game that draws its board points and dice from a Random
+    public KiviEngine(int playerCount, Random random) {
+        this.playerCount = playerCount;
+        this.random = random;
+        CellManager.initializeBoard(boardCombinations, boardPoints, random);
+        this.combinationCells = Validation.combinationCells(boardCombinations);
+        this.runScorer = new RunScorer(boardPoints, playerCount);
+        this.turnsRemaining = new int[playerCount];
+        Arrays.fill(turnsRemaining, TURNS_PER_PLAYER);
+        this.validation = new Validation(diceRolls);
+    }
+
+    // Constructor resumes a saved game; the board points are drawn again from the Random if the save has none
+    public KiviEngine(GameState state, Random random) {
+        this(state.getPlayerCount(), random);
+        if (state.getBoardPoints() != null) {
+            for (int row = 0; row < Board.GRID_SIZE; row++) {
+                System.arraycopy(state.getBoardPoints()[row], 0, boardPoints[row], 0, Board.GRID_SIZE);
+            }
+        }
+        restore(state);
+    }
+
+    // Moves the game to a saved position on the same layout; the undo history starts again
+    public void restore(GameState state) {
+        if (state.getPlayerCount() != playerCount) {
+            throw new IllegalArgumentException("A " + state.getPlayerCount() + "-player position cannot be restored in a "
+                    + playerCount + "-player game");
+        }
+        board.copyFrom(state.getBoard());
+        runScorer.reset(board);
+        System.arraycopy(state.getTurnsRemaining(), 0, turnsRemaining, 0, playerCount);
+        System.arraycopy(state.getDiceRolls(), 0, diceRolls, 0, DICE_COUNT);
+        validation = new Validation(diceRolls);
+        currentPlayer = state.getCurrentPlayer();
+        hasRolled = state.hasRolled();
+        displacedRow = state.getDisplacedRow();
+        displacedPlayer = state.getDisplacedPlayer();
+        historySize = 0;
+    }
+
+    // Starts the game again on the same layout (the dice go on from where they were, so they no longer follow from the seed)
+    public void reset() {
+        seeded = false;
+        board.clear();
+        runScorer.reset(board);
+        Arrays.fill(turnsRemaining, TURNS_PER_PLAYER);
+        Arrays.fill(diceRolls, 0);
+        validation = new Validation(diceRolls);
+        currentPlayer = 1;
+        hasRolled = false;
+        displacedRow = -1;
+        displacedPlayer = -1;
+        historySize = 0;
+    }
+
+    // Rolls the dice for the current player
+    public Result roll() {
+        if (isGameOver()) return Result.GAME_OVER;
+        if (hasRolled) return Result.ALREADY_ROLLED;
+        KiviRules.roll(random, diceRolls);
+        return rolled();
+    }
+
+    // Sets the dice of the current player to a known roll (for replays and simulations)
+    public Result roll(int[] dice) {
+        if (Validation.packRollKey(dice) < 0) {
+            throw new IllegalArgumentException("A roll needs six dice from 1 to 6: " + Arrays.toString(dice));
+        }
+        if (isGameOver()) return Result.GAME_OVER;
+        if (hasRolled) return Result.ALREADY_ROLLED;
+        System.arraycopy(dice, 0, diceRolls, 0, DICE_COUNT);
+        return rolled();
+    }
+
+    // Places a stone for the current player, or puts back the displaced stone if one is waiting
+    public Result place(int row, int col) {
+        if (isGameOver()) return Result.GAME_OVER;
+        int cell = Board.cellIndex(row, col);
+        boolean isOccupied = board.isOccupied(cell);
+
+        if (displacedRow != -1) { // The displaced stone must go on a free cell
+            if (isOccupied) return Result.OCCUPIED;
+            push(PLACE_DISPLACED, cell, 0);
+            setStone(cell, displacedPlayer);
+            displacedRow = -1;
+            displacedPlayer = -1;
+            endTurn();
+            return Result.PLACED;
+        }
+
+        if (!hasRolled) return Result.NOT_ROLLED;
+        Result placement = KiviRules.checkPlacement(validation,
+                CellManager.getCombinationIndex(boardCombinations[row][col]), isOccupied);
+        if (placement == Result.FREE_CELL_ONLY || placement == Result.INVALID) {
+            return placement;
+        }
+
+        int previousOwner = board.getOwner(cell);
+        push(PLACE, cell, previousOwner);
+        setStone(cell, currentPlayer);
+        if (placement == Result.DISPLACED) { // The replaced stone is placed again before the turn ends
+            displacedRow = row;
+            displacedPlayer = previousOwner;
+            return Result.DISPLACED;
+        }
+        endTurn();
+        return Result.PLACED;
+    }
+
+    // Ends the current player's turn without placing a stone
+    public Result skip() {
+        if (isGameOver()) return Result.GAME_OVER;
+        push(SKIP, NO_CELL, 0);
+        endTurn();
+        return Result.SKIPPED;
+    }
+
+    // Takes back the last roll, placement or skip; returns false if there is nothing to undo
+    public boolean undo() {
+        if (historySize == 0) return false;
+        long record = history[--historySize];
+        int cell = (int) (record >>> CELL_SHIFT) & NO_CELL;
+        if (cell != NO_CELL) {
+            setStone(cell, (int) (record >>> OWNER_SHIFT) & 0x7);
+        }
+        currentPlayer = (int) (record >>> PLAYER_SHIFT) & 0x7;
+        if (((record >>> TURN_USED_SHIFT) & 1) != 0) {
+            turnsRemaining[currentPlayer - 1]++;
+        }
+        hasRolled = ((record >>> ROLLED_SHIFT) & 1) != 0;
+        displacedRow = (int) ((record >>> DISPLACED_ROW_SHIFT) & 0xF) - 1;
+        displacedPlayer = (int) ((record >>> DISPLACED_PLAYER_SHIFT) & 0x7) - 1;
+        unpackDice((int) (record >>> DICE_SHIFT) & 0xFFFF);
+        return true;
+    }
+
+    // Returns the kind of the last action (ROLL, PLACE, PLACE_DISPLACED or SKIP), or -1 if there is none
+    public int getLastAction() {
+        return historySize == 0 ? -1 : (int) history[historySize - 1] & 0x3;
+    }
+
+    // Returns the number of actions that can be undone
+    public int getHistorySize() {
+        return historySize;
+    }
+
+    // Returns an undo record, oldest first (read it with the action accessors below)
+    public long getHistoryRecord(int index) {
+        if (index < 0 || index >= historySize) {
+            throw new IndexOutOfBoundsException("No action " + index + " in a history of " + historySize);
+        }
+        return history[index];
+    }
+
+    // Returns the kind of action (ROLL, PLACE, PLACE_DISPLACED or SKIP) of an undo record
+    public static int actionKind(long record) {
+        return (int) record & 0x3;
+    }
+
+    // Returns the cell an undo record's action placed on, or -1 if it placed nothing
+    public static int actionCell(long record) {
+        int cell = (int) (record >>> CELL_SHIFT) & NO_CELL;
+        return cell == NO_CELL ? -1 : cell;
+    }
+
+    // Returns the player whose turn it was when the action was played
+    public static int actionPlayer(long record) {
+        return (int) (record >>> PLAYER_SHIFT) & 0x7;
+    }
+
+    // Returns the roll key of the dice the action was played with, or -1 if they were not rolled this turn
+    public static int actionRollKey(long record) {
+        if (((record >>> ROLLED_SHIFT) & 1) == 0) return -1;
+        int key = (int) (record >>> DICE_SHIFT) & 0xFFFF;
+        return key == NO_DICE ? -1 : key;
+    }
+
+    // Returns the mask of cells the current player may place on
+    public long getLegalCells() {
+        if (displacedRow != -1) return board.getEmpty();
+        if (!hasRolled) return 0;
+        return validation.getLegalCells(combinationCells, board);
+    }
+
+    // Checks if every player has used all of their turns
+    public boolean isGameOver() {
+        return KiviRules.isGameOver(turnsRemaining);
+    }
+
+    // Returns the final or running score of each player
+    public int[] getScores() {
+        return runScorer.getScores();
+    }
+
+    // Returns the score of a player (1 to playerCount)
+    public int getScore(int player) {
+        return runScorer.getScore(player);
+    }
+
+    // Returns the players with the highest score
+    public int[] getWinners() {
+        return KiviRules.winners(runScorer, playerCount);
+    }
+
+    // Captures the position in a GameState together with the settings of the game it belongs to
+    public GameState toGameState(boolean hasComputerPlayer, String computerDifficulty, boolean monochrome,
+                                 boolean protanopia, boolean tritanopia, int turnsLeft) {
+        return new GameState(playerCount, hasComputerPlayer, computerDifficulty, monochrome, protanopia, tritanopia,
+                board, turnsRemaining, currentPlayer, turnsLeft, diceRolls, hasRolled, displacedRow, displacedPlayer,
+                boardPoints);
+    }
+
+    // Getters to access the game state
+    public int getPlayerCount() { return playerCount; }
+    public String[][] getBoardCombinations() { return boardCombinations; }
+    public int[][] getBoardPoints() { return boardPoints; }
+    public long[] getCombinationCells() { return combinationCells; }
+    public Board getBoard() { return board; }
+    public int[] getTurnsRemaining() { return turnsRemaining; }
+    public int[] getDiceRolls() { return diceRolls; }
+    public Validation getValidation() { return validation; }
+    public int getCurrentPlayer() { return currentPlayer; }
+    public boolean hasRolled() { return hasRolled; }
+    public boolean hasDisplacedStone() { return displacedRow != -1; }
+    public int getDisplacedRow() { return displacedRow; }
+    public int getDisplacedPlayer() { return displacedPlayer; }
+    public long getSeed() { return seed; }
+    public boolean hasSeed() { return seeded; }
+
+    // Records a roll on the undo stack and checks the new dice
+    private Result rolled() {
+        push(ROLL, NO_CELL, 0);
+        hasRolled = true;
+        validation = new Validation(diceRolls);
+        return Result.ROLLED;
+    }
+
+    // Passes the turn to the next player, using up a turn unless a displaced stone is still waiting
+    private void endTurn() {
+        hasRolled = false;
+        if (displacedRow == -1) {
+            turnsRemaining[currentPlayer - 1]--;
+            setTurnUsed();
+        }
+        if (!isGameOver()) {
+            currentPlayer = KiviRules.nextPlayer(currentPlayer, playerCount);
+        }
+    }
+
+    // Puts a player's stone on a cell (0 to empty it) and updates the running scores, timing the update for the scoring metric
+    private void setStone(int cell, int player) {
+        long start = System.nanoTime();
+        if (player == 0) {
+            board.remove(cell);
+        } else {
+            board.place(cell, player);
+        }
+        runScorer.setStone(Board.rowOf(cell), Board.colOf(cell), player); // Only this row and column are rescored
+        Metrics.SCORING_TIME.recordSince(start);
+    }
+
+    // Pushes the state before an action onto the undo stack
+    private void push(int kind, int cell, int previousOwner) {
+        if (historySize == history.length) {
+            history = Arrays.copyOf(history, history.length * 2);
+        }
+        int diceKey = Validation.packRollKey(diceRolls);
+        if (diceKey < 0) diceKey = NO_DICE; // Nothing rolled yet
+        history[historySize++] = kind
+                | ((long) cell << CELL_SHIFT)
+                | ((long) previousOwner << OWNER_SHIFT)
+                | ((long) currentPlayer << PLAYER_SHIFT)
+                | ((hasRolled ? 1L : 0L) << ROLLED_SHIFT)
+                | ((long) (displacedRow + 1) << DISPLACED_ROW_SHIFT)
+                | ((long) (displacedPlayer + 1) << DISPLACED_PLAYER_SHIFT)
+                | ((long) (diceKey & 0xFFFF) << DICE_SHIFT);
+    }
+
+    // Marks the last undo record as having used up a turn of its player
+    private void setTurnUsed() {
+        history[historySize - 1] |= 1L << TURN_USED_SHIFT;
+    }
+
+    // Restores the dice from a packed roll key
+    private void unpackDice(int key) {
+        if (key == NO_DICE) {
+            Arrays.fill(diceRolls, 0);
+        } else {
+            for (int i = 0; i < DICE_COUNT; i++) {
+                diceRolls[i] = key % 6 + 1;
+                key /= 6;
+            }
+        }
+        validation = new Validation(diceRolls);
+    }
+}
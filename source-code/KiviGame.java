@@ -38,6 +38,7 @@ public class KiviGame {
     }
 
     public static void main(String[] args) {
+        Metrics.export(); // JMX and, if asked for, the Prometheus file or port
         new KiviGame(); // Start the game
     }
 }
@@ -0,0 +1,71 @@
+import java.util.Random;
+
+/**
+ * Rules of the Kivi game that do not depend on the size of the board
+ *
+ * KiviEngine plays the standard 7x7 board with an undo history, and
+ * WideGame plays larger layouts without one. Both take the dice, the
+ * checks of a placement, the turn order, the end of the game and the
+ * winners from here, so a rule is written once for every board.
+ *
+ * @author Group 4
+ */
+public final class KiviRules {
+    private KiviRules() {
+    }
+
+    // Rolls every die from 1 to 6
+    public static void roll(Random random, int[] dice) {
+        for (int i = 0; i < dice.length; i++) {
+            dice[i] = random.nextInt(6) + 1;
+        }
+    }
+
+    // Checks a stone of the current player on a cell with a combination (its index): PLACED if it may go there,
+    // DISPLACED if six of a kind replaces the stone there, FREE_CELL_ONLY or INVALID if it may not
+    public static KiviEngine.Result checkPlacement(Validation validation, int combination, boolean isOccupied) {
+        if (!validation.isValidPlacement(combination, isOccupied)) {
+            if ((validation.isFiveOfAKind() || validation.isStraightOneToSix()) && isOccupied) {
+                return KiviEngine.Result.FREE_CELL_ONLY;
+            }
+            return KiviEngine.Result.INVALID;
+        }
+        return validation.isSixOfAKind() && isOccupied ? KiviEngine.Result.DISPLACED : KiviEngine.Result.PLACED;
+    }
+
+    // Checks if every player has used all of their turns
+    public static boolean isGameOver(int[] turnsRemaining) {
+        for (int turns : turnsRemaining) {
+            if (turns > 0) return false;
+        }
+        return true;
+    }
+
+    // Returns the player whose turn follows the current player's
+    public static int nextPlayer(int currentPlayer, int playerCount) {
+        return (currentPlayer % playerCount) + 1;
+    }
+
+    // Returns the players with the highest score (ties have several winners)
+    public static int[] winners(RunScorer scorer, int playerCount) {
+        int maxScore = 0;
+        int count = 0;
+        for (int player = 1; player <= playerCount; player++) {
+            int score = scorer.getScore(player);
+            if (score > maxScore) {
+                maxScore = score;
+                count = 1;
+            } else if (score == maxScore) {
+                count++;
+            }
+        }
+        int[] winners = new int[count];
+        int index = 0;
+        for (int player = 1; player <= playerCount; player++) {
+            if (scorer.getScore(player) == maxScore) {
+                winners[index++] = player;
+            }
+        }
+        return winners;
+    }
+}
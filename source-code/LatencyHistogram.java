@@ -0,0 +1,82 @@
+/**
+ * Histogram of latencies with a fixed relative precision
+ *
+ * Values (in nanoseconds) are counted in log-linear buckets the way an HDR
+ * histogram does: values below SUB_BUCKETS get a bucket each, and every
+ * power of two above that is split into SUB_BUCKETS / 2 equal buckets, so
+ * a bucket is never wider than 1/64 of the values in it. Recording is an
+ * array increment, so each thread keeps its own histogram and the
+ * histograms are added together at the end.
+ *
+ * @author Group 4
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 7; // Bits kept of each value
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS; // Buckets below the first power of two that is split
+    private static final int HALF = SUB_BUCKETS / 2; // Buckets in each power of two above that
+    private static final int MAX_BITS = 43; // Values up to 2^43 ns (about 2.4 hours) are counted exactly
+    private static final long MAX_VALUE = (1L << MAX_BITS) - 1; // Larger values are counted as this
+
+    private final long[] counts = new long[SUB_BUCKETS + (MAX_BITS - SUB_BUCKET_BITS) * HALF]; // Values per bucket
+    private long count; // Values recorded
+    private long sum; // Sum of the values recorded
+    private long min = Long.MAX_VALUE; // Smallest value recorded
+    private long max; // Largest value recorded
+
+    // Records one latency in nanoseconds
+    public void record(long nanos) {
+        long value = Math.max(0, Math.min(nanos, MAX_VALUE));
+        counts[bucketOf(value)]++;
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    // Adds the values of another histogram (one per thread, merged at the end)
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    // Returns the value at a percentile (0 to 100), accurate to the width of its bucket
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), max);
+            }
+        }
+        return max;
+    }
+
+    // Getters to access the totals of the histogram
+    public long getCount() { return count; }
+    public long getMin() { return count == 0 ? 0 : min; }
+    public long getMax() { return max; }
+    public long getSum() { return sum; }
+    public double getMean() { return count == 0 ? 0 : (double) sum / count; }
+
+    // Returns the bucket of a value
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1); // Drops all but the top 7 bits
+        return SUB_BUCKETS + (shift - 1) * HALF + (int) (value >>> shift) - HALF;
+    }
+
+    // Returns the largest value counted in a bucket
+    private static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int shift = (bucket - SUB_BUCKETS) / HALF + 1;
+        long top = (bucket - SUB_BUCKETS) % HALF + HALF;
+        return ((top + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,328 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Synthetic players that load a game server over loopback
+ *
+ * For each concurrency level the generator opens enough connections for
+ * that many simultaneous games, one virtual thread per player, and every
+ * player plays a number of whole games in a row: roll, a placement chosen
+ * by a ComputerPlayer and checked with Validation.isValidPlacement before
+ * it is sent, the displaced stone after six of a kind, and the final
+ * scores, which every player of a game must agree on. Each player mirrors
+ * its game on a KiviEngine seeded from START, as GameBoard does online.
+ *
+ * The latency of a request is the time from sending it to receiving the
+ * server's answer to it, recorded in a LatencyHistogram per player and
+ * merged per level. Without --port the server runs in this process on a
+ * free loopback port, so the whole test needs one machine.
+ *
+ * With --against=DIFFICULTY every level also runs as many games against
+ * the server's computer players of that difficulty alongside, to see how
+ * their searches affect the human games (only those are measured).
+ *
+ * Usage: java LoadGenerator [--levels=10,100,500,1000] [--players=N] [--rounds=N] [--difficulty=Easy]
+ *                           [--against=Hard] [--host=HOST --port=N] [--seed=N]
+ *
+ * @author Group 4
+ */
+public class LoadGenerator {
+    private static final int[] DEFAULT_LEVELS = {10, 100, 500, 1000}; // Simultaneous games of each level
+    private static final int DEFAULT_ROUNDS = 3; // Games each player plays per level
+
+    private final String host; // Host of the server
+    private final int port; // Port of the server
+    private final int players; // Players per game
+    private final int rounds; // Games each player plays per level
+    private final String difficulty; // Difficulty of the ComputerPlayer choosing the moves
+    private final int against; // Difficulty code of the server's computer players in the background games, or -1
+    private final long seed; // Seed of the players' move choices
+
+    // Constructor sets up a generator for a running server
+    public LoadGenerator(String host, int port, int players, int rounds, String difficulty, int against, long seed) {
+        this.host = host;
+        this.port = port;
+        this.players = players;
+        this.rounds = rounds;
+        this.difficulty = difficulty;
+        this.against = against;
+        this.seed = seed;
+    }
+
+    // Entry point: java LoadGenerator [--levels=...] [--players=N] [--rounds=N] [--difficulty=D] [--against=D] [--host=H --port=N] [--seed=N]
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int[] levels = DEFAULT_LEVELS;
+        int players = 2;
+        int rounds = DEFAULT_ROUNDS;
+        String difficulty = "Easy";
+        int against = -1;
+        String host = "127.0.0.1";
+        int port = -1;
+        long seed = System.nanoTime();
+        try {
+            for (String arg : args) {
+                if (arg.startsWith("--levels=")) {
+                    levels = Arrays.stream(arg.substring(9).split(",")).mapToInt(Integer::parseInt).toArray();
+                } else if (arg.startsWith("--players=")) {
+                    players = Integer.parseInt(arg.substring(10));
+                } else if (arg.startsWith("--rounds=")) {
+                    rounds = Integer.parseInt(arg.substring(9));
+                } else if (arg.startsWith("--difficulty=")) {
+                    difficulty = arg.substring(13);
+                } else if (arg.startsWith("--against=")) {
+                    against = Arrays.asList(GameProtocol.DIFFICULTIES).indexOf(arg.substring(10));
+                    if (against < 0) {
+                        throw new IllegalArgumentException(arg);
+                    }
+                } else if (arg.startsWith("--host=")) {
+                    host = arg.substring(7);
+                } else if (arg.startsWith("--port=")) {
+                    port = Integer.parseInt(arg.substring(7));
+                } else if (arg.startsWith("--seed=")) {
+                    seed = Long.parseLong(arg.substring(7));
+                } else {
+                    throw new IllegalArgumentException(arg);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Bad argument: " + e.getMessage());
+            System.err.println("Usage: java LoadGenerator [--levels=10,100,500,1000] [--players=N] [--rounds=N] "
+                    + "[--difficulty=Easy|Hard|Expert|Master] [--against=Easy|Hard|Expert|Master] [--host=HOST --port=N] [--seed=N]");
+            return;
+        }
+        if (players < 2 || players > Board.MAX_PLAYERS) {
+            System.err.println("A game has 2 to " + Board.MAX_PLAYERS + " players");
+            return;
+        }
+
+        GameServer server = null;
+        Thread serverThread = null;
+        if (port < 0) { // Run the server in this process
+            server = new GameServer(new InetSocketAddress(host, 0), seed);
+            serverThread = new Thread(server, "kivi-server");
+            serverThread.start();
+            port = server.getPort();
+        }
+        try {
+            System.out.printf("%d-player games against %s:%d, %d games per player, %s moves%n",
+                    players, host, port, rounds, difficulty);
+            if (against >= 0) {
+                System.out.println("Each level also runs as many games against " + GameProtocol.DIFFICULTIES[against]
+                        + " computer players");
+            }
+            System.out.printf("%8s %8s %9s %10s %8s %8s %8s %8s %9s %9s %7s%n", "games", "clients", "games/s",
+                    "msgs/s", "p50 us", "p90 us", "p99 us", "p99.9 us", "max us", "server us", "errors");
+            LoadGenerator generator = new LoadGenerator(host, port, players, rounds, difficulty, against, seed);
+            for (int level : levels) {
+                long messages = server != null ? server.getMessageCount() : 0;
+                long nanos = server != null ? server.getProcessingNanos() : 0;
+                Level result = generator.runLevel(level);
+                LatencyHistogram latency = result.latency;
+                double serverMicros = server == null ? Double.NaN
+                        : (server.getProcessingNanos() - nanos) / 1e3 / Math.max(1, server.getMessageCount() - messages);
+                System.out.printf("%8d %8d %9.0f %10.0f %8.1f %8.1f %8.1f %8.1f %9.1f %9.2f %7d%n", level,
+                        level * players, result.games / result.seconds, latency.getCount() / result.seconds,
+                        latency.getValueAtPercentile(50) / 1e3, latency.getValueAtPercentile(90) / 1e3,
+                        latency.getValueAtPercentile(99) / 1e3, latency.getValueAtPercentile(99.9) / 1e3,
+                        latency.getMax() / 1e3, serverMicros, result.errors);
+            }
+        } finally {
+            if (server != null) {
+                server.close();
+                serverThread.join();
+            }
+        }
+    }
+
+    // Plays rounds games on each of level * players connections at once and returns the merged results
+    public Level runLevel(int level) throws InterruptedException {
+        Map<Integer, int[]> finalScores = new ConcurrentHashMap<>(); // Scores of each game, as seen by its first player
+        List<Future<Level>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        ExecutorService background = Executors.newVirtualThreadPerTaskExecutor(); // Games against the computer, not measured
+        try {
+            for (int i = 0; against >= 0 && i < level; i++) {
+                Random random = new Random(seed - i * 0x9E3779B97F4A7C15L);
+                background.submit(() -> new SyntheticPlayer(random, new ConcurrentHashMap<>(), true).play());
+            }
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < level * players; i++) {
+                    Random random = new Random(seed + i * 0x9E3779B97F4A7C15L);
+                    futures.add(executor.submit(() -> new SyntheticPlayer(random, finalScores, false).play()));
+                }
+            } // Waits for every measured player
+        } finally {
+            background.shutdownNow(); // An interrupted player's connection closes, which ends its game on the server
+        }
+        Level total = new Level();
+        for (Future<Level> future : futures) {
+            try {
+                total.add(future.get());
+            } catch (Exception e) {
+                e.printStackTrace();
+                total.errors++;
+            }
+        }
+        total.games = finalScores.size();
+        total.seconds = (System.nanoTime() - start) / 1e9;
+        return total;
+    }
+
+    // Results of one level (or of one player, before they are merged)
+    public static class Level {
+        private final LatencyHistogram latency = new LatencyHistogram(); // Request to answer latencies
+        private long games; // Games finished
+        private long errors; // Rejected requests, lost connections and games whose players disagree
+        private double seconds; // Time the level took
+
+        // Adds the results of one player
+        void add(Level other) {
+            latency.add(other.latency);
+            errors += other.errors;
+        }
+
+        // Getters to access the results
+        public LatencyHistogram getLatency() { return latency; }
+        public long getGames() { return games; }
+        public long getErrors() { return errors; }
+        public double getSeconds() { return seconds; }
+    }
+
+    // One connection playing whole games with ComputerPlayer moves
+    private class SyntheticPlayer implements GameClient.Listener {
+        private final Random random; // Random numbers of the Easy moves
+        private final Map<Integer, int[]> finalScores; // Scores of each game, shared by every player
+        private final boolean againstComputer; // Whether the other seats are the server's computer players
+        private final Level result = new Level(); // This player's latencies and errors
+        private KiviEngine engine; // Mirror of the game being played
+        private int seat; // This player's number in the game
+        private long sentAt; // System.nanoTime() of the request waiting for an answer, or 0
+        private boolean left; // Whether another player left the game
+
+        // Constructor sets up a player
+        SyntheticPlayer(Random random, Map<Integer, int[]> finalScores, boolean againstComputer) {
+            this.random = random;
+            this.finalScores = finalScores;
+            this.againstComputer = againstComputer;
+        }
+
+        // Plays the rounds on one connection (games against the computer until interrupted) and returns the results
+        Level play() throws IOException {
+            try (GameClient client = GameClient.connect(host, port)) {
+                for (int round = 0; (againstComputer || round < rounds) && !left; round++) {
+                    if (againstComputer) {
+                        client.joinComputerGame(players, against);
+                    } else {
+                        client.join(players);
+                    }
+                    client.awaitStart();
+                    playGame(client);
+                }
+            }
+            return result;
+        }
+
+        // Plays one game to the end and checks that its players agree on the scores
+        private void playGame(GameClient client) throws IOException {
+            engine = new KiviEngine(client.getPlayerCount(), client.getSeed());
+            seat = client.getSeat();
+            ComputerPlayer computer = new ComputerPlayer(difficulty, seat, players);
+            computer.setTimeBudgetMillis(0);
+            computer.setMaxDepth(1);
+            computer.setParallel(false); // Every player already has its own thread
+            computer.setRandom(random);
+            sentAt = 0;
+            while (!engine.isGameOver() && !left) {
+                if (sentAt == 0 && engine.getCurrentPlayer() == seat) {
+                    sendRequest(client, computer);
+                }
+                client.dispatch(this);
+            }
+            if (left) return;
+            int[] scores = engine.getScores();
+            int[] seen = finalScores.putIfAbsent(client.getGameId(), scores);
+            if (seen != null && !Arrays.equals(seen, scores)) {
+                result.errors++;
+            }
+        }
+
+        // Sends the next request of this player's turn, the way ComputerPlayer would play it
+        private void sendRequest(GameClient client, ComputerPlayer computer) throws IOException {
+            if (engine.hasDisplacedStone()) {
+                int[] move = computer.placeDisplacedStone(engine.getBoard());
+                if (move == null) {
+                    throw new IllegalStateException("No free cell for the displaced stone");
+                }
+                sentAt = System.nanoTime();
+                client.sendPlace(Board.cellIndex(move[0], move[1]));
+            } else if (!engine.hasRolled()) {
+                sentAt = System.nanoTime();
+                client.sendRoll();
+            } else {
+                int[] move = computer.determineMove(engine.getBoardCombinations(), engine.getBoard(),
+                        engine.getBoardPoints(), engine.getValidation(), engine.getTurnsRemaining());
+                boolean valid = move != null && engine.getValidation().isValidPlacement(
+                        engine.getBoardCombinations()[move[0]][move[1]], engine.getBoard().getStone(move[0], move[1]) != 0);
+                sentAt = System.nanoTime(); // The time the computer spent choosing is not part of the latency
+                if (valid) {
+                    client.sendPlace(Board.cellIndex(move[0], move[1]));
+                } else {
+                    client.sendSkip(); // No valid move: the turn is skipped
+                }
+            }
+        }
+
+        // Records the latency of this player's request once the server answers it
+        private void answered(int player) {
+            if (player == seat && sentAt != 0) {
+                result.latency.record(System.nanoTime() - sentAt);
+                sentAt = 0;
+            }
+        }
+
+        @Override
+        public void rolled(int player, int[] dice) {
+            engine.roll(dice);
+            answered(player);
+        }
+
+        @Override
+        public void placed(int player, int cell) {
+            engine.place(Board.rowOf(cell), Board.colOf(cell));
+            answered(player);
+        }
+
+        @Override
+        public void skipped(int player) {
+            engine.skip();
+            answered(player);
+        }
+
+        @Override
+        public void rejected(int code) {
+            result.errors++; // Every request was checked first, so the server should accept it
+            answered(seat);
+        }
+
+        @Override
+        public void playerLeft(int player) {
+            result.errors++;
+            left = true;
+        }
+
+        @Override
+        public void disconnected(IOException error) {
+            result.errors++;
+            left = true;
+        }
+    }
+}
@@ -2,9 +2,9 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.ObjectInputStream;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Sets up Main Menu for game mode and settings
@@ -54,6 +54,13 @@ public class MainMenu {
             }
         });
         resumeGameButton.setEnabled(checkForSavedGame());
+        JButton joinGameButton = new JButton("Join Online Game"); // Button to play through a game server
+        joinGameButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                joinOnlineGame(); // Connect and wait for the other players
+            }
+        });
 
         panel = new JPanel(new GridBagLayout()); // Panel for main menu layout
         GridBagConstraints position = new GridBagConstraints(); // Constraints for layout manager
@@ -62,6 +69,8 @@ public class MainMenu {
         panel.add(newGameButton, position); // Add new game button to panel
         position.gridy = 1; // Move to next row
         panel.add(resumeGameButton, position); // Add resume game button to panel
+        position.gridy = 2; // Move to next row
+        panel.add(joinGameButton, position); // Add join game button to panel
     }
 
     // Getter method to retrieve the main menu panel
@@ -70,18 +79,21 @@ public class MainMenu {
     }
 
     private boolean checkForSavedGame() {
-        File saveFile = new File("SavedKiviGame.ser");
-        return saveFile.exists();
+        DiskWriter.awaitQueued(); // A game that just ended may still be deleting its autosave
+        return GameJournal.canResume(Paths.get(GameStateCodec.SAVE_FILE), Paths.get(GameJournal.AUTOSAVE_FILE));
     }
 
     private void resumeGame() {
-        try (FileInputStream fileIn = new FileInputStream("SavedKiviGame.ser");
-             ObjectInputStream in = new ObjectInputStream(fileIn)) {
-            GameState savedState = (GameState) in.readObject();
+        try {
+            long start = System.nanoTime();
+            DiskWriter.awaitQueued(); // Reads the files only once the queued saves are written
+            GameState savedState = GameJournal.recoverNewest(Paths.get(GameStateCodec.SAVE_FILE),
+                    Paths.get(GameJournal.AUTOSAVE_FILE), Paths.get(GameJournal.JOURNAL_FILE)); // Manual save or autosave, whichever is newer
             frame.getContentPane().removeAll();
             new GameBoard(frame, savedState.getPlayerCount(), savedState.hasComputerPlayer(),
                     savedState.getComputerDifficulty(), savedState.isMonochrome(), savedState.isProtanopia(),
                     savedState.isTritanopia(), savedState);
+            Metrics.RESUME_TIME.recordSince(start);
             frame.revalidate();
             frame.repaint();
         } catch (Exception e) {
@@ -90,6 +102,84 @@ public class MainMenu {
         }
     }
 
+    // Connects to a game server and starts the game once enough players have joined
+    private void joinOnlineGame() {
+        String address = JOptionPane.showInputDialog(frame, "Game server (host:port):", "localhost:" + GameProtocol.DEFAULT_PORT);
+        if (address == null) return; // Cancelled
+        String[] playerOptions = {"2 Players", "3 Players", "4 Players"}; // Options for number of players
+        Object players = JOptionPane.showInputDialog(frame, "Number of Players:", "Join Online Game",
+                JOptionPane.QUESTION_MESSAGE, null, playerOptions, playerOptions[0]);
+        if (players == null) return; // Cancelled
+        int size = Arrays.asList(playerOptions).indexOf(players) + 2;
+
+        String host = address.trim();
+        int port = GameProtocol.DEFAULT_PORT;
+        int colon = host.lastIndexOf(':');
+        try {
+            if (colon >= 0) {
+                port = Integer.parseInt(host.substring(colon + 1));
+                host = host.substring(0, colon);
+            }
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(frame, "Invalid port: " + address, "Join Online Game", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        // Connect and wait on a background thread so the window stays responsive
+        JDialog waitingDialog = new JDialog(frame, "Join Online Game", false);
+        String serverHost = host;
+        int serverPort = port;
+        SwingWorker<GameClient, Void> join = new SwingWorker<GameClient, Void>() {
+            @Override
+            protected GameClient doInBackground() throws Exception {
+                GameClient client = GameClient.connect(serverHost, serverPort);
+                try {
+                    client.join(size);
+                    client.awaitStart(); // Until the other players have joined
+                    return client;
+                } catch (Exception e) {
+                    client.close();
+                    throw e;
+                }
+            }
+
+            @Override
+            protected void done() {
+                waitingDialog.dispose();
+                if (isCancelled()) return;
+                try {
+                    GameClient client = get();
+                    frame.getContentPane().removeAll();
+                    new GameBoard(frame, client, false, false, false);
+                    frame.revalidate();
+                    frame.repaint();
+                } catch (InterruptedException | ExecutionException e) {
+                    e.printStackTrace();
+                    JOptionPane.showMessageDialog(frame, "Could not join an online game: " + e.getCause().getMessage(),
+                            "Join Online Game", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+
+        JButton cancelButton = new JButton("Cancel"); // Interrupting the wait closes the connection
+        cancelButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                join.cancel(true);
+            }
+        });
+        JPanel waitingPanel = new JPanel(new BorderLayout(10, 10));
+        waitingPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        waitingPanel.add(new JLabel("Waiting for " + size + " players on " + serverHost + ":" + serverPort + "..."), BorderLayout.CENTER);
+        waitingPanel.add(cancelButton, BorderLayout.SOUTH);
+        waitingDialog.add(waitingPanel);
+        waitingDialog.setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
+        waitingDialog.pack();
+        waitingDialog.setLocationRelativeTo(frame);
+        join.execute();
+        waitingDialog.setVisible(true);
+    }
+
     // Shows the game setup dialog for configuring game settings
     private void showGameSetupDialog() {
         JDialog setupDialog = new JDialog(frame, "Kivi Game Setup", true); // Modal dialog for game setup
@@ -121,8 +211,9 @@ public class MainMenu {
                 hasComputerPlayer = withComputerRadio.isSelected();
 
                 // Set computer difficulty (only if computer player is selected)
+                String[] difficulties = {"Easy", "Hard", "Expert", "Master"};
                 computerDifficulty = hasComputerPlayer ? 
-                        (difficultyComboBox.getSelectedIndex() == 0 ? "Easy" : "Hard") : null;
+                        difficulties[difficultyComboBox.getSelectedIndex()] : null;
 
                 // Set monochromatic mode
                 protanopia = (monoComboBox.getSelectedIndex() == 1);
@@ -181,7 +272,7 @@ public class MainMenu {
     // Method to add Computer Difficulty selection to the setup dialog
     private JComboBox<String> showComputerDifficultyDialog(JDialog setupDialog, GridBagConstraints gbc, JRadioButton withComputerRadio) {
         JLabel difficultyLabel = new JLabel("Computer Difficulty:"); // Label for difficulty selection
-        String[] difficultyOptions = {"Easy Mode", "Hard Mode"}; // Options for difficulty
+        String[] difficultyOptions = {"Easy Mode", "Hard Mode", "Expert Mode", "Master Mode"}; // Options for difficulty
         JComboBox<String> difficultyComboBox = new JComboBox<>(difficultyOptions); // Combo box for difficulty selection
         difficultyComboBox.setEnabled(false); // Disable combo box initially
         gbc.gridx = 0;
@@ -0,0 +1,354 @@
+import com.sun.net.httpserver.HttpServer;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry of the game's runtime metrics
+ *
+ * Counters are LongAdders, so threads counting at once do not contend.
+ * Distributions (latencies, node counts) are LatencyHistograms striped by
+ * thread: a value goes into one of a few histograms chosen by the thread
+ * id, under that stripe's lock only, and the stripes are added together
+ * when the metrics are read. Recording is a few nanoseconds, and the
+ * instrumented calls take microseconds or more; running with
+ * -Dkivi.metrics=false turns every recording into nothing.
+ *
+ * The metrics can be read three ways once export() is called: as JMX
+ * MBeans under "kivi:type=Metrics", as Prometheus text written every few
+ * seconds to the file named by -Dkivi.metrics.file, or as Prometheus text
+ * served at /metrics on the local port named by -Dkivi.metrics.port.
+ *
+ * @author Group 4
+ */
+public class Metrics {
+    public static final boolean ENABLED = !"false".equals(System.getProperty("kivi.metrics")); // Whether values are recorded
+    private static final double NANOS_TO_SECONDS = 1e-9; // Scale of a latency exported in seconds
+    private static final int STRIPES = 8; // Histograms per distribution (a power of two)
+    private static final long FILE_INTERVAL = 10; // Seconds between writes of the metrics file
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99}; // Quantiles exported for each distribution
+    private static final Map<String, Metric> REGISTRY = new ConcurrentHashMap<>(); // Every metric by name and labels
+    private static volatile boolean exported; // Whether export() has run, so new metrics get their MBeans at once
+
+    public static final Counter PLACEMENT_CHECKS = counter("kivi_placement_checks_total", "",
+            "Placements checked against the dice by Validation.isValidPlacement");
+    public static final Distribution SCORING_TIME = latency("kivi_scoring_seconds", "",
+            "Time a game took to place, displace or undo a stone and update its running scores");
+    public static final Distribution SAVE_TIME = latency("kivi_save_game_seconds", "",
+            "Time saving a game took");
+    public static final Distribution RESUME_TIME = latency("kivi_resume_game_seconds", "",
+            "Time resuming a saved game took, including replaying its journal");
+    public static final Distribution TURN_TIME = latency("kivi_turn_seconds", "",
+            "Time from the start of one turn to the start of the next on a game board");
+
+    // Returns the counter with a name and labels, registering it on first use
+    public static Counter counter(String name, String labels, String help) {
+        Metric metric = REGISTRY.get(key(name, labels));
+        return metric != null ? (Counter) metric : register(new Counter(name, labels, help), Counter.class);
+    }
+
+    // Returns the distribution of latencies (recorded in nanoseconds, exported in seconds), registering it on first use
+    public static Distribution latency(String name, String labels, String help) {
+        Metric metric = REGISTRY.get(key(name, labels));
+        return metric != null ? (Distribution) metric
+                : register(new Distribution(name, labels, help, NANOS_TO_SECONDS), Distribution.class);
+    }
+
+    // Returns the distribution of plain values, registering it on first use
+    public static Distribution distribution(String name, String labels, String help) {
+        Metric metric = REGISTRY.get(key(name, labels));
+        return metric != null ? (Distribution) metric : register(new Distribution(name, labels, help, 1), Distribution.class);
+    }
+
+    // Returns the label text for one label, for the labels argument of a metric
+    public static String label(String name, String value) {
+        return name + "=\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    // Registers the MBeans and starts the file and port exporters asked for by the system properties
+    public static synchronized void export() {
+        if (exported) return;
+        exported = true;
+        registerMBeans();
+        String file = System.getProperty("kivi.metrics.file");
+        if (file != null) {
+            startFileExport(Paths.get(file), FILE_INTERVAL);
+        }
+        String port = System.getProperty("kivi.metrics.port");
+        if (port != null) {
+            try {
+                startHttpExport(Integer.parseInt(port));
+            } catch (IOException | NumberFormatException e) {
+                e.printStackTrace(); // The game runs on without the metrics port
+            }
+        }
+    }
+
+    // Registers an MBean for every metric that is not registered yet
+    public static synchronized void registerMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (Metric metric : REGISTRY.values()) {
+            registerMBean(server, metric);
+        }
+    }
+
+    // Registers the MBean of one metric unless it is registered already
+    private static void registerMBean(MBeanServer server, Metric metric) {
+        try {
+            ObjectName name = metric.objectName();
+            if (!server.isRegistered(name)) {
+                server.registerMBean(metric, name);
+            }
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Writes the metrics to a file every interval seconds, replacing the file in one move so readers never see half of it
+    public static void startFileExport(Path file, long intervalSeconds) {
+        ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-file");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.scheduleWithFixedDelay(() -> {
+            try {
+                Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+                Files.writeString(temporary, prometheusText(), StandardCharsets.UTF_8);
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }, 0, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    // Serves the metrics at /metrics on a port of the loopback address and returns the server
+    public static HttpServer startHttpExport(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> {
+            byte[] body = prometheusText().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        Thread.ofPlatform().daemon().name("metrics-http").start(server::start); // Its dispatcher inherits the daemon flag
+        return server;
+    }
+
+    // Returns every metric in the Prometheus text format
+    public static String prometheusText() {
+        List<Metric> metrics = new ArrayList<>(REGISTRY.values());
+        metrics.sort(Comparator.comparing((Metric metric) -> metric.name).thenComparing(metric -> metric.labels));
+        StringBuilder text = new StringBuilder();
+        String previousName = null;
+        for (Metric metric : metrics) {
+            if (!metric.name.equals(previousName)) { // Help and type once per metric name
+                text.append("# HELP ").append(metric.name).append(' ').append(metric.help).append('\n');
+                text.append("# TYPE ").append(metric.name).append(' ').append(metric.type()).append('\n');
+                previousName = metric.name;
+            }
+            metric.appendSamples(text);
+        }
+        return text.toString();
+    }
+
+    // Adds a new metric, or returns the one another thread added first; a metric added after export() gets its MBean
+    private static synchronized <T extends Metric> T register(T metric, Class<T> type) {
+        Metric existing = REGISTRY.putIfAbsent(key(metric.name, metric.labels), metric);
+        if (existing != null) {
+            return type.cast(existing);
+        }
+        if (exported) {
+            registerMBean(ManagementFactory.getPlatformMBeanServer(), metric);
+        }
+        return metric;
+    }
+
+    // Returns the registry key of a metric
+    private static String key(String name, String labels) {
+        return name + '{' + labels + '}';
+    }
+
+    // Appends one sample line in the Prometheus text format
+    private static void appendSample(StringBuilder text, String name, String labels, String extraLabel, double value) {
+        text.append(name);
+        if (!labels.isEmpty() || extraLabel != null) {
+            text.append('{').append(labels);
+            if (extraLabel != null) {
+                text.append(labels.isEmpty() ? "" : ",").append(extraLabel);
+            }
+            text.append('}');
+        }
+        text.append(' ');
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            text.append((long) value);
+        } else {
+            text.append(value);
+        }
+        text.append('\n');
+    }
+
+    // Attributes shared by every metric
+    private abstract static class Metric {
+        final String name; // Prometheus name
+        final String labels; // Prometheus labels without braces, or ""
+        final String help; // One-line description
+
+        // Constructor sets up a named metric
+        Metric(String name, String labels, String help) {
+            this.name = name;
+            this.labels = labels;
+            this.help = help;
+        }
+
+        // Returns the Prometheus type of the metric
+        abstract String type();
+
+        // Appends the samples of the metric in the Prometheus text format
+        abstract void appendSamples(StringBuilder text);
+
+        // Returns the JMX name of the metric
+        ObjectName objectName() throws JMException {
+            String suffix = labels.isEmpty() ? "" : "," + labels.replace("\"", "");
+            return new ObjectName("kivi:type=Metrics,name=" + name + suffix);
+        }
+    }
+
+    // JMX view of a counter
+    public interface CounterMXBean {
+        long getCount();
+    }
+
+    // JMX view of a distribution, in the unit it is recorded in
+    public interface DistributionMXBean {
+        long getCount();
+        double getMean();
+        long getMin();
+        long getMax();
+        long getP50();
+        long getP90();
+        long getP99();
+    }
+
+    // Counts events
+    public static class Counter extends Metric implements CounterMXBean {
+        private final LongAdder count = new LongAdder(); // Events counted
+
+        // Constructor sets up a counter at zero
+        Counter(String name, String labels, String help) {
+            super(name, labels, help);
+        }
+
+        // Counts one event
+        public void increment() {
+            if (ENABLED) {
+                count.increment();
+            }
+        }
+
+        // Returns the events counted
+        @Override
+        public long getCount() {
+            return count.sum();
+        }
+
+        @Override
+        String type() {
+            return "counter";
+        }
+
+        @Override
+        void appendSamples(StringBuilder text) {
+            appendSample(text, name, labels, null, count.sum());
+        }
+    }
+
+    // Counts values in log-linear buckets, one histogram per stripe of threads
+    public static class Distribution extends Metric implements DistributionMXBean {
+        private final LatencyHistogram[] stripes = new LatencyHistogram[STRIPES]; // Histograms the threads record into
+        private final double scale; // Factor from a recorded value to its exported unit
+
+        // Constructor sets up an empty distribution
+        Distribution(String name, String labels, String help, double scale) {
+            super(name, labels, help);
+            this.scale = scale;
+            for (int i = 0; i < STRIPES; i++) {
+                stripes[i] = new LatencyHistogram();
+            }
+        }
+
+        // Records one value (nanoseconds for a latency)
+        public void record(long value) {
+            if (!ENABLED) return;
+            LatencyHistogram stripe = stripes[(int) Thread.currentThread().threadId() & (STRIPES - 1)];
+            synchronized (stripe) {
+                stripe.record(value);
+            }
+        }
+
+        // Records the time since a System.nanoTime() reading
+        public void recordSince(long startNanos) {
+            if (ENABLED) {
+                record(System.nanoTime() - startNanos);
+            }
+        }
+
+        // Returns the values of every stripe added together
+        public LatencyHistogram snapshot() {
+            LatencyHistogram total = new LatencyHistogram();
+            for (LatencyHistogram stripe : stripes) {
+                synchronized (stripe) {
+                    total.add(stripe);
+                }
+            }
+            return total;
+        }
+
+        // Getters for the JMX view
+        @Override public long getCount() { return snapshot().getCount(); }
+        @Override public double getMean() { return snapshot().getMean(); }
+        @Override public long getMin() { return snapshot().getMin(); }
+        @Override public long getMax() { return snapshot().getMax(); }
+        @Override public long getP50() { return snapshot().getValueAtPercentile(50); }
+        @Override public long getP90() { return snapshot().getValueAtPercentile(90); }
+        @Override public long getP99() { return snapshot().getValueAtPercentile(99); }
+
+        @Override
+        String type() {
+            return "summary";
+        }
+
+        @Override
+        void appendSamples(StringBuilder text) {
+            LatencyHistogram histogram = snapshot();
+            for (double quantile : QUANTILES) {
+                appendSample(text, name, labels, "quantile=\"" + quantile + "\"",
+                        histogram.getValueAtPercentile(quantile * 100) * scale);
+            }
+            appendSample(text, name + "_sum", labels, null, histogram.getSum() * scale);
+            appendSample(text, name + "_count", labels, null, histogram.getCount());
+        }
+    }
+}
@@ -0,0 +1,357 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Alpha-beta minimax search used by the Hard computer player
+ *
+ * One instance belongs to one worker thread and owns its board copy, its
+ * move buffers and the tables used to order moves: the principal variation
+ * of the previous iteration, two killer moves per ply and a history score
+ * per cell. Good ordering lets alpha-beta cut off most of the tree. Results
+ * are shared with the other workers through a transposition table, so a
+ * position reached by a different move order is only searched once.
+ *
+ * @author Group 4
+ */
+public class MinimaxSearch {
+    private static final int GRID_SIZE = Board.GRID_SIZE; // Size of the game grid
+    public static final int MAX_PLY = Board.CELL_COUNT + 1; // Deepest ply a search can reach (and longest principal variation)
+    private static final int CHECK_INTERVAL = 1023; // Nodes between deadline checks (power of two minus one)
+    private static final int PV_BONUS = 1 << 30; // Ordering bonus for the principal variation move
+    private static final int TABLE_MOVE_BONUS = 1 << 29; // Ordering bonus for the transposition table move
+    private static final int KILLER_BONUS = 1 << 28; // Ordering bonus for the first killer move
+    private static final int SECOND_KILLER_BONUS = 1 << 27; // Ordering bonus for the second killer move
+    private static final int HISTORY_LIMIT = 1 << 20; // History scores are halved once they reach this
+    private static final int POTENTIAL_WEIGHT = 4; // Weight of an empty cell's points times the odds of rolling it
+
+    private final int[][] boardPoints; // Points for each grid cell
+    private final int playerId; // Stone number of the computer player
+    private final int opponentId; // Stone number of the player who moves next
+    private final TranspositionTable table; // Results shared by every worker (null for none)
+    private final int[] cellReach; // Odds (per mille) of a roll reaching each free cell, or null to count points only
+    private final Board board = new Board(); // Board the search makes and unmakes moves on
+    private final int[][] moves = new int[MAX_PLY][Board.CELL_COUNT]; // Candidate cells per ply
+    private final int[][] orderKeys = new int[MAX_PLY][Board.CELL_COUNT]; // Ordering key of each candidate
+    private final int[][] killers = new int[MAX_PLY][2]; // Last two moves that caused a cutoff per ply
+    private final int[][] history = new int[2][Board.CELL_COUNT]; // Cutoff history per side and cell
+    private final int[][] pvTable = new int[MAX_PLY][MAX_PLY]; // Triangular principal variation table
+    private final int[] pvLength = new int[MAX_PLY]; // Length of the principal variation from each ply
+    private int[] previousPv; // Principal variation to try first
+    private int previousPvLength; // Moves in the principal variation to try first
+    private boolean followingPv; // Whether the current path is still on the previous principal variation
+    private AtomicInteger sharedBest; // Best root score found by any worker
+    private int gain; // Points the root move scored immediately
+    private long deadline; // System.nanoTime() at which the search stops
+    private boolean timedOut; // Whether the search ran past the deadline
+    private long nodes; // Nodes visited since the last reset
+    private long cutoffs; // Alpha-beta cutoffs since the last reset
+
+    // Constructor sets up a search for one computer player without a transposition table
+    public MinimaxSearch(int[][] boardPoints, int playerId, int opponentId) {
+        this(boardPoints, playerId, opponentId, null);
+    }
+
+    // Constructor sets up a search for one computer player that shares a transposition table
+    public MinimaxSearch(int[][] boardPoints, int playerId, int opponentId, TranspositionTable table) {
+        this(boardPoints, null, playerId, opponentId, table);
+    }
+
+    // Constructor for a search that weighs empty cells by the odds of rolling them (see CombinationOdds.cellReach)
+    public MinimaxSearch(int[][] boardPoints, int[] cellReach, int playerId, int opponentId, TranspositionTable table) {
+        this.boardPoints = boardPoints;
+        this.cellReach = cellReach;
+        this.playerId = playerId;
+        this.opponentId = opponentId;
+        this.table = table;
+    }
+
+    // Clears the move ordering tables before a new decision
+    public void newDecision() {
+        for (int[] killer : killers) {
+            killer[0] = -1;
+            killer[1] = -1;
+        }
+        for (int[] side : history) {
+            for (int cell = 0; cell < side.length; cell++) {
+                side[cell] >>= 1; // Age the history so old cutoffs count less
+            }
+        }
+        nodes = 0;
+        cutoffs = 0;
+    }
+
+    // Searches the position after one root move of the computer and returns its score
+    public int searchRootMove(Board position, int rootCell, int rootGain, int depth, int[] pv, int pvLength,
+                              AtomicInteger best, long stopTime) {
+        board.copyFrom(position);
+        board.place(rootCell, playerId); // Computer's stone
+        previousPv = pv;
+        previousPvLength = pv != null ? pvLength : 0;
+        followingPv = true;
+        sharedBest = best;
+        gain = rootGain;
+        deadline = stopTime;
+        timedOut = false;
+        return minimax(depth, 0, false, Integer.MIN_VALUE, Integer.MAX_VALUE) + rootGain;
+    }
+
+    // Copies the principal variation below the last searched root move into a buffer and returns its length
+    public int getPrincipalVariation(int[] buffer) {
+        System.arraycopy(pvTable[0], 0, buffer, 0, pvLength[0]);
+        return pvLength[0];
+    }
+
+    // Checks if the last search ran past the deadline
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    // Returns the number of nodes visited since the last decision started
+    public long getNodes() {
+        return nodes;
+    }
+
+    // Returns the number of alpha-beta cutoffs since the last decision started
+    public long getCutoffs() {
+        return cutoffs;
+    }
+
+    // Returns the board points the search was built for
+    public int[][] getBoardPoints() {
+        return boardPoints;
+    }
+
+    // Returns the stone number of the player the search plays for
+    public int getPlayerId() {
+        return playerId;
+    }
+
+    // Minimax algorithm with alpha-beta pruning
+    private int minimax(int depth, int ply, boolean isMaximizing, int alpha, int beta) {
+        if ((++nodes & CHECK_INTERVAL) == 0 && System.nanoTime() > deadline) {
+            timedOut = true;
+        }
+        if (timedOut) return 0;
+        pvLength[ply] = 0;
+
+        // Only scores strictly better than the best root move matter, so the shared bound can raise alpha
+        int rootBest = sharedBest.get();
+        if (rootBest != Integer.MIN_VALUE) {
+            alpha = Math.max(alpha, rootBest - gain - 1);
+        }
+
+        // Terminal condition: reached the search depth or no more available moves
+        long emptyCells = board.getEmpty();
+        if (depth == 0 || emptyCells == 0) {
+            return evaluateBoard();
+        }
+
+        // Reuse a stored result of the same depth; deeper results are skipped so the score stays the same as without the table
+        long key = board.getZobristKey() ^ (isMaximizing ? 0 : Board.SIDE_TO_MOVE_KEY);
+        int tableMove = TranspositionTable.NO_MOVE;
+        if (table != null) {
+            long entry = table.probe(key);
+            if (entry != TranspositionTable.MISS) {
+                tableMove = TranspositionTable.moveOf(entry);
+                if (TranspositionTable.depthOf(entry) == depth) {
+                    int stored = TranspositionTable.scoreOf(entry);
+                    int bound = TranspositionTable.boundOf(entry);
+                    if (bound == TranspositionTable.EXACT
+                            || (bound == TranspositionTable.LOWER_BOUND && stored >= beta)
+                            || (bound == TranspositionTable.UPPER_BOUND && stored <= alpha)) {
+                        return stored;
+                    }
+                }
+            }
+        }
+
+        int originalAlpha = alpha;
+        int originalBeta = beta;
+        int side = isMaximizing ? 0 : 1;
+        int player = isMaximizing ? playerId : opponentId;
+        int count = orderMoves(ply, side, emptyCells, tableMove);
+        int bestScore = isMaximizing ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+        int bestCell = TranspositionTable.NO_MOVE;
+        for (int i = 0; i < count; i++) {
+            int cell = nextMove(ply, i, count);
+
+            board.place(cell, player); // Make the move
+            int score = minimax(depth - 1, ply + 1, !isMaximizing, alpha, beta);
+            board.remove(cell); // Undo the move
+            followingPv = false; // Only the first move at each ply can continue the previous variation
+            if (timedOut) return 0;
+
+            boolean improved = isMaximizing ? score > bestScore : score < bestScore;
+            if (improved) {
+                bestScore = score;
+                bestCell = cell;
+                updatePrincipalVariation(ply, cell);
+            }
+            if (isMaximizing) {
+                alpha = Math.max(alpha, score);
+            } else {
+                beta = Math.min(beta, score);
+            }
+
+            // Alpha-beta pruning
+            if (beta <= alpha) {
+                cutoffs++;
+                recordCutoff(ply, side, cell, depth);
+                break;
+            }
+        }
+
+        // Store the result as exact, or as a bound if it fell outside the window
+        if (table != null) {
+            rootBest = sharedBest.get(); // Children may have failed low against a bound raised during the loop
+            if (rootBest != Integer.MIN_VALUE) {
+                originalAlpha = Math.max(originalAlpha, rootBest - gain - 1);
+            }
+            int bound = TranspositionTable.EXACT;
+            if (bestScore <= originalAlpha) {
+                bound = TranspositionTable.UPPER_BOUND;
+            } else if (bestScore >= originalBeta) {
+                bound = TranspositionTable.LOWER_BOUND;
+            }
+            table.store(key, depth, bound, bestScore, bestCell);
+        }
+        return bestScore;
+    }
+
+    // Fills the move buffer for a ply with the empty cells and their ordering keys
+    private int orderMoves(int ply, int side, long emptyCells, int tableMove) {
+        int pvCell = followingPv && ply < previousPvLength ? previousPv[ply] : -1;
+        if (pvCell < 0 || (emptyCells & (1L << pvCell)) == 0) {
+            followingPv = false;
+            pvCell = -1;
+        }
+        int count = 0;
+        for (long cells = emptyCells; cells != 0; cells &= cells - 1) {
+            int cell = Long.numberOfTrailingZeros(cells);
+            int key = history[side][cell] * 4 + pointsOf(cell);
+            if (cell == pvCell) {
+                key += PV_BONUS;
+            } else if (cell == tableMove) {
+                key += TABLE_MOVE_BONUS;
+            } else if (cell == killers[ply][0]) {
+                key += KILLER_BONUS;
+            } else if (cell == killers[ply][1]) {
+                key += SECOND_KILLER_BONUS;
+            }
+            moves[ply][count] = cell;
+            orderKeys[ply][count] = key;
+            count++;
+        }
+        return count;
+    }
+
+    // Moves the best remaining candidate of a ply to position i and returns it (selection sort)
+    private int nextMove(int ply, int i, int count) {
+        int[] cells = moves[ply];
+        int[] keys = orderKeys[ply];
+        int best = i;
+        for (int j = i + 1; j < count; j++) {
+            if (keys[j] > keys[best]) best = j;
+        }
+        int cell = cells[best];
+        cells[best] = cells[i];
+        cells[i] = cell;
+        int key = keys[best];
+        keys[best] = keys[i];
+        keys[i] = key;
+        return cell;
+    }
+
+    // Remembers a move that caused a cutoff as a killer and in the history table
+    private void recordCutoff(int ply, int side, int cell, int depth) {
+        if (killers[ply][0] != cell) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = cell;
+        }
+        history[side][cell] += depth * depth;
+        if (history[side][cell] >= HISTORY_LIMIT) {
+            for (int[] scores : history) {
+                for (int c = 0; c < scores.length; c++) {
+                    scores[c] >>= 1;
+                }
+            }
+        }
+    }
+
+    // Stores a new best move at a ply followed by the best line below it
+    private void updatePrincipalVariation(int ply, int cell) {
+        pvTable[ply][0] = cell;
+        int childLength = ply + 1 < MAX_PLY ? pvLength[ply + 1] : 0;
+        if (childLength > 0) {
+            System.arraycopy(pvTable[ply + 1], 0, pvTable[ply], 1, childLength);
+        }
+        pvLength[ply] = childLength + 1;
+    }
+
+    // Evaluate the board state for minimax
+    private int evaluateBoard() {
+        int score = 0;
+
+        // Count points for computer and the next player
+        int computerPoints = 0;
+        int opponentPoints = 0;
+
+        long computerStones = board.getStones(playerId);
+        while (computerStones != 0) { // Computer's stones
+            int cell = Long.numberOfTrailingZeros(computerStones);
+            computerStones &= computerStones - 1;
+            computerPoints += pointsOf(cell);
+
+            // Add bonus for strategic positions
+            score += positionalValue(Board.rowOf(cell), Board.colOf(cell));
+        }
+        long opponentStones = board.getStones(opponentId);
+        while (opponentStones != 0) { // Opponent's stones
+            int cell = Long.numberOfTrailingZeros(opponentStones);
+            opponentStones &= opponentStones - 1;
+            opponentPoints += pointsOf(cell);
+        }
+
+        // Consider the point difference as the main score
+        score += (computerPoints - opponentPoints);
+
+        // Consider potential future moves
+        score += evaluatePotentialMoves();
+
+        return score;
+    }
+
+    // Evaluate potential future moves
+    private int evaluatePotentialMoves() {
+        int score = 0;
+
+        // Check for high-value empty cells that are adjacent to occupied cells
+        long adjacentEmpty = Board.neighbors(board.getOccupied()) & board.getEmpty();
+        while (adjacentEmpty != 0) {
+            int cell = Long.numberOfTrailingZeros(adjacentEmpty);
+            adjacentEmpty &= adjacentEmpty - 1;
+            int cellValue = pointsOf(cell);
+
+            if (cellReach != null) {
+                // An empty cell is worth its points as often as a roll reaches it
+                score += cellValue * cellReach[cell] * POTENTIAL_WEIGHT / CombinationOdds.PER_MILLE;
+            } else if (cellValue >= 3) {
+                // High-value empty cells that are adjacent to occupied cells are valuable
+                score += cellValue;
+            }
+        }
+
+        return score;
+    }
+
+    // Calculate positional value based on position on the board
+    public static int positionalValue(int row, int col) {
+        // Prefer central positions over edge positions
+        int distanceFromCenter = Math.abs(row - GRID_SIZE/2) + Math.abs(col - GRID_SIZE/2);
+        return (GRID_SIZE - distanceFromCenter);
+    }
+
+    // Returns the points of a cell
+    private int pointsOf(int cell) {
+        return boardPoints[Board.rowOf(cell)][Board.colOf(cell)];
+    }
+}
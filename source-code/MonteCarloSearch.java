@@ -0,0 +1,354 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Monte Carlo tree search for the Master computer player
+ *
+ * The tree alternates decision nodes, where a player picks one of the cells
+ * their roll allows (or skips when there is none), with chance nodes, where
+ * the next player rolls. A chance node has one decision child per roll
+ * class of RollDistribution, sampled by probability, and decision nodes
+ * pick their moves by UCT on the share of games the moving player went on
+ * to win. Below the tree every player places random legal stones until the
+ * game ends. Six of a kind is played like five of a kind, as in
+ * ExpectimaxSearch, so no stone is ever displaced inside the search.
+ *
+ * A search object keeps its tree between moves. On the next move it walks
+ * from the old root along its own move and the opponents' moves it finds
+ * on the board, then continues from the node for its new roll, so the
+ * playouts that already went that way are not lost. Root parallelism is
+ * done by the caller: every thread grows its own tree and the root visits
+ * are added up.
+ *
+ * @author Group 4
+ */
+public class MonteCarloSearch {
+    private static final double EXPLORATION = 0.7; // UCT exploration constant for rewards between 0 and 1
+    private static final int SKIP = Board.CELL_COUNT; // Move of a player without a legal cell
+    private static final int CHECK_INTERVAL = 63; // Playouts between deadline checks (power of two minus one)
+    private static final int[] CUMULATIVE_WEIGHTS = cumulativeWeights(); // Ordered rolls up to and including each class
+
+    private final long[] combinationCells; // Mask of cells for each combination
+    private final int[][] boardPoints; // Points for each grid cell
+    private final int playerCount; // Number of players
+    private final int playerId; // Stone number of the computer player
+    private final SplittableRandom random; // Random numbers of this tree's rolls and rollouts
+    private final Board board = new Board(); // Board a playout is played on
+    private final RunScorer scorer; // Scores the end of a playout
+    private final int[] turnsRemaining; // Turns left for each player in a playout
+    private final double[] rewards; // Share of the win of each player at the end of a playout
+    private final List<ChanceNode> path = new ArrayList<>(); // Chance nodes a playout went through
+
+    private final Board rootBoard = new Board(); // Position of the root
+    private final int[] rootTurns; // Turns left for each player at the root
+    private DecisionNode root; // Computer's move at the root position, kept for the next move
+    private int playedMove = -1; // Move the computer played from the root, or -1
+    private final Board walkBoard = new Board(); // Board followed when looking for the next root
+    private long playouts; // Playouts of the last search
+
+    // Constructor sets up a search for one computer player
+    public MonteCarloSearch(long[] combinationCells, int[][] boardPoints, int playerCount, int playerId, long seed) {
+        this.combinationCells = combinationCells;
+        this.boardPoints = boardPoints;
+        this.playerCount = playerCount;
+        this.playerId = playerId;
+        this.random = new SplittableRandom(seed);
+        this.scorer = new RunScorer(boardPoints, playerCount);
+        this.turnsRemaining = new int[playerCount];
+        this.rewards = new double[playerCount];
+        this.rootTurns = new int[playerCount];
+    }
+
+    // Runs playouts from the position until the budget or the deadline is spent; the roll mask must not be six of a kind
+    public void search(Board position, int[] turns, int rollMask, long legalCells, int playoutBudget, long deadline) {
+        DecisionNode reused = turns != null ? findRoot(position, turns, rollMask) : null;
+        rootBoard.copyFrom(position);
+        setTurns(turns);
+        root = reused != null ? reused : new DecisionNode(playerId, legalCells);
+        playedMove = -1;
+        playouts = 0;
+        for (int i = 0; i < playoutBudget; i++) {
+            if ((i & CHECK_INTERVAL) == CHECK_INTERVAL && System.nanoTime() > deadline) break;
+            playout();
+            playouts++;
+        }
+    }
+
+    // Returns the number of playouts through a root move (a cell, or SKIP)
+    public int getRootVisits(int move) {
+        ChanceNode child = root == null ? null : root.childFor(move);
+        return child == null ? 0 : child.visits;
+    }
+
+    // Remembers the move the computer played, so the next search can start below it
+    public void setPlayedMove(int move) {
+        playedMove = move;
+    }
+
+    // Returns the combination cell masks the search was built for
+    public long[] getCombinationCells() {
+        return combinationCells;
+    }
+
+    // Returns the board points the search was built for
+    public int[][] getBoardPoints() {
+        return boardPoints;
+    }
+
+    // Returns the number of playouts of the last search
+    public long getPlayouts() {
+        return playouts;
+    }
+
+    // Plays one game from the root: down the tree by UCT, one new node, a random rollout, and back up
+    private void playout() {
+        board.copyFrom(rootBoard);
+        System.arraycopy(rootTurns, 0, turnsRemaining, 0, playerCount);
+        path.clear();
+        DecisionNode node = root;
+        while (true) {
+            node.visits++;
+            int index = node.expanded < node.moves.length ? node.expanded++ : node.select();
+            boolean expanded = node.children[index] == null;
+            if (expanded) {
+                node.children[index] = new ChanceNode();
+            }
+            ChanceNode chance = node.children[index];
+            play(node.player, node.moves[index]);
+            path.add(chance);
+            if (isGameOver()) {
+                score();
+                break;
+            }
+            int next = nextPlayer(node.player);
+            if (expanded) {
+                rollout(next);
+                break;
+            }
+            int rollClass = sampleRollClass();
+            DecisionNode child = chance.byClass[rollClass];
+            if (child == null) {
+                long legal = Validation.legalCells(strippedMask(rollClass), combinationCells, board.getOccupied());
+                child = new DecisionNode(next, legal);
+                chance.byClass[rollClass] = child;
+            }
+            node = child;
+        }
+        for (ChanceNode chance : path) {
+            chance.visits++;
+            for (int p = 0; p < playerCount; p++) {
+                chance.rewards[p] += rewards[p];
+            }
+        }
+    }
+
+    // Plays random legal moves until every turn is used, then scores the board
+    private void rollout(int player) {
+        while (!isGameOver()) {
+            long legal = Validation.legalCells(strippedMask(sampleRollClass()), combinationCells, board.getOccupied());
+            if (legal == 0) {
+                play(player, SKIP);
+            } else {
+                for (int k = random.nextInt(Long.bitCount(legal)); k > 0; k--) {
+                    legal &= legal - 1;
+                }
+                play(player, Long.numberOfTrailingZeros(legal));
+            }
+            player = nextPlayer(player);
+        }
+        score();
+    }
+
+    // Plays a move (a cell, or SKIP) for a player on the playout board
+    private void play(int player, int move) {
+        if (move != SKIP) {
+            board.place(move, player);
+        }
+        turnsRemaining[player - 1]--;
+    }
+
+    // Shares the win among the players with the best score
+    private void score() {
+        scorer.reset(board);
+        int best = Integer.MIN_VALUE;
+        int winners = 0;
+        for (int p = 1; p <= playerCount; p++) {
+            int score = scorer.getScore(p);
+            if (score > best) {
+                best = score;
+                winners = 1;
+            } else if (score == best) {
+                winners++;
+            }
+        }
+        for (int p = 1; p <= playerCount; p++) {
+            rewards[p - 1] = scorer.getScore(p) == best ? 1.0 / winners : 0;
+        }
+    }
+
+    // Finds the node of the old tree for the new position, or null if the game went somewhere the tree does not know
+    private DecisionNode findRoot(Board position, int[] turns, int rollMask) {
+        if (root == null || playedMove < 0) return null;
+        ChanceNode chance = root.childFor(playedMove);
+        walkBoard.copyFrom(rootBoard);
+        System.arraycopy(rootTurns, 0, turnsRemaining, 0, playerCount);
+        if (playedMove != SKIP) {
+            if (walkBoard.isOccupied(playedMove)) return null; // A displaced stone is not in the tree
+            walkBoard.place(playedMove, playerId);
+        }
+        turnsRemaining[playerId - 1]--;
+
+        // Follow each opponent's turn: a new stone of theirs, or a skip
+        for (int player = nextPlayer(playerId); player != playerId; player = nextPlayer(player)) {
+            if (chance == null || turnsRemaining[player - 1] - turns[player - 1] != 1) return null;
+            long placed = position.getStones(player) & ~walkBoard.getStones(player);
+            if (Long.bitCount(placed) > 1) return null;
+            int move = placed == 0 ? SKIP : Long.numberOfTrailingZeros(placed);
+            if (move != SKIP) {
+                if (walkBoard.isOccupied(move)) return null;
+                walkBoard.place(move, player);
+            }
+            turnsRemaining[player - 1]--;
+
+            // The position after the move is the same whatever they rolled, so take the best explored branch
+            ChanceNode next = null;
+            for (DecisionNode decision : chance.byClass) {
+                ChanceNode candidate = decision == null ? null : decision.childFor(move);
+                if (candidate != null && (next == null || candidate.visits > next.visits)) {
+                    next = candidate;
+                }
+            }
+            chance = next;
+        }
+        if (chance == null || turnsRemaining[playerId - 1] != turns[playerId - 1]) return null;
+        for (int p = 1; p <= playerCount; p++) {
+            if (walkBoard.getStones(p) != position.getStones(p)) return null;
+        }
+        for (int rollClass = 0; rollClass < chance.byClass.length; rollClass++) {
+            if (RollDistribution.getClassMask(rollClass) == rollMask) {
+                return chance.byClass[rollClass];
+            }
+        }
+        return null;
+    }
+
+    // Copies the turns left for each player, estimating them when unknown
+    private void setTurns(int[] turns) {
+        int estimate = (Long.bitCount(rootBoard.getEmpty()) + playerCount - 1) / playerCount;
+        for (int i = 0; i < playerCount; i++) {
+            rootTurns[i] = turns != null ? turns[i] : estimate;
+        }
+    }
+
+    // Draws a roll class with its probability
+    private int sampleRollClass() {
+        int roll = random.nextInt(RollDistribution.ROLL_COUNT);
+        int low = 0;
+        int high = CUMULATIVE_WEIGHTS.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (CUMULATIVE_WEIGHTS[mid] > roll) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    // Returns the mask of a roll class with six of a kind played as five of a kind
+    private static int strippedMask(int rollClass) {
+        return RollDistribution.getClassMask(rollClass) & ~Validation.SIX_OF_A_KIND;
+    }
+
+    // Checks if every player has used all of their turns
+    private boolean isGameOver() {
+        for (int turns : turnsRemaining) {
+            if (turns > 0) return false;
+        }
+        return true;
+    }
+
+    // Returns the player who moves after the given player
+    private int nextPlayer(int player) {
+        return (player % playerCount) + 1;
+    }
+
+    // Adds up the weights of the roll classes for sampling
+    private static int[] cumulativeWeights() {
+        int[] cumulative = new int[RollDistribution.getClassCount()];
+        int sum = 0;
+        for (int rollClass = 0; rollClass < cumulative.length; rollClass++) {
+            sum += RollDistribution.getClassWeight(rollClass);
+            cumulative[rollClass] = sum;
+        }
+        return cumulative;
+    }
+
+    // A player choosing a move after rolling
+    private class DecisionNode {
+        private final int player; // Player to move
+        private final int[] moves; // Legal cells, or just SKIP
+        private final ChanceNode[] children; // Position after each move, once explored
+        private int expanded; // Moves explored so far (in order)
+        private int visits; // Playouts through the node
+
+        // Constructor lists the moves a roll allows
+        DecisionNode(int player, long legalCells) {
+            this.player = player;
+            if (legalCells == 0) {
+                moves = new int[] {SKIP};
+            } else {
+                moves = new int[Long.bitCount(legalCells)];
+                int count = 0;
+                for (long cells = legalCells; cells != 0; cells &= cells - 1) {
+                    moves[count++] = Long.numberOfTrailingZeros(cells);
+                }
+                shuffle(moves);
+            }
+            children = new ChanceNode[moves.length];
+        }
+
+        // Picks the explored move with the best upper confidence bound for the player
+        int select() {
+            double logVisits = Math.log(visits);
+            int best = 0;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < children.length; i++) {
+                ChanceNode child = children[i];
+                double value = child.rewards[player - 1] / child.visits + EXPLORATION * Math.sqrt(logVisits / child.visits);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = i;
+                }
+            }
+            return best;
+        }
+
+        // Returns the position after a move, or null if it was never explored
+        ChanceNode childFor(int move) {
+            for (int i = 0; i < expanded; i++) {
+                if (moves[i] == move) return children[i];
+            }
+            return null;
+        }
+
+        // Puts the moves in random order so unexplored moves are tried without bias
+        private void shuffle(int[] array) {
+            for (int i = array.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int swap = array[i];
+                array[i] = array[j];
+                array[j] = swap;
+            }
+        }
+    }
+
+    // A position after a move, with the next player about to roll
+    private class ChanceNode {
+        private final DecisionNode[] byClass = new DecisionNode[RollDistribution.getClassCount()]; // Next player's move per roll class
+        private final double[] rewards = new double[playerCount]; // Sum of each player's share of the win
+        private int visits; // Playouts through the node
+    }
+}
@@ -15,6 +15,7 @@ public class PlayerInfoPanel {
     public static String[] playerStones = {"O", "■", "▲", "X"}; // Stone symbols for players 1-4
     private JLabel[] stonesRemainingLabels;
     private JLabel[] playerLabels;
+    private JLabel[] scoreLabels; // Labels showing each player's running score
 
     // Constructor initializes the player information panel with the given parameters
     public PlayerInfoPanel(int playerCount, boolean hasComputerPlayer, String computerDifficulty) {
@@ -27,6 +28,7 @@ public class PlayerInfoPanel {
     
         playerLabels = new JLabel[playerCount];
         stonesRemainingLabels = new JLabel[playerCount];
+        scoreLabels = new JLabel[playerCount];
 
         this.computerDifficulty = computerDifficulty;
         // Create labels for each player
@@ -61,12 +63,12 @@ public class PlayerInfoPanel {
                 playerName += " (Computer - " + computerDifficulty + ")";
             }
 
-            playerPanel.add(createPlayerPanel(playerName)); // Add the player panel to the main panel
+            playerPanel.add(createPlayerPanel(i - 1, playerName)); // Add the player panel to the main panel
         }
     }
 
     // Creates a panel for a single player with their name, stones left, and points
-    private JPanel createPlayerPanel(String playerName) {
+    private JPanel createPlayerPanel(int playerIndex, String playerName) {
         JPanel panel = new JPanel(new GridBagLayout()); // Panel for individual player info
         GridBagConstraints position = new GridBagConstraints(); // Constraints for layout manager
         position.gridx = 0; // Column position
@@ -74,6 +76,9 @@ public class PlayerInfoPanel {
         panel.add(new JLabel(playerName), position); // Add player name label
         position.gridy = 1; // Move to next row
         panel.add(new JLabel("Stone Left : 10 [need to Configure]"), position); // Add points label
+        position.gridy = 2; // Move to next row
+        scoreLabels[playerIndex] = new JLabel("Score: 0"); // Running score label
+        panel.add(scoreLabels[playerIndex], position);
         return panel; // Return the created panel
     }
     
@@ -82,6 +87,11 @@ public class PlayerInfoPanel {
         stonesRemainingLabels[playerIndex].setText("Turn left: " + turnRemaining);
     }
 
+    // Method to update the running score for a player
+    public void updateScore(int playerIndex, int score) {
+        scoreLabels[playerIndex].setText("Score: " + score);
+    }
+
     // Getter method to retrieve the player information panel
     public JPanel getPlayerPanel() {
         return playerPanel;
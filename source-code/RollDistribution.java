@@ -0,0 +1,99 @@
+import java.util.Arrays;
+
+/**
+ * Probability distribution of the combinations a roll of six dice satisfies
+ *
+ * All 6^6 ordered rolls fall into 462 multisets, and many multisets satisfy
+ * exactly the same combinations. Rolls are grouped into classes by their
+ * Validation combination mask, since the mask alone decides where a stone
+ * may go. Searching one child per class is the same as searching every
+ * multiset, with fewer nodes.
+ *
+ * @author Group 4
+ */
+public class RollDistribution {
+    public static final int ROLL_COUNT = 46656; // Number of ordered rolls of six dice (6^6)
+    private static final int DICE_COUNT = 6; // Number of dice in a roll
+    private static final int FACES = 6; // Number of faces on each die
+
+    // Returns the number of distinct roll classes
+    public static int getClassCount() {
+        return Classes.MASKS.length;
+    }
+
+    // Returns the combination mask shared by every roll in a class
+    public static int getClassMask(int rollClass) {
+        return Classes.MASKS[rollClass];
+    }
+
+    // Returns the number of ordered rolls in a class
+    public static int getClassWeight(int rollClass) {
+        return Classes.WEIGHTS[rollClass];
+    }
+
+    // Returns the probability of rolling a class
+    public static double getClassProbability(int rollClass) {
+        return Classes.PROBABILITIES[rollClass];
+    }
+
+    // Returns the number of distinct unordered rolls (multisets)
+    public static int getMultisetCount() {
+        return Classes.MULTISETS;
+    }
+
+    // Holds the roll classes, built on first use
+    private static class Classes {
+        static int[] MASKS;
+        static int[] WEIGHTS;
+        static double[] PROBABILITIES;
+        static int MULTISETS;
+
+        static {
+            build();
+        }
+
+        // Enumerates every ordered roll and groups the rolls by combination mask
+        private static void build() {
+            int[] weightByMask = new int[1 << 16];
+            boolean[] seenMultiset = new boolean[1 << (3 * DICE_COUNT)];
+            int[] dice = new int[DICE_COUNT];
+            int[] sorted = new int[DICE_COUNT];
+            int multisets = 0;
+            for (int key = 0; key < ROLL_COUNT; key++) {
+                int rest = key;
+                for (int i = 0; i < DICE_COUNT; i++) {
+                    dice[i] = rest % FACES + 1;
+                    rest /= FACES;
+                }
+                weightByMask[Validation.lookupMask(dice)]++;
+
+                System.arraycopy(dice, 0, sorted, 0, DICE_COUNT);
+                Arrays.sort(sorted);
+                int multiset = 0;
+                for (int die : sorted) multiset = (multiset << 3) | die;
+                if (!seenMultiset[multiset]) {
+                    seenMultiset[multiset] = true;
+                    multisets++;
+                }
+            }
+
+            int classes = 0;
+            for (int weight : weightByMask) {
+                if (weight > 0) classes++;
+            }
+            MASKS = new int[classes];
+            WEIGHTS = new int[classes];
+            PROBABILITIES = new double[classes];
+            int index = 0;
+            for (int mask = 0; mask < weightByMask.length; mask++) {
+                if (weightByMask[mask] > 0) {
+                    MASKS[index] = mask;
+                    WEIGHTS[index] = weightByMask[mask];
+                    PROBABILITIES[index] = (double) weightByMask[mask] / ROLL_COUNT;
+                    index++;
+                }
+            }
+            MULTISETS = multisets;
+        }
+    }
+}
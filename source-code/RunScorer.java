@@ -0,0 +1,194 @@
+import java.util.Arrays;
+
+/**
+ * Keeps run-length scores up to date as stones are placed and removed
+ *
+ * A run is a horizontal or vertical line of touching stones of one player
+ * and scores (sum of cell points) x (length of run). Changing one cell can
+ * only change the runs in its own row and column, so each update rescans
+ * just those two lines. The grid is square with the size of the board
+ * points, so the standard board and larger layouts are scored alike.
+ *
+ * @author Group 4
+ */
+public final class RunScorer {
+    private final int[][] boardPoints; // Points for each cell (1, 2, or 3)
+    private final int size; // Number of rows and of columns
+    private final int playerCount; // Number of players
+    private final int[] owners; // Player in each cell (0 for empty)
+    private final int[][] rowScores; // Score of each row per player [player - 1][row]
+    private final int[][] columnScores; // Score of each column per player [player - 1][col]
+    private final int[] totals; // Total score per player [player - 1]
+
+    // Constructor for an empty board
+    public RunScorer(int[][] boardPoints, int playerCount) {
+        this.boardPoints = boardPoints;
+        this.size = boardPoints.length;
+        this.playerCount = playerCount;
+        this.owners = new int[size * size];
+        this.rowScores = new int[playerCount][size];
+        this.columnScores = new int[playerCount][size];
+        this.totals = new int[playerCount];
+    }
+
+    // Constructor that scores an existing board
+    public RunScorer(Board board, int[][] boardPoints, int playerCount) {
+        this(boardPoints, playerCount);
+        reset(board);
+    }
+
+    // Constructor that scores an existing board of a larger layout
+    public RunScorer(WideBoard board, int[][] boardPoints, int playerCount) {
+        this(boardPoints, playerCount);
+        reset(board);
+    }
+
+    // Rebuilds all scores from a board
+    public void reset(Board board) {
+        for (int cell = 0; cell < Board.CELL_COUNT; cell++) {
+            owners[cell] = board.getOwner(cell);
+        }
+        rescoreAll();
+    }
+
+    // Rebuilds all scores from a board of a larger layout
+    public void reset(WideBoard board) {
+        for (int cell = 0; cell < owners.length; cell++) {
+            owners[cell] = board.getOwner(cell);
+        }
+        rescoreAll();
+    }
+
+    // Overwrites this scorer with the state of another scorer for the same board points
+    public void copyFrom(RunScorer other) {
+        System.arraycopy(other.owners, 0, owners, 0, owners.length);
+        System.arraycopy(other.totals, 0, totals, 0, playerCount);
+        for (int player = 0; player < playerCount; player++) {
+            System.arraycopy(other.rowScores[player], 0, rowScores[player], 0, size);
+            System.arraycopy(other.columnScores[player], 0, columnScores[player], 0, size);
+        }
+    }
+
+    // Sets the owner of a cell (0 removes the stone) and returns the previous owner
+    public int setStone(int row, int col, int player) {
+        int cell = row * size + col;
+        int previousOwner = owners[cell];
+        if (previousOwner != player) {
+            owners[cell] = player;
+            rescoreRow(row);
+            rescoreColumn(col);
+        }
+        return previousOwner;
+    }
+
+    // Places a player's stone, replacing any stone already on the cell
+    public int place(int row, int col, int player) {
+        return setStone(row, col, player);
+    }
+
+    // Removes the stone from a cell
+    public int remove(int row, int col) {
+        return setStone(row, col, 0);
+    }
+
+    // Returns the score of a player (1 to playerCount)
+    public int getScore(int player) {
+        return totals[player - 1];
+    }
+
+    // Returns the scores of all players, indexed from 0
+    public int[] getScores() {
+        return totals.clone();
+    }
+
+    // Copies the scores of all players into the given array, indexed from 0
+    public void getScores(int[] scores) {
+        System.arraycopy(totals, 0, scores, 0, playerCount);
+    }
+
+    // Returns a player's score from horizontal runs in a row
+    public int getRowScore(int player, int row) {
+        return rowScores[player - 1][row];
+    }
+
+    // Returns a player's score from vertical runs in a column
+    public int getColumnScore(int player, int col) {
+        return columnScores[player - 1][col];
+    }
+
+    // Returns the number of players being scored
+    public int getPlayerCount() {
+        return playerCount;
+    }
+
+    // Returns the board points the scores are counted with
+    public int[][] getBoardPoints() {
+        return boardPoints;
+    }
+
+    // Rescores every row and column from the owners of the cells
+    private void rescoreAll() {
+        for (int player = 0; player < playerCount; player++) {
+            totals[player] = 0;
+            Arrays.fill(rowScores[player], 0);
+            Arrays.fill(columnScores[player], 0);
+        }
+        for (int line = 0; line < size; line++) {
+            rescoreRow(line);
+            rescoreColumn(line);
+        }
+    }
+
+    // Replaces the scores of one row with a fresh scan of its cells
+    private void rescoreRow(int row) {
+        for (int player = 0; player < playerCount; player++) {
+            totals[player] -= rowScores[player][row];
+            rowScores[player][row] = 0;
+        }
+        int start = row * size;
+        scanLine(start, 1, row, rowScores);
+    }
+
+    // Replaces the scores of one column with a fresh scan of its cells
+    private void rescoreColumn(int col) {
+        for (int player = 0; player < playerCount; player++) {
+            totals[player] -= columnScores[player][col];
+            columnScores[player][col] = 0;
+        }
+        scanLine(col, size, col, columnScores);
+    }
+
+    // Scores the runs along one line and adds them to the line and total scores
+    private void scanLine(int start, int step, int line, int[][] lineScores) {
+        int currentPlayer = 0;
+        int runLength = 0;
+        int runPoints = 0;
+        for (int i = 0, cell = start; i < size; i++, cell += step) {
+            int cellPlayer = owners[cell];
+            if (cellPlayer != 0 && cellPlayer == currentPlayer) {
+                // Continue the current run
+                runLength++;
+                runPoints += step == 1 ? boardPoints[line][i] : boardPoints[i][line];
+            } else {
+                // End the current run if it exists
+                if (runLength > 0) {
+                    addRun(currentPlayer, line, runPoints * runLength, lineScores);
+                }
+                currentPlayer = cellPlayer;
+                runLength = cellPlayer != 0 ? 1 : 0;
+                runPoints = cellPlayer == 0 ? 0 : step == 1 ? boardPoints[line][i] : boardPoints[i][line];
+            }
+        }
+        // Don't forget to score the last run if it exists
+        if (runLength > 0) {
+            addRun(currentPlayer, line, runPoints * runLength, lineScores);
+        }
+    }
+
+    // Adds a run score to a player's line and total
+    private void addRun(int player, int line, int score, int[][] lineScores) {
+        if (player > playerCount) return; // Stones of players outside the game are not scored
+        lineScores[player - 1][line] += score;
+        totals[player - 1] += score;
+    }
+}
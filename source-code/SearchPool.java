@@ -0,0 +1,102 @@
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded pool for the computer players' searches on a game server
+ *
+ * Searches run on a work-stealing ForkJoinPool with one thread fewer than
+ * there are cores, so the virtual threads handling the players' turns
+ * always keep a core. Before a search is queued, the session asking for it
+ * waits (on its own virtual thread) for a permit of its difficulty and one
+ * of the pool's capacity. A burst of Hard or Expert moves therefore queues
+ * up in the waiting sessions rather than in the pool, and no difficulty
+ * can take every slot. Easy moves cost next to nothing and run on the
+ * session's thread.
+ *
+ * @author Group 4
+ */
+public class SearchPool implements Closeable {
+    private final ForkJoinPool pool; // Work-stealing threads running the searches
+    private final Semaphore capacity; // Searches queued or running in the pool
+    private final Map<String, Semaphore> quotas = new HashMap<>(); // Searches queued or running per difficulty
+    private final LongAdder searchCount = new LongAdder(); // Searches run on the pool
+    private final LongAdder waitNanos = new LongAdder(); // Time sessions waited for their permits
+
+    // Constructor sizes the pool for this machine
+    public SearchPool() {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    // Constructor for a pool of the given threads; Hard searches may fill every thread, Expert and Master searches half of them
+    public SearchPool(int threads) {
+        this(threads, 2 * threads, threads, Math.max(1, threads / 2), Math.max(1, threads / 2));
+    }
+
+    // Constructor with the pool's capacity and the quota of each strategic difficulty
+    public SearchPool(int threads, int capacity, int hardQuota, int expertQuota, int masterQuota) {
+        this.pool = new ForkJoinPool(threads);
+        this.capacity = new Semaphore(capacity, true); // Fair, so sessions are served in the order they asked
+        quotas.put("Hard", new Semaphore(hardQuota, true));
+        quotas.put("Expert", new Semaphore(expertQuota, true));
+        quotas.put("Master", new Semaphore(masterQuota, true));
+    }
+
+    // Runs a search for a difficulty and waits for its result (called from a session's virtual thread)
+    public <T> T search(String difficulty, Callable<T> search) throws InterruptedException {
+        Semaphore quota = quotas.get(difficulty);
+        if (quota == null) {
+            return call(search); // Easy: cheaper than handing it over
+        }
+        long start = System.nanoTime();
+        quota.acquire();
+        try {
+            capacity.acquire();
+            try {
+                waitNanos.add(System.nanoTime() - start);
+                searchCount.increment();
+                ForkJoinTask<T> task = pool.submit(search);
+                try {
+                    return task.get();
+                } catch (InterruptedException e) {
+                    task.cancel(true);
+                    throw e;
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("The " + difficulty + " search failed", e.getCause());
+                }
+            } finally {
+                capacity.release();
+            }
+        } finally {
+            quota.release();
+        }
+    }
+
+    // Getters to access the statistics of the pool
+    public long getSearchCount() { return searchCount.sum(); }
+    public long getWaitNanos() { return waitNanos.sum(); }
+    public int getThreadCount() { return pool.getParallelism(); }
+
+    // Stops the pool's threads
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    // Runs a search on the calling thread
+    private static <T> T call(Callable<T> search) {
+        try {
+            return search.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("The search failed", e);
+        }
+    }
+}
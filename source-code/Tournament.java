@@ -0,0 +1,392 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * Command-line self-play tournament between computer players
+ *
+ * Plays a number of games between a lineup of difficulties on every core,
+ * without the Swing interface. Each worker thread gets its own
+ * SplittableRandom split from the tournament seed, so the same seed and
+ * thread count always give the same results. Seats are rotated from game
+ * to game so no difficulty always moves first. Win rates, score
+ * distributions and pairwise Elo with 95% confidence intervals are printed
+ * while the games run.
+ *
+ * Finished games can be kept in a game archive for later analysis.
+ *
+ * With --layout the games are played on a board layout file instead of the
+ * standard board (see BoardLayout and WideGame). On a larger layout Hard,
+ * Expert and Master all pick the valid cell that most improves their lead,
+ * and the games cannot be archived.
+ *
+ * Usage: java Tournament [games] [Easy|Hard|Expert|Master ...] [--seed=N] [--threads=N] [--depth=N]
+ *                        [--playouts=N] [--endgame=N] [--archive=DIR] [--layout=FILE]
+ *
+ * @author Group 4
+ */
+public class Tournament {
+    private static final int DEFAULT_GAMES = 1000; // Games played when no count is given
+    private static final int DEFAULT_DEPTH = 2; // Search depth of the Hard and Expert players per move
+    private static final int DEFAULT_PLAYOUTS = 2000; // Playouts of the Master players per move
+    private static final int DEFAULT_ENDGAME = 1; // Turns left per player at which Hard and Expert solve the endgame
+    private static final double Z_95 = 1.96; // Normal quantile for a 95% confidence interval
+
+    private final String[] lineup; // Difficulty of each entrant
+    private final String[] names; // Display name of each entrant
+    private final int games; // Number of games to play
+    private final int threads; // Number of worker threads
+    private final int depth; // Search depth of the Hard and Expert players
+    private final long seed; // Tournament seed
+    private GameArchive archive; // Archive the finished games are kept in, or null
+    private BoardLayout layout; // Layout the games are played on, or null for the standard board
+    private int playouts = DEFAULT_PLAYOUTS; // Playouts of the Master players per move
+    private int endgameTurns = DEFAULT_ENDGAME; // Turns left per player at which the endgame is solved (0 for never)
+
+    private int completed; // Games finished so far
+    private final int reportEvery; // Games between progress reports
+    private final double[] wins; // Wins of each entrant (shared wins are split)
+    private final long[] scoreSum; // Sum of the final scores of each entrant
+    private final double[] scoreSquares; // Sum of the squared final scores of each entrant
+    private final int[] minScore; // Lowest final score of each entrant
+    private final int[] maxScore; // Highest final score of each entrant
+    private final double[][] pairPoints; // Points of entrant i against entrant j (1 win, 0.5 tie)
+    private final double[][] pairSquares; // Sum of the squared points of entrant i against entrant j
+    private long startTime; // System.nanoTime() when the tournament started
+
+    // Constructor sets up a tournament between the given difficulties
+    public Tournament(String[] lineup, int games, int threads, int depth, long seed) {
+        this.lineup = lineup;
+        this.names = entrantNames(lineup);
+        this.games = games;
+        this.threads = threads;
+        this.depth = depth;
+        this.seed = seed;
+        this.reportEvery = Math.max(1, games / 10);
+        int count = lineup.length;
+        this.wins = new double[count];
+        this.scoreSum = new long[count];
+        this.scoreSquares = new double[count];
+        this.minScore = new int[count];
+        this.maxScore = new int[count];
+        this.pairPoints = new double[count][count];
+        this.pairSquares = new double[count][count];
+        Arrays.fill(minScore, Integer.MAX_VALUE);
+    }
+
+    // Entry point: java Tournament [games] [difficulties...] [--seed=N] [--threads=N] [--depth=N] [--playouts=N] [--endgame=N]
+    //              [--archive=DIR] [--layout=FILE]
+    public static void main(String[] args) throws InterruptedException, IOException {
+        Metrics.export(); // JMX and, if asked for, the Prometheus file or port
+        int games = DEFAULT_GAMES;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int depth = DEFAULT_DEPTH;
+        int playouts = DEFAULT_PLAYOUTS;
+        int endgameTurns = DEFAULT_ENDGAME;
+        long seed = System.nanoTime();
+        String archiveDirectory = null;
+        String layoutFile = null;
+        List<String> lineup = new ArrayList<>();
+        try {
+            for (String arg : args) {
+                if (arg.startsWith("--seed=")) {
+                    seed = Long.parseLong(arg.substring(7));
+                } else if (arg.startsWith("--threads=")) {
+                    threads = Integer.parseInt(arg.substring(10));
+                } else if (arg.startsWith("--depth=")) {
+                    depth = Integer.parseInt(arg.substring(8));
+                } else if (arg.startsWith("--playouts=")) {
+                    playouts = Integer.parseInt(arg.substring(11));
+                } else if (arg.startsWith("--endgame=")) {
+                    endgameTurns = Integer.parseInt(arg.substring(10));
+                } else if (arg.startsWith("--archive=")) {
+                    archiveDirectory = arg.substring(10);
+                } else if (arg.startsWith("--layout=")) {
+                    layoutFile = arg.substring(9);
+                } else if (arg.equals("Easy") || arg.equals("Hard") || arg.equals("Expert") || arg.equals("Master")) {
+                    lineup.add(arg);
+                } else {
+                    games = Integer.parseInt(arg);
+                }
+            }
+        } catch (NumberFormatException e) {
+            printUsage("Not a number: " + e.getMessage());
+            return;
+        }
+        if (lineup.isEmpty()) {
+            lineup.add("Easy");
+            lineup.add("Hard");
+        }
+        if (lineup.size() < 2 || lineup.size() > Board.MAX_PLAYERS || games < 1 || threads < 1 || depth < 1 || playouts < 1
+                || endgameTurns < 0) {
+            printUsage("A tournament needs 2 to 4 players, at least one game, thread, search ply and playout.");
+            return;
+        }
+        if (layoutFile != null && archiveDirectory != null) {
+            printUsage("Games on a layout file cannot be archived.");
+            return;
+        }
+        BoardLayout layout = null;
+        if (layoutFile != null) {
+            try {
+                layout = BoardLayout.load(Paths.get(layoutFile));
+            } catch (IllegalArgumentException e) {
+                printUsage("Invalid layout " + layoutFile + ": " + e.getMessage());
+                return;
+            }
+        }
+
+        System.out.println("Tournament of " + games + " games: " + String.join(" vs ", lineup)
+                + " (seed " + seed + ", " + threads + " threads, depth " + depth + ")");
+        Tournament tournament = new Tournament(lineup.toArray(new String[0]), games, threads, depth, seed);
+        tournament.setPlayouts(playouts);
+        tournament.setEndgameTurns(endgameTurns);
+        tournament.setLayout(layout);
+        if (layout != null) {
+            System.out.println("Board layout " + layoutFile + ": " + layout.getSize() + "x" + layout.getSize() + ", "
+                    + WideGame.turnsPerPlayer(layout, lineup.size()) + " turns per player");
+        }
+        if (archiveDirectory == null) {
+            tournament.run();
+            return;
+        }
+        try (GameArchive archive = GameArchive.open(Paths.get(archiveDirectory))) {
+            tournament.setArchive(archive);
+            tournament.run();
+            System.out.println(archive.getCount() + " games in the archive at " + archiveDirectory);
+        }
+    }
+
+    // Sets the playouts of the Master players per move
+    public void setPlayouts(int playouts) {
+        this.playouts = playouts;
+    }
+
+    // Sets the turns left per player at which the Hard and Expert players solve the endgame (0 for never)
+    public void setEndgameTurns(int endgameTurns) {
+        this.endgameTurns = endgameTurns;
+    }
+
+    // Plays the games on a board layout instead of the standard board (null for the standard board)
+    public void setLayout(BoardLayout layout) {
+        this.layout = layout;
+    }
+
+    // Keeps every finished game in an archive
+    public void setArchive(GameArchive archive) {
+        this.archive = archive;
+    }
+
+    // Plays every game across the worker threads and prints the final results
+    public void run() throws InterruptedException {
+        startTime = System.nanoTime();
+        SplittableRandom random = new SplittableRandom(seed);
+        Thread[] workers = new Thread[threads];
+        int first = 0;
+        for (int t = 0; t < threads; t++) {
+            int count = games / threads + (t < games % threads ? 1 : 0); // Each thread plays a fixed block of games
+            SplittableRandom workerRandom = random.split();
+            int firstGame = first;
+            workers[t] = new Thread(() -> playGames(workerRandom, firstGame, count), "tournament-" + t);
+            workers[t].start();
+            first += count;
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        System.out.println();
+        System.out.println("Final results");
+        printReport();
+    }
+
+    // Plays a block of games with one worker's random numbers
+    private void playGames(SplittableRandom random, int firstGame, int count) {
+        int players = lineup.length;
+        ComputerPlayer[][] computers = new ComputerPlayer[players][players]; // Reused per entrant and seat
+        ComputerPlayer[] seats = new ComputerPlayer[players];
+        int[] entrantAtSeat = new int[players];
+        for (int game = firstGame; game < firstGame + count; game++) {
+            long gameSeed = random.nextLong();
+            Random moveRandom = new Random(random.nextLong());
+            for (int seat = 0; seat < players; seat++) {
+                int entrant = (seat + game) % players; // Rotate the seats every game
+                if (computers[entrant][seat] == null) {
+                    computers[entrant][seat] = createComputer(lineup[entrant], seat + 1, players);
+                }
+                seats[seat] = computers[entrant][seat];
+                seats[seat].setRandom(moveRandom);
+                entrantAtSeat[seat] = entrant;
+            }
+            if (layout != null) {
+                WideGame wideGame = new WideGame(layout, players, new Random(gameSeed));
+                playGame(wideGame, seats);
+                record(wideGame.getWinners(), wideGame.getScores(), entrantAtSeat);
+            } else {
+                KiviEngine engine = new KiviEngine(players, gameSeed);
+                playGame(engine, seats);
+                record(engine, entrantAtSeat);
+            }
+        }
+    }
+
+    // Creates a computer player that searches to a fixed depth so its moves do not depend on timing
+    private ComputerPlayer createComputer(String difficulty, int playerId, int playerCount) {
+        ComputerPlayer computer = new ComputerPlayer(difficulty, playerId, playerCount);
+        computer.setTimeBudgetMillis(0);
+        computer.setMaxDepth(depth);
+        computer.setPlayoutBudget(playouts);
+        computer.setEndgame(endgameTurns, 0); // Solved to the end however long it takes
+        computer.setParallel(false); // The games already run in parallel
+        return computer;
+    }
+
+    // Plays one game to the end with a computer player in every seat
+    public static void playGame(KiviEngine engine, ComputerPlayer[] seats) {
+        while (!engine.isGameOver()) {
+            ComputerPlayer computer = seats[engine.getCurrentPlayer() - 1];
+            if (engine.hasDisplacedStone()) {
+                int cell = computer.placeDisplacedCell(engine.getBoard());
+                if (cell < 0) {
+                    throw new IllegalStateException("No free cell for the displaced stone");
+                }
+                engine.place(Board.rowOf(cell), Board.colOf(cell));
+                continue;
+            }
+
+            engine.roll();
+            int cell = computer.determineCell(engine.getBoardCombinations(), engine.getBoard(),
+                    engine.getBoardPoints(), engine.getValidation(), engine.getTurnsRemaining());
+            KiviEngine.Result result = cell < 0 ? KiviEngine.Result.INVALID : engine.place(Board.rowOf(cell), Board.colOf(cell));
+            if (result != KiviEngine.Result.PLACED && result != KiviEngine.Result.DISPLACED) {
+                engine.skip(); // No valid move: the turn is skipped
+            }
+        }
+    }
+
+    // Plays one game on a larger layout to the end with a computer player in every seat
+    public static void playGame(WideGame game, ComputerPlayer[] seats) {
+        while (!game.isGameOver()) {
+            ComputerPlayer computer = seats[game.getCurrentPlayer() - 1];
+            if (game.hasDisplacedStone()) {
+                int cell = computer.placeDisplacedCell(game.getLayout(), game.getBoard());
+                if (cell < 0) {
+                    throw new IllegalStateException("No free cell for the displaced stone");
+                }
+                game.place(cell);
+                continue;
+            }
+
+            game.roll();
+            int cell = computer.determineCell(game.getLayout(), game.getBoard(), game.getBoardPoints(), game.getValidation());
+            KiviEngine.Result result = cell < 0 ? KiviEngine.Result.INVALID : game.place(cell);
+            if (result != KiviEngine.Result.PLACED && result != KiviEngine.Result.DISPLACED) {
+                game.skip(); // No valid move: the turn is skipped
+            }
+        }
+    }
+
+    // Adds the result of a finished game to the aggregates, archives it and reports progress
+    private synchronized void record(KiviEngine engine, int[] entrantAtSeat) {
+        if (archive != null) {
+            try {
+                archive.append(engine, System.currentTimeMillis());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        record(engine.getWinners(), engine.getScores(), entrantAtSeat);
+    }
+
+    // Adds the winners and final scores (indexed by seat) of a finished game to the aggregates and reports progress
+    private synchronized void record(int[] winners, int[] scores, int[] entrantAtSeat) {
+        int players = entrantAtSeat.length;
+        for (int winner : winners) {
+            wins[entrantAtSeat[winner - 1]] += 1.0 / winners.length;
+        }
+        for (int seat = 0; seat < players; seat++) {
+            int entrant = entrantAtSeat[seat];
+            int score = scores[seat];
+            scoreSum[entrant] += score;
+            scoreSquares[entrant] += (double) score * score;
+            minScore[entrant] = Math.min(minScore[entrant], score);
+            maxScore[entrant] = Math.max(maxScore[entrant], score);
+            for (int other = 0; other < players; other++) {
+                if (other == seat) continue;
+                int otherScore = scores[other];
+                double points = score > otherScore ? 1 : score == otherScore ? 0.5 : 0;
+                pairPoints[entrant][entrantAtSeat[other]] += points;
+                pairSquares[entrant][entrantAtSeat[other]] += points * points;
+            }
+        }
+        completed++;
+        if (completed % reportEvery == 0 && completed < games) {
+            printReport();
+        }
+    }
+
+    // Prints the aggregates of the games finished so far
+    private void printReport() {
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        System.out.println();
+        System.out.printf("Games %d/%d (%.0f games/s)%n", completed, games, completed / Math.max(seconds, 1e-9));
+        System.out.printf("%-10s %8s %10s %8s %6s %6s%n", "Player", "Win %", "Mean score", "Std dev", "Min", "Max");
+        for (int i = 0; i < lineup.length; i++) {
+            double mean = (double) scoreSum[i] / completed;
+            double deviation = Math.sqrt(Math.max(0, scoreSquares[i] / completed - mean * mean));
+            System.out.printf("%-10s %8.2f %10.2f %8.2f %6d %6d%n",
+                    names[i], 100.0 * wins[i] / completed, mean, deviation, minScore[i], maxScore[i]);
+        }
+        for (int i = 0; i < lineup.length; i++) {
+            for (int j = i + 1; j < lineup.length; j++) {
+                System.out.println(names[i] + " vs " + names[j] + ": " + eloSummary(pairPoints[i][j], pairSquares[i][j], completed));
+            }
+        }
+    }
+
+    // Describes a head-to-head record as an Elo difference with a 95% confidence interval
+    private static String eloSummary(double points, double squares, int count) {
+        double score = points / count;
+        double variance = Math.max(0, squares / count - score * score);
+        double margin = Z_95 * Math.sqrt(variance / count);
+        return String.format("score %.3f, Elo %s [%s, %s]", score,
+                formatElo(elo(score)), formatElo(elo(score - margin)), formatElo(elo(score + margin)));
+    }
+
+    // Converts an expected score into an Elo difference
+    private static double elo(double score) {
+        if (score <= 0) return Double.NEGATIVE_INFINITY;
+        if (score >= 1) return Double.POSITIVE_INFINITY;
+        return 400 * Math.log10(score / (1 - score));
+    }
+
+    // Formats an Elo difference with its sign
+    private static String formatElo(double elo) {
+        if (Double.isInfinite(elo)) return elo > 0 ? "+inf" : "-inf";
+        return String.format("%+.0f", elo);
+    }
+
+    // Names the entrants after their difficulty, numbering repeated difficulties
+    private static String[] entrantNames(String[] lineup) {
+        String[] names = new String[lineup.length];
+        for (int i = 0; i < lineup.length; i++) {
+            int repeat = 1;
+            for (int j = 0; j < i; j++) {
+                if (lineup[j].equals(lineup[i])) repeat++;
+            }
+            names[i] = repeat == 1 ? lineup[i] : lineup[i] + " " + repeat;
+        }
+        return names;
+    }
+
+    // Prints a problem with the arguments and how to call the tournament
+    private static void printUsage(String problem) {
+        System.err.println(problem);
+        System.err.println("Usage: java Tournament [games] [Easy|Hard|Expert|Master ...] [--seed=N] [--threads=N] [--depth=N] "
+                + "[--playouts=N] [--endgame=N] [--archive=DIR] [--layout=FILE]");
+    }
+}
@@ -0,0 +1,146 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size transposition table for the minimax search
+ *
+ * Entries live in two primitive arrays allocated once, so probing and
+ * storing never allocate. Each bucket has two slots: the first keeps the
+ * deepest result (replaced when a new search starts or a deeper result
+ * arrives), the second always takes the latest result. Keys are stored
+ * XORed with their data so that a torn write from another worker thread is
+ * seen as a miss instead of a wrong entry.
+ *
+ * @author Group 4
+ */
+public class TranspositionTable {
+    public static final int EXACT = 1; // Score is the exact value of the position
+    public static final int LOWER_BOUND = 2; // Score is at least this value (cutoff above beta)
+    public static final int UPPER_BOUND = 3; // Score is at most this value (failed low)
+    public static final long MISS = 0; // Returned by probe when the position is not stored
+    public static final int NO_MOVE = 0xFF; // Move field when no best move is known
+
+    private static final int DEPTH_SHIFT = 32; // Data layout: score | depth | bound | move | age
+    private static final int BOUND_SHIFT = 40;
+    private static final int MOVE_SHIFT = 42;
+    private static final int AGE_SHIFT = 50;
+
+    private final long[] keys; // Zobrist key XOR data for each slot
+    private final long[] data; // Packed entry for each slot
+    private final int bucketMask; // Number of buckets minus one
+    private int age; // Search generation, used to replace stale entries
+    private final LongAdder probes = new LongAdder(); // Number of lookups
+    private final LongAdder hits = new LongAdder(); // Number of lookups that found the position
+    private final LongAdder stores = new LongAdder(); // Number of entries written
+
+    // Constructor allocates a table with the given number of buckets (rounded up to a power of two)
+    public TranspositionTable(int buckets) {
+        int size = Integer.highestOneBit(Math.max(buckets - 1, 1)) << 1;
+        this.keys = new long[size * 2];
+        this.data = new long[size * 2];
+        this.bucketMask = size - 1;
+    }
+
+    // Starts a new search generation so older entries can be replaced first
+    public void newSearch() {
+        age = (age + 1) & 0xFF;
+    }
+
+    // Removes every entry and resets the counters
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+        probes.reset();
+        hits.reset();
+        stores.reset();
+    }
+
+    // Looks up a position and returns its packed entry, or MISS
+    public long probe(long key) {
+        probes.increment();
+        int slot = (int) (key & bucketMask) * 2;
+        for (int i = slot; i < slot + 2; i++) {
+            long entry = data[i];
+            if (entry != MISS && (keys[i] ^ entry) == key) {
+                hits.increment();
+                return entry;
+            }
+        }
+        return MISS;
+    }
+
+    // Stores the result of searching a position
+    public void store(long key, int depth, int bound, int score, int move) {
+        long entry = pack(depth, bound, score, move);
+        int slot = (int) (key & bucketMask) * 2;
+        long deepest = data[slot];
+        if (deepest == MISS || (keys[slot] ^ deepest) == key || depthOf(deepest) <= depth || ageOf(deepest) != age) {
+            keys[slot] = key ^ entry; // Depth-preferred slot
+            data[slot] = entry;
+        } else {
+            keys[slot + 1] = key ^ entry; // Always-replace slot
+            data[slot + 1] = entry;
+        }
+        stores.increment();
+    }
+
+    // Returns the score of a packed entry
+    public static int scoreOf(long entry) {
+        return (int) entry;
+    }
+
+    // Returns the search depth of a packed entry
+    public static int depthOf(long entry) {
+        return (int) (entry >>> DEPTH_SHIFT) & 0xFF;
+    }
+
+    // Returns the bound type (EXACT, LOWER_BOUND or UPPER_BOUND) of a packed entry
+    public static int boundOf(long entry) {
+        return (int) (entry >>> BOUND_SHIFT) & 0x3;
+    }
+
+    // Returns the best move of a packed entry, or NO_MOVE
+    public static int moveOf(long entry) {
+        return (int) (entry >>> MOVE_SHIFT) & 0xFF;
+    }
+
+    // Returns the number of lookups since the last clear
+    public long getProbes() {
+        return probes.sum();
+    }
+
+    // Returns the number of lookups that found their position
+    public long getHits() {
+        return hits.sum();
+    }
+
+    // Returns the number of entries written since the last clear
+    public long getStores() {
+        return stores.sum();
+    }
+
+    // Returns the share of lookups that found their position
+    public double getHitRate() {
+        long total = probes.sum();
+        return total == 0 ? 0 : (double) hits.sum() / total;
+    }
+
+    // Returns the number of entries the table can hold
+    public int getCapacity() {
+        return data.length;
+    }
+
+    // Packs an entry into one long (a valid entry always has a non-zero bound)
+    private long pack(int depth, int bound, int score, int move) {
+        return (score & 0xFFFFFFFFL)
+                | ((long) (depth & 0xFF) << DEPTH_SHIFT)
+                | ((long) bound << BOUND_SHIFT)
+                | ((long) (move & 0xFF) << MOVE_SHIFT)
+                | ((long) age << AGE_SHIFT);
+    }
+
+    // Returns the search generation of a packed entry
+    private static int ageOf(long entry) {
+        return (int) (entry >>> AGE_SHIFT) & 0xFF;
+    }
+}
@@ -8,26 +8,181 @@ import java.util.Arrays;
  * 
  */
 public class Validation {
+    public static final int SIX_OF_A_KIND = 1 << 13; // Mask flag: all six dice are the same
+    public static final int FIVE_OF_A_KIND = 1 << 14; // Mask flag: at least five dice are the same
+    public static final int STRAIGHT_ONE_TO_SIX = 1 << 15; // Mask flag: dice form a straight from 1 to 6
+    private static final int DICE_COUNT = 6; // Number of dice in a roll
+    private static final int FACES = 6; // Number of faces on each die
+
     private int[] diceRolls;
+    private int combinationMask; // Combinations (bits 0-12) and special rolls satisfied by the dice
 
     // Constructor initializes the validation instance with dice rolls
     public Validation(int[] diceRolls) {
         this.diceRolls = diceRolls;
+        this.combinationMask = lookupMask(diceRolls);
     }
 
     // Checks if the dice satisfy the given combination or if it's a special roll
     public boolean isValidPlacement(String combination, boolean isOccupied) {
-        if (isSixOfAKind()) {
+        return isValidPlacement(CellManager.getCombinationIndex(combination), isOccupied);
+    }
+
+    // Checks if the dice satisfy the combination with the given index or if it's a special roll
+    public boolean isValidPlacement(int combinationIndex, boolean isOccupied) {
+        Metrics.PLACEMENT_CHECKS.increment();
+        if ((combinationMask & SIX_OF_A_KIND) != 0) {
             return true; // Can place in any cell, including occupied ones.
-        } else if (isFiveOfAKind() || isStraightOneToSix()) {
+        } else if ((combinationMask & (FIVE_OF_A_KIND | STRAIGHT_ONE_TO_SIX)) != 0) {
             return !isOccupied; // Can only place in unoccupied cells.
-        } else if (isOccupied) {
+        } else if (isOccupied || combinationIndex < 0) {
             return false; // Occupied cells are invalid for other combinations.
         }
+        return (combinationMask & (1 << combinationIndex)) != 0;
+    }
+
+    // Returns the mask of combinations and special rolls satisfied by the dice
+    public int getCombinationMask() {
+        return combinationMask;
+    }
+
+    // Checks if at least five dice are the same
+    public boolean isFiveOfAKind() {
+        return (combinationMask & FIVE_OF_A_KIND) != 0;
+    }
+
+    // Checks if all six dice are the same
+    public boolean isSixOfAKind() {
+        return (combinationMask & SIX_OF_A_KIND) != 0;
+    }
+
+    // Checks if the dice form a straight from 1 to 6
+    public boolean isStraightOneToSix() {
+        return (combinationMask & STRAIGHT_ONE_TO_SIX) != 0;
+    }
+
+    // Returns the mask of cells where a stone can be placed with this roll
+    public long getLegalCells(long[] combinationCells, Board board) {
+        return legalCells(combinationMask, combinationCells, board.getOccupied());
+    }
+
+    // Returns the mask of cells a roll with the given combination mask allows
+    public static long legalCells(int combinationMask, long[] combinationCells, long occupied) {
+        if ((combinationMask & SIX_OF_A_KIND) != 0) {
+            return Board.ALL_CELLS; // Any cell, including occupied ones
+        } else if ((combinationMask & (FIVE_OF_A_KIND | STRAIGHT_ONE_TO_SIX)) != 0) {
+            return ~occupied & Board.ALL_CELLS; // Any free cell
+        }
+        long cells = 0;
+        int combinations = combinationMask & ((1 << combinationCells.length) - 1);
+        while (combinations != 0) {
+            cells |= combinationCells[Integer.numberOfTrailingZeros(combinations)];
+            combinations &= combinations - 1;
+        }
+        return cells & ~occupied;
+    }
+
+    // Writes the cells of a larger board where a stone can be placed with this roll into the given words
+    public void getLegalCells(long[][] combinationCells, WideBoard board, long[] legal) {
+        legalCells(combinationMask, combinationCells, board.getOccupied(), board.getCellCount(), legal);
+    }
+
+    // Writes the cells of a larger board a roll with the given combination mask allows into the given words
+    public static void legalCells(int combinationMask, long[][] combinationCells, long[] occupied, int cellCount,
+                                  long[] legal) {
+        if ((combinationMask & SIX_OF_A_KIND) != 0) {
+            CellBits.fill(legal, cellCount); // Any cell, including occupied ones
+            return;
+        }
+        if ((combinationMask & (FIVE_OF_A_KIND | STRAIGHT_ONE_TO_SIX)) != 0) {
+            CellBits.fill(legal, cellCount); // Any free cell
+        } else {
+            CellBits.clearAll(legal);
+            int combinations = combinationMask & ((1 << combinationCells.length) - 1);
+            while (combinations != 0) {
+                CellBits.or(legal, combinationCells[Integer.numberOfTrailingZeros(combinations)]);
+                combinations &= combinations - 1;
+            }
+        }
+        CellBits.andNot(legal, occupied);
+    }
+
+    // Builds the mask of cells carrying each combination on the board
+    public static long[] combinationCells(String[][] boardCombinations) {
+        long[] cells = new long[CellManager.getCombinationCount()];
+        for (int row = 0; row < boardCombinations.length; row++) {
+            for (int col = 0; col < boardCombinations[row].length; col++) {
+                int index = CellManager.getCombinationIndex(boardCombinations[row][col]);
+                if (index >= 0) {
+                    cells[index] |= 1L << Board.cellIndex(row, col);
+                }
+            }
+        }
+        return cells;
+    }
 
+    // Looks up the combination mask for a roll, computing it directly for rolls outside the table
+    public static int lookupMask(int[] dice) {
+        int key = packRollKey(dice);
+        if (key < 0) {
+            return computeMask(dice); // Unrolled (zeroed) dice are not in the table
+        }
+        return RollTable.MASKS[key] & 0xFFFF;
+    }
+
+    // Packs six dice into a base-6 key, or returns -1 if a die is out of range
+    public static int packRollKey(int[] dice) {
+        if (dice.length != DICE_COUNT) return -1;
+        int key = 0;
+        for (int i = DICE_COUNT - 1; i >= 0; i--) {
+            int face = dice[i] - 1;
+            if (face < 0 || face >= FACES) return -1;
+            key = key * FACES + face;
+        }
+        return key;
+    }
+
+    // Holds the roll-to-mask table, built on first use
+    private static class RollTable {
+        static final short[] MASKS = buildTable();
+
+        // Enumerates all 6^6 ordered rolls and records the combinations each one satisfies
+        private static short[] buildTable() {
+            int size = 1;
+            for (int i = 0; i < DICE_COUNT; i++) size *= FACES;
+            short[] masks = new short[size];
+            int[] dice = new int[DICE_COUNT];
+            for (int key = 0; key < size; key++) {
+                int rest = key;
+                for (int i = 0; i < DICE_COUNT; i++) {
+                    dice[i] = rest % FACES + 1;
+                    rest /= FACES;
+                }
+                masks[key] = (short) computeMask(dice);
+            }
+            return masks;
+        }
+    }
+
+    // Computes the combination mask for a roll by checking every combination
+    private static int computeMask(int[] diceRolls) {
         int[] sortedDice = diceRolls.clone();
         Arrays.sort(sortedDice);
 
+        int mask = 0;
+        for (int i = 0; i < CellManager.getCombinationCount(); i++) {
+            if (checkCombination(CellManager.getCombination(i), diceRolls, sortedDice)) {
+                mask |= 1 << i;
+            }
+        }
+        if (checkSixOfAKind(diceRolls)) mask |= SIX_OF_A_KIND;
+        if (checkFiveOfAKind(diceRolls)) mask |= FIVE_OF_A_KIND;
+        if (checkStraightOneToSix(sortedDice)) mask |= STRAIGHT_ONE_TO_SIX;
+        return mask;
+    }
+
+    // Checks if the dice satisfy the given combination
+    private static boolean checkCombination(String combination, int[] diceRolls, int[] sortedDice) {
         switch (combination) {
             case "AA BB": return checkTwoPairs(sortedDice);
             case "AAA": return checkThreeOfAKind(sortedDice);
@@ -47,7 +202,7 @@ public class Validation {
     }
 
     // Checks if at least five dice are the same
-    public boolean isFiveOfAKind() {
+    private static boolean checkFiveOfAKind(int[] diceRolls) {
         for (int i = 1; i <= 6; i++) { // Loop through numbers 1 to 6
             int count = 0; // Reset count for each number
             for (int die : diceRolls) { // Check each roll
@@ -61,17 +216,15 @@ public class Validation {
     }
 
     // Checks if all six dice are the same
-    public boolean isSixOfAKind() {
+    private static boolean checkSixOfAKind(int[] diceRolls) {
         for (int i = 1; i < diceRolls.length; i++) {
             if (diceRolls[i] != diceRolls[0]) return false;
         }
         return true;
     }
 
-    // Checks if the dice form a straight from 1 to 6
-    public boolean isStraightOneToSix() {
-        int[] sortedDice = diceRolls.clone();
-        Arrays.sort(sortedDice);
+    // Checks if the sorted dice form a straight from 1 to 6
+    private static boolean checkStraightOneToSix(int[] sortedDice) {
         for (int i = 0; i < sortedDice.length; i++) {
             if (sortedDice[i] != i + 1) return false;
         }
@@ -79,7 +232,7 @@ public class Validation {
     }
 
     // Checks for two pairs in the dice
-    private boolean checkTwoPairs(int[] dice) {
+    private static boolean checkTwoPairs(int[] dice) {
         int pairs = 0;
         for (int i = 0; i < dice.length - 1; i++) {
             if (dice[i] == dice[i + 1]) {
@@ -91,7 +244,7 @@ public class Validation {
     }
 
     // Checks for three of a kind in the dice
-    private boolean checkThreeOfAKind(int[] dice) {
+    private static boolean checkThreeOfAKind(int[] dice) {
         for (int i = 0; i <= dice.length - 3; i++) {
             if (dice[i] == dice[i + 2]) return true;
         }
@@ -99,7 +252,7 @@ public class Validation {
     }
 
     // Checks for a little straight (four unique consecutive numbers)
-    private boolean checkLittleStraight(int[] dice) {
+    private static boolean checkLittleStraight(int[] dice) {
         ArrayList<Integer> uniqueDice = new ArrayList<>();
         for (int die : dice) {
             if (!uniqueDice.contains(die)) {
@@ -117,12 +270,12 @@ public class Validation {
     }
 
     // Checks for a full house (three of a kind and a pair)
-    private boolean checkFullHouse(int[] dice) {
+    private static boolean checkFullHouse(int[] dice) {
         return checkThreeOfAKind(dice) && checkTwoPairs(dice);
     }
 
     // Checks for four of a kind in the dice
-    private boolean checkFourOfAKind(int[] dice) {
+    private static boolean checkFourOfAKind(int[] dice) {
         for (int i = 0; i <= dice.length - 4; i++) {
             if (dice[i] == dice[i + 3]) return true;
         }
@@ -130,7 +283,7 @@ public class Validation {
     }
 
     // Checks for a large straight (five unique consecutive numbers)
-    private boolean checkLargeStraight(int[] dice) {
+    private static boolean checkLargeStraight(int[] dice) {
         ArrayList<Integer> uniqueDice = new ArrayList<>();
         for (int die : dice) {
             if (!uniqueDice.contains(die)) {
@@ -142,7 +295,7 @@ public class Validation {
     }
 
     // Checks if all dice are even
-    private boolean checkAllEven(int[] dice) {
+    private static boolean checkAllEven(int[] dice) {
         for (int die : dice) {
             if (die % 2 != 0) return false;
         }
@@ -150,7 +303,7 @@ public class Validation {
     }
 
     // Checks if all dice are odd
-    private boolean checkAllOdd(int[] dice) {
+    private static boolean checkAllOdd(int[] dice) {
         for (int die : dice) {
             if (die % 2 == 0) return false;
         }
@@ -158,21 +311,21 @@ public class Validation {
     }
 
     // Checks if the sum of the dice is less than or equal to a threshold
-    private boolean checkSumLessThanOrEqual(int[] dice, int threshold) {
+    private static boolean checkSumLessThanOrEqual(int[] dice, int threshold) {
         int sum = 0;
         for (int die : dice) sum += die;
         return sum <= threshold;
     }
 
     // Checks if the sum of the dice is greater than or equal to a threshold
-    private boolean checkSumGreaterThanOrEqual(int[] dice, int threshold) {
+    private static boolean checkSumGreaterThanOrEqual(int[] dice, int threshold) {
         int sum = 0;
         for (int die : dice) sum += die;
         return sum >= threshold;
     }
 
     // Checks for three pairs in the dice
-    private boolean checkThreePairs(int[] dice) {
+    private static boolean checkThreePairs(int[] dice) {
         int pairs = 0;
         for (int i = 0; i < dice.length - 1; i++) {
             if (dice[i] == dice[i + 1]) {
@@ -184,7 +337,7 @@ public class Validation {
     }
 
     // Checks for two three-of-a-kind in the dice
-    private boolean checkTwoThreeOfAKind(int[] dice) {
+    private static boolean checkTwoThreeOfAKind(int[] dice) {
         int firstThree = -1;
         for (int i = 0; i <= dice.length - 3; i++) {
             if (dice[i] == dice[i + 2]) {
@@ -200,7 +353,7 @@ public class Validation {
     }
 
     // Checks for four of a kind and a pair in the dice
-    private boolean checkFourOfAKindAndPair(int[] dice) {
+    private static boolean checkFourOfAKindAndPair(int[] dice) {
         return checkFourOfAKind(dice) && checkTwoPairs(dice);
     }
 }
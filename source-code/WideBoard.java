@@ -0,0 +1,129 @@
+/**
+ * Multi-word bitboard for board layouts larger than 7x7
+ *
+ * Keeps the same masks as Board (one occupancy mask plus one mask per
+ * player) as CellBits word arrays sized for the layout, so boards up to
+ * 15x15 place, remove and copy stones without allocating. Cells are
+ * numbered row * size + col as in BoardLayout.
+ *
+ * @author Group 4
+ */
+public class WideBoard {
+    private final int size; // Number of rows and of columns
+    private final long[] occupied; // Mask of occupied cells
+    private final long[][] playerStones; // Mask of cells per player (index 1 to 4)
+
+    // Creates an empty board for a layout
+    public WideBoard(BoardLayout layout) {
+        this(layout.getSize());
+    }
+
+    // Creates an empty size x size board
+    public WideBoard(int size) {
+        if (size < 1 || size > BoardLayout.MAX_SIZE) {
+            throw new IllegalArgumentException("Board size " + size + " is not between 1 and " + BoardLayout.MAX_SIZE);
+        }
+        this.size = size;
+        int words = CellBits.wordCount(size * size);
+        this.occupied = new long[words];
+        this.playerStones = new long[Board.MAX_PLAYERS + 1][words];
+    }
+
+    // Returns the number of rows and of columns
+    public int getSize() {
+        return size;
+    }
+
+    // Returns the number of cells
+    public int getCellCount() {
+        return size * size;
+    }
+
+    // Returns the cell index for a row and column
+    public int cellIndex(int row, int col) {
+        return row * size + col;
+    }
+
+    // Returns the player who owns the stone at a cell, or 0 if it is empty
+    public int getOwner(int cell) {
+        if (!CellBits.contains(occupied, cell)) return 0;
+        for (int player = 1; player <= Board.MAX_PLAYERS; player++) {
+            if (CellBits.contains(playerStones[player], cell)) return player;
+        }
+        return 0;
+    }
+
+    // Returns the player who owns the stone at a row and column, or 0 if it is empty
+    public int getStone(int row, int col) {
+        return getOwner(cellIndex(row, col));
+    }
+
+    // Checks if a cell holds a stone
+    public boolean isOccupied(int cell) {
+        return CellBits.contains(occupied, cell);
+    }
+
+    // Places a player's stone on a cell and returns the previous owner (make move)
+    public int place(int cell, int player) {
+        int previousOwner = getOwner(cell);
+        CellBits.clear(playerStones[previousOwner], cell);
+        CellBits.set(playerStones[player], cell);
+        CellBits.set(occupied, cell);
+        return previousOwner;
+    }
+
+    // Restores a cell to its previous owner (unmake move)
+    public void unplace(int cell, int previousOwner) {
+        for (int player = 1; player <= Board.MAX_PLAYERS; player++) {
+            CellBits.clear(playerStones[player], cell);
+        }
+        if (previousOwner == 0) {
+            CellBits.clear(occupied, cell);
+        } else {
+            CellBits.set(playerStones[previousOwner], cell);
+            CellBits.set(occupied, cell);
+        }
+    }
+
+    // Removes every stone from the board
+    public void clear() {
+        CellBits.clearAll(occupied);
+        for (long[] stones : playerStones) {
+            CellBits.clearAll(stones);
+        }
+    }
+
+    // Returns the mask of occupied cells (the board's own words, not to be modified)
+    public long[] getOccupied() {
+        return occupied;
+    }
+
+    // Writes the mask of empty cells into the given words
+    public void getEmpty(long[] empty) {
+        CellBits.fill(empty, size * size);
+        CellBits.andNot(empty, occupied);
+    }
+
+    // Returns the mask of cells holding a player's stones (the board's own words, not to be modified)
+    public long[] getStones(int player) {
+        return playerStones[player];
+    }
+
+    // Counts the stones of a player
+    public int countStones(int player) {
+        return CellBits.count(playerStones[player]);
+    }
+
+    // Counts all stones on the board
+    public int countOccupied() {
+        return CellBits.count(occupied);
+    }
+
+    // Overwrites this board with the contents of another board of the same size
+    public void copyFrom(WideBoard other) {
+        CellBits.copy(other.occupied, occupied);
+        for (int player = 0; player <= Board.MAX_PLAYERS; player++) {
+            CellBits.copy(other.playerStones[player], playerStones[player]);
+        }
+    }
+}
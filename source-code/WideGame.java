@@ -0,0 +1,147 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Rules of the Kivi game on a board layout larger than 7x7
+ *
+ * Plays the same rules as KiviEngine (rolls, combinations, five of a kind
+ * and straights on free cells, six of a kind replacing a stone that is then
+ * placed again), taken from KiviRules, on a WideBoard, with run scores kept
+ * by a RunScorer. The
+ * turns per player grow with the board, TURNS_PER_PLAYER for every 49
+ * cells, so a larger board fills up about as much as the standard one.
+ * There is no undo history or save format; larger layouts are played
+ * headlessly, by Tournament --layout.
+ *
+ * @author Group 4
+ */
+public class WideGame {
+    private final BoardLayout layout; // Combinations, colors and points of the cells
+    private final int playerCount; // Number of players
+    private final Random random; // Source of the dice and the board points
+    private final String[][] boardCombinations; // Combinations for each grid cell
+    private final int[][] boardPoints; // Points for each grid cell
+    private final WideBoard board; // Placement of stones on the grid
+    private final RunScorer runScorer; // Running scores, updated as stones are placed
+    private final int[] turnsRemaining; // Turns left for each player
+    private final int[] diceRolls = new int[KiviEngine.DICE_COUNT]; // Current dice
+    private Validation validation; // Checks placements against the current dice
+    private int currentPlayer = 1; // Player whose turn it is (1 to playerCount)
+    private boolean hasRolled; // Whether the current player has rolled
+    private int displacedPlayer = -1; // Owner of the stone replaced by six of a kind, or -1
+
+    // Constructor starts a game on a layout, drawing its random points and dice from a Random
+    public WideGame(BoardLayout layout, int playerCount, Random random) {
+        this.layout = layout;
+        this.playerCount = playerCount;
+        this.random = random;
+        int size = layout.getSize();
+        this.boardCombinations = new String[size][size];
+        this.boardPoints = new int[size][size];
+        layout.fill(boardCombinations, boardPoints, random);
+        this.board = new WideBoard(layout);
+        this.runScorer = new RunScorer(boardPoints, playerCount);
+        this.turnsRemaining = new int[playerCount];
+        Arrays.fill(turnsRemaining, turnsPerPlayer(layout, playerCount));
+        this.validation = new Validation(diceRolls);
+    }
+
+    // Returns the turns each player gets on a layout: TURNS_PER_PLAYER per 49 cells, while the stones fit on the board
+    public static int turnsPerPlayer(BoardLayout layout, int playerCount) {
+        int turns = Math.round((float) KiviEngine.TURNS_PER_PLAYER * layout.getCellCount() / Board.CELL_COUNT);
+        return Math.max(1, Math.min(turns, layout.getCellCount() / playerCount));
+    }
+
+    // Rolls the dice for the current player
+    public KiviEngine.Result roll() {
+        if (isGameOver()) return KiviEngine.Result.GAME_OVER;
+        if (hasRolled) return KiviEngine.Result.ALREADY_ROLLED;
+        KiviRules.roll(random, diceRolls);
+        hasRolled = true;
+        validation = new Validation(diceRolls);
+        return KiviEngine.Result.ROLLED;
+    }
+
+    // Places a stone for the current player, or puts back the displaced stone if one is waiting
+    public KiviEngine.Result place(int cell) {
+        if (isGameOver()) return KiviEngine.Result.GAME_OVER;
+        boolean isOccupied = board.isOccupied(cell);
+
+        if (displacedPlayer != -1) { // The displaced stone must go on a free cell
+            if (isOccupied) return KiviEngine.Result.OCCUPIED;
+            setStone(cell, displacedPlayer);
+            displacedPlayer = -1;
+            endTurn();
+            return KiviEngine.Result.PLACED;
+        }
+
+        if (!hasRolled) return KiviEngine.Result.NOT_ROLLED;
+        KiviEngine.Result placement = KiviRules.checkPlacement(validation, layout.getCombination(cell), isOccupied);
+        if (placement == KiviEngine.Result.FREE_CELL_ONLY || placement == KiviEngine.Result.INVALID) {
+            return placement;
+        }
+
+        int previousOwner = setStone(cell, currentPlayer);
+        if (placement == KiviEngine.Result.DISPLACED) { // The replaced stone is placed again before the turn ends
+            displacedPlayer = previousOwner;
+            return KiviEngine.Result.DISPLACED;
+        }
+        endTurn();
+        return KiviEngine.Result.PLACED;
+    }
+
+    // Ends the current player's turn without placing a stone
+    public KiviEngine.Result skip() {
+        if (isGameOver()) return KiviEngine.Result.GAME_OVER;
+        endTurn();
+        return KiviEngine.Result.SKIPPED;
+    }
+
+    // Checks if every player has used all of their turns
+    public boolean isGameOver() {
+        return KiviRules.isGameOver(turnsRemaining);
+    }
+
+    // Returns the score of a player (1 to playerCount)
+    public int getScore(int player) {
+        return runScorer.getScore(player);
+    }
+
+    // Returns the final or running score of each player
+    public int[] getScores() {
+        return runScorer.getScores();
+    }
+
+    // Returns the players with the highest score
+    public int[] getWinners() {
+        return KiviRules.winners(runScorer, playerCount);
+    }
+
+    // Getters for the game state
+    public BoardLayout getLayout() { return layout; }
+    public int getPlayerCount() { return playerCount; }
+    public int[][] getBoardPoints() { return boardPoints; }
+    public WideBoard getBoard() { return board; }
+    public int[] getTurnsRemaining() { return turnsRemaining; }
+    public Validation getValidation() { return validation; }
+    public int getCurrentPlayer() { return currentPlayer; }
+    public boolean hasDisplacedStone() { return displacedPlayer != -1; }
+
+    // Passes the turn to the next player, using up a turn unless a displaced stone is still waiting
+    private void endTurn() {
+        hasRolled = false;
+        if (displacedPlayer == -1) {
+            turnsRemaining[currentPlayer - 1]--;
+        }
+        if (!isGameOver()) {
+            currentPlayer = KiviRules.nextPlayer(currentPlayer, playerCount);
+        }
+    }
+
+    // Puts a player's stone on a cell, updates the running scores and returns the previous owner
+    private int setStone(int cell, int player) {
+        int size = layout.getSize();
+        runScorer.setStone(cell / size, cell % size, player); // Only this row and column are rescored
+        return board.place(cell, player);
+    }
+}
@@ -0,0 +1,147 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Regression tests for recovering a game from its journal
+ *
+ * Each test journals a seeded game the way GameBoard does, one record per
+ * roll, placement or skip, and then damages the files the way a crash
+ * could before recovering them.
+ *
+ * @author Group 4
+ */
+class GameJournalTest {
+    private static final int ACTIONS = 20; // Actions journaled after the snapshot (fewer than COMPACT_EVERY)
+
+    @TempDir
+    Path directory; // Holds the snapshot and journal of a test
+
+    private Path snapshotFile; // Autosave snapshot the journal continues
+    private Path journalFile; // Journal of the actions after the snapshot
+    private KiviEngine engine; // Game being journaled
+    private final List<byte[]> states = new ArrayList<>(); // Encoded game after each journaled action, from the snapshot on
+
+    // Sets up the files of a test
+    @BeforeEach
+    void setUp() {
+        snapshotFile = directory.resolve(GameJournal.AUTOSAVE_FILE);
+        journalFile = directory.resolve(GameJournal.JOURNAL_FILE);
+    }
+
+    // Every record is replayed on top of the snapshot
+    @Test
+    void replaysEveryRecord() throws IOException {
+        journalGame();
+        assertRecovers(ACTIONS);
+    }
+
+    // A record cut short by a crash is dropped with nothing after it
+    @Test
+    void stopsAtATornLastRecord() throws IOException {
+        journalGame();
+        try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - GameJournal.RECORD_SIZE / 2);
+        }
+        assertRecovers(ACTIONS - 1);
+    }
+
+    // A last record whose bytes did not all reach the disk fails its check and is dropped
+    @Test
+    void stopsAtACorruptLastRecord() throws IOException {
+        journalGame();
+        byte[] journal = Files.readAllBytes(journalFile);
+        journal[journal.length - 1] ^= 0x01; // Low byte of the record body
+        Files.write(journalFile, journal);
+        assertRecovers(ACTIONS - 1);
+    }
+
+    // A crash between a new snapshot and the restart of the journal leaves the old journal, which is ignored
+    @Test
+    void ignoresTheJournalOfAnOlderSnapshot() throws IOException {
+        GameJournal journal = journalGame();
+        byte[] olderJournal = Files.readAllBytes(journalFile);
+        journal.compact(stateOf(engine));
+        journal.close();
+        Files.write(journalFile, olderJournal);
+
+        states.clear();
+        states.add(encode(stateOf(engine)));
+        assertRecovers(0);
+    }
+
+    // A journal that has not got its header yet leaves the snapshot
+    @Test
+    void ignoresAJournalWithoutAHeader() throws IOException {
+        journalGame();
+        try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.WRITE)) {
+            channel.truncate(GameJournal.HEADER_SIZE - 1);
+        }
+        assertRecovers(0);
+    }
+
+    // Journals a seeded game: a snapshot a few turns in, then ACTIONS records, keeping the game after each; closes the journal
+    private GameJournal journalGame() throws IOException {
+        engine = new KiviEngine(2, 42L);
+        for (int i = 0; i < 9; i++) {
+            play(null);
+        }
+        GameJournal journal = new GameJournal(snapshotFile, journalFile, GameJournal.SyncPolicy.GROUP);
+        journal.compact(stateOf(engine));
+        states.add(encode(stateOf(engine)));
+        for (int i = 0; i < ACTIONS; i++) {
+            play(journal);
+            states.add(encode(stateOf(engine)));
+        }
+        journal.close();
+        return journal;
+    }
+
+    // Plays the next action (a roll, a stone on the first legal cell, or a skip) and journals it if there is a journal
+    private void play(GameJournal journal) throws IOException {
+        int kind;
+        int cell = 0;
+        if (!engine.hasRolled() && !engine.hasDisplacedStone()) {
+            kind = KiviEngine.ROLL;
+            engine.roll();
+        } else if (engine.getLegalCells() == 0) {
+            kind = KiviEngine.SKIP;
+            engine.skip();
+        } else {
+            kind = engine.hasDisplacedStone() ? KiviEngine.PLACE_DISPLACED : KiviEngine.PLACE;
+            cell = Long.numberOfTrailingZeros(engine.getLegalCells());
+            engine.place(Board.rowOf(cell), Board.colOf(cell));
+        }
+        if (journal != null) {
+            journal.append(kind, cell, engine.getDiceRolls());
+        }
+    }
+
+    // Checks that recovery rebuilds the game after the given number of journaled actions
+    private void assertRecovers(int actions) throws IOException {
+        assertArrayEquals(states.get(actions), encode(GameJournal.recover(snapshotFile, journalFile)));
+    }
+
+    // Captures the game
+    private static GameState stateOf(KiviEngine engine) {
+        return engine.toGameState(false, null, false, false, false, 0);
+    }
+
+    // Encodes a game into its save bytes
+    private static byte[] encode(GameState state) {
+        ByteBuffer buffer = ByteBuffer.allocate(GameStateCodec.SIZE);
+        GameStateCodec.encode(state, buffer);
+        return buffer.array();
+    }
+}
@@ -0,0 +1,191 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Regression tests for the binary save format of GameStateCodec
+ *
+ * Saves are written with the layout documented on GameStateCodec. The
+ * offsets below are that layout, so a change to the format has to change
+ * these tests with it.
+ *
+ * @author Group 4
+ */
+class GameStateCodecTest {
+    private static final int FLAGS = 5; // Offsets of the fields a test tampers with
+    private static final int DIFFICULTY = 7;
+    private static final int DICE = 16;
+    private static final int OWNERS = 26;
+    private static final int ROLLED_FLAG = 1 << 4;
+    private static final int COMPUTER_FLAG = 1;
+
+    // Every position of a few seeded games, in both players' turns and before and after a roll, decodes to itself
+    @Test
+    void roundTripsEveryPositionOfAGame() throws IOException {
+        for (long seed = 1; seed <= 20; seed++) {
+            KiviEngine engine = new KiviEngine(2 + (int) (seed % 3), seed);
+            while (!engine.isGameOver()) {
+                GameState state = engine.toGameState(seed % 2 == 0, seed % 2 == 0 ? "Hard" : null,
+                        seed % 5 == 0, seed % 7 == 0, false, (int) (seed % 4));
+                assertSameState(state, GameStateCodec.decode(encode(state)));
+                play(engine);
+            }
+        }
+    }
+
+    // A save decodes from the buffer's position and leaves the buffer after it
+    @Test
+    void decodesAtTheBufferPosition() throws IOException {
+        GameState state = midGame(3);
+        ByteBuffer buffer = ByteBuffer.allocate(GameStateCodec.SIZE + 10);
+        buffer.position(10);
+        GameStateCodec.encode(state, buffer);
+        buffer.position(10);
+        assertSameState(state, GameStateCodec.decode(buffer));
+        assertEquals(GameStateCodec.SIZE + 10, buffer.position());
+    }
+
+    // A rolled save must hold six dice from 1 to 6
+    @Test
+    void rejectsARolledSaveWithoutDice() {
+        byte[] save = rolledSave();
+        save[DICE] = 0;
+        assertRejected(save, "die");
+
+        save = rolledSave();
+        save[DICE + 2] = (byte) 0x17; // A 7
+        assertRejected(save, "die");
+    }
+
+    // A save before the roll must hold no dice
+    @Test
+    void rejectsDiceBeforeTheRoll() {
+        byte[] save = rolledSave();
+        save[FLAGS] &= ~ROLLED_FLAG;
+        assertRejected(save, "die before the roll");
+    }
+
+    // Stones must belong to one of the players of the save
+    @Test
+    void rejectsAStoneOwnerBeyondThePlayerCount() {
+        KiviEngine engine = new KiviEngine(2, 7L);
+        int[] dice = {6, 6, 6, 6, 6, 6};
+        engine.roll(dice);
+        engine.place(0, 0); // Six of a kind: any cell
+        byte[] save = bytes(engine.toGameState(false, null, false, false, false, 0));
+        save[OWNERS] |= 0x3; // Cell 0 owned by player 4
+        assertRejected(save, "stone owner");
+    }
+
+    // A computer player must have a difficulty
+    @Test
+    void rejectsAComputerPlayerWithoutADifficulty() {
+        byte[] save = bytes(midGame(5));
+        save[FLAGS] |= COMPUTER_FLAG;
+        save[DIFFICULTY] = 0;
+        assertRejected(save, "difficulty for the computer player");
+    }
+
+    // A flipped bit anywhere between the version and the checksum is caught by it
+    @Test
+    void rejectsAChecksumMismatch() {
+        byte[] save = bytes(midGame(9));
+        for (int offset = FLAGS; offset < GameStateCodec.CRC_OFFSET; offset++) {
+            byte[] corrupt = save.clone();
+            corrupt[offset] ^= 0x20;
+            IOException e = assertThrows(IOException.class, () -> GameStateCodec.decode(ByteBuffer.wrap(corrupt)));
+            assertEquals("Save is corrupt (checksum mismatch)", e.getMessage(), "byte " + offset);
+        }
+    }
+
+    // A difficulty the format has no code for is refused when saving, not when resuming
+    @Test
+    void refusesToEncodeAnUnknownDifficulty() {
+        GameState state = new KiviEngine(2, 1L).toGameState(true, "Impossible", false, false, false, 0);
+        assertThrows(IllegalArgumentException.class, () -> encode(state));
+    }
+
+    // Plays a seeded game for some actions and captures it
+    private static GameState midGame(long seed) {
+        KiviEngine engine = new KiviEngine(3, seed);
+        for (int i = 0; i < 25 && !engine.isGameOver(); i++) {
+            play(engine);
+        }
+        return engine.toGameState(false, null, false, false, false, 0);
+    }
+
+    // Encodes a save of the current player after they rolled, with its dice
+    private static byte[] rolledSave() {
+        KiviEngine engine = new KiviEngine(2, 11L);
+        engine.roll();
+        return bytes(engine.toGameState(false, null, false, false, false, 0));
+    }
+
+    // Plays the next action: a roll, a stone on the first legal cell, or a skip
+    static void play(KiviEngine engine) {
+        if (!engine.hasRolled() && !engine.hasDisplacedStone()) {
+            engine.roll();
+            return;
+        }
+        long legal = engine.getLegalCells();
+        if (legal == 0) {
+            engine.skip();
+            return;
+        }
+        int cell = Long.numberOfTrailingZeros(legal);
+        engine.place(Board.rowOf(cell), Board.colOf(cell));
+    }
+
+    // Encodes a state into a buffer ready to decode
+    private static ByteBuffer encode(GameState state) {
+        ByteBuffer buffer = ByteBuffer.allocate(GameStateCodec.SIZE);
+        GameStateCodec.encode(state, buffer);
+        return buffer.flip();
+    }
+
+    // Encodes a state into its bytes
+    private static byte[] bytes(GameState state) {
+        return encode(state).array();
+    }
+
+    // Checks that a save is rejected for the given field, even with its checksum made to match
+    private static void assertRejected(byte[] save, String field) {
+        ByteBuffer buffer = ByteBuffer.wrap(save);
+        CRC32 crc = new CRC32();
+        crc.update(save, 0, GameStateCodec.CRC_OFFSET);
+        buffer.putInt(GameStateCodec.CRC_OFFSET, (int) crc.getValue());
+        IOException e = assertThrows(IOException.class, () -> GameStateCodec.decode(buffer));
+        assertTrue(e.getMessage().startsWith("Save has an invalid " + field + ":"), e.getMessage());
+    }
+
+    // Checks that two states hold the same game
+    static void assertSameState(GameState expected, GameState actual) {
+        assertEquals(expected.getPlayerCount(), actual.getPlayerCount());
+        assertEquals(expected.hasComputerPlayer(), actual.hasComputerPlayer());
+        assertEquals(expected.getComputerDifficulty(), actual.getComputerDifficulty());
+        assertEquals(expected.isMonochrome(), actual.isMonochrome());
+        assertEquals(expected.isProtanopia(), actual.isProtanopia());
+        assertEquals(expected.isTritanopia(), actual.isTritanopia());
+        assertEquals(expected.getBoard().getOccupied(), actual.getBoard().getOccupied());
+        for (int cell = 0; cell < Board.CELL_COUNT; cell++) {
+            assertEquals(expected.getBoard().getOwner(cell), actual.getBoard().getOwner(cell), "owner of cell " + cell);
+        }
+        assertArrayEquals(expected.getTurnsRemaining(), actual.getTurnsRemaining());
+        assertEquals(expected.getCurrentPlayer(), actual.getCurrentPlayer());
+        assertEquals(expected.getTurnsLeft(), actual.getTurnsLeft());
+        assertEquals(expected.hasRolled(), actual.hasRolled());
+        if (expected.hasRolled()) {
+            assertArrayEquals(expected.getDiceRolls(), actual.getDiceRolls());
+        }
+        assertEquals(expected.getDisplacedRow(), actual.getDisplacedRow());
+        assertEquals(expected.getDisplacedPlayer(), actual.getDisplacedPlayer());
+        assertArrayEquals(expected.getBoardPoints(), actual.getBoardPoints());
+    }
+}
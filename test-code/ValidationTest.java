@@ -0,0 +1,248 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Regression tests for the combination mask table of Validation
+ *
+ * Validation looks every roll up in a table built once. These tests check
+ * the table against the per-string checks Validation ran on every call
+ * before it, kept here as BaselineChecks, for all 46,656 rolls of six dice.
+ *
+ * @author Group 4
+ */
+class ValidationTest {
+    private static final int ROLLS = 6 * 6 * 6 * 6 * 6 * 6; // Every roll of six dice
+
+    // Every roll allows the same cells through the mask table as through the per-string checks
+    @Test
+    void matchesThePerStringChecksForEveryRoll() {
+        int[] dice = new int[6];
+        for (int roll = 0; roll < ROLLS; roll++) {
+            for (int i = 0, key = roll; i < dice.length; i++, key /= 6) {
+                dice[i] = key % 6 + 1;
+            }
+            Validation validation = new Validation(dice.clone());
+            BaselineChecks baseline = new BaselineChecks(dice.clone());
+            String rolled = Arrays.toString(dice);
+
+            assertEquals(baseline.isSixOfAKind(), validation.isSixOfAKind(), rolled);
+            assertEquals(baseline.isFiveOfAKind(), validation.isFiveOfAKind(), rolled);
+            assertEquals(baseline.isStraightOneToSix(), validation.isStraightOneToSix(), rolled);
+            for (int index = 0; index < CellManager.getCombinationCount(); index++) {
+                String combination = CellManager.getCombination(index);
+                for (boolean isOccupied : new boolean[] {false, true}) {
+                    boolean expected = baseline.isValidPlacement(combination, isOccupied);
+                    assertEquals(expected, validation.isValidPlacement(index, isOccupied), rolled + " " + combination);
+                    assertEquals(expected, validation.isValidPlacement(combination, isOccupied), rolled + " " + combination);
+                }
+            }
+            for (boolean isOccupied : new boolean[] {false, true}) {
+                assertEquals(baseline.isValidPlacement("AB", isOccupied), validation.isValidPlacement("AB", isOccupied),
+                        rolled + " unknown combination");
+            }
+        }
+    }
+
+    // The per-string checks of Validation before the mask table
+    private static class BaselineChecks {
+        private final int[] diceRolls;
+
+        // Constructor keeps the dice rolls
+        BaselineChecks(int[] diceRolls) {
+            this.diceRolls = diceRolls;
+        }
+
+        // Checks if the dice satisfy the given combination or if it's a special roll
+        boolean isValidPlacement(String combination, boolean isOccupied) {
+            if (isSixOfAKind()) {
+                return true;
+            } else if (isFiveOfAKind() || isStraightOneToSix()) {
+                return !isOccupied;
+            } else if (isOccupied) {
+                return false;
+            }
+
+            int[] sortedDice = diceRolls.clone();
+            Arrays.sort(sortedDice);
+
+            switch (combination) {
+                case "AA BB": return checkTwoPairs(sortedDice);
+                case "AAA": return checkThreeOfAKind(sortedDice);
+                case "ABCD": return checkLittleStraight(sortedDice);
+                case "AAA BB": return checkFullHouse(sortedDice);
+                case "AAAA": return checkFourOfAKind(sortedDice);
+                case "ABCDE": return checkLargeStraight(sortedDice);
+                case "= 2,4,6": return checkAllEven(diceRolls);
+                case "= 1,3,5": return checkAllOdd(diceRolls);
+                case "<= 12": return checkSumLessThanOrEqual(diceRolls, 12);
+                case ">= 30": return checkSumGreaterThanOrEqual(diceRolls, 30);
+                case "AA BB CC": return checkThreePairs(sortedDice);
+                case "AAA BBB": return checkTwoThreeOfAKind(sortedDice);
+                case "AAAA BB": return checkFourOfAKindAndPair(sortedDice);
+                default: return false;
+            }
+        }
+
+        // Checks if at least five dice are the same
+        boolean isFiveOfAKind() {
+            for (int i = 1; i <= 6; i++) {
+                int count = 0;
+                for (int die : diceRolls) {
+                    if (die == i) {
+                        count++;
+                        if (count == 5) return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        // Checks if all six dice are the same
+        boolean isSixOfAKind() {
+            for (int i = 1; i < diceRolls.length; i++) {
+                if (diceRolls[i] != diceRolls[0]) return false;
+            }
+            return true;
+        }
+
+        // Checks if the dice form a straight from 1 to 6
+        boolean isStraightOneToSix() {
+            int[] sortedDice = diceRolls.clone();
+            Arrays.sort(sortedDice);
+            for (int i = 0; i < sortedDice.length; i++) {
+                if (sortedDice[i] != i + 1) return false;
+            }
+            return true;
+        }
+
+        // Checks for two pairs in the dice
+        private boolean checkTwoPairs(int[] dice) {
+            int pairs = 0;
+            for (int i = 0; i < dice.length - 1; i++) {
+                if (dice[i] == dice[i + 1]) {
+                    pairs++;
+                    i++;
+                }
+            }
+            return pairs >= 2;
+        }
+
+        // Checks for three of a kind in the dice
+        private boolean checkThreeOfAKind(int[] dice) {
+            for (int i = 0; i <= dice.length - 3; i++) {
+                if (dice[i] == dice[i + 2]) return true;
+            }
+            return false;
+        }
+
+        // Checks for a little straight (four unique consecutive numbers)
+        private boolean checkLittleStraight(int[] dice) {
+            ArrayList<Integer> uniqueDice = new ArrayList<>();
+            for (int die : dice) {
+                if (!uniqueDice.contains(die)) {
+                    uniqueDice.add(die);
+                }
+            }
+            for (int i = 0; i <= uniqueDice.size() - 4; i++) {
+                if (uniqueDice.get(i + 3) - uniqueDice.get(i) == 3 &&
+                    uniqueDice.get(i + 1) == uniqueDice.get(i) + 1 &&
+                    uniqueDice.get(i + 2) == uniqueDice.get(i) + 2) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // Checks for a full house (three of a kind and a pair)
+        private boolean checkFullHouse(int[] dice) {
+            return checkThreeOfAKind(dice) && checkTwoPairs(dice);
+        }
+
+        // Checks for four of a kind in the dice
+        private boolean checkFourOfAKind(int[] dice) {
+            for (int i = 0; i <= dice.length - 4; i++) {
+                if (dice[i] == dice[i + 3]) return true;
+            }
+            return false;
+        }
+
+        // Checks for a large straight (five unique consecutive numbers)
+        private boolean checkLargeStraight(int[] dice) {
+            ArrayList<Integer> uniqueDice = new ArrayList<>();
+            for (int die : dice) {
+                if (!uniqueDice.contains(die)) {
+                    uniqueDice.add(die);
+                }
+            }
+            return uniqueDice.equals(Arrays.asList(1, 2, 3, 4, 5)) ||
+                   uniqueDice.equals(Arrays.asList(2, 3, 4, 5, 6));
+        }
+
+        // Checks if all dice are even
+        private boolean checkAllEven(int[] dice) {
+            for (int die : dice) {
+                if (die % 2 != 0) return false;
+            }
+            return true;
+        }
+
+        // Checks if all dice are odd
+        private boolean checkAllOdd(int[] dice) {
+            for (int die : dice) {
+                if (die % 2 == 0) return false;
+            }
+            return true;
+        }
+
+        // Checks if the sum of the dice is less than or equal to a threshold
+        private boolean checkSumLessThanOrEqual(int[] dice, int threshold) {
+            int sum = 0;
+            for (int die : dice) sum += die;
+            return sum <= threshold;
+        }
+
+        // Checks if the sum of the dice is greater than or equal to a threshold
+        private boolean checkSumGreaterThanOrEqual(int[] dice, int threshold) {
+            int sum = 0;
+            for (int die : dice) sum += die;
+            return sum >= threshold;
+        }
+
+        // Checks for three pairs in the dice
+        private boolean checkThreePairs(int[] dice) {
+            int pairs = 0;
+            for (int i = 0; i < dice.length - 1; i++) {
+                if (dice[i] == dice[i + 1]) {
+                    pairs++;
+                    i++;
+                }
+            }
+            return pairs == 3;
+        }
+
+        // Checks for two three-of-a-kind in the dice
+        private boolean checkTwoThreeOfAKind(int[] dice) {
+            int firstThree = -1;
+            for (int i = 0; i <= dice.length - 3; i++) {
+                if (dice[i] == dice[i + 2]) {
+                    firstThree = dice[i];
+                    break;
+                }
+            }
+            if (firstThree == -1) return false;
+            for (int i = 0; i <= dice.length - 3; i++) {
+                if (dice[i] != firstThree && dice[i] == dice[i + 2]) return true;
+            }
+            return false;
+        }
+
+        // Checks for four of a kind and a pair in the dice
+        private boolean checkFourOfAKindAndPair(int[] dice) {
+            return checkFourOfAKind(dice) && checkTwoPairs(dice);
+        }
+    }
+}